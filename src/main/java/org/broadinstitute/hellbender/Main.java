@@ -58,6 +58,11 @@ public class Main {
      */
     private static final int COMMANDLINE_EXCEPTION_EXIT_VALUE = 1;
 
+    /**
+     * The packages searched for command line programs by default (see {@link #getPackageList()}).
+     */
+    public static final List<String> DEFAULT_COMMAND_LINE_PACKAGES = Collections.unmodifiableList(Arrays.asList("org.broadinstitute.hellbender"));
+
     /**
      * exit value when an unrecoverable {@link UserException} occurs
      */
@@ -87,7 +92,7 @@ public class Main {
      */
     protected List<String> getPackageList() {
         final List<String> packageList = new ArrayList<>();
-        packageList.addAll(Arrays.asList("org.broadinstitute.hellbender"));
+        packageList.addAll(DEFAULT_COMMAND_LINE_PACKAGES);
         return packageList;
     }
 
@@ -282,7 +287,9 @@ public class Main {
                 if (simpleNameToClass.containsKey(args[0])) {
                     final Class<?> clazz = simpleNameToClass.get(args[0]);
                     try {
-                        return (CommandLineProgram) clazz.newInstance();
+                        final CommandLineProgram program = (CommandLineProgram) clazz.newInstance();
+                        program.setDiscoveryStatistics(classFinder.getStatistics());
+                        return program;
                     } catch (final InstantiationException | IllegalAccessException e) {
                         throw new RuntimeException(e);
                     }
@@ -3,12 +3,17 @@ package org.broadinstitute.hellbender.cmdline;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -17,6 +22,10 @@ import java.util.zip.ZipFile;
  * Utility class that can scan for classes in the classpath and find all the ones
  * annotated with a particular annotation.
  *
+ * A jar or directory on the classpath may hold a {@link ClassIndex} of the subclasses of a type, written at build
+ * time. The classes of a package in such a location are then read from the index rather than by loading every class
+ * in the package; packages in locations without an index (such as plugin jars) are still scanned.
+ *
  * @author Tim Fennell
  */
 public final class ClassFinder {
@@ -25,6 +34,14 @@ public final class ClassFinder {
     private Class<?> parentType;
     // If not null, only look for classes in this jar
     private String jarPath = null;
+    private boolean useIndex = true;
+    // the indexes read so far, by location; a location without an index for the parent type maps to null
+    private final Map<String, ClassIndex> indexes = new HashMap<>();
+
+    // time spent finding classes by this instance, and how many were read from an index or scanned
+    private long findNanos = 0;
+    private long classesFromIndex = 0;
+    private long classesScanned = 0;
 
     private static final Logger log = LogManager.getLogger();
 
@@ -45,6 +62,14 @@ public final class ClassFinder {
         loader = new URLClassLoader(urls, Thread.currentThread().getContextClassLoader());
     }
 
+    /**
+     * Whether to read the classes of a package from the class index of its location, if there is one (the default),
+     * or always to scan the package.
+     */
+    public void setUseIndex(final boolean useIndex) {
+        this.useIndex = useIndex;
+    }
+
     /** Convert a filename to a class name by removing '.class' and converting '/'s to '.'s. */
     public String toClassName(final String filename) {
         return filename.substring(0, filename.lastIndexOf(".class"))
@@ -58,7 +83,20 @@ public final class ClassFinder {
      * can be accessed by calling {@link #getClasses()}.
      */
     public void find(String packageName, final Class<?> parentType) {
+        final long start = System.nanoTime();
+        try {
+            findInPackage(packageName, parentType);
+        } finally {
+            findNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void findInPackage(String packageName, final Class<?> parentType) {
+        if (this.parentType != parentType) {
+            indexes.clear();
+        }
         this.parentType = parentType;
+        final String dottedPackageName = packageName;
         packageName = packageName.replace('.', '/');
         final Enumeration<URL> urls;
 
@@ -86,7 +124,14 @@ public final class ClassFinder {
 
                 //Log.info("Looking for classes in location: " + urlPath);
                 final File file = new File(urlPath);
-                if ( file.isDirectory() ) {
+                final ClassIndex index = useIndex ? getIndex(file, packageName) : null;
+                if ( index != null && index.covers(dottedPackageName) ) {
+                    for (final String classname : index.getClassNames(dottedPackageName)) {
+                        loadClass(classname);
+                        classesFromIndex++;
+                    }
+                }
+                else if ( file.isDirectory() ) {
                     scanDir(file, packageName);
                 }
                 else {
@@ -99,19 +144,65 @@ public final class ClassFinder {
         }
     }
 
+    /**
+     * @param file a jar, or a package directory
+     * @param packagePath the path of the package, for a directory
+     * @return the index of the location of the jar or directory for the parent type, or null if there is none
+     */
+    private ClassIndex getIndex(final File file, final String packagePath) throws IOException {
+        final File location;
+        if (file.isDirectory()) {
+            final String path = file.getPath();
+            if (!path.replace('\\', '/').endsWith(packagePath)) {
+                return null;
+            }
+            location = new File(path.substring(0, path.length() - packagePath.length()));
+        } else {
+            location = file;
+        }
+        final String key = location.getPath();
+        if (!indexes.containsKey(key)) {
+            indexes.put(key, readIndex(location));
+        }
+        return indexes.get(key);
+    }
+
+    private ClassIndex readIndex(final File location) throws IOException {
+        final String resource = ClassIndex.getResourcePath(parentType);
+        if (location.isDirectory()) {
+            final File indexFile = new File(location, resource);
+            if (!indexFile.isFile()) {
+                return null;
+            }
+            try (final InputStream in = new FileInputStream(indexFile)) {
+                return ClassIndex.read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
+        }
+        try (final ZipFile zip = new ZipFile(location)) {
+            final ZipEntry entry = zip.getEntry(resource);
+            if (entry == null) {
+                return null;
+            }
+            try (final InputStream in = zip.getInputStream(entry)) {
+                return ClassIndex.read(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
     /**
      * Scans the entries in a ZIP/JAR file for classes under the parent package.
      * @param file the jar file to be scanned
      * @param packagePath the top level package to start from
      */
     protected void scanJar(final File file, final String packagePath) throws IOException {
-        final ZipFile zip = new ZipFile(file);
-        final Enumeration<? extends ZipEntry> entries = zip.entries();
-        while ( entries.hasMoreElements() ) {
-            final ZipEntry entry = entries.nextElement();
-            final String name = entry.getName();
-            if (name.startsWith(packagePath)) {
-                handleItem(name);
+        try (final ZipFile zip = new ZipFile(file)) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while ( entries.hasMoreElements() ) {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (name.startsWith(packagePath)) {
+                    handleItem(name);
+                }
             }
         }
     }
@@ -140,18 +231,21 @@ public final class ClassFinder {
      */
     protected void handleItem(final String name) {
         if (name.endsWith(".class")) {
-            final String classname = toClassName(name);
+            loadClass(toClassName(name));
+            classesScanned++;
+        }
+    }
 
-            try {
-                final Class<?> type = loader.loadClass(classname);
-                if (parentType.isAssignableFrom(type)) {
-                    this.classes.add(type);
-                }
-            }
-            catch (Throwable t) {
-                log.debug("could not load class: " + classname, t);
+    private void loadClass(final String classname) {
+        try {
+            final Class<?> type = loader.loadClass(classname);
+            if (parentType.isAssignableFrom(type)) {
+                this.classes.add(type);
             }
         }
+        catch (Throwable t) {
+            log.debug("could not load class: " + classname, t);
+        }
     }
 
     /** Fetches the set of classes discovered so far. */
@@ -185,4 +279,12 @@ public final class ClassFinder {
     public static boolean isConcrete( final Class<?> clazz ) {
         return ! Modifier.isAbstract(clazz.getModifiers()) && ! Modifier.isInterface(clazz.getModifiers());
     }
-}
\ No newline at end of file
+
+    /**
+     * @return a summary of the time spent finding classes so far by this finder, and of how they were found
+     */
+    public String getStatistics() {
+        return String.format("%.2f s spent finding classes: %d read from class indexes, %d scanned",
+                findNanos / 1e9, classesFromIndex, classesScanned);
+    }
+}
@@ -0,0 +1,142 @@
+package org.broadinstitute.hellbender.cmdline;
+
+import htsjdk.tribble.FeatureCodec;
+import org.broadinstitute.hellbender.Main;
+import org.broadinstitute.hellbender.engine.FeatureManager;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An index of the classes assignable to a type in some packages, written at build time by scanning the classpath
+ * (see {@link #main}), so that {@link ClassFinder} can find them at startup without loading every class in the
+ * packages.
+ *
+ * The index of a type is stored in the jar or directory that holds the classes, at {@link #getResourcePath}, as
+ * lines naming the packages that were scanned ({@code package <name>}) followed by the names of the classes found.
+ */
+public final class ClassIndex {
+
+    /**
+     * Location of the indexes, relative to the root of a jar or classes directory.
+     */
+    public static final String INDEX_DIRECTORY = "META-INF/gatk/class-index/";
+
+    private static final String PACKAGE_PREFIX = "package ";
+
+    /**
+     * The types that are indexed at build time, and the packages in which their subclasses are looked for at startup.
+     */
+    static final Map<Class<?>, List<String>> INDEXED_TYPES;
+    static {
+        final Map<Class<?>, List<String>> types = new LinkedHashMap<>();
+        types.put(CommandLineProgram.class, Main.DEFAULT_COMMAND_LINE_PACKAGES);
+        types.put(FeatureCodec.class, FeatureManager.CODEC_PACKAGES);
+        INDEXED_TYPES = Collections.unmodifiableMap(types);
+    }
+
+    private final List<String> packages;
+    private final SortedSet<String> classNames;
+
+    ClassIndex(final List<String> packages, final SortedSet<String> classNames) {
+        this.packages = Utils.nonNull(packages);
+        this.classNames = Utils.nonNull(classNames);
+    }
+
+    /**
+     * @return the path of the index of the subclasses of a type, relative to the root of a jar or classes directory
+     */
+    public static String getResourcePath(final Class<?> type) {
+        return INDEX_DIRECTORY + type.getName();
+    }
+
+    /**
+     * @return true if the package, or one of its parent packages, was scanned to make this index
+     */
+    boolean covers(final String packageName) {
+        for (final String indexed : packages) {
+            if (packageName.equals(indexed) || packageName.startsWith(indexed + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the names of the indexed classes in a package and its sub-packages
+     */
+    List<String> getClassNames(final String packageName) {
+        final String prefix = packageName + ".";
+        // class names are sorted, so those in the package are contiguous
+        return new ArrayList<>(classNames.subSet(prefix, prefix + Character.MAX_VALUE));
+    }
+
+    static ClassIndex read(final BufferedReader reader) throws IOException {
+        final List<String> packages = new ArrayList<>();
+        final SortedSet<String> classNames = new TreeSet<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith(PACKAGE_PREFIX)) {
+                packages.add(line.substring(PACKAGE_PREFIX.length()).trim());
+            } else if (!line.isEmpty()) {
+                classNames.add(line);
+            }
+        }
+        return new ClassIndex(packages, classNames);
+    }
+
+    /**
+     * Scans the classpath for the subclasses of a type in some packages, and writes their index.
+     *
+     * @param rootDirectory the root directory of the classes (the index is written at {@link #getResourcePath} in it)
+     */
+    static void write(final File rootDirectory, final Class<?> type, final List<String> packages) throws IOException {
+        final ClassFinder finder = new ClassFinder();
+        finder.setUseIndex(false);
+        for (final String packageName : packages) {
+            finder.find(packageName, type);
+        }
+        final SortedSet<String> classNames = new TreeSet<>();
+        finder.getClasses().forEach(c -> classNames.add(c.getName()));
+
+        final File indexFile = new File(rootDirectory, getResourcePath(type));
+        if (!indexFile.getParentFile().isDirectory() && !indexFile.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create directory " + indexFile.getParentFile());
+        }
+        try (final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(indexFile), StandardCharsets.UTF_8))) {
+            packages.forEach(p -> writer.println(PACKAGE_PREFIX + p));
+            classNames.forEach(writer::println);
+        }
+    }
+
+    /**
+     * Writes the indexes of all of the {@link #INDEXED_TYPES} found on the classpath, to be packaged with the classes.
+     * Run by the build after compiling the classes.
+     *
+     * @param args the root directory in which to write the indexes
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: ClassIndex <root directory of the classes> (got " + Arrays.toString(args) + ")");
+        }
+        final File rootDirectory = new File(args[0]);
+        for (final Map.Entry<Class<?>, List<String>> type : INDEXED_TYPES.entrySet()) {
+            write(rootDirectory, type.getKey(), type.getValue());
+        }
+    }
+}
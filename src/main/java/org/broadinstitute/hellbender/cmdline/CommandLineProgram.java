@@ -26,6 +26,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.text.DecimalFormat;
 import java.time.Duration;
@@ -87,6 +88,11 @@ public abstract class CommandLineProgram implements CommandLinePluginProvider {
      */
     private String commandLine;
 
+    /**
+     * Summary of how the command line programs were found, logged with the startup time, or null if not known.
+     */
+    private String discoveryStatistics = null;
+
     /**
      * Perform initialization/setup after command-line argument parsing but before doWork() is invoked.
      * Default implementation does nothing.
@@ -168,6 +174,7 @@ public abstract class CommandLineProgram implements CommandLinePluginProvider {
 
                 // Print important settings to the logger:
                 printSettings();
+                logStartupTime();
             }
             catch (final Exception e) { /* Unpossible! */ }
         }
@@ -279,6 +286,23 @@ public abstract class CommandLineProgram implements CommandLinePluginProvider {
         this.defaultHeaders.addAll(headers);
     }
 
+    /**
+     * Sets the summary of how the command line programs were found, to be logged with the startup time.
+     */
+    public final void setDiscoveryStatistics(final String discoveryStatistics) {
+        this.discoveryStatistics = discoveryStatistics;
+    }
+
+    /**
+     * Log the time between the start of the JVM and the start of this program, and the part of it spent finding the
+     * command line programs, if known.
+     */
+    private void logStartupTime() {
+        final double uptimeSeconds = ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0;
+        logger.info(String.format("Started %.1f seconds after the JVM", uptimeSeconds)
+                + (discoveryStatistics == null ? "" : " (" + discoveryStatistics + ")"));
+    }
+
     /**
      * Output a curated set of important settings to the logger.
      *
@@ -29,6 +29,13 @@ public final class StandardArgumentDefinitions {
     public static final String CLOUD_PREFETCH_BUFFER_LONG_NAME = "cloudPrefetchBuffer";
     public static final String CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME = "cloudIndexPrefetchBuffer";
     public static final String DISABLE_BAM_INDEX_CACHING_LONG_NAME = "disableBamIndexCaching";
+    public static final String READ_AHEAD_QUEUE_SIZE_LONG_NAME = "readAheadQueueSize";
+    public static final String READ_AHEAD_BATCH_SIZE_LONG_NAME = "readAheadBatchSize";
+    public static final String VARIANT_DECODE_THREADS_LONG_NAME = "variantDecodeThreads";
+    public static final String VARIANT_DECODE_SHARD_SIZE_LONG_NAME = "variantDecodeShardSize";
+    public static final String CACHE_READS_FOR_SECOND_PASS_LONG_NAME = "cacheReadsForSecondPass";
+    public static final String READ_CACHE_MAX_MEMORY_LONG_NAME = "readCacheMaxMemory";
+    public static final String SPARSE_SITE_TRAVERSAL_LONG_NAME = "sparseSiteTraversal";
     public static final String DISABLE_SEQUENCE_DICT_VALIDATION_NAME = "disableSequenceDictionaryValidation";
     public static final String ADD_OUTPUT_SAM_PROGRAM_RECORD = "addOutputSAMProgramRecord";
     public static final String ADD_OUTPUT_VCF_COMMANDLINE = "addOutputVCFCommandLine";
@@ -65,6 +72,8 @@ public final class StandardArgumentDefinitions {
     public static final String CLOUD_PREFETCH_BUFFER_SHORT_NAME = "CPB";
     public static final String CLOUD_INDEX_PREFETCH_BUFFER_SHORT_NAME = "CIPB";
     public static final String DISABLE_BAM_INDEX_CACHING_SHORT_NAME = "DBIC";
+    public static final String READ_AHEAD_QUEUE_SIZE_SHORT_NAME = "RAQS";
+    public static final String READ_AHEAD_BATCH_SIZE_SHORT_NAME = "RABS";
 
     public static final String SPARK_PROPERTY_NAME = "conf";
 
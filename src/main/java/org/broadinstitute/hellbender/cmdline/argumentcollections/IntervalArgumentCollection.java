@@ -127,38 +127,38 @@ public abstract class IntervalArgumentCollection implements Serializable {
             throw new GATKException("Cannot call parseIntervals() without specifying either intervals to include or exclude.");
         }
 
-        GenomeLocSortedSet includeSortedSet;
+        final IntervalArraySet includeSet;
         if (getIntervalStrings().isEmpty()){
             // the -L argument isn't specified, which means that -XL was, since we checked intervalsSpecified()
             // therefore we set the include set to be the entire reference territory
-            includeSortedSet = GenomeLocSortedSet.createSetFromSequenceDictionary(genomeLocParser.getSequenceDictionary());
+            includeSet = IntervalArraySet.fromSequenceDictionary(genomeLocParser.getSequenceDictionary());
         } else {
             try {
-                includeSortedSet = IntervalUtils.loadIntervals(getIntervalStrings(), intervalSetRule, intervalMerging, intervalPadding, genomeLocParser);
+                includeSet = IntervalUtils.loadIntervalArraySet(getIntervalStrings(), intervalSetRule, intervalMerging, intervalPadding, genomeLocParser);
             } catch( UserException.EmptyIntersection e) {
                 throw new CommandLineException.BadArgumentValue("-L, --interval_set_rule", getIntervalStrings()+","+intervalSetRule, "The specified intervals had an empty intersection");
             }
         }
 
-        final GenomeLocSortedSet excludeSortedSet = IntervalUtils.loadIntervals(excludeIntervalStrings, IntervalSetRule.UNION, intervalMerging, intervalExclusionPadding, genomeLocParser);
-        if ( excludeSortedSet.contains(GenomeLoc.UNMAPPED) ) {
+        final IntervalArraySet excludeSet = IntervalUtils.loadIntervalArraySet(excludeIntervalStrings, IntervalSetRule.UNION, intervalMerging, intervalExclusionPadding, genomeLocParser);
+        if ( excludeSet.includesUnmapped() ) {
             throw new UserException("-XL unmapped is not currently supported");
         }
 
-        GenomeLocSortedSet intervals;
+        final IntervalArraySet intervals;
         // if no exclude arguments, can return the included set directly
-        if ( excludeSortedSet.isEmpty() ) {
-            intervals = includeSortedSet;
-        }// otherwise there are exclude arguments => must merge include and exclude GenomeLocSortedSets
+        if ( excludeSet.isEmpty() ) {
+            intervals = includeSet;
+        }// otherwise there are exclude arguments => must subtract the exclude set from the include set
         else {
-            intervals = includeSortedSet.subtractRegions(excludeSortedSet);
+            intervals = includeSet.subtract(excludeSet);
 
             if( intervals.isEmpty()){
                 throw new CommandLineException.BadArgumentValue("-L,-XL",getIntervalStrings().toString() + ", "+excludeIntervalStrings.toString(),"The intervals specified for exclusion with -XL removed all territory specified by -L.");
             }
             // logging messages only printed when exclude (-XL) arguments are given
-            final long toPruneSize = includeSortedSet.coveredSize();
-            final long toExcludeSize = excludeSortedSet.coveredSize();
+            final long toPruneSize = includeSet.coveredSize();
+            final long toExcludeSize = excludeSet.coveredSize();
             final long intervalSize = intervals.coveredSize();
             logger.info(String.format("Initial include intervals span %d loci; exclude intervals span %d loci", toPruneSize, toExcludeSize));
             logger.info(String.format("Excluding %d loci from original intervals (%.2f%% reduction)",
@@ -167,14 +167,8 @@ public abstract class IntervalArgumentCollection implements Serializable {
 
         logger.info(String.format("Processing %d bp from intervals", intervals.coveredSize()));
 
-        // Separate out requests for unmapped records from the rest of the intervals.
-        boolean traverseUnmapped = false;
-        if ( intervals.contains(GenomeLoc.UNMAPPED) ) {
-            traverseUnmapped = true;
-            intervals.remove(GenomeLoc.UNMAPPED);
-        }
-
-        traversalParameters = new TraversalParameters(IntervalUtils.convertGenomeLocsToSimpleIntervals(intervals.toList()), traverseUnmapped);
+        // Requests for unmapped records are kept apart from the rest of the intervals.
+        traversalParameters = new TraversalParameters(intervals.toList(), intervals.includesUnmapped());
     }
 
 
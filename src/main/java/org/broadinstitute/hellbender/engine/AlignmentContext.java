@@ -5,12 +5,14 @@ import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.hellbender.utils.HasGenomeLocation;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.pileup.PrimitivePileup;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Bundles together a pileup and a location.
@@ -24,7 +26,13 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     public enum ReadOrientation { COMPLETE, FORWARD, REVERSE }
 
     private final Locatable loc;
-    private final ReadPileup basePileup;
+
+    // at least one of these is non-null; the other is created from it on demand
+    private ReadPileup basePileup;
+    private PrimitivePileup primitivePileup;
+
+    // if non-null, takes back the primitive pileup for reuse when this context is released
+    private Consumer<PrimitivePileup> primitivePileupRecycler;
 
     private boolean hasPileupBeenDownsampled;
 
@@ -41,12 +49,53 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
         this.hasPileupBeenDownsampled = hasPileupBeenDownsampled;
     }
 
+    private AlignmentContext(final Locatable loc, final PrimitivePileup primitivePileup, final Consumer<PrimitivePileup> primitivePileupRecycler) {
+        this.loc = loc;
+        this.primitivePileup = primitivePileup;
+        this.primitivePileupRecycler = primitivePileupRecycler;
+        this.hasPileupBeenDownsampled = false;
+    }
+
+    /**
+     * Create an alignment context backed by a primitive pileup. The {@link ReadPileup} returned by
+     * {@link #getBasePileup} is only created if it is asked for.
+     *
+     * The primitive pileup must not be modified after this call.
+     */
+    public static AlignmentContext fromPrimitivePileup(final Locatable loc, final PrimitivePileup primitivePileup) {
+        return fromPrimitivePileup(loc, primitivePileup, null);
+    }
+
+    /**
+     * As {@link #fromPrimitivePileup(Locatable, PrimitivePileup)}, but {@link #release} hands the primitive pileup to
+     * recycler, so that its producer can reuse its arrays for a later locus.
+     */
+    public static AlignmentContext fromPrimitivePileup(final Locatable loc, final PrimitivePileup primitivePileup, final Consumer<PrimitivePileup> recycler) {
+        Utils.nonNull(loc, "BUG: GenomeLoc in Alignment context is null");
+        Utils.nonNull(primitivePileup, "BUG: PrimitivePileup in Alignment context is null");
+        return new AlignmentContext(loc, primitivePileup, recycler);
+    }
+
+    /**
+     * Declares that neither this context nor its primitive pileup will be used anymore, so that the pileup may be
+     * reused for a later locus if its producer asked for that. A {@link ReadPileup} already obtained from
+     * {@link #getBasePileup} stays valid. Does nothing for contexts whose pileup is not recycled.
+     */
+    public void release() {
+        if (primitivePileupRecycler != null) {
+            final Consumer<PrimitivePileup> recycler = primitivePileupRecycler;
+            primitivePileupRecycler = null;
+            recycler.accept(primitivePileup);
+            primitivePileup = null;
+        }
+    }
+
     /**
      * How many reads cover this locus?
      * @return
      */
     public int size() {
-        return basePileup.size();
+        return primitivePileup != null ? primitivePileup.size() : basePileup.size();
     }
 
     @Override
@@ -76,9 +125,26 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     public boolean hasPileupBeenDownsampled() { return hasPileupBeenDownsampled; }
 
     public ReadPileup getBasePileup() {
+        if (basePileup == null) {
+            basePileup = primitivePileup.toReadPileup();
+        }
         return basePileup;
     }
 
+    /**
+     * Returns the pileup in primitive form. This is cheap if this context was created from a {@link PrimitivePileup}
+     * (as by a {@link org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState} set up to produce them),
+     * and otherwise is converted from the base pileup.
+     *
+     * The returned pileup must not be modified.
+     */
+    public PrimitivePileup getPrimitivePileup() {
+        if (primitivePileup == null) {
+            primitivePileup = PrimitivePileup.of(basePileup);
+        }
+        return primitivePileup;
+    }
+
     /**
      * Returns a potentially derived subcontext containing only forward, reverse, or in fact all reads
      * in alignment context context.
@@ -88,9 +154,9 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
             case COMPLETE:
                 return this;
             case FORWARD:
-                return new AlignmentContext(loc, basePileup.makeFilteredPileup(pe -> !pe.getRead().isReverseStrand()));
+                return new AlignmentContext(loc, getBasePileup().makeFilteredPileup(pe -> !pe.getRead().isReverseStrand()));
             case REVERSE:
-                return new AlignmentContext(loc, basePileup.makeFilteredPileup(pe -> pe.getRead().isReverseStrand()));
+                return new AlignmentContext(loc, getBasePileup().makeFilteredPileup(pe -> pe.getRead().isReverseStrand()));
             default:
                 throw new IllegalArgumentException("Unable to get alignment context for type = " + type);
         }
@@ -134,7 +200,7 @@ public final class AlignmentContext implements Locatable, HasGenomeLocation {
     public String toString() {
         return "AlignmentContext{" +
                 "loc=" + loc +
-                ", basePileup=" + basePileup +
+                ", basePileup=" + getBasePileup() +
                 ", hasPileupBeenDownsampled=" + hasPileupBeenDownsampled +
                 '}';
     }
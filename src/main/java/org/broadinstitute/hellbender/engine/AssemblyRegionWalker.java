@@ -9,7 +9,7 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
-import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
+import org.broadinstitute.hellbender.utils.downsampling.StreamingPositionalDownsampler;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.util.ArrayList;
@@ -72,6 +72,10 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     @Argument(fullName = "maxReadsPerAlignmentStart", shortName = "maxReadsPerAlignmentStart", doc = "Maximum number of reads to retain per alignment start position. Reads above this threshold will be downsampled. Set to 0 to disable.", optional = true)
     protected int maxReadsPerAlignmentStart = defaultMaxReadsPerAlignmentStart();
 
+    @Advanced
+    @Argument(fullName = "downsamplePerSample", shortName = "downsamplePerSample", doc = "If true, apply maxReadsPerAlignmentStart to the reads of each sample separately rather than to all reads together", optional = true)
+    protected boolean downsamplePerSample = false;
+
     @Advanced
     @Argument(fullName = "activeProbabilityThreshold", shortName = "activeProbabilityThreshold", doc="Minimum probability for a locus to be considered active.", optional = true)
     protected double activeProbThreshold = defaultActiveProbThreshold();
@@ -131,6 +135,8 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     
     private List<LocalReadShard> readShards;
     private Shard<GATKRead> currentReadShard;
+    private long numDownsampledPositions;
+    private long numDownsampledReads;
 
     /**
      * Initialize data sources for traversal.
@@ -225,13 +231,22 @@ public abstract class AssemblyRegionWalker extends GATKTool {
             // Since reads in each shard are lazily fetched, we need to pass the filter to the window
             // instead of filtering the reads directly here
             readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(maxReadsPerAlignmentStart, getHeaderForReads()) : null);
+            readShard.setDownsampler(maxReadsPerAlignmentStart > 0 ? new StreamingPositionalDownsampler(maxReadsPerAlignmentStart, getHeaderForReads(), downsamplePerSample, this::recordDiscardedReads) : null);
             currentReadShard = readShard;
 
             processReadShard(readShard, reference, features);
         }
 
         logger.info(countedFilter.getSummaryLine());
+        if ( numDownsampledPositions > 0 ) {
+            logger.info("Downsampling discarded " + numDownsampledReads + " reads at " + numDownsampledPositions + " alignment start positions");
+        }
+    }
+
+    private void recordDiscardedReads( final SimpleInterval position, final int numDiscarded ) {
+        numDownsampledPositions++;
+        numDownsampledReads += numDiscarded;
+        logger.debug("Downsampling discarded " + numDiscarded + " reads starting at " + position);
     }
 
     /**
@@ -144,6 +144,14 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
         cachedInterval = interval;
     }
 
+    /**
+     * Empty our cache, so that the next query is a cache miss.
+     */
+    public void clear() {
+        cache.clear();
+        cachedInterval = null;
+    }
+
     /**
      * Determines whether all records overlapping the provided interval are already contained in our cache.
      *
@@ -5,6 +5,7 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.tribble.*;
 import htsjdk.variant.bcf2.BCF2Codec;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
 import htsjdk.variant.vcf.VCFHeader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,11 +19,14 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
+import org.broadinstitute.hellbender.utils.variant.ProjectingVCFCodec;
+import org.broadinstitute.hellbender.utils.variant.VariantProjection;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
@@ -117,6 +121,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final boolean supportsRandomAccess;
 
+    /**
+     * The codec used to decode a VCF text file, which can skip columns the tool does not need (see
+     * {@link #setVariantProjection}), or null for any other kind of input.
+     */
+    private final ProjectingVCFCodec projectingCodec;
+
     /**
      * Default value for queryLookaheadBases, if none is specified. This is designed to be large enough
      * so that in typical usage (ie., query intervals with gradually increasing start locations) there will
@@ -239,9 +249,13 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper = (cloudPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is) : Function.identity());
         final Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper = (cloudIndexPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudIndexPrefetchBuffer, is) : Function.identity());
 
+        // GenomicsDB inputs are not read with a codec of our choosing
+        final FeatureCodec<T, ?> codec = isGenomicsDBPath(featureInput.getFeaturePath()) ? null : getCodec(featureInput, targetFeatureType);
+        this.projectingCodec = codec instanceof ProjectingVCFCodec ? (ProjectingVCFCodec) codec : null;
+
         // Create a feature reader without requiring an index.  We will require one ourselves as soon as
         // a query by interval is attempted.
-        this.featureReader = getFeatureReader(featureInput, targetFeatureType, cloudWrapper, cloudIndexWrapper, reference);
+        this.featureReader = getFeatureReader(featureInput, codec, cloudWrapper, cloudIndexWrapper, reference);
 
         if (isGenomicsDBPath(featureInput.getFeaturePath())) {
             //genomics db uri's have no associated index file to read from, but they do support random access
@@ -268,8 +282,23 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         return path != null && path.startsWith(GENOMIC_DB_URI_SCHEME);
     }
 
+    /**
+     * Finds the codec for a file. A plain {@link VCFCodec} is replaced by a {@link ProjectingVCFCodec}, which decodes
+     * records identically until a projection is set on it.
+     */
     @SuppressWarnings("unchecked")
-    private static <T extends Feature> FeatureReader<T> getFeatureReader(final FeatureInput<T> featureInput, final Class<? extends Feature> targetFeatureType,
+    private static <T extends Feature> FeatureCodec<T, ?> getCodec(final FeatureInput<T> featureInput, final Class<? extends Feature> targetFeatureType) {
+        final Path featurePath = IOUtils.getPath(featureInput.getFeaturePath());
+        IOUtils.assertFileIsReadable(featurePath);
+        final FeatureCodec<? extends Feature, ?> codec = FeatureManager.getCodecForFile(featurePath, targetFeatureType);
+        if (codec.getClass() == VCFCodec.class) {
+            return (FeatureCodec<T, ?>) new ProjectingVCFCodec();
+        }
+        return (FeatureCodec<T, ?>) codec;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Feature> FeatureReader<T> getFeatureReader(final FeatureInput<T> featureInput, final FeatureCodec<T, ?> codec,
                                                                          final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper,
                                                                          final Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper,
                                                                          final Path reference) {
@@ -288,9 +317,6 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                 throw new UserException("GenomicsDB inputs can only be used to provide VariantContexts.", e);
             }
         } else {
-            final Path featurePath = IOUtils.getPath(featureInput.getFeaturePath());
-            IOUtils.assertFileIsReadable(featurePath);
-            final FeatureCodec<T, ?> codec = (FeatureCodec<T, ?>) FeatureManager.getCodecForFile(featurePath, targetFeatureType);
             return getTribbleFeatureReader(featureInput, codec, cloudWrapper, cloudIndexWrapper);
         }
     }
@@ -375,6 +401,22 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         return null;
     }
 
+    /**
+     * @return true if this data source has an index, so that it can be queried by interval and knows which contigs it
+     * has records on (see {@link #getSequenceNames})
+     */
+    public boolean hasIndex() {
+        return hasIndex;
+    }
+
+    /**
+     * @return the names of the contigs with records in this data source, in the order of the file, as given by its
+     * index; empty if it has no index
+     */
+    public List<String> getSequenceNames() {
+        return hasIndex ? featureReader.getSequenceNames() : Collections.emptyList();
+    }
+
     /**
      * Restricts traversals of this data source via {@link #iterator} to only return Features that overlap the provided
      * intervals. Calls to {@link #query(SimpleInterval)} and/or {@link #queryAndPrefetch(SimpleInterval)} are not
@@ -399,6 +441,28 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
     }
 
 
+    /**
+     * Restricts the records decoded from this data source to the samples, INFO keys and FORMAT keys of the projection,
+     * so that the other columns are skipped without being parsed. This is only a hint: it is supported only for VCF
+     * text files, and for other inputs records are returned in full.
+     *
+     * Should be called before iterating or querying, since records already decoded may refer to the new projection
+     * when their genotypes are parsed. Clears the query cache.
+     *
+     * @param projection the columns to decode from now on ({@link VariantProjection#ALL} for all of them)
+     * @return true if the projection will be applied, false if this data source does not support projection
+     */
+    public boolean setVariantProjection( final VariantProjection projection ) {
+        Utils.nonNull(projection);
+        if ( projectingCodec == null ) {
+            return false;
+        }
+        closeOpenIterationIfNecessary();
+        queryCache.clear();
+        projectingCodec.setProjection(projection);
+        return true;
+    }
+
     /**
      * Gets an iterator over all Features in this data source, restricting traversal to Features
      * overlapping our intervals if intervals were provided via {@link #setIntervalsForTraversal(List)}
@@ -14,6 +14,7 @@ import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 
 import java.io.File;
 import java.lang.reflect.Field;
@@ -46,9 +47,9 @@ public final class FeatureManager implements AutoCloseable {
     /**
      * We will search these packages at startup to look for FeatureCodecs
      */
-    private static final List<String> CODEC_PACKAGES = Arrays.asList("htsjdk.variant",
-                                                                     "htsjdk.tribble",
-                                                                     "org.broadinstitute.hellbender.utils.codecs");
+    public static final List<String> CODEC_PACKAGES = Collections.unmodifiableList(Arrays.asList("htsjdk.variant",
+                                                                                                 "htsjdk.tribble",
+                                                                                                 "org.broadinstitute.hellbender.utils.codecs"));
 
     /**
      * All codecs descend from this class
@@ -154,6 +155,30 @@ public final class FeatureManager implements AutoCloseable {
         initializeFeatureSources(featureQueryLookahead, toolInstance, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference);
     }
 
+    /**
+     * Create a FeatureManager for an explicit collection of FeatureInputs, all containing Features of the same type,
+     * rather than for the FeatureInput arguments discovered in a tool instance. This allows Features to be queried
+     * where no tool instance is available, such as in a Spark task, given FeatureInputs that were shipped to it.
+     *
+     * @param featureInputs sources of Features to query; null entries are ignored
+     * @param featureType class of the Features in each source
+     * @param toolName name of the tool on whose behalf the Features are queried, for error messages
+     * @param featureQueryLookahead When querying FeatureDataSources, cache this many extra bases of context beyond
+     *                              the end of query intervals in anticipation of future queries (>= 0).
+     */
+    public <T extends Feature> FeatureManager(final Collection<FeatureInput<T>> featureInputs, final Class<T> featureType, final String toolName, final int featureQueryLookahead) {
+        Utils.nonNull(featureInputs);
+        Utils.nonNull(featureType);
+        this.toolInstanceSimpleClassName = Utils.nonNull(toolName);
+        this.featureSources = new LinkedHashMap<>();
+
+        for ( final FeatureInput<T> featureInput : featureInputs ) {
+            if ( featureInput != null ) {
+                addToFeatureSources(featureQueryLookahead, featureInput, featureType, 0, 0, null);
+            }
+        }
+    }
+
     /**
      * Given our tool instance, discover all argument of type FeatureInput (or Collections thereof), determine
      * the type of each Feature-containing file, and add a FeatureDataSource for each file to our query pool.
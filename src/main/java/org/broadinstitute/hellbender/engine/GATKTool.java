@@ -116,6 +116,19 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    @Argument(fullName = StandardArgumentDefinitions.READ_AHEAD_QUEUE_SIZE_LONG_NAME,
+            shortName = StandardArgumentDefinitions.READ_AHEAD_QUEUE_SIZE_SHORT_NAME,
+            doc = "Number of batches of reads to decode on background threads ahead of the traversal (0 to disable). " +
+                  "When enabled, BAM blocks are also decompressed asynchronously.",
+            optional = true)
+    public int readAheadQueueSize = 0;
+
+    @Argument(fullName = StandardArgumentDefinitions.READ_AHEAD_BATCH_SIZE_LONG_NAME,
+            shortName = StandardArgumentDefinitions.READ_AHEAD_BATCH_SIZE_SHORT_NAME,
+            doc = "Number of reads per batch decoded ahead of the traversal, if readAheadQueueSize is positive.",
+            optional = true)
+    public int readAheadBatchSize = 1000;
+
     /**
      * Master sequence dictionary to be used instead of all other dictionaries (if provided).
      */
@@ -315,8 +328,13 @@ public abstract class GATKTool extends CommandLineProgram {
                 factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
             }
 
+            if (readAheadQueueSize > 0) {
+                factory = factory.setUseAsyncIo(true);
+            }
+
             reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
                 (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            reads.enableReadAhead(readAheadQueueSize, readAheadBatchSize);
         }
         else {
             reads = null;
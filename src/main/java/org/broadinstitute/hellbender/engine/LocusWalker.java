@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.engine;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
@@ -11,8 +12,10 @@ import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.locusiterator.AlignmentContextIteratorBuilder;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.locusiterator.LIBSDownsamplingInfo;
 import org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState;
+import org.broadinstitute.hellbender.utils.pileup.SparseSiteBaseCounter;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.util.*;
@@ -89,6 +92,19 @@ public abstract class LocusWalker extends GATKTool {
         return false;
     }
 
+    /**
+     * Should the AlignmentContexts passed to apply() be backed by {@link org.broadinstitute.hellbender.utils.pileup.PrimitivePileup}s?
+     * Tools that read their pileups only through {@link AlignmentContext#getPrimitivePileup} should override to return
+     * {@code true}, which avoids creating a PileupElement per read per locus. The primitive pileups are reused for later
+     * loci once apply() returns, so such tools must not keep an AlignmentContext or its primitive pileup past apply()
+     * (a {@link org.broadinstitute.hellbender.utils.pileup.PrimitivePileup#copy} may be kept instead).
+     *
+     * @return {@code true} if this tool consumes primitive pileups, {@code false} otherwise
+     */
+    public boolean usePrimitivePileups() {
+        return false;
+    }
+
 
     /**
      * Returns default value for the {@link #maxDepthPerSample} parameter, if none is provided on the command line.
@@ -162,19 +178,98 @@ public abstract class LocusWalker extends GATKTool {
         alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
         alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
         alignmentContextIteratorBuilder.setIncludeNs(includeNs());
+        alignmentContextIteratorBuilder.setUsePrimitivePileups(usePrimitivePileups());
 
         final Iterator<AlignmentContext> iterator = alignmentContextIteratorBuilder.build(
                 readIterator, header, intervalsForTraversal, getBestAvailableSequenceDictionary(),
                 hasReference());
 
         // iterate over each alignment, and apply the function
+        final ReferenceDataSource referenceWindow = makeReferenceWindow();
         iterator.forEachRemaining(alignmentContext -> {
-                        final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
-                        apply(alignmentContext, new ReferenceContext(reference, alignmentInterval), new FeatureContext(features, alignmentInterval));
+                        final SimpleInterval alignmentInterval = toSimpleInterval(alignmentContext.getLocation());
+                        apply(alignmentContext, new ReferenceContext(referenceWindow, alignmentInterval), new FeatureContext(features, alignmentInterval));
                         progressMeter.update(alignmentInterval);
+                        alignmentContext.release();
                 }
             );
         logger.info(countedFilter.getSummaryLine());
+        logReferenceWindowStatistics(referenceWindow);
+    }
+
+    /**
+     * Loci are visited in order, so the reference contexts of a locus traversal read the reference through a sliding
+     * {@link ReferenceWindow} that fetches it in large blocks, rather than querying the reference at every locus.
+     * Only a fasta reference is windowed, since an in-memory reference may not span the blocks around its data.
+     *
+     * @return the reference data source to give to the reference contexts of the traversal (null if there is no reference)
+     */
+    private ReferenceDataSource makeReferenceWindow() {
+        return reference instanceof ReferenceFileSource ? new ReferenceWindow(reference) : reference;
+    }
+
+    private void logReferenceWindowStatistics(final ReferenceDataSource referenceWindow) {
+        if ( referenceWindow instanceof ReferenceWindow ) {
+            logger.info(((ReferenceWindow) referenceWindow).getStatistics());
+        }
+    }
+
+    // the locus iterators already locate their contexts with SimpleIntervals, which we can share
+    private static SimpleInterval toSimpleInterval(final Locatable location) {
+        return location instanceof SimpleInterval ? (SimpleInterval) location : new SimpleInterval(location);
+    }
+
+    /**
+     * Alternative traversal for tools that only need the base counts at each locus of a (typically long and sparse)
+     * list of traversal intervals, such as a list of SNP sites. Instead of building a pileup at every locus, the
+     * (filtered and transformed) reads are streamed once and their aligned bases are counted directly at the loci
+     * they cover (see {@link SparseSiteBaseCounter}); the function is then called for every locus of the intervals,
+     * in order, including loci with no coverage. Downsampling is not applied.
+     *
+     * Tools call this from an override of {@link #traverse} in place of the default traversal.
+     *
+     * @param minBaseQuality minimum quality of a base for it to be counted
+     * @param function called with each locus, its base counts, and the reference at the locus
+     */
+    protected final void traverseSparseSites(final int minBaseQuality, final SparseSiteFunction function) {
+        Utils.nonNull(function);
+        Utils.validate(hasIntervals(), "Sparse site traversal requires intervals");
+        final SparseSiteBaseCounter baseCounter = new SparseSiteBaseCounter(intervalsForTraversal, minBaseQuality);
+        final CountingReadFilter countedFilter = makeReadFilter();
+        getTransformedReadStream(countedFilter).forEach(read -> {
+            baseCounter.add(read);
+            if ( !read.isUnmapped() ) {
+                progressMeter.update(read);
+            }
+        });
+        logger.info(countedFilter.getSummaryLine());
+        logger.info(baseCounter.getStatistics());
+
+        // the sites of the counter are numbered in the order of the intervals
+        final ReferenceDataSource referenceWindow = makeReferenceWindow();
+        int site = 0;
+        for ( final SimpleInterval interval : intervalsForTraversal ) {
+            for ( int position = interval.getStart(); position <= interval.getEnd(); position++, site++ ) {
+                final SimpleInterval locus = new SimpleInterval(interval.getContig(), position, position);
+                function.apply(locus, baseCounter.getBaseCounts(site), new ReferenceContext(referenceWindow, locus));
+            }
+        }
+        logReferenceWindowStatistics(referenceWindow);
+    }
+
+    /**
+     * Processes the base counts at a single locus, for {@link #traverseSparseSites}.
+     */
+    @FunctionalInterface
+    protected interface SparseSiteFunction {
+        /**
+         * @param locus the current locus
+         * @param baseCounts counts of A, C, G and T at the locus, indexed as by
+         *                   {@link org.broadinstitute.hellbender.utils.BaseUtils#simpleBaseToBaseIndex}
+         * @param referenceContext Reference bases spanning the current locus. Will be an empty, but non-null, context object
+         *                         if there is no backing source of reference data
+         */
+        void apply(SimpleInterval locus, int[] baseCounts, ReferenceContext referenceContext);
     }
 
     /**
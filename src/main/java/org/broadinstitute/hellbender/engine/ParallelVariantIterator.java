@@ -0,0 +1,288 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.GenotypesContext;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decodes variants from an indexed source on a pool of worker threads, and returns them in exactly the order a serial
+ * traversal of the same intervals (see {@link FeatureIntervalIterator}) would.
+ *
+ * The intervals are split into shards of at most {@code shardSize} bases. Each worker thread queries shards through
+ * its own {@link FeatureDataSource}, so block decompression, line parsing and genotype decoding all happen in
+ * parallel; the genotypes of each variant are fully decoded before it is handed over, so consumers never go back to
+ * a worker's codec. A bounded number of shards is decoded ahead of the consumer, and shards are returned in order.
+ *
+ * Each variant is returned once: by the shard of its traversal interval containing its start (or the start of the
+ * interval, if the variant starts before it), and not at all if it overlaps the previous traversal interval, in which
+ * case it has already been returned there.
+ */
+final class ParallelVariantIterator implements CloseableIterator<VariantContext> {
+    private static final AtomicInteger iteratorCount = new AtomicInteger();
+
+    /**
+     * The end of the interval of a whole contig whose length is unknown, so that it is queried to its end.
+     */
+    static final int UNBOUNDED_END = Integer.MAX_VALUE;
+
+    private final ExecutorService executor;
+    private final Iterator<Shard> shards;
+    private final int maxShardsInFlight;
+    private final Deque<Future<List<VariantContext>>> inFlight = new ArrayDeque<>();
+
+    // the data source of each worker thread, opened on first use
+    private final ThreadLocal<FeatureDataSource<VariantContext>> workerSource;
+    private final List<FeatureDataSource<VariantContext>> openSources = Collections.synchronizedList(new ArrayList<>());
+
+    private Iterator<VariantContext> currentShard = Collections.emptyIterator();
+    private boolean closed = false;
+
+    // statistics
+    private final long startNanos = System.nanoTime();
+    private long shardsConsumed = 0;
+    private long variantsConsumed = 0;
+    private long consumerWaits = 0;
+    private final AtomicLong variantsQueried = new AtomicLong();
+
+    /**
+     * @param sourceFactory opens a new data source over the variants, configured as the traversal's (projection,
+     *                      prefetching); called once per worker thread, and must support queries by interval, with
+     *                      no query lookahead, since contigs of unknown length are queried up to {@link #UNBOUNDED_END}
+     * @param intervals the intervals to traverse, non-overlapping and sorted, as for {@link FeatureIntervalIterator}
+     * @param dictionary contig lengths, used to split whole contigs into shards; may be null
+     * @param shardSize maximum number of bases in each shard
+     * @param numThreads number of worker threads
+     */
+    ParallelVariantIterator( final Supplier<FeatureDataSource<VariantContext>> sourceFactory, final List<SimpleInterval> intervals,
+                             final SAMSequenceDictionary dictionary, final int shardSize, final int numThreads ) {
+        Utils.nonNull(sourceFactory);
+        Utils.nonNull(intervals);
+        Utils.validateArg(shardSize > 0, "shardSize must be positive");
+        Utils.validateArg(numThreads > 0, "numThreads must be positive");
+        this.shards = makeShards(intervals, dictionary, shardSize).iterator();
+        this.maxShardsInFlight = 2 * numThreads;
+        this.workerSource = ThreadLocal.withInitial(() -> {
+            final FeatureDataSource<VariantContext> source = sourceFactory.get();
+            openSources.add(source);
+            return source;
+        });
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+                .setNameFormat("variant-decoder-" + iteratorCount.getAndIncrement() + "-%d")
+                .setDaemon(true)
+                .build());
+        submitShards();
+    }
+
+    /**
+     * @param contigs the contigs to traverse
+     * @param dictionary contig lengths; may be null
+     * @return intervals covering the whole of each contig, for a traversal without intervals: up to its length in the
+     * dictionary if it is known, and up to {@link #UNBOUNDED_END} otherwise
+     */
+    static List<SimpleInterval> wholeContigIntervals( final List<String> contigs, final SAMSequenceDictionary dictionary ) {
+        final List<SimpleInterval> intervals = new ArrayList<>(contigs.size());
+        for ( final String contig : contigs ) {
+            final SAMSequenceRecord sequence = dictionary == null ? null : dictionary.getSequence(contig);
+            final int length = sequence == null ? 0 : sequence.getSequenceLength();
+            intervals.add(new SimpleInterval(contig, 1, length > 0 ? length : UNBOUNDED_END));
+        }
+        return intervals;
+    }
+
+    /**
+     * A part of a traversal interval. {@code previousInterval} is the traversal interval before the one this shard is
+     * part of, or null if there is none.
+     */
+    @VisibleForTesting
+    static final class Shard {
+        final SimpleInterval interval;
+        final SimpleInterval traversalInterval;
+        final SimpleInterval previousInterval;
+
+        Shard( final SimpleInterval interval, final SimpleInterval traversalInterval, final SimpleInterval previousInterval ) {
+            this.interval = interval;
+            this.traversalInterval = traversalInterval;
+            this.previousInterval = previousInterval;
+        }
+
+        /**
+         * @return true if the variant, which overlaps this shard, is to be returned by it
+         */
+        boolean owns( final VariantContext variant ) {
+            final int position = Math.max(variant.getStart(), traversalInterval.getStart());
+            return position >= interval.getStart() && position <= interval.getEnd()
+                    && (previousInterval == null || !previousInterval.overlaps(variant));
+        }
+    }
+
+    /**
+     * Splits each interval into shards of {@code shardSize} bases, except that the last shard of an interval extends
+     * from the last split before the end of the contig to the end of the interval. Intervals on contigs of unknown
+     * length that end at {@link #UNBOUNDED_END} are not split, since almost all of their shards would lie past the end of
+     * the contig.
+     */
+    @VisibleForTesting
+    static List<Shard> makeShards( final List<SimpleInterval> intervals, final SAMSequenceDictionary dictionary, final int shardSize ) {
+        final List<Shard> shards = new ArrayList<>();
+        SimpleInterval previous = null;
+        for ( final SimpleInterval interval : intervals ) {
+            final SAMSequenceRecord contig = dictionary == null ? null : dictionary.getSequence(interval.getContig());
+            final boolean lengthKnown = contig != null && contig.getSequenceLength() > 0;
+            final int splitEnd = lengthKnown ? Math.min(interval.getEnd(), contig.getSequenceLength())
+                    : interval.getEnd() == UNBOUNDED_END ? interval.getStart() : interval.getEnd();
+            int start = interval.getStart();
+            while ( (long)start + shardSize - 1 < splitEnd ) {
+                shards.add(new Shard(new SimpleInterval(interval.getContig(), start, start + shardSize - 1), interval, previous));
+                start += shardSize;
+            }
+            shards.add(new Shard(new SimpleInterval(interval.getContig(), start, interval.getEnd()), interval, previous));
+            previous = interval;
+        }
+        return shards;
+    }
+
+    private void submitShards() {
+        while ( inFlight.size() < maxShardsInFlight && shards.hasNext() ) {
+            final Shard shard = shards.next();
+            inFlight.add(executor.submit(() -> decodeShard(shard)));
+        }
+    }
+
+    // runs on a worker thread
+    private List<VariantContext> decodeShard( final Shard shard ) {
+        final List<VariantContext> overlapping = workerSource.get().queryAndPrefetch(shard.interval);
+        variantsQueried.addAndGet(overlapping.size());
+        final List<VariantContext> owned = new ArrayList<>(overlapping.size());
+        for ( final VariantContext variant : overlapping ) {
+            if ( shard.owns(variant) ) {
+                final GenotypesContext genotypes = variant.getGenotypes();
+                if ( genotypes instanceof LazyGenotypesContext ) {
+                    ((LazyGenotypesContext)genotypes).decode();
+                }
+                owned.add(variant);
+            }
+        }
+        return owned;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( !currentShard.hasNext() ) {
+            if ( inFlight.isEmpty() ) {
+                return false;
+            }
+            Utils.validate(!closed, "Iterator has been closed");
+            final Future<List<VariantContext>> next = inFlight.poll();
+            if ( !next.isDone() ) {
+                consumerWaits++;
+            }
+            currentShard = getShard(next).iterator();
+            shardsConsumed++;
+            submitShards();
+        }
+        return true;
+    }
+
+    private static List<VariantContext> getShard( final Future<List<VariantContext>> future ) {
+        try {
+            return future.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for variants", e);
+        } catch ( final ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error)cause;
+            }
+            throw new GATKException("Error decoding variants", cause);
+        }
+    }
+
+    @Override
+    public VariantContext next() {
+        if ( !hasNext() ) {
+            throw new NoSuchElementException("No more variants");
+        }
+        variantsConsumed++;
+        return currentShard.next();
+    }
+
+    /**
+     * Stops the worker threads once they have finished their current shard, and closes their data sources.
+     */
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        // we don't interrupt the workers, since an interrupt during NIO would close their channels under them
+        for ( final Future<List<VariantContext>> future : inFlight ) {
+            future.cancel(false);
+        }
+        inFlight.clear();
+        executor.shutdown();
+        try {
+            while ( !executor.awaitTermination(1, TimeUnit.SECONDS) ) {
+                // keep waiting for the current shards to finish
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while stopping variant decoding threads", e);
+        } finally {
+            synchronized ( openSources ) {
+                openSources.forEach(FeatureDataSource::close);
+                openSources.clear();
+            }
+        }
+        currentShard = Collections.emptyIterator();
+    }
+
+    /** @return number of shards handed to the consumer */
+    public long getShardsConsumed() {
+        return shardsConsumed;
+    }
+
+    /** @return number of variants handed to the consumer */
+    public long getVariantsConsumed() {
+        return variantsConsumed;
+    }
+
+    /** @return number of times the consumer had to wait for the next shard to be decoded */
+    public long getConsumerWaits() {
+        return consumerWaits;
+    }
+
+    public String getStatistics() {
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return String.format("Parallel variant decoding: %d shards, %d variants (%d queried) in %.1f s (%.0f variants/s), consumer waits: %d",
+                getShardsConsumed(), getVariantsConsumed(), variantsQueried.get(), seconds,
+                seconds > 0 ? getVariantsConsumed() / seconds : 0.0, getConsumerWaits());
+    }
+}
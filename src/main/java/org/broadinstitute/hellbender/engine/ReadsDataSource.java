@@ -14,6 +14,7 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.ReadAheadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
@@ -78,6 +79,18 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Number of batches of reads to decode ahead of a traversal on a background thread (0 if read-ahead is disabled),
+     * and the number of reads per batch. See {@link #enableReadAhead}.
+     */
+    private int readAheadQueueSize = 0;
+    private int readAheadBatchSize = 0;
+
+    /**
+     * Read-ahead iterator for the current traversal, if read-ahead is enabled and a traversal is open
+     */
+    private ReadAheadIterator<SAMRecord> readAheadIterator = null;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -254,6 +267,27 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return indicesAvailable;
     }
 
+    /**
+     * Decode reads on a background thread ahead of traversals initiated via {@link #iterator}, so that decoding
+     * overlaps with the processing of earlier reads on the traversal thread. Up to {@code queueSize} batches of
+     * {@code batchSize} reads are held in memory ahead of the traversal. Queue-depth statistics are logged at the
+     * end of each traversal.
+     *
+     * BGZF decompression can additionally be moved off the traversal thread by enabling asynchronous I/O on the
+     * SamReaderFactory used to create this data source.
+     *
+     * Calls to {@link #query} are not affected, since queries are usually too short to benefit.
+     *
+     * @param queueSize maximum number of batches to decode ahead of the traversal (0 to disable)
+     * @param batchSize number of reads per batch
+     */
+    public void enableReadAhead( final int queueSize, final int batchSize ) {
+        Utils.validateArg(queueSize >= 0, "read-ahead queue size must be non-negative");
+        Utils.validateArg(queueSize == 0 || batchSize > 0, "read-ahead batch size must be positive");
+        this.readAheadQueueSize = queueSize;
+        this.readAheadBatchSize = batchSize;
+    }
+
     /**
      * Restricts a traversal of this data source via {@link #iterator} to only return reads which overlap the given intervals.
      * Calls to {@link #query} are not affected by setting these intervals.
@@ -327,7 +361,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
     @Override
     public Iterator<GATKRead> iterator() {
         logger.debug("Preparing readers for traversal");
-        return prepareIteratorsForTraversal(intervalsForTraversal, traverseUnmapped);
+        return prepareIteratorsForTraversal(intervalsForTraversal, traverseUnmapped, readAheadQueueSize > 0);
     }
 
     /**
@@ -355,7 +389,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             raiseExceptionForMissingIndex("Cannot query reads data source by interval unless all files are indexed");
         }
 
-        return prepareIteratorsForTraversal(null, true);
+        return prepareIteratorsForTraversal(null, true, false);
     }
 
     /**
@@ -378,16 +412,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      * @return Iterator over all reads in this data source, limited to overlap with the supplied intervals
      */
     private Iterator<GATKRead> prepareIteratorsForTraversal( final List<SimpleInterval> queryIntervals ) {
-        return prepareIteratorsForTraversal(queryIntervals, false);
+        return prepareIteratorsForTraversal(queryIntervals, false, false);
     }
 
     /**
      * Prepare iterators over all readers in response to a request for a complete iteration or query
      *
      * @param queryIntervals Intervals to bound the iteration (reads must overlap one of these intervals). If null, iteration is unbounded.
+     * @param readAhead If true, decode reads on a background thread ahead of consumption
      * @return Iterator over all reads in this data source, limited to overlap with the supplied intervals
      */
-    private Iterator<GATKRead> prepareIteratorsForTraversal( final List<SimpleInterval> queryIntervals, final boolean queryUnmapped ) {
+    private Iterator<GATKRead> prepareIteratorsForTraversal( final List<SimpleInterval> queryIntervals, final boolean queryUnmapped, final boolean readAhead ) {
         // htsjdk requires that only one iterator be open at a time per reader, so close out
         // any previous iterations
         closePreviousIterationsIfNecessary();
@@ -421,9 +456,25 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             startingIterator = new MergingSamRecordIterator(headerMerger, readers, true);
         }
 
+        if ( readAhead ) {
+            readAheadIterator = new ReadAheadIterator<>(startingIterator, readAheadBatchSize, readAheadQueueSize, ReadsDataSource::decodeRecord);
+            startingIterator = readAheadIterator;
+        }
+
         return new SAMRecordToReadIterator(startingIterator);
     }
 
+    /**
+     * Force decoding of the lazily-decoded fields of a record (a no-op for fields that are already decoded),
+     * so that the decoding happens on the read-ahead thread rather than the traversal thread.
+     */
+    private static void decodeRecord( final SAMRecord record ) {
+        record.getCigar();
+        record.getReadBases();
+        record.getBaseQualities();
+        record.getAttribute(SAMTag.RG.name());
+    }
+
     /**
      * Reduce the intervals down to only include ones that can actually intersect with this reader
      */
@@ -487,6 +538,13 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      * Close any previously-opened iterations over our readers (htsjdk allows only one open iteration per reader).
      */
     private void closePreviousIterationsIfNecessary() {
+        // the read-ahead thread must be stopped before the iterators it is consuming are closed
+        if ( readAheadIterator != null ) {
+            readAheadIterator.close();
+            logger.info(readAheadIterator.getStatistics());
+            readAheadIterator = null;
+        }
+
         for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
             CloseableIterator<SAMRecord> readerIterator = readerEntry.getValue();
             if ( readerIterator != null ) {
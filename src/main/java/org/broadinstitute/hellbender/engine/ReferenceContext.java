@@ -311,6 +311,10 @@ public final class ReferenceContext implements Iterable<Byte> {
      * @return The base at the given locus from the reference.
      */
     public byte getBase() {
+        // a traversal's reference window can return the base without a query
+        if ( cachedSequence == null && interval != null && dataSource instanceof ReferenceWindow ) {
+            return ((ReferenceWindow)dataSource).getBase(interval.getContig(), interval.getStart());
+        }
         return getBases()[interval.getStart() - window.getStart()];
     }
 }
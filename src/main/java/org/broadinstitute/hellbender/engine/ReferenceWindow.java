@@ -0,0 +1,174 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A sliding window over a reference, owned by a traversal that moves along the reference (such as a locus
+ * traversal), and handed to the {@link ReferenceContext}s it creates in place of the reference itself.
+ *
+ * The window holds one large contiguous block of bases, fetched from the underlying reference ahead of the
+ * traversal, and answers queries that fall inside the block from it, so the underlying reference is only queried
+ * once per block rather than once per locus. Single bases are returned by {@link #getBase} without any allocation,
+ * which is what {@link ReferenceContext#getBase} uses.
+ *
+ * A full block is only fetched when the query is within one block length past the current block, as it is for a
+ * dense traversal. Otherwise (for the first query on a contig, or after a jump, as with sparse intervals or sites)
+ * only the queried span plus the lookbehind is fetched, so sparse traversals do not read a block per locus.
+ *
+ * Queries that do not fit in a block, or that are not valid on the underlying reference, are passed through to it.
+ * Closing the window does not close the underlying reference.
+ */
+final class ReferenceWindow implements ReferenceDataSource {
+
+    /**
+     * Default number of bases fetched per block.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Default number of bases fetched before the position that caused a block to be fetched, so that small leading
+     * windows around loci near the start of a block do not fetch a new block.
+     */
+    static final int DEFAULT_LOOKBEHIND = 1 << 10;
+
+    private final ReferenceDataSource reference;
+    private final SAMSequenceDictionary dictionary;
+    private final int blockSize;
+    private final int lookbehind;
+
+    // the current block, or null before the first query
+    private ReferenceSequence block = null;
+    private byte[] blockBases = null;
+    private int blockStart = 0;
+    private int blockEnd = -1;
+
+    // statistics
+    private long blocksFetched = 0;
+    private long spansFetched = 0;
+    private long queriesFromWindow = 0;
+    private long queriesPassedThrough = 0;
+
+    ReferenceWindow( final ReferenceDataSource reference ) {
+        this(reference, DEFAULT_BLOCK_SIZE, DEFAULT_LOOKBEHIND);
+    }
+
+    /**
+     * @param reference the underlying reference
+     * @param blockSize number of bases to fetch per block (fewer at the end of a contig)
+     * @param lookbehind number of bases to fetch before the position that caused a block to be fetched, when possible
+     */
+    ReferenceWindow( final ReferenceDataSource reference, final int blockSize, final int lookbehind ) {
+        this.reference = Utils.nonNull(reference);
+        Utils.validateArg(blockSize > 0, "blockSize must be positive");
+        Utils.validateArg(lookbehind >= 0 && lookbehind < blockSize, "lookbehind must be non-negative and less than blockSize");
+        this.dictionary = reference.getSequenceDictionary();
+        this.blockSize = blockSize;
+        this.lookbehind = lookbehind;
+    }
+
+    /**
+     * Get the reference base at a position, fetching the block containing it if it is not in the current block.
+     *
+     * @param contig contig of the position
+     * @param position 1-based position on the contig
+     * @return the base at the position
+     */
+    byte getBase( final String contig, final int position ) {
+        if ( !inBlock(contig, position, position) && !fetchBlock(contig, position, position) ) {
+            queriesPassedThrough++;
+            return reference.queryAndPrefetch(contig, position, position).getBases()[0];
+        }
+        queriesFromWindow++;
+        return blockBases[position - blockStart];
+    }
+
+    /**
+     * Query a specific interval on this reference. If the interval is in the window (after moving it, if necessary),
+     * the result is a copy of the window's bases over it; otherwise the underlying reference is queried.
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start, final long stop ) {
+        if ( start > stop || start < 1 || stop > Integer.MAX_VALUE
+                || !inBlock(contig, (int)start, (int)stop) && !fetchBlock(contig, (int)start, (int)stop) ) {
+            queriesPassedThrough++;
+            return reference.queryAndPrefetch(contig, start, stop);
+        }
+        queriesFromWindow++;
+        return new ReferenceSequence(block.getName(), block.getContigIndex(),
+                Arrays.copyOfRange(blockBases, (int)start - blockStart, (int)stop - blockStart + 1));
+    }
+
+    private boolean inBlock( final String contig, final int start, final int stop ) {
+        return block != null && start >= blockStart && stop <= blockEnd && block.getName().equals(contig);
+    }
+
+    /**
+     * Moves the window to start a little before {@code start} and contain {@code stop}. The window is a full block if
+     * the interval is near the current one, or else just covers the interval.
+     *
+     * @return false, leaving the window where it was, if the interval is too large for a block or is not valid on the
+     * reference
+     */
+    private boolean fetchBlock( final String contig, final int start, final int stop ) {
+        final SAMSequenceRecord sequence = dictionary == null ? null : dictionary.getSequence(contig);
+        if ( sequence == null || start < 1 || stop > sequence.getSequenceLength() || stop - start >= blockSize ) {
+            return false;
+        }
+        final int newStart = Math.max(1, start - lookbehind);
+        final int newEnd;
+        if ( nearBlock(contig, start) ) {
+            newEnd = (int)Math.min(sequence.getSequenceLength(), Math.max(stop, (long)newStart + blockSize - 1));
+            blocksFetched++;
+        }
+        else {
+            newEnd = stop;
+            spansFetched++;
+        }
+        block = reference.queryAndPrefetch(contig, newStart, newEnd);
+        blockBases = block.getBases();
+        blockStart = newStart;
+        blockEnd = newEnd;
+        return true;
+    }
+
+    // true if start is on the current contig, at or after the current block start and within one block length past its end
+    private boolean nearBlock( final String contig, final int start ) {
+        return block != null && block.getName().equals(contig) && start >= blockStart && start <= (long)blockEnd + blockSize;
+    }
+
+    @Override
+    public Iterator<Byte> iterator() {
+        return reference.iterator();
+    }
+
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return dictionary;
+    }
+
+    /** @return number of full blocks fetched from the underlying reference */
+    long getBlocksFetched() {
+        return blocksFetched;
+    }
+
+    /** @return number of spans smaller than a block fetched from the underlying reference, for queries far from the window */
+    long getSpansFetched() {
+        return spansFetched;
+    }
+
+    /** @return number of queries answered from the window */
+    long getQueriesFromWindow() {
+        return queriesFromWindow;
+    }
+
+    String getStatistics() {
+        return String.format("Reference window: %d queries answered from %d blocks of up to %d bases and %d smaller spans, %d passed through",
+                queriesFromWindow, blocksFetched, blockSize, spansFetched, queriesPassedThrough);
+    }
+}
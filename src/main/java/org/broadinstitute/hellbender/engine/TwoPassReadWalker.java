@@ -1,18 +1,18 @@
 package org.broadinstitute.hellbender.engine;
 
 
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
-import org.broadinstitute.hellbender.engine.filters.ReadFilter;
-import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
-import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.tools.walkers.rnaseq.SplitNCigarReads;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadReplayCache;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.StreamSupport;
+import java.util.stream.Stream;
 
 
 /**
@@ -30,42 +30,81 @@ import java.util.stream.StreamSupport;
  * each read.  These are analogous to and replace {@link ReadWalker#apply}.  Authors may optionally implement
  * {@link #onTraversalStart} and/or {@link #onTraversalSuccess} and {@link #afterFirstPass} to perform
  * operations between passes. See the {@link SplitNCigarReads} walker for an example.
+ *
+ * By default the second pass reads the input again. With {@code --cacheReadsForSecondPass}, the first pass instead
+ * records the filtered and transformed reads in a {@link ReadReplayCache}, in memory or in a temporary file, and the
+ * second pass replays them from there, skipping decompression, filtering and transformation.
  */
 public abstract class TwoPassReadWalker extends ReadWalker {
 
+    @Argument(fullName = StandardArgumentDefinitions.CACHE_READS_FOR_SECOND_PASS_LONG_NAME,
+            doc = "Record the filtered and transformed reads during the first pass, and replay them for the second pass " +
+                  "instead of reading the input again.",
+            optional = true)
+    public boolean cacheReadsForSecondPass = false;
+
+    @Argument(fullName = StandardArgumentDefinitions.READ_CACHE_MAX_MEMORY_LONG_NAME,
+            doc = "Maximum size (in MB) of the reads recorded by cacheReadsForSecondPass to keep in memory; " +
+                  "beyond that they are spilled to a temporary file (0 to always spill).",
+            optional = true)
+    public int readCacheMaxMemory = 256;
+
     @Override
     public void traverse() {
         // Process each read in the input stream.
         // Supply reference bases spanning each read, if a reference is available.
         final CountingReadFilter countedFilter = makeReadFilter();
 
-        traverseReads(countedFilter, this::firstPassApply);
-        logger.info("Finished first pass through the reads");
-        afterFirstPass();
-        // Need to reinitialize the reads and intervals so they are guaranteed to pass over a file
-        initializeReads();
-        setReadTraversalBounds();
-        logger.info("Starting second pass through the reads");
-        traverseReads(countedFilter, this::secondPassApply);
+        if ( cacheReadsForSecondPass ) {
+            traverseWithReplayCache(countedFilter);
+        } else {
+            traverseReads(getTransformedReadStream(countedFilter), this::firstPassApply);
+            logger.info("Finished first pass through the reads");
+            afterFirstPass();
+            // Need to reinitialize the reads and intervals so they are guaranteed to pass over a file
+            initializeReads();
+            setReadTraversalBounds();
+            logger.info("Starting second pass through the reads");
+            traverseReads(getTransformedReadStream(countedFilter), this::secondPassApply);
+        }
         logger.info(countedFilter.getSummaryLine());
     }
 
     /**
-     * Process using the given filter and function.
-     * @param countedFilter a filter to apply to all reads.
+     * Records each read of the first pass before it is processed, and replays the recorded reads for the second pass.
+     */
+    private void traverseWithReplayCache(final CountingReadFilter countedFilter) {
+        if ( readCacheMaxMemory < 0 ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.READ_CACHE_MAX_MEMORY_LONG_NAME,
+                    Integer.toString(readCacheMaxMemory), "must be non-negative");
+        }
+        // the spill file goes in the default temporary directory, which is set by --TMP_DIR
+        try ( final ReadReplayCache cache = new ReadReplayCache(getHeaderForReads(), readCacheMaxMemory * 1024L * 1024L, null) ) {
+            traverseReads(getTransformedReadStream(countedFilter).peek(cache::add), this::firstPassApply);
+            logger.info("Finished first pass through the reads");
+            afterFirstPass();
+            logger.info("Starting second pass through the " + cache.getNumReads() + " cached reads");
+            try ( final CloseableIterator<GATKRead> cachedReads = cache.replay() ) {
+                traverseReads(Utils.stream(cachedReads), this::secondPassApply);
+            }
+            logger.info(cache.getStatistics());
+        }
+    }
+
+    /**
+     * Process the given reads with the given function.
+     * @param readStream the reads to process, already filtered and transformed
      * @param f function applied to each read, should produce some useful side effect
      */
-    private void traverseReads(final CountingReadFilter countedFilter, final GATKApply f) {
-        Utils.stream(reads)
-                .filter(countedFilter)
-                .forEach(read -> {
-                    final SimpleInterval readInterval = getReadInterval(read);
-                    f.consume(read,
-                            new ReferenceContext(reference, readInterval), // Will create an empty ReferenceContext if reference or readInterval == null
-                            new FeatureContext(features, readInterval));   // Will create an empty FeatureContext if features or readInterval == null
-
-                    progressMeter.update(readInterval);
-                });
+    private void traverseReads(final Stream<GATKRead> readStream, final GATKApply f) {
+        readStream.forEach(read -> {
+            final SimpleInterval readInterval = getReadInterval(read);
+            f.consume(read,
+                    new ReferenceContext(reference, readInterval), // Will create an empty ReferenceContext if reference or readInterval == null
+                    new FeatureContext(features, readInterval));   // Will create an empty FeatureContext if features or readInterval == null
+
+            progressMeter.update(readInterval);
+        });
     }
 
     /**
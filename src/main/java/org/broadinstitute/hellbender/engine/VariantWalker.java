@@ -4,11 +4,16 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.variant.VariantProjection;
 
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Spliterator;
+import java.util.Spliterators;
 
 /**
  * A VariantWalker is a tool that processes a variant at a time from a source of variants, with
@@ -25,16 +30,53 @@ public abstract class VariantWalker extends VariantWalkerBase {
     @Argument(fullName = StandardArgumentDefinitions.VARIANT_LONG_NAME, shortName = StandardArgumentDefinitions.VARIANT_SHORT_NAME, doc = "A VCF file containing variants", common = false, optional = false)
     public String drivingVariantFile;
 
+    @Argument(fullName = StandardArgumentDefinitions.VARIANT_DECODE_THREADS_LONG_NAME,
+            doc = "Number of threads on which to decode the driving variants, in shards queried through their index " +
+                  "(0 to decode them serially). Variants are processed in the same order either way.",
+            optional = true)
+    public int variantDecodeThreads = 0;
+
+    @Argument(fullName = StandardArgumentDefinitions.VARIANT_DECODE_SHARD_SIZE_LONG_NAME,
+            doc = "Number of bases in each shard of driving variants decoded in parallel, if variantDecodeThreads is positive.",
+            optional = true)
+    public int variantDecodeShardSize = 100000;
+
     // NOTE: keeping the driving source of variants separate from other, supplementary FeatureInputs in our FeatureManager in GATKTool
     //we do add the driving source to the Feature manager but we do need to treat it differently and thus this field.
     private FeatureDataSource<VariantContext> drivingVariants;
     private FeatureInput<VariantContext> drivingVariantsFeatureInput;
+    private VariantProjection drivingVariantsProjection = VariantProjection.ALL;
+
+    // decodes the driving variants on worker threads, if variantDecodeThreads is positive
+    private ParallelVariantIterator parallelDrivingVariants;
 
     @Override
     protected SAMSequenceDictionary getSequenceDictionaryForDrivingVariants() { return drivingVariants.getSequenceDictionary(); }
 
     @Override
-    protected Spliterator<VariantContext> getSpliteratorForDrivingVariants() { return drivingVariants.spliterator(); }
+    protected Spliterator<VariantContext> getSpliteratorForDrivingVariants() {
+        if ( variantDecodeThreads > 0 ) {
+            if ( drivingVariants.hasIndex() ) {
+                parallelDrivingVariants = makeParallelDrivingVariants();
+                return Spliterators.spliteratorUnknownSize(parallelDrivingVariants, Spliterator.ORDERED | Spliterator.NONNULL);
+            }
+            logger.warn("Driving variants " + drivingVariantFile + " are not indexed, so they will be decoded serially");
+        }
+        return drivingVariants.spliterator();
+    }
+
+    private ParallelVariantIterator makeParallelDrivingVariants() {
+        final List<SimpleInterval> intervals = hasIntervals() ? intervalsForTraversal
+                : ParallelVariantIterator.wholeContigIntervals(drivingVariants.getSequenceNames(), drivingVariants.getSequenceDictionary());
+        final VariantProjection projection = drivingVariantsProjection;
+        // each worker thread reads through its own data source; they don't need a query cache, since shards are disjoint
+        return new ParallelVariantIterator(() -> {
+                    final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(drivingVariantsFeatureInput, 0, VariantContext.class,
+                            cloudPrefetchBuffer, cloudIndexPrefetchBuffer, referenceArguments.getReferencePath());
+                    source.setVariantProjection(projection);
+                    return source;
+                }, intervals, drivingVariants.getSequenceDictionary(), variantDecodeShardSize, variantDecodeThreads);
+    }
 
     /**
      * Marked final so that tool authors don't override it. Tool authors should override {@link #onTraversalStart} instead.
@@ -42,6 +84,14 @@ public abstract class VariantWalker extends VariantWalkerBase {
     @Override
     protected final void onStartup() {
         super.onStartup();
+        if ( variantDecodeThreads < 0 ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.VARIANT_DECODE_THREADS_LONG_NAME,
+                    String.valueOf(variantDecodeThreads), "should be 0 or a positive number");
+        }
+        if ( variantDecodeShardSize <= 0 ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.VARIANT_DECODE_SHARD_SIZE_LONG_NAME,
+                    String.valueOf(variantDecodeShardSize), "should be a positive number");
+        }
         if ( hasIntervals() ) {
             drivingVariants.setIntervalsForTraversal(intervalsForTraversal);
         }
@@ -70,6 +120,14 @@ public abstract class VariantWalker extends VariantWalkerBase {
         return drivingVariantsFeatureInput;
     }
 
+    @Override
+    protected final void setDrivingVariantsProjection(final VariantProjection projection) {
+        drivingVariantsProjection = projection;
+        if ( ! drivingVariants.setVariantProjection(projection) ) {
+            logger.debug("Driving variants " + drivingVariantFile + " do not support projection; all columns will be decoded");
+        }
+    }
+
     /**
      * Gets the header associated with our driving source of variants as a VCFHeader.
      *
@@ -95,6 +153,10 @@ public abstract class VariantWalker extends VariantWalkerBase {
     protected final void onShutdown() {
         super.onShutdown();
 
+        if ( parallelDrivingVariants != null ) {
+            parallelDrivingVariants.close();
+            logger.info(parallelDrivingVariants.getStatistics());
+        }
         if ( drivingVariants != null )
             drivingVariants.close();
     }
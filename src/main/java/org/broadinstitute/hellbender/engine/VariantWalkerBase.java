@@ -8,6 +8,8 @@ import org.broadinstitute.hellbender.engine.filters.VariantFilter;
 import org.broadinstitute.hellbender.engine.filters.VariantFilterLibrary;
 import org.broadinstitute.hellbender.utils.IndexUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.variant.VariantProjection;
 
 import java.nio.file.Path;
 import java.util.Spliterator;
@@ -89,6 +91,21 @@ public abstract class VariantWalkerBase extends GATKTool {
      */
     protected abstract SAMSequenceDictionary getSequenceDictionaryForDrivingVariants();
 
+    /**
+     * Asks for only the samples, INFO keys and FORMAT keys of the projection to be decoded from the driving variants,
+     * so that a tool that needs few of the columns of a large VCF does not pay for parsing the rest. Should be called
+     * in {@link #onTraversalStart}, before traversal begins.
+     *
+     * This is only a hint: variants may still contain more than was asked for (for instance for inputs other than VCF
+     * text files, which are not projected), so tools must not rely on other columns being absent. The default
+     * implementation does nothing.
+     *
+     * @param projection the columns of the driving variants this tool needs
+     */
+    protected void setDrivingVariantsProjection(final VariantProjection projection) {
+        Utils.nonNull(projection);
+    }
+
     /**
      * Return a spliterator to be used to iterate over the elements of the driving variants.
      */
@@ -35,6 +35,14 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     @Argument(fullName="readShardPadding", shortName="readShardPadding", doc = "Each read shard has this many bases of extra context on each side. Read shards must have as much or more padding than assembly regions.", optional = true)
     protected int readShardPadding = defaultReadShardPadding();
 
+    @Advanced
+    @Argument(fullName="targetReadsPerShard", shortName="targetReadsPerShard", doc = "If greater than 0, size read shards to hold about this many reads each, as estimated from a sample of the reads, rather than readShardSize bases. Shards are then no larger than readShardSize bases and no smaller than maxAssemblyRegionSize bases.", optional = true)
+    protected int targetReadsPerShard = 0;
+
+    @Advanced
+    @Argument(fullName="readDensitySampleFraction", shortName="readDensitySampleFraction", doc = "Fraction of the reads to sample when estimating read density for targetReadsPerShard", optional = true)
+    protected double readDensitySampleFraction = ReadDensityProfile.DEFAULT_SAMPLE_FRACTION;
+
     @Argument(fullName = "minAssemblyRegionSize", shortName = "minAssemblyRegionSize", doc = "Minimum size of an assembly region", optional = true)
     protected int minAssemblyRegionSize = defaultMinAssemblyRegionSize();
 
@@ -118,6 +126,7 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
      */
     public abstract AssemblyRegionEvaluator assemblyRegionEvaluator();
 
+    private List<SimpleInterval> unpaddedIntervals;
     private List<ShardBoundary> intervalShards;
 
     /**
@@ -127,6 +136,7 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     protected List<SimpleInterval> editIntervals(List<SimpleInterval> rawIntervals) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
         List<SimpleInterval> intervals = rawIntervals == null ? IntervalUtils.getAllIntervalsForReference(sequenceDictionary) : rawIntervals;
+        unpaddedIntervals = intervals;
         intervalShards = intervals.stream()
                 .flatMap(interval -> Shard.divideIntervalIntoShards(interval, readShardSize, readShardPadding, sequenceDictionary).stream())
                 .collect(Collectors.toList());
@@ -144,6 +154,12 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
      */
     protected JavaRDD<AssemblyRegionWalkerContext> getAssemblyRegions(JavaSparkContext ctx) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
+        if ( targetReadsPerShard > 0 ) {
+            final ReadDensityProfile readDensity = ReadDensityProfile.estimate(getReads(), sequenceDictionary,
+                    ReadDensityProfile.DEFAULT_BIN_SIZE, readDensitySampleFraction, 0L);
+            intervalShards = readDensity.divideIntervalsIntoShards(unpaddedIntervals, targetReadsPerShard,
+                    Math.min(maxAssemblyRegionSize, readShardSize), readShardSize, readShardPadding, sequenceDictionary);
+        }
         JavaRDD<Shard<GATKRead>> shardedReads = SparkSharder.shard(ctx, getReads(), GATKRead.class, sequenceDictionary, intervalShards, readShardSize, shuffle);
         Broadcast<ReferenceMultiSource> bReferenceSource = hasReference() ? ctx.broadcast(getReference()) : null;
         Broadcast<FeatureManager> bFeatureManager = features == null ? null : ctx.broadcast(features);
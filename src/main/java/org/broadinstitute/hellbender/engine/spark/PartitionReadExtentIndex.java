@@ -0,0 +1,177 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.List;
+
+/**
+ * Finds the first and last partitions whose read extents (as computed by
+ * {@link SparkSharder#computePartitionReadExtents}) overlap an interval, giving the same answer as an
+ * {@link htsjdk.samtools.util.OverlapDetector} over the extents but without creating any objects per query.
+ *
+ * The extents of each contig are held in primitive arrays in genomic order, which is also partition order. Queries
+ * move a cursor along these arrays, galloping from where the previous query on the same contig left off, so a
+ * coordinate-sorted list of intervals is processed in time linear in the number of intervals plus extents; unsorted
+ * intervals take logarithmic time each.
+ */
+final class PartitionReadExtentIndex {
+
+    private final SAMSequenceDictionary sequenceDictionary;
+
+    // the extents of contig c are at indexes contigOffsets[c] (inclusive) to contigOffsets[c + 1] (exclusive)
+    private final int[] contigOffsets;
+    private final int[] starts;
+    private final int[] ends;
+    // the largest end of any extent on the same contig up to and including this one
+    private final int[] maxEnds;
+    private final int[] partitionIndexes;
+
+    private int lastContigIndex = -1;
+    private int firstCursor;
+    private int lastCursor;
+    private int firstPartition = -1;
+    private int lastPartition = -1;
+
+    /**
+     * @param extents partition read extents in the order returned by {@link SparkSharder#computePartitionReadExtents}:
+     *                by partition, and within a contig by start
+     * @param sequenceDictionary the sequence dictionary giving the order of the contigs
+     */
+    PartitionReadExtentIndex(final List<SparkSharder.PartitionLocatable<SimpleInterval>> extents, final SAMSequenceDictionary sequenceDictionary) {
+        Utils.nonNull(extents);
+        this.sequenceDictionary = Utils.nonNull(sequenceDictionary);
+        final int contigCount = sequenceDictionary.size();
+
+        final int[] contigIndexes = new int[extents.size()];
+        contigOffsets = new int[contigCount + 1];
+        for (int i = 0; i < extents.size(); i++) {
+            final String contig = extents.get(i).getContig();
+            contigIndexes[i] = sequenceDictionary.getSequenceIndex(contig);
+            Utils.validateArg(contigIndexes[i] != -1, () -> "Contig not found in sequence dictionary: " + contig);
+            contigOffsets[contigIndexes[i] + 1]++;
+        }
+        for (int c = 0; c < contigCount; c++) {
+            contigOffsets[c + 1] += contigOffsets[c];
+        }
+
+        starts = new int[extents.size()];
+        ends = new int[extents.size()];
+        maxEnds = new int[extents.size()];
+        partitionIndexes = new int[extents.size()];
+        final int[] nextIndexes = new int[contigCount];
+        System.arraycopy(contigOffsets, 0, nextIndexes, 0, contigCount);
+        for (int i = 0; i < extents.size(); i++) {
+            final SparkSharder.PartitionLocatable<SimpleInterval> extent = extents.get(i);
+            final int c = contigIndexes[i];
+            final int index = nextIndexes[c]++;
+            starts[index] = extent.getStart();
+            ends[index] = extent.getEnd();
+            partitionIndexes[index] = extent.getPartitionIndex();
+            if (index == contigOffsets[c]) {
+                maxEnds[index] = extent.getEnd();
+            } else {
+                Utils.validateArg(starts[index] >= starts[index - 1] && partitionIndexes[index] >= partitionIndexes[index - 1],
+                        () -> "Partition read extents are not in order at " + extent);
+                maxEnds[index] = Math.max(maxEnds[index - 1], extent.getEnd());
+            }
+        }
+    }
+
+    /**
+     * Finds the partitions whose read extents overlap the interval. If there are any, the first and last of them are
+     * then given by {@link #getFirstPartition()} and {@link #getLastPartition()}.
+     *
+     * @return false if no partition read extent overlaps the interval
+     */
+    boolean findOverlappingPartitions(final Locatable interval) {
+        final int contigIndex = sequenceDictionary.getSequenceIndex(interval.getContig());
+        if (contigIndex == -1 || contigOffsets[contigIndex] == contigOffsets[contigIndex + 1]) {
+            return false;
+        }
+        final int from = contigOffsets[contigIndex];
+        final int to = contigOffsets[contigIndex + 1];
+        if (contigIndex != lastContigIndex) {
+            lastContigIndex = contigIndex;
+            firstCursor = from;
+            lastCursor = from;
+        }
+
+        // the first extent ending at or after the start of the interval is the first that can overlap it, since
+        // all the previous ones end before it
+        firstCursor = gallopToFirstAtLeast(maxEnds, from, to, interval.getStart(), firstCursor);
+        if (firstCursor == to || starts[firstCursor] > interval.getEnd()) {
+            return false;
+        }
+        // the last extent starting at or before the end of the interval; it is at or after firstCursor
+        lastCursor = gallopToFirstAtLeast(starts, from, to, interval.getEnd() + 1, lastCursor) - 1;
+
+        // ends are not necessarily in order at contig ends, so step back past any extent that ends before the
+        // interval; this stops at firstCursor at the latest, since that extent overlaps the interval
+        int last = lastCursor;
+        while (ends[last] < interval.getStart()) {
+            last--;
+        }
+        firstPartition = partitionIndexes[firstCursor];
+        lastPartition = partitionIndexes[last];
+        return true;
+    }
+
+    /**
+     * @return the index of the first partition whose read extent overlaps the interval of the last successful call to
+     * {@link #findOverlappingPartitions}
+     */
+    int getFirstPartition() {
+        return firstPartition;
+    }
+
+    /**
+     * @return the index of the last partition whose read extent overlaps the interval of the last successful call to
+     * {@link #findOverlappingPartitions}
+     */
+    int getLastPartition() {
+        return lastPartition;
+    }
+
+    /**
+     * Finds the first index in {@code [from, to)} whose value is at least {@code target}, in values that are
+     * non-decreasing over that range. The search starts from {@code hint}, galloping outwards from it, so it takes
+     * time logarithmic in the distance between the hint and the answer.
+     *
+     * @return the index found, or {@code to} if there is none
+     */
+    static int gallopToFirstAtLeast(final int[] values, final int from, final int to, final int target, final int hint) {
+        // invariant: lo == from - 1 or values[lo] < target, and hi == to or values[hi] >= target
+        int lo = from - 1;
+        int hi = to;
+        if (hint >= from && hint < to) {
+            int step = 1;
+            if (values[hint] < target) {
+                lo = hint;
+                while (lo + step < to && values[lo + step] < target) {
+                    lo += step;
+                    step <<= 1;
+                }
+                hi = Math.min(lo + step, to);
+            } else {
+                hi = hint;
+                while (hi - step >= from && values[hi - step] >= target) {
+                    hi -= step;
+                    step <<= 1;
+                }
+                lo = Math.max(hi - step, from - 1);
+            }
+        }
+        while (hi - lo > 1) {
+            final int mid = (lo + hi) >>> 1;
+            if (values[mid] < target) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return hi;
+    }
+}
@@ -0,0 +1,209 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.Locatable;
+import org.apache.spark.api.java.JavaRDD;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An estimate of the number of reads (or other {@link Locatable}s) starting in each fixed-size bin of the genome,
+ * used to size shards by the number of reads they contain rather than by the number of bases they span.
+ *
+ * Within a bin, reads are assumed to be spread uniformly.
+ */
+public final class ReadDensityProfile {
+
+    /** Default size of each bin, in bases */
+    public static final int DEFAULT_BIN_SIZE = 1000;
+
+    /** Default fraction of the reads to count when estimating density */
+    public static final double DEFAULT_SAMPLE_FRACTION = 0.05;
+
+    private final int binSize;
+    private final Map<String, double[]> binCounts;
+
+    /**
+     * @param binSize size of each bin, in bases
+     * @param binCounts estimated number of reads starting in each bin, by contig. Bin {@code i} covers positions
+     *                  {@code i * binSize + 1} to {@code (i + 1) * binSize}. Contigs that are not present have no reads.
+     */
+    public ReadDensityProfile( final int binSize, final Map<String, double[]> binCounts ) {
+        Utils.validateArg(binSize >= 1, "binSize must be >= 1");
+        this.binSize = binSize;
+        this.binCounts = Utils.nonNull(binCounts);
+    }
+
+    /**
+     * Estimate read density by counting the starts of a random sample of the locatables in each bin, and scaling the
+     * counts up by the sampling fraction. This makes one pass over the locatables, but only the sampled ones are
+     * counted, and only the per-partition bin counts are sent back to the driver.
+     *
+     * @param locatables locatables to count; need not be sorted
+     * @param sequenceDictionary dictionary giving the contig lengths
+     * @param binSize size of each bin, in bases
+     * @param sampleFraction fraction of the locatables to count, in (0, 1]
+     * @param seed seed for the sampling
+     */
+    public static <L extends Locatable> ReadDensityProfile estimate( final JavaRDD<L> locatables,
+                                                                     final SAMSequenceDictionary sequenceDictionary,
+                                                                     final int binSize,
+                                                                     final double sampleFraction,
+                                                                     final long seed ) {
+        Utils.nonNull(locatables);
+        Utils.nonNull(sequenceDictionary);
+        Utils.validateArg(binSize >= 1, "binSize must be >= 1");
+        Utils.validateArg(sampleFraction > 0.0 && sampleFraction <= 1.0, "sampleFraction must be in (0, 1]");
+
+        final JavaRDD<L> sample = sampleFraction < 1.0 ? locatables.sample(false, sampleFraction, seed) : locatables;
+        final Map<Tuple2<String, Integer>, Long> sampledCounts = sample
+                .filter(locatable -> locatable.getContig() != null && sequenceDictionary.getSequence(locatable.getContig()) != null)
+                .mapPartitionsToPair(locatableIterator -> {
+                    final Map<Tuple2<String, Integer>, Long> partitionCounts = new HashMap<>();
+                    locatableIterator.forEachRemaining(locatable ->
+                            partitionCounts.merge(new Tuple2<>(locatable.getContig(), (Math.max(locatable.getStart(), 1) - 1) / binSize), 1L, Long::sum));
+                    final List<Tuple2<Tuple2<String, Integer>, Long>> result = new ArrayList<>(partitionCounts.size());
+                    partitionCounts.forEach((bin, count) -> result.add(new Tuple2<>(bin, count)));
+                    return result.iterator();
+                })
+                .reduceByKey(Long::sum)
+                .collectAsMap();
+
+        final Map<String, double[]> binCounts = new HashMap<>();
+        for ( final SAMSequenceRecord contig : sequenceDictionary.getSequences() ) {
+            binCounts.put(contig.getSequenceName(), new double[(contig.getSequenceLength() + binSize - 1) / binSize]);
+        }
+        for ( final Map.Entry<Tuple2<String, Integer>, Long> entry : sampledCounts.entrySet() ) {
+            final double[] counts = binCounts.get(entry.getKey()._1());
+            if ( counts.length == 0 ) {
+                continue;
+            }
+            final int bin = Math.min(entry.getKey()._2(), counts.length - 1);
+            counts[bin] += entry.getValue() / sampleFraction;
+        }
+        return new ReadDensityProfile(binSize, binCounts);
+    }
+
+    public int getBinSize() {
+        return binSize;
+    }
+
+    /**
+     * @return the estimated number of reads starting in the given bin of the given contig
+     */
+    public double getBinCount( final String contig, final int bin ) {
+        final double[] counts = binCounts.get(contig);
+        return counts == null || bin < 0 || bin >= counts.length ? 0.0 : counts[bin];
+    }
+
+    /**
+     * @return the estimated number of reads starting within interval
+     */
+    public double getEstimatedCount( final SimpleInterval interval ) {
+        Utils.nonNull(interval);
+        double count = 0.0;
+        int position = interval.getStart();
+        while ( position <= interval.getEnd() ) {
+            final int bin = (position - 1) / binSize;
+            final int segmentEnd = Math.min((bin + 1) * binSize, interval.getEnd());
+            count += getBinCount(interval.getContig(), bin) * (segmentEnd - position + 1) / binSize;
+            position = segmentEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Divide an interval into ShardBoundaries that each contain about targetReadsPerShard reads. Each shard covers
+     * between minShardSize and maxShardSize bases (except that the last shard of the interval may be smaller), and
+     * includes shardPadding bases of extra padding on either side, as for
+     * {@link org.broadinstitute.hellbender.engine.Shard#divideIntervalIntoShards}.
+     *
+     * @param interval interval to shard; must be on the contig according to the provided dictionary
+     * @param targetReadsPerShard the estimated number of reads to put in each shard
+     * @param minShardSize the minimum size of a shard, in bases
+     * @param maxShardSize the maximum size of a shard, in bases
+     * @param shardPadding desired shard padding; each shard's interval will be padded on both sides by this number of bases (may be 0)
+     * @param dictionary sequence dictionary for reads
+     * @return List of {@link ShardBoundary} objects spanning the interval
+     */
+    public List<ShardBoundary> divideIntervalIntoShards( final SimpleInterval interval,
+                                                         final double targetReadsPerShard,
+                                                         final int minShardSize,
+                                                         final int maxShardSize,
+                                                         final int shardPadding,
+                                                         final SAMSequenceDictionary dictionary ) {
+        Utils.nonNull(interval);
+        Utils.nonNull(dictionary);
+        Utils.validateArg(targetReadsPerShard > 0.0, "targetReadsPerShard must be > 0");
+        Utils.validateArg(minShardSize >= 1, "minShardSize must be >= 1");
+        Utils.validateArg(maxShardSize >= minShardSize, "maxShardSize must be >= minShardSize");
+        Utils.validateArg(shardPadding >= 0, "shardPadding must be >= 0");
+        Utils.validateArg(IntervalUtils.intervalIsOnDictionaryContig(interval, dictionary), () ->
+                "Interval " + interval + " not within the bounds of a contig in the provided dictionary");
+
+        final List<ShardBoundary> shards = new ArrayList<>();
+        int shardStart = interval.getStart();
+        int position = shardStart;
+        double shardCount = 0.0;
+
+        while ( position <= interval.getEnd() ) {
+            // the part of the current bin that can still go into this shard
+            final int bin = (position - 1) / binSize;
+            final int segmentEnd = Math.min(Math.min((bin + 1) * binSize, interval.getEnd()), shardStart + maxShardSize - 1);
+            final double countPerBase = getBinCount(interval.getContig(), bin) / binSize;
+
+            // the position at which this shard reaches its target, if it is within the segment
+            final long targetEnd = countPerBase > 0.0 ? position + (long)Math.ceil((targetReadsPerShard - shardCount) / countPerBase) - 1 : Long.MAX_VALUE;
+            final long shardEnd = Math.max(Math.max(targetEnd, (long)shardStart + minShardSize - 1), position);
+
+            if ( shardEnd <= segmentEnd ) {
+                addShard(shards, interval.getContig(), shardStart, (int)shardEnd, shardPadding, dictionary);
+                shardStart = position = (int)shardEnd + 1;
+                shardCount = 0.0;
+            } else {
+                shardCount += countPerBase * (segmentEnd - position + 1);
+                position = segmentEnd + 1;
+                if ( segmentEnd == interval.getEnd() || segmentEnd == shardStart + maxShardSize - 1 ) {
+                    addShard(shards, interval.getContig(), shardStart, segmentEnd, shardPadding, dictionary);
+                    shardStart = position;
+                    shardCount = 0.0;
+                }
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * Divide each of a list of intervals into ShardBoundaries, as for
+     * {@link #divideIntervalIntoShards(SimpleInterval, double, int, int, int, SAMSequenceDictionary)}.
+     */
+    public List<ShardBoundary> divideIntervalsIntoShards( final List<SimpleInterval> intervals,
+                                                          final double targetReadsPerShard,
+                                                          final int minShardSize,
+                                                          final int maxShardSize,
+                                                          final int shardPadding,
+                                                          final SAMSequenceDictionary dictionary ) {
+        Utils.nonNull(intervals);
+        final List<ShardBoundary> shards = new ArrayList<>();
+        for ( final SimpleInterval interval : intervals ) {
+            shards.addAll(divideIntervalIntoShards(interval, targetReadsPerShard, minShardSize, maxShardSize, shardPadding, dictionary));
+        }
+        return shards;
+    }
+
+    private static void addShard( final List<ShardBoundary> shards, final String contig, final int start, final int end,
+                                  final int shardPadding, final SAMSequenceDictionary dictionary ) {
+        final SimpleInterval shardInterval = new SimpleInterval(contig, start, end);
+        shards.add(new ShardBoundary(shardInterval, shardInterval.expandWithinContig(shardPadding, dictionary)));
+    }
+}
@@ -2,10 +2,13 @@ package org.broadinstitute.hellbender.engine.spark;
 
 import com.google.common.base.Function;
 import com.google.common.collect.*;
+import com.google.common.primitives.Ints;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.util.Locatable;
 import htsjdk.samtools.util.OverlapDetector;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
@@ -37,6 +40,8 @@ import static org.broadinstitute.hellbender.utils.IntervalUtils.overlaps;
  * Utility methods for sharding {@link Locatable} objects (such as reads) for given intervals, without using a shuffle.
  */
 public class SparkSharder {
+    private static final Logger logger = LogManager.getLogger(SparkSharder.class);
+
     /**
      * Create an RDD of {@link Shard} from an RDD of coordinate sorted {@link Locatable} <i>without using a shuffle</i>.
      * Each shard contains the {@link Locatable} objects that overlap it (including overlapping only padding).
@@ -159,35 +164,39 @@ public class SparkSharder {
                                                                                             SAMSequenceDictionary sequenceDictionary, List<I> intervals,
                                                                                             int maxLocatableLength, FlatMapFunction2<Iterator<L>, Iterator<I>, T> f) {
 
+        // The extents are found by a (cheap) Spark job, so time it separately from the driver-side work below.
+        long startNanos = System.nanoTime();
         List<PartitionLocatable<SimpleInterval>> partitionReadExtents = computePartitionReadExtents(locatables, sequenceDictionary, maxLocatableLength);
+        long extentsNanos = System.nanoTime() - startNanos;
 
         // For each interval find which partition it starts and ends in.
         // An interval is processed in the partition it starts in. However, we need to make sure that
         // subsequent partitions are coalesced if needed, so for each partition p find the latest subsequent
         // partition that is needed to read all of the intervals that start in p.
-        List<Integer> maxEndPartitionIndexes = new ArrayList<>();
-        for (int i = 0; i < locatables.getNumPartitions(); i++) {
-            maxEndPartitionIndexes.add(i);
+        startNanos = System.nanoTime();
+        int[] maxEndPartitionIndexes = new int[locatables.getNumPartitions()];
+        for (int i = 0; i < maxEndPartitionIndexes.length; i++) {
+            maxEndPartitionIndexes[i] = i;
         }
-        OverlapDetector<PartitionLocatable<SimpleInterval>> overlapDetector = OverlapDetector.create(partitionReadExtents);
-        List<PartitionLocatable<I>> indexedIntervals = new ArrayList<>();
+        PartitionReadExtentIndex extentIndex = new PartitionReadExtentIndex(partitionReadExtents, sequenceDictionary);
+        List<PartitionLocatable<I>> indexedIntervals = new ArrayList<>(intervals.size());
         for (I interval : intervals) {
-            int[] partitionIndexes = overlapDetector.getOverlaps(interval).stream()
-                    .mapToInt(PartitionLocatable::getPartitionIndex).toArray();
-            if (partitionIndexes.length == 0) {
+            if (!extentIndex.findOverlappingPartitions(interval)) {
                 // interval does not overlap any partition - skip it
                 continue;
             }
-            Arrays.sort(partitionIndexes);
-            int startIndex = partitionIndexes[0];
-            int endIndex = partitionIndexes[partitionIndexes.length - 1];
+            int startIndex = extentIndex.getFirstPartition();
+            int endIndex = extentIndex.getLastPartition();
             indexedIntervals.add(new PartitionLocatable<I>(startIndex, interval));
-            if (endIndex > maxEndPartitionIndexes.get(startIndex)) {
-                maxEndPartitionIndexes.set(startIndex, endIndex);
+            if (endIndex > maxEndPartitionIndexes[startIndex]) {
+                maxEndPartitionIndexes[startIndex] = endIndex;
             }
         }
+        long assignmentNanos = System.nanoTime() - startNanos;
+        logger.info(String.format("Sharding: found read extents of %d partitions in %.3f s; assigned %d of %d intervals to partitions on the driver in %.3f s",
+                locatables.getNumPartitions(), extentsNanos / 1e9, indexedIntervals.size(), intervals.size(), assignmentNanos / 1e9));
 
-        JavaRDD<L> coalescedRdd = coalesce(locatables, locatableClass, new RangePartitionCoalescer(maxEndPartitionIndexes));
+        JavaRDD<L> coalescedRdd = coalesce(locatables, locatableClass, new RangePartitionCoalescer(Ints.asList(maxEndPartitionIndexes)));
 
         // Create an RDD of intervals with the same number of partitions as the locatables, and where each interval
         // is in its start partition.
@@ -58,12 +58,22 @@ public class ApplyBQSRUniqueArgumentCollection implements Serializable {
     @Argument(fullName = "globalQScorePrior", shortName = "globalQScorePrior", doc = "Global Qscore Bayesian prior to use for BQSR", optional = true)
     public double globalQScorePrior = -1.0;
 
+    /**
+     * Precompute, when the recalibration report is loaded, the contribution of every covariate value for every
+     * read group and reported quality, so that recalibrating a base takes a few array lookups instead of walking the
+     * recalibration tables. The recalibrated qualities are identical; this trades some memory for speed.
+     */
+    @Advanced
+    @Argument(fullName = "useRecalibrationLookupTable", shortName = "useRecalibrationLookupTable", doc = "Recalibrate using tables precomputed when the recalibration report is loaded", optional = true)
+    public boolean useRecalibrationLookupTable = false;
+
     public ApplyBQSRArgumentCollection toApplyBQSRArgumentCollection(int PRESERVE_QSCORES_LESS_THAN) {
         ApplyBQSRArgumentCollection ret = new ApplyBQSRArgumentCollection();
         ret.quantizationLevels = this.quantizationLevels;
         ret.emitOriginalQuals = this.emitOriginalQuals;
         ret.PRESERVE_QSCORES_LESS_THAN = PRESERVE_QSCORES_LESS_THAN;
         ret.globalQScorePrior = this.globalQScorePrior;
+        ret.useRecalibrationLookupTable = this.useRecalibrationLookupTable;
         return ret;
     }
 }
@@ -1,13 +1,24 @@
 package org.broadinstitute.hellbender.tools;
 
 import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.MergingSamRecordIterator;
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SamFileHeaderMerger;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
 import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.samtools.util.CloserUtil;
 import htsjdk.samtools.util.OverlapDetector;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.spark.TaskContext;
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.api.java.function.FlatMapFunction;
@@ -24,6 +35,7 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
+import org.broadinstitute.hellbender.engine.spark.ReadDensityProfile;
 import org.broadinstitute.hellbender.engine.spark.SparkSharder;
 import org.broadinstitute.hellbender.engine.spark.datasources.VariantsSparkSink;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -39,10 +51,12 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import org.broadinstitute.hellbender.utils.spark.SparkUtils;
 import scala.Tuple2;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
@@ -57,8 +71,10 @@ import java.util.stream.StreamSupport;
  * This is an implementation of {@link HaplotypeCaller} using spark to distribute the computation.
  * It is still in an early stage of development and does not yet support all the options that the non-spark version does.
  *
- * Specifically it does not support the --dbsnp, --comp, and --bamOutput options.
- *
+ * The --dbsnp, --comp and --alleles feature files are queried by each Spark task for the region it is working on,
+ * so they must be indexed and readable from the executors. Likewise, with --bamOutput each task writes the reads of
+ * its partition to a separate BAM in a ".parts" directory next to the output, which must therefore be on a file system
+ * shared by the driver and the executors; the parts are merged into the final bamout once the variants are written.
  */
 @CommandLineProgramProperties(summary = "HaplotypeCaller on Spark", oneLineSummary = "HaplotypeCaller on Spark", programGroup = SparkProgramGroup.class)
 @DocumentedFeature
@@ -68,6 +84,11 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
 
     public static final int DEFAULT_READSHARD_SIZE = 5000;
 
+    /**
+     * Suffix of the directory, next to the bamout, that the partitions write their parts of the bamout to
+     */
+    public static final String BAMOUT_PARTS_SUFFIX = ".parts";
+
     @Argument(fullName= StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, doc = "Single file to which variants should be written")
     public String output;
 
@@ -83,6 +104,14 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         @Argument(fullName="readShardPadding", shortName="readShardPadding", doc = "Each read shard has this many bases of extra context on each side. Read shards must have as much or more padding than assembly regions.", optional = true)
         public int readShardPadding = HaplotypeCaller.DEFAULT_READSHARD_PADDING;
 
+        @Advanced
+        @Argument(fullName="targetReadsPerShard", shortName="targetReadsPerShard", doc = "If greater than 0, size read shards to hold about this many reads each, as estimated from a sample of the reads, rather than readShardSize bases. Shards are then no larger than readShardSize bases and no smaller than maxAssemblyRegionSize bases.", optional = true)
+        public int targetReadsPerShard = 0;
+
+        @Advanced
+        @Argument(fullName="readDensitySampleFraction", shortName="readDensitySampleFraction", doc = "Fraction of the reads to sample when estimating read density for targetReadsPerShard", optional = true)
+        public double readDensitySampleFraction = ReadDensityProfile.DEFAULT_SAMPLE_FRACTION;
+
         @Argument(fullName = "minAssemblyRegionSize", shortName = "minAssemblyRegionSize", doc = "Minimum size of an assembly region", optional = true)
         public int minAssemblyRegionSize = HaplotypeCaller.DEFAULT_MIN_ASSEMBLY_REGION_SIZE;
 
@@ -162,19 +191,26 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         readsHeader.setSortOrder(SAMFileHeader.SortOrder.coordinate);
         final JavaRDD<GATKRead> coordinateSortedReads = SparkUtils.coordinateSortReads(reads, readsHeader, numReducers);
 
-        final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgs, false, false, readsHeader, new ReferenceMultiSourceAdapter(reference, authHolder));
+        // the engine on the driver is only used to make headers and writers, so it must not open the bamout
+        final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(withBamOutputPath(hcArgs, null), false, false, readsHeader, new ReferenceMultiSourceAdapter(reference, authHolder));
+        if (hcArgs.bamOutputPath != null) {
+            deleteBamOutputParts(hcArgs.bamOutputPath);
+        }
         final JavaRDD<VariantContext> variants = callVariantsWithHaplotypeCaller(authHolder, ctx, coordinateSortedReads, readsHeader, reference, intervals, hcArgs, shardingArgs);
+        variants.cache(); // without caching, computations are run twice as a side effect of finding partition boundaries for sorting
         if (hcArgs.emitReferenceConfidence == ReferenceConfidenceMode.GVCF) {
             // VariantsSparkSink/Hadoop-BAM VCFOutputFormat do not support writing GVCF, see https://github.com/broadinstitute/gatk/issues/2738
-            writeVariants(output, variants, hcEngine, readsHeader.getSequenceDictionary());
+            writeVariants(output, variants, hcEngine, readsHeader.getSequenceDictionary(), numReducers);
         } else {
-            variants.cache(); // without caching, computations are run twice as a side effect of finding partition boundaries for sorting
             try {
                 VariantsSparkSink.writeVariants(ctx, output, variants, hcEngine.makeVCFHeader(readsHeader.getSequenceDictionary(), new HashSet<>()));
             } catch (IOException e) {
                 throw new UserException.CouldNotCreateOutputFile(output, "writing failed", e);
             }
         }
+        if (hcArgs.bamOutputPath != null) {
+            mergeBamOutputParts(hcArgs.bamOutputPath);
+        }
     }
 
     /**
@@ -182,6 +218,9 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
      *
      * This may be called from any spark pipeline in order to call variants from an RDD of GATKRead
      *
+     * If a bamout is requested, each partition of the returned RDD writes its part of it when it is computed, see
+     * {@link #getBamOutputPartPath}; the parts have to be merged by the caller.
+     *
      * @param authHolder authorization needed for the reading the reference
      * @param ctx the spark context
      * @param reads the reads variants should be called from
@@ -201,9 +240,6 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             final List<SimpleInterval> intervals,
             final HaplotypeCallerArgumentCollection hcArgs,
             final ShardingArgumentCollection shardingArgs) {
-        Utils.validateArg(hcArgs.dbsnp.dbsnp == null, "HaplotypeCallerSpark does not yet support -D or --dbsnp arguments" );
-        Utils.validateArg(hcArgs.comps.isEmpty(), "HaplotypeCallerSpark does not yet support -comp or --comp arguments" );
-        Utils.validateArg(hcArgs.bamOutputPath == null, "HaplotypeCallerSpark does not yet support -bamout or --bamOutput");
         if ( !reference.isCompatibleWithSparkBroadcast()){
             throw new UserException.Require2BitReferenceForBroadcast();
         }
@@ -214,7 +250,9 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         final VariantAnnotatorEngine variantAnnotatorEngine = VariantAnnotatorEngine.ofSelectedMinusExcluded(hcArgs.annotationGroupsToUse, hcArgs.annotationsToUse, hcArgs.annotationsToExclude, hcArgs.dbsnp.dbsnp, hcArgs.comps);
         final Broadcast<VariantAnnotatorEngine> annotatorEngineBroadcast = ctx.broadcast(variantAnnotatorEngine);
 
-        final List<ShardBoundary> shardBoundaries = getShardBoundaries(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding);
+        final List<ShardBoundary> shardBoundaries = shardingArgs.targetReadsPerShard > 0 ?
+                getAdaptiveShardBoundaries(reads, header, intervals, shardingArgs) :
+                getShardBoundaries(header, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding);
 
         final int maxReadLength = reads.map(r -> r.getEnd() - r.getStart() + 1).reduce(Math::max);
 
@@ -242,19 +280,107 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             //HaplotypeCallerEngine isn't serializable but is expensive to instantiate, so construct and reuse one for every partition
             final ReferenceMultiSource referenceMultiSource = referenceBroadcast.value();
             final ReferenceMultiSourceAdapter referenceSource = new ReferenceMultiSourceAdapter(referenceMultiSource, authHolder);
-            final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
-            return iteratorToStream(regionAndIntervals).flatMap(regionToVariants(hcEngine)).iterator();
+            final HaplotypeCallerArgumentCollection hcArgs = hcArgsBroadcast.value();
+            final TaskContext taskContext = TaskContext.get();
+
+            // each partition writes its own part of the bamout
+            final HaplotypeCallerArgumentCollection partitionArgs = hcArgs.bamOutputPath == null ? hcArgs :
+                    withBamOutputPath(hcArgs, getBamOutputPartPath(hcArgs.bamOutputPath, taskContext.partitionId()));
+            final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(partitionArgs, false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
+            final FeatureManager features = makeFeatureManager(hcArgs);
+            taskContext.addTaskCompletionListener(context -> {
+                hcEngine.shutdown();
+                if (features != null) {
+                    features.close();
+                }
+            });
+            return iteratorToStream(regionAndIntervals).flatMap(regionToVariants(hcEngine, features)).iterator();
         };
     }
 
+    /**
+     * @return a FeatureManager for the feature files given in the arguments, or null if there are none
+     */
+    private static FeatureManager makeFeatureManager(final HaplotypeCallerArgumentCollection hcArgs) {
+        final List<FeatureInput<VariantContext>> featureInputs = new ArrayList<>();
+        if (hcArgs.dbsnp.dbsnp != null) {
+            featureInputs.add(hcArgs.dbsnp.dbsnp);
+        }
+        featureInputs.addAll(hcArgs.comps);
+        if (hcArgs.alleles != null) {
+            featureInputs.add(hcArgs.alleles);
+        }
+        return featureInputs.isEmpty() ? null :
+                new FeatureManager(featureInputs, VariantContext.class, HaplotypeCallerSpark.class.getSimpleName(), FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
+    }
+
+    /**
+     * @return a copy of hcArgs with the bamout path replaced by bamOutputPath
+     */
+    private static HaplotypeCallerArgumentCollection withBamOutputPath(final HaplotypeCallerArgumentCollection hcArgs, final String bamOutputPath) {
+        final HaplotypeCallerArgumentCollection copy = SerializationUtils.clone(hcArgs);
+        copy.bamOutputPath = bamOutputPath;
+        return copy;
+    }
+
+    /**
+     * @return the path of the part of the bamout written by the given partition
+     */
+    @VisibleForTesting
+    static String getBamOutputPartPath(final String bamOutputPath, final int partition) {
+        return new File(bamOutputPath + BAMOUT_PARTS_SUFFIX, String.format("part-%05d.bam", partition)).getPath();
+    }
+
+    private static void deleteBamOutputParts(final String bamOutputPath) {
+        final File partsDirectory = new File(bamOutputPath + BAMOUT_PARTS_SUFFIX);
+        try {
+            FileUtils.deleteDirectory(partsDirectory);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(partsDirectory, "could not delete old bamout parts", e);
+        }
+    }
+
+    /**
+     * Merge the coordinate-sorted bamout parts written by the partitions into a single indexed bamout, and
+     * delete the parts. Reads in the padding of adjacent shards may be in more than one part, as they are in the bamout
+     * of {@link HaplotypeCaller} when assembly regions overlap.
+     */
+    private static void mergeBamOutputParts(final String bamOutputPath) {
+        final File partsDirectory = new File(bamOutputPath + BAMOUT_PARTS_SUFFIX);
+        final File[] parts = partsDirectory.listFiles((dir, name) -> name.endsWith(".bam"));
+        if (parts == null) {
+            throw new UserException.CouldNotCreateOutputFile(new File(bamOutputPath), "no bamout parts were written to " + partsDirectory);
+        }
+        Arrays.sort(parts);
+
+        final SamReaderFactory readerFactory = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT);
+        final List<SamReader> readers = new ArrayList<>(parts.length);
+        try {
+            for (final File part : parts) {
+                readers.add(readerFactory.open(part));
+            }
+            final List<SAMFileHeader> headers = readers.stream().map(SamReader::getFileHeader).collect(Collectors.toList());
+            final SamFileHeaderMerger headerMerger = new SamFileHeaderMerger(SAMFileHeader.SortOrder.coordinate, headers, false);
+            final MergingSamRecordIterator iterator = new MergingSamRecordIterator(headerMerger, readers, true);
+            try (final SAMFileWriter writer = ReadUtils.createCommonSAMWriter(new File(bamOutputPath), null, headerMerger.getMergedHeader(), true, true, false)) {
+                iterator.forEachRemaining(writer::addAlignment);
+            }
+            iterator.close();
+        } finally {
+            CloserUtil.close(readers);
+        }
+        deleteBamOutputParts(bamOutputPath);
+    }
+
     private static <T> Stream<T> iteratorToStream(Iterator<T> iterator) {
         Iterable<T> regionsIterable = () -> iterator;
         return StreamSupport.stream(regionsIterable.spliterator(), false);
     }
 
-    private static Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> regionToVariants(HaplotypeCallerEngine hcEngine) {
+    private static Function<Tuple2<AssemblyRegion, SimpleInterval>, Stream<? extends VariantContext>> regionToVariants(HaplotypeCallerEngine hcEngine, FeatureManager features) {
         return regionAndInterval -> {
-            final List<VariantContext> variantContexts = hcEngine.callRegion(regionAndInterval._1(), new FeatureContext());
+            final AssemblyRegion region = regionAndInterval._1();
+            final List<VariantContext> variantContexts = hcEngine.callRegion(region, new FeatureContext(features, region.getExtendedSpan()));
             final SimpleInterval shardBoundary = regionAndInterval._2();
             return variantContexts.stream()
                 .filter(vc -> shardBoundary.contains(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart())));
@@ -262,20 +388,50 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
     }
 
     /**
-     * WriteVariants, this is currently going to be horribly slow and explosive on a full size file since it performs a collect.
+     * Write the variants to a single file through the writer of the HaplotypeCallerEngine, which for a GVCF merges
+     * the reference blocks, including those that meet at shard boundaries.
+     *
+     * The variants are sorted in parallel and then streamed to the driver one partition at a time, so only the largest
+     * sorted partition, rather than the whole call set, has to fit in the driver's memory. Variants with the same contig,
+     * start and end are kept in the order of their partition and their position in it, so the output is deterministic.
      *
      * This will be replaced by a parallel writer similar to what's done with {@link org.broadinstitute.hellbender.engine.spark.datasources.ReadsSparkSink}
      */
-    private static void writeVariants(String outputFile, JavaRDD<VariantContext> variants, HaplotypeCallerEngine hcEngine, SAMSequenceDictionary sequenceDictionary) {
-        final List<VariantContext> collectedVariants = variants.collect();
-
-        final List<VariantContext> sortedVariants = collectedVariants.stream()
-            .sorted((o1, o2) -> IntervalUtils.compareLocatables(o1, o2, sequenceDictionary))
-            .collect(Collectors.toList());
+    private static void writeVariants(String outputFile, JavaRDD<VariantContext> variants, HaplotypeCallerEngine hcEngine, SAMSequenceDictionary sequenceDictionary, int numReducers) {
+        final VariantLocatableComparator comparator = new VariantLocatableComparator(sequenceDictionary);
+        final JavaPairRDD<Tuple2<VariantContext, Long>, Void> keyedVariants = variants
+                .mapPartitionsWithIndex((partitionIndex, partition) -> {
+                    // the partition index in the high bits, the position in the partition in the low ones
+                    final long[] tiebreak = {(long) partitionIndex << 32};
+                    return iteratorToStream(partition).map(vc -> new Tuple2<>(vc, tiebreak[0]++)).iterator();
+                }, true)
+                .mapToPair(vc -> new Tuple2<>(vc, (Void) null));
+        final JavaRDD<VariantContext> sortedVariants = (numReducers > 0 ? keyedVariants.sortByKey(comparator, true, numReducers) : keyedVariants.sortByKey(comparator))
+                .map(keyed -> keyed._1()._1());
 
         try(final VariantContextWriter writer = hcEngine.makeVCFWriter(outputFile, sequenceDictionary)) {
             hcEngine.writeHeader(writer, sequenceDictionary, new HashSet<>());
-            sortedVariants.forEach(writer::add);
+            sortedVariants.toLocalIterator().forEachRemaining(writer::add);
+        }
+    }
+
+    /**
+     * Orders variants by contig (in dictionary order), start and end, see {@link IntervalUtils#compareLocatables},
+     * and then by the number they are paired with, which encodes their partition and their position in it
+     */
+    private static final class VariantLocatableComparator implements Comparator<Tuple2<VariantContext, Long>>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final SAMSequenceDictionary sequenceDictionary;
+
+        private VariantLocatableComparator(final SAMSequenceDictionary sequenceDictionary) {
+            this.sequenceDictionary = sequenceDictionary;
+        }
+
+        @Override
+        public int compare(final Tuple2<VariantContext, Long> vc1, final Tuple2<VariantContext, Long> vc2) {
+            final int result = IntervalUtils.compareLocatables(vc1._1(), vc2._1(), sequenceDictionary);
+            return result != 0 ? result : Long.compare(vc1._2(), vc2._2());
         }
     }
 
@@ -290,6 +446,19 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             .collect(Collectors.toList());
     }
 
+    /**
+     * @return a list of {@link ShardBoundary} based on the -L intervals, sized to hold about
+     * {@link ShardingArgumentCollection#targetReadsPerShard} reads each
+     */
+    private static List<ShardBoundary> getAdaptiveShardBoundaries(final JavaRDD<GATKRead> reads, final SAMFileHeader header,
+                                                                  final List<SimpleInterval> intervals, final ShardingArgumentCollection shardingArgs) {
+        final ReadDensityProfile readDensity = ReadDensityProfile.estimate(reads, header.getSequenceDictionary(),
+                ReadDensityProfile.DEFAULT_BIN_SIZE, shardingArgs.readDensitySampleFraction, 0L);
+        return readDensity.divideIntervalsIntoShards(intervals, shardingArgs.targetReadsPerShard,
+                Math.min(shardingArgs.maxAssemblyRegionSize, shardingArgs.readShardSize), shardingArgs.readShardSize,
+                shardingArgs.readShardPadding, header.getSequenceDictionary());
+    }
+
     /**
      * @return and RDD of {@link Tuple2<AssemblyRegion, SimpleInterval>} which pairs each AssemblyRegion with the
      * interval it was generated in
@@ -304,13 +473,23 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
         return shards -> {
             final ReferenceMultiSource referenceMultiSource = reference.value();
             final ReferenceMultiSourceAdapter referenceSource = new ReferenceMultiSourceAdapter(referenceMultiSource, authHolder);
-            final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgsBroadcast.value(), false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
+            // the engine is only used to find active regions, so it must not open the bamout
+            final HaplotypeCallerArgumentCollection hcArgs = hcArgsBroadcast.value();
+            final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgs.bamOutputPath == null ? hcArgs : withBamOutputPath(hcArgs, null),
+                    false, false, header, referenceSource, annotatorEngineBroadcast.getValue());
+            final FeatureManager features = makeFeatureManager(hcArgs);
+            TaskContext.get().addTaskCompletionListener(context -> {
+                hcEngine.shutdown();
+                if (features != null) {
+                    features.close();
+                }
+            });
 
             final ReadsDownsampler readsDownsampler = assemblyArgs.maxReadsPerAlignmentStart > 0 ?
                 new PositionalDownsampler(assemblyArgs.maxReadsPerAlignmentStart, header) : null;
             return iteratorToStream(shards)
                 .map(shard -> new DownsampleableSparkReadShard(new ShardBoundary(shard.getInterval(), shard.getPaddedInterval()), shard, readsDownsampler))
-                .flatMap(shardToRegion(assemblyArgs, header, referenceSource, hcEngine)).iterator();
+                .flatMap(shardToRegion(assemblyArgs, header, referenceSource, hcEngine, features)).iterator();
         };
     }
 
@@ -318,12 +497,11 @@ public final class HaplotypeCallerSpark extends GATKSparkTool {
             ShardingArgumentCollection assemblyArgs,
             SAMFileHeader header,
             ReferenceMultiSourceAdapter referenceSource,
-            HaplotypeCallerEngine evaluator) {
+            HaplotypeCallerEngine evaluator,
+            FeatureManager featureManager) {
         return shard -> {
             final ReferenceContext refContext = new ReferenceContext(referenceSource, shard.getPaddedInterval());
-
-            //TODO load features as a side input
-            final FeatureContext features = new FeatureContext();
+            final FeatureContext features = new FeatureContext(featureManager, shard.getPaddedInterval());
 
             // TODO: this should use the new AssemblyRegionIterator instead of AssemblyRegion.createFromReadShard(),
             // TODO: since AssemblyRegion.createFromReadShard() slurps all reads in the shard into memory at once,
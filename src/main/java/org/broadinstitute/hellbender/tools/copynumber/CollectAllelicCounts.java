@@ -74,6 +74,12 @@ import java.util.List;
  *     2	15629	5	3	T	C
  * </pre>
  *
+ * <p>
+ *     With --sparseSiteTraversal, the reads are streamed once and their bases are counted directly at the sites,
+ *     rather than building a pileup at each site.  This gives the same counts, and is much faster for long lists of
+ *     single-base sites, but does not support downsampling (--maxDepthPerSample).
+ * </p>
+ *
  * @author Samuel Lee &lt;slee@broadinstitute.org&gt;
  */
 @CommandLineProgramProperties(
@@ -102,6 +108,13 @@ public final class CollectAllelicCounts extends LocusWalker {
     )
     protected int minimumBaseQuality = 20;
 
+    @Argument(
+            doc = "Count bases at the sites directly from a single stream of reads, instead of building a pileup at each site.",
+            fullName = StandardArgumentDefinitions.SPARSE_SITE_TRAVERSAL_LONG_NAME,
+            optional = true
+    )
+    protected boolean sparseSiteTraversal = false;
+
     private static final int DEFAULT_MINIMUM_MAPPING_QUALITY = 30;
 
     private AllelicCountCollector allelicCountCollector = new AllelicCountCollector();
@@ -115,6 +128,9 @@ public final class CollectAllelicCounts extends LocusWalker {
     @Override
     public boolean requiresIntervals() {return true;}
 
+    @Override
+    public boolean usePrimitivePileups() {return true;}
+
     @Override
     public void onTraversalStart() {
         logger.info("Collecting allelic counts...");
@@ -128,6 +144,19 @@ public final class CollectAllelicCounts extends LocusWalker {
         return initialReadFilters;
     }
 
+    @Override
+    public void traverse() {
+        if (sparseSiteTraversal && maxDepthPerSample > 0) {
+            logger.warn("Downsampling is not supported with --" + StandardArgumentDefinitions.SPARSE_SITE_TRAVERSAL_LONG_NAME + ", so pileups will be built at each site.");
+        }
+        if (sparseSiteTraversal && maxDepthPerSample == 0) {
+            traverseSparseSites(minimumBaseQuality, (site, baseCounts, referenceContext) ->
+                    allelicCountCollector.collectAtLocus(Nucleotide.valueOf(referenceContext.getBase()), baseCounts, site));
+        } else {
+            super.traverse();
+        }
+    }
+
     @Override
     public Object onTraversalSuccess() {
         allelicCountCollector.getAllelicCounts().write(outputAllelicCountsFile);
@@ -138,6 +167,6 @@ public final class CollectAllelicCounts extends LocusWalker {
     @Override
     public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
         final byte refAsByte = referenceContext.getBase();
-        allelicCountCollector.collectAtLocus(Nucleotide.valueOf(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
+        allelicCountCollector.collectAtLocus(Nucleotide.valueOf(refAsByte), alignmentContext.getPrimitivePileup(), alignmentContext.getLocation(), minimumBaseQuality);
     }
 }
@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.utils.Nucleotide;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.pileup.PrimitivePileup;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.util.Arrays;
@@ -58,6 +59,73 @@ public final class AllelicCountCollector {
                 .filter(r -> r.getQual() >= minBaseQuality)
                 .forEach(r -> nucleotideCounter.add(r.getBase()));
 
+        addCounts(refBase, nucleotideCounter, locus);
+    }
+
+    /**
+     * Add counts to this class for a specific locus, reading the bases and qualities directly from a primitive pileup.
+     * Gives the same counts as {@link #collectAtLocus(Nucleotide, ReadPileup, Locatable, int)} for the equivalent
+     * {@link ReadPileup}.
+     *
+     * @param refBase single nucleotide of the reference.  Not {@code null}
+     * @param pileup associated pileup at the locus.  Not {@code null}
+     * @param locus position in genome to collect alellic counts.  Not {@code null}
+     * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
+     */
+    public void collectAtLocus(final Nucleotide refBase, final PrimitivePileup pileup, final Locatable locus, final int minBaseQuality) {
+        Utils.nonNull(refBase);
+        Utils.nonNull(pileup);
+        Utils.nonNull(locus);
+        ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be zero or higher.");
+
+        if (!BASES.contains(refBase)) {
+            logger.warn(String.format("The reference position at %s has an unknown base call (value: %s). Skipping...",
+                    locus, refBase.toString()));
+            return;
+        }
+
+        final Nucleotide.Counter nucleotideCounter = new Nucleotide.Counter();
+
+        final int size = pileup.size();
+        for (int i = 0; i < size; i++) {
+            if (!pileup.isDeletion(i) && pileup.getQual(i) >= minBaseQuality) {
+                nucleotideCounter.add(pileup.getBase(i));
+            }
+        }
+
+        addCounts(refBase, nucleotideCounter, locus);
+    }
+
+    /**
+     * Add counts to this class for a specific locus, from the counts of each base there (for instance, those collected
+     * by a {@link org.broadinstitute.hellbender.utils.pileup.SparseSiteBaseCounter}).  The counts should include only
+     * bases with quality of at least the minimum base quality, and no deletions.
+     *
+     * @param refBase single nucleotide of the reference.  Not {@code null}
+     * @param baseCounts counts of A, C, G and T, indexed as by {@link org.broadinstitute.hellbender.utils.BaseUtils#simpleBaseToBaseIndex}.  Not {@code null}
+     * @param locus position in genome to collect alellic counts.  Not {@code null}
+     */
+    public void collectAtLocus(final Nucleotide refBase, final int[] baseCounts, final Locatable locus) {
+        Utils.nonNull(refBase);
+        Utils.nonNull(baseCounts);
+        Utils.nonNull(locus);
+        Utils.validateArg(baseCounts.length == BASES.size(), "There must be a count for each of A, C, G and T.");
+
+        if (!BASES.contains(refBase)) {
+            logger.warn(String.format("The reference position at %s has an unknown base call (value: %s). Skipping...",
+                    locus, refBase.toString()));
+            return;
+        }
+
+        final Nucleotide.Counter nucleotideCounter = new Nucleotide.Counter();
+        for (int i = 0; i < baseCounts.length; i++) {
+            nucleotideCounter.add(BASES.get(i), baseCounts[i]);
+        }
+
+        addCounts(refBase, nucleotideCounter, locus);
+    }
+
+    private void addCounts(final Nucleotide refBase, final Nucleotide.Counter nucleotideCounter, final Locatable locus) {
         final int totalBaseCount = BASES.stream().mapToInt(b -> (int) nucleotideCounter.get(b)).sum(); //only include total ACGT counts in binomial test (exclude N, etc.)
         final int refReadCount = (int) nucleotideCounter.get(refBase);
         final int altReadCount = totalBaseCount - refReadCount;                                 //we take alt = total - ref instead of the actual alt count
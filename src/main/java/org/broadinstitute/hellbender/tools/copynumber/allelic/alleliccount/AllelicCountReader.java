@@ -37,4 +37,9 @@ final class AllelicCountReader extends TableReader<AllelicCount> {
             throw new UserException.BadInput("AllelicCountCollection file must have all columns specified.");
         }
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
@@ -9,6 +9,8 @@ import org.broadinstitute.hellbender.tools.exome.germlinehmm.IntegerCopyNumberSt
 import org.broadinstitute.hellbender.tools.exome.germlinehmm.IntegerCopyNumberTransitionProbabilityCacheCollection;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.hmm.ForwardBackwardAlgorithm;
+import org.broadinstitute.hellbender.utils.hmm.MatrixForwardBackwardAlgorithm;
+import org.broadinstitute.hellbender.utils.hmm.MatrixHMM;
 import org.broadinstitute.hellbender.utils.hmm.ViterbiAlgorithm;
 
 import javax.annotation.Nonnull;
@@ -91,17 +93,17 @@ public final class IntegerCopyNumberExpectationsCalculator implements
         /* supplement the emission data with sample metadata */
         emissionData.forEach(datum -> datum.setCopyRatioCallingMetadata(copyRatioCallingMetadata));
 
-        /* run the forward-backward algorithm */
-        final ForwardBackwardAlgorithm.Result<CoverageModelCopyRatioEmissionData, Target, IntegerCopyNumberState> result =
-                ForwardBackwardAlgorithm.apply(emissionData, targetList, genotypeSpecificHMM);
+        /* run the forward-backward algorithm; only the posteriors of single states are needed here */
+        final MatrixForwardBackwardAlgorithm.Result result = MatrixForwardBackwardAlgorithm.apply(
+                MatrixHMM.fromModel(genotypeSpecificHMM, emissionData, targetList, null));
 
         /* indices of hidden states to include in calculating posterior expectations */
         final List<IntegerCopyNumberState> hiddenStates = genotypeSpecificHMM.hiddenStates();
 
         /* exponentiate log copy number posteriors on all targets */
         final List<double[]> hiddenStatePosteriorProbabilities = IntStream.range(0, targetList.size())
-                .mapToObj(ti -> hiddenStates.stream()
-                        .mapToDouble(s -> FastMath.exp(result.logProbability(ti, s)))
+                .mapToObj(ti -> IntStream.range(0, hiddenStates.size())
+                        .mapToDouble(si -> FastMath.exp(result.logProbability(ti, si)))
                         .toArray())
                 .collect(Collectors.toList());
 
@@ -181,6 +181,11 @@ public final class Nd4jIOUtils {
                     return new DoubleVectorRow(dataLineToString[0], rowData);
                 }
             }
+
+            @Override
+            protected boolean usesDefaultLineClassification() {
+                return true;
+            }
         }) {
             final int colDimension = arrayReader.columns().columnCount() - 1;
             columnNames = arrayReader.columns().names();
@@ -1,21 +1,28 @@
 package org.broadinstitute.hellbender.tools.exome;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SamReaderFactory;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.CopyNumberProgramGroup;
 import org.broadinstitute.hellbender.engine.FeatureContext;
 import org.broadinstitute.hellbender.engine.ReadWalker;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -27,6 +34,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -66,6 +77,13 @@ import java.util.stream.IntStream;
  *     Do NOT use BED format. See {@link ConvertBedToTargetFile}.
  * </p>
  *
+ * <p>
+ *     With --queryTargets, only the reads overlapping the targets are read, through the index of the input
+ *     reads, rather than every read in the input; for exomes this skips the off-target reads. The reads of each
+ *     contig are then counted in a single sweep against the contig's sorted targets, and with --countingThreads
+ *     greater than 1, several contigs are counted at once.
+ * </p>
+ *
  * <p>For whole genome sequencing (WGS) data, use {@link SparkGenomeReadCounts} instead.</p>
  *
  */
@@ -112,6 +130,10 @@ public final class CalculateTargetCoverage extends ReadWalker {
     protected static final String TARGET_FILE_SHORT_NAME = "T";
     protected static final String TARGET_OUT_INFO_FULL_NAME = "targetInformationColumns";
     protected static final String TARGET_OUT_INFO_SHORT_NAME = "targetInfo";
+    protected static final String QUERY_TARGETS_FULL_NAME = "queryTargets";
+    protected static final String QUERY_TARGETS_SHORT_NAME = QUERY_TARGETS_FULL_NAME;
+    protected static final String COUNTING_THREADS_FULL_NAME = "countingThreads";
+    protected static final String COUNTING_THREADS_SHORT_NAME = COUNTING_THREADS_FULL_NAME;
 
     private static final String PCOV_OUTPUT_DOUBLE_FORMAT = "%.4g";
 
@@ -175,6 +197,23 @@ public final class CalculateTargetCoverage extends ReadWalker {
     )
     protected TargetOutInfo targetOutInfo = TargetOutInfo.COORDS;
 
+    @Argument(
+            doc = "Read only the reads overlapping the targets (or the input intervals, if given), queried through the " +
+                    "index of the input reads, instead of traversing all reads. Requires indexed input reads",
+            shortName = QUERY_TARGETS_SHORT_NAME,
+            fullName = QUERY_TARGETS_FULL_NAME,
+            optional = true
+    )
+    protected boolean queryTargets = false;
+
+    @Argument(
+            doc = "Number of contigs to count at once when the targets are queried (see " + QUERY_TARGETS_FULL_NAME + ")",
+            shortName = COUNTING_THREADS_SHORT_NAME,
+            fullName = COUNTING_THREADS_FULL_NAME,
+            optional = true
+    )
+    protected int countingThreads = 1;
+
     /**
      * Writer to the main output file indicated by {@link #output}.
      */
@@ -227,6 +266,9 @@ public final class CalculateTargetCoverage extends ReadWalker {
 
     @Override
     public void onTraversalStart() {
+        if (countingThreads < 1) {
+            throw new CommandLineException.BadArgumentValue(COUNTING_THREADS_FULL_NAME, String.valueOf(countingThreads), "should be 1 or greater");
+        }
 
         sampleCollection = new SampleCollection(getHeaderForReads());
 
@@ -324,6 +366,15 @@ public final class CalculateTargetCoverage extends ReadWalker {
         }
     }
 
+    @Override
+    public void traverse() {
+        if (queryTargets) {
+            countQueriedTargets();
+        } else {
+            super.traverse();
+        }
+    }
+
     @Override
     public void apply(final GATKRead read, final ReferenceContext referenceContext, final FeatureContext featureContext) {
         final SimpleInterval readLocation = referenceContext.getInterval();
@@ -334,6 +385,218 @@ public final class CalculateTargetCoverage extends ReadWalker {
         }
     }
 
+    /**
+     * Counts the reads overlapping the targets of each contig, queried through the reads index.
+     * <p>
+     *     Each contig has its own read filter, and when counting several contigs at once, its own reads data source;
+     *     contigs update disjoint ranges of {@link #counts}, so no synchronization is needed.
+     * </p>
+     */
+    private void countQueriedTargets() {
+        final List<ContigTargets> contigs = composeContigTargets();
+        final ReadTransformer preTransformer = makePreReadFilterTransformer();
+        final ReadTransformer postTransformer = makePostReadFilterTransformer();
+        final List<CountingReadFilter> filters = contigs.stream().map(c -> makeReadFilter()).collect(Collectors.toList());
+
+        if (countingThreads == 1 || contigs.size() <= 1) {
+            try (final ReadsDataSource source = openReadsDataSource()) {
+                for (int i = 0; i < contigs.size(); i++) {
+                    countContig(contigs.get(i), source, preTransformer, filters.get(i), postTransformer, true);
+                }
+            }
+        } else {
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.min(countingThreads, contigs.size()),
+                    new ThreadFactoryBuilder().setNameFormat("target-counting-%d").setDaemon(true).build());
+            try {
+                final List<Future<?>> futures = new ArrayList<>(contigs.size());
+                for (int i = 0; i < contigs.size(); i++) {
+                    final ContigTargets contig = contigs.get(i);
+                    final CountingReadFilter filter = filters.get(i);
+                    futures.add(executor.submit(() -> {
+                        try (final ReadsDataSource source = openReadsDataSource()) {
+                            countContig(contig, source, preTransformer, filter, postTransformer, false);
+                        }
+                    }));
+                }
+                for (final Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new GATKException("exception while counting reads", e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("interrupted while counting reads", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        final long filteredReads = filters.stream().mapToLong(CountingReadFilter::getFilteredCount).sum();
+        logger.log(Level.INFO, String.format("%d read(s) filtered out in %d contig(s) with targets", filteredReads, contigs.size()));
+    }
+
+    /**
+     * Opens a new data source over the input reads, as the engine opens its own.
+     *
+     * @return never {@code null}.
+     */
+    private ReadsDataSource openReadsDataSource() {
+        SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
+        if (hasReference()) {
+            factory = factory.referenceSequence(referenceArguments.getReferenceFile());
+        }
+        return new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory);
+    }
+
+    /**
+     * Groups the targets by contig, for the contigs of the input reads that have any targets, in the
+     * order of the reads sequence dictionary.
+     * <p>
+     *     The reads queried for each contig are those overlapping the input intervals on the contig if any were
+     *     given, as in the traversal of all reads, or otherwise those overlapping its targets.
+     * </p>
+     *
+     * @return never {@code null}.
+     */
+    private List<ContigTargets> composeContigTargets() {
+        final Map<String, List<SimpleInterval>> queryIntervalsByContig = new HashMap<>();
+        if (hasIntervals()) {
+            for (final SimpleInterval interval : intervalArgumentCollection.getIntervals(getBestAvailableSequenceDictionary())) {
+                queryIntervalsByContig.computeIfAbsent(interval.getContig(), k -> new ArrayList<>()).add(interval);
+            }
+        }
+
+        // targets are sorted by contig and then start, so the targets of each contig are contiguous
+        final List<Target> targets = targetCollection.targets();
+        final Map<String, ContigTargets> contigTargetsByName = new HashMap<>();
+        int from = 0;
+        while (from < targets.size()) {
+            final String contig = targets.get(from).getContig();
+            int to = from + 1;
+            while (to < targets.size() && Objects.equals(targets.get(to).getContig(), contig)) {
+                to++;
+            }
+            if (contig != null) {
+                contigTargetsByName.put(contig, new ContigTargets(targets, from, to, queryIntervalsByContig.get(contig), hasIntervals()));
+            }
+            from = to;
+        }
+
+        final List<ContigTargets> result = new ArrayList<>(contigTargetsByName.size());
+        for (final SAMSequenceRecord sequence : getHeaderForReads().getSequenceDictionary().getSequences()) {
+            final ContigTargets contigTargets = contigTargetsByName.get(sequence.getSequenceName());
+            if (contigTargets != null && !contigTargets.queryIntervals.isEmpty()) {
+                result.add(contigTargets);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the reads of a contig with a single sweep of the reads, in coordinate order, against the contig's
+     * targets: as the reads' starts never decrease, the first target that may overlap a read never moves back.
+     *
+     * @param contig the targets of the contig and the intervals to query.
+     * @param source the reads to query.
+     * @param preTransformer transformer applied to each read before filtering.
+     * @param filter the contig's read filter.
+     * @param postTransformer transformer applied to each read after filtering.
+     * @param updateProgress whether to update the progress meter with each read.
+     */
+    private void countContig(final ContigTargets contig, final ReadsDataSource source, final ReadTransformer preTransformer,
+                             final CountingReadFilter filter, final ReadTransformer postTransformer, final boolean updateProgress) {
+        final int[] starts = contig.starts;
+        final int[] ends = contig.ends;
+        final int targetCount = starts.length;
+        int firstTarget = 0;
+        source.setTraversalBounds(contig.queryIntervals);
+        for (final GATKRead queriedRead : source) {
+            final GATKRead filterableRead = preTransformer.apply(queriedRead);
+            if (!filter.test(filterableRead)) {
+                continue;
+            }
+            final GATKRead read = postTransformer.apply(filterableRead);
+            if (updateProgress) {
+                progressMeter.update(read);
+            }
+            final int columnIndex = countColumns.columnIndex(read);
+            if (columnIndex < 0) { // the read is to be ignored.
+                continue;
+            }
+            final int start = read.getStart();
+            final int end = read.getEnd();
+            while (firstTarget < targetCount && ends[firstTarget] < start) {
+                firstTarget++;
+            }
+            final int[] columnCounts = counts[columnIndex];
+            for (int i = firstTarget; i < targetCount && starts[i] <= end; i++) {
+                columnCounts[contig.firstTargetIndex + i]++;
+            }
+        }
+    }
+
+    /**
+     * The targets of a contig, as arrays of starts and ends sorted by start, and the intervals whose overlapping
+     * reads are to be counted against them.
+     */
+    private static final class ContigTargets {
+
+        /**
+         * Index of the contig's first target in the target collection.
+         */
+        private final int firstTargetIndex;
+
+        private final int[] starts;
+
+        private final int[] ends;
+
+        /**
+         * Sorted, non-overlapping intervals to query; never {@code null}.
+         */
+        private final List<SimpleInterval> queryIntervals;
+
+        /**
+         * Creates the targets of a contig.
+         *
+         * @param targets all targets, sorted by contig and then start.
+         * @param from index of the contig's first target.
+         * @param to index after the contig's last target.
+         * @param inputIntervals the input intervals on the contig, or {@code null} if there are none.
+         * @param hasInputIntervals whether there are input intervals, in which case only the reads overlapping
+         *                          them are counted.
+         */
+        private ContigTargets(final List<Target> targets, final int from, final int to,
+                              final List<SimpleInterval> inputIntervals, final boolean hasInputIntervals) {
+            firstTargetIndex = from;
+            starts = new int[to - from];
+            ends = new int[to - from];
+            for (int i = from; i < to; i++) {
+                starts[i - from] = targets.get(i).getStart();
+                ends[i - from] = targets.get(i).getEnd();
+            }
+            if (hasInputIntervals) {
+                queryIntervals = inputIntervals == null ? Collections.emptyList() : inputIntervals;
+            } else {
+                // targets don't overlap, but may abut
+                queryIntervals = new ArrayList<>();
+                final String contig = targets.get(from).getContig();
+                int queryStart = starts[0];
+                int queryEnd = ends[0];
+                for (int i = 1; i < starts.length; i++) {
+                    if (starts[i] > queryEnd + 1) {
+                        queryIntervals.add(new SimpleInterval(contig, queryStart, queryEnd));
+                        queryStart = starts[i];
+                    }
+                    queryEnd = Math.max(queryEnd, ends[i]);
+                }
+                queryIntervals.add(new SimpleInterval(contig, queryStart, queryEnd));
+            }
+        }
+    }
+
     @Override
     public Object onTraversalSuccess() {
         logger.log(Level.INFO, "Collecting read counts done.");
@@ -398,6 +398,11 @@ public final class CombineReadCounts extends CommandLineProgram {
                     return new ReadCountRecord(target, counts);
                 }
 
+                @Override
+                protected boolean usesDefaultLineClassification() {
+                    return true;
+                }
+
                 /**
                  * Extracts the target object out of a data input line.
                  * @param dataLine the input data line.
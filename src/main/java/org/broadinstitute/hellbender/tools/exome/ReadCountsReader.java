@@ -273,4 +273,10 @@ public class ReadCountsReader extends TableReader<ReadCountRecord> {
                 TargetTableColumn.START.toString(),
                 TargetTableColumn.END.toString());
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        // subclasses may override isCommentLine or isHeaderLine.
+        return getClass() == ReadCountsReader.class;
+    }
 }
@@ -106,4 +106,9 @@ public final class TargetTableReader extends TableReader<Target> {
         final String name = dataLine.get(TargetTableColumn.NAME);
         return new Target(name, interval, annotationCollection.createTargetAnnotationCollection(dataLine));
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
\ No newline at end of file
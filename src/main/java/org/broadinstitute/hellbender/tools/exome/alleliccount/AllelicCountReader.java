@@ -80,4 +80,10 @@ public class AllelicCountReader extends TableReader<AllelicCount> {
             }
         }
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        // subclasses may override isCommentLine or isHeaderLine.
+        return getClass() == AllelicCountReader.class;
+    }
 }
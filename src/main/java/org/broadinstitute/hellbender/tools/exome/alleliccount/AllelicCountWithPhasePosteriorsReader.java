@@ -61,4 +61,10 @@ public class AllelicCountWithPhasePosteriorsReader extends TableReader<AllelicCo
     public AllelicCountTableColumn.AllelicCountTableVerbosity getVerbosity() {
         return verbosity;
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        // subclasses may override isCommentLine or isHeaderLine.
+        return getClass() == AllelicCountWithPhasePosteriorsReader.class;
+    }
 }
@@ -24,4 +24,9 @@ public final class EvaluationSampleSummaryReader extends TableReader<EvaluationS
         }
         return result;
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
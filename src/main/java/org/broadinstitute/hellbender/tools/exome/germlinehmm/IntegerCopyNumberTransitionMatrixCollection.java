@@ -271,6 +271,11 @@ public final class IntegerCopyNumberTransitionMatrixCollection {
                 protected TransitionMatrixCollectionRow createRecord(DataLine dataLine) {
                     return new TransitionMatrixCollectionRow(dataLine);
                 }
+
+                @Override
+                protected boolean usesDefaultLineClassification() {
+                    return true;
+                }
             }) {
                 TableUtils.checkMandatoryColumns(tableReader.columns(), MANDATORY_COLUMNS, extraMessage -> new UserException.BadInput(
                         String.format("Error parsing \"%s\": %s", parentPath, extraMessage)));
@@ -10,7 +10,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.utils.*;
 import org.broadinstitute.hellbender.utils.hmm.ForwardBackwardAlgorithm;
-import org.broadinstitute.hellbender.utils.hmm.ViterbiAlgorithm;
+import org.broadinstitute.hellbender.utils.hmm.MatrixForwardBackwardAlgorithm;
+import org.broadinstitute.hellbender.utils.hmm.MatrixHMM;
+import org.broadinstitute.hellbender.utils.hmm.MatrixViterbiAlgorithm;
 
 import java.util.*;
 import java.util.function.Function;
@@ -112,23 +114,23 @@ public abstract class ClusteringGenomicHMMSegmenter<DATA, HIDDEN> {
 
     public List<Pair<SimpleInterval, HIDDEN>> findSegments() {
         makeSureParametersHaveBeenLearned();
-        final ClusteringGenomicHMM<DATA, HIDDEN> model = makeModel();
-        List<Integer> states = ViterbiAlgorithm.apply(data, positions, model);
+        // the hidden states of the model are the indices 0, 1, 2... so the state indices are the states themselves
+        final int[] states = MatrixViterbiAlgorithm.apply(makeMatrixModel());
         List<Pair<SimpleInterval, HIDDEN>> result = new ArrayList<>();
 
         int beginningOfCurrentSegment = 0;
-        int currentState = states.get(0);
+        int currentState = states[0];
         String currentContig = positions.get(0).getContig();
         for (int n = 0; n <= positions.size(); n++) {
             //if contig or state has switched, make previous segment and start new one
-            if (n == positions.size() || currentState != states.get(n) || !currentContig.equals(positions.get(n).getContig())) {
+            if (n == positions.size() || currentState != states[n] || !currentContig.equals(positions.get(n).getContig())) {
                 final int previousSegmentStart = positions.get(beginningOfCurrentSegment).getStart();
                 final int previousSegmentEnd = positions.get(n-1).getEnd();
                 final HIDDEN previousSegmentHiddenStateValue = hiddenStateValues.get(currentState);
                 final SimpleInterval interval = new SimpleInterval(currentContig, previousSegmentStart, previousSegmentEnd);
                 result.add(new ImmutablePair<>(interval, previousSegmentHiddenStateValue));
                 if (n < positions.size()) {
-                    currentState = states.get(n);
+                    currentState = states[n];
                     currentContig = positions.get(n).getContig();
                     beginningOfCurrentSegment = n;
                 }
@@ -230,15 +232,30 @@ public abstract class ClusteringGenomicHMMSegmenter<DATA, HIDDEN> {
     // exact model log-likelihood
     private void attemptBigChangeInMemoryLength() {
         final double memoryLengthMultiplier = Math.exp(random.nextGaussian()/2);
-        final double currentLogLikelihood = ForwardBackwardAlgorithm.apply(data, positions, makeModel()).logDataLikelihood();
+        final double currentLogLikelihood = calculateLogDataLikelihood();
         final double oldMemoryLength = memoryLength;
         memoryLength = memoryLength * memoryLengthMultiplier;
-        final double proposalLogLikelihood = ForwardBackwardAlgorithm.apply(data, positions, makeModel()).logDataLikelihood();
+        final double proposalLogLikelihood = calculateLogDataLikelihood();
         if (proposalLogLikelihood < currentLogLikelihood) {
             memoryLength = oldMemoryLength;
         }
     }
 
+    /**
+     * The log-likelihood of the data under the current model, without keeping any posterior probabilities
+     */
+    private double calculateLogDataLikelihood() {
+        return MatrixForwardBackwardAlgorithm.apply(makeMatrixModel(), (position, posteriors) -> {});
+    }
+
+    /**
+     * The current model precomputed over the data; transitions depend only on the distance between positions, so
+     * a transition matrix is computed once per distinct distance
+     */
+    private MatrixHMM makeMatrixModel() {
+        return MatrixHMM.fromModel(makeModel(), data, positions, ClusteringGenomicHMM::calculateDistance);
+    }
+
     protected abstract void relearnHiddenStateValues(final ExpectationStep eStep);
 
     /**
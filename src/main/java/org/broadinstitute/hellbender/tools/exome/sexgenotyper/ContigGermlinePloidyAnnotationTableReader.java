@@ -142,4 +142,9 @@ public final class ContigGermlinePloidyAnnotationTableReader extends TableReader
             throw new UserException.CouldNotReadInputFile(contigAnnotationSourceName, e);
         }
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
@@ -113,4 +113,9 @@ public final class SexGenotypeTableReader extends TableReader<SexGenotypeData> {
             return new SexGenotypeData(sampleName, sexGenotype, null, null);
         }
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.picard.sam;
 
 import htsjdk.samtools.*;
+import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.CloserUtil;
 import htsjdk.samtools.util.IOUtil;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -9,6 +10,7 @@ import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.PicardCommandLineProgram;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.ReadProgramGroup;
+import org.broadinstitute.hellbender.utils.collections.ParallelSortingCollection;
 import org.broadinstitute.hellbender.utils.runtime.ProgressLogger;
 
 import java.io.File;
@@ -38,6 +40,18 @@ public final class SortSam extends PicardCommandLineProgram {
     @Argument(shortName = StandardArgumentDefinitions.SORT_ORDER_SHORT_NAME, doc = "Sort order of output file")
     public SAMFileHeader.SortOrder SORT_ORDER;
 
+    @Argument(doc = "Number of threads with which to sort and spill runs of records, and read them back to merge them. " +
+            "With 1, the records are sorted by the output writer.", optional = true)
+    public int SORTING_THREADS = 1;
+
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (SORTING_THREADS < 1) {
+            return new String[]{"SORTING_THREADS must be at least 1, but was " + SORTING_THREADS};
+        }
+        return super.customCommandLineValidation();
+    }
+
     @Override
     protected Object doWork() {
         IOUtil.assertFileIsReadable(INPUT);
@@ -45,6 +59,12 @@ public final class SortSam extends PicardCommandLineProgram {
         final SamReader reader = SamReaderFactory.makeDefault().validationStringency(VALIDATION_STRINGENCY).referenceSequence(REFERENCE_SEQUENCE).open(INPUT);
         SAMFileHeader writeHeader = reader.getFileHeader().clone();
         writeHeader.setSortOrder(SORT_ORDER);
+        final SAMRecordComparator comparator = SORT_ORDER.getComparatorInstance();
+        if (SORTING_THREADS > 1 && comparator != null) {
+            sortInParallel(reader, writeHeader, comparator);
+            CloserUtil.close(reader);
+            return null;
+        }
         try (final SAMFileWriter writer = createSAMWriter(OUTPUT, REFERENCE_SEQUENCE, writeHeader, false)) {
             writer.setProgressLogger(
                     new ProgressLogger(logger, (int) 1e7, "Wrote", "records from a sorting collection"));
@@ -61,4 +81,29 @@ public final class SortSam extends PicardCommandLineProgram {
         CloserUtil.close(reader);
         return null;
     }
+
+    private void sortInParallel(final SamReader reader, final SAMFileHeader writeHeader, final SAMRecordComparator comparator) {
+        final int maxRecordsInRam = MAX_RECORDS_IN_RAM != null ? MAX_RECORDS_IN_RAM : SAMFileWriterImpl.getDefaultMaxRecordsInRam();
+        try (final ParallelSortingCollection<SAMRecord> sorter = new ParallelSortingCollection<>(
+                new BAMRecordCodec(writeHeader), comparator, maxRecordsInRam, TMP_DIR, SORTING_THREADS)) {
+            final ProgressLogger progress = new ProgressLogger(logger, (int) 1e7, "Read");
+            for (final SAMRecord rec : reader) {
+                sorter.add(rec);
+                progress.record(rec);
+            }
+
+            logger.info("Finished reading inputs, merging and writing to output now.");
+
+            try (final SAMFileWriter writer = createSAMWriter(OUTPUT, REFERENCE_SEQUENCE, writeHeader, true);
+                 final CloseableIterator<SAMRecord> sorted = sorter.iterator()) {
+                final ProgressLogger writeProgress = new ProgressLogger(logger, (int) 1e7, "Wrote", "records from a sorting collection");
+                while (sorted.hasNext()) {
+                    final SAMRecord rec = sorted.next();
+                    writer.addAlignment(rec);
+                    writeProgress.record(rec);
+                }
+            }
+            logger.info(sorter.getStatistics());
+        }
+    }
 }
@@ -3,22 +3,32 @@ package org.broadinstitute.hellbender.tools.picard.sam.markduplicates;
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.*;
 import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.DiskBackedQueue;
 import htsjdk.samtools.util.IOUtil;
 import htsjdk.samtools.util.SortingCollection;
 import htsjdk.samtools.util.SortingLongCollection;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.cmdline.programgroups.ReadProgramGroup;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.markduplicates.*;
 import org.broadinstitute.hellbender.utils.runtime.ProgressLogger;
 
 import java.io.File;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A better duplication marking algorithm that handles all cases including clipped
@@ -55,14 +65,37 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
     @Argument(doc = "Report Memory Stats at various times during the run")
     public boolean reportMemoryStats = false;
 
+    @Argument(doc = "Store the read ends packed into arrays of longs, sorted in place, rather than as objects, and keep " +
+            "the ends of pairs waiting for a mate on the same sequence in memory, keyed by a hash of their read names " +
+            "(those waiting for a mate on another sequence are spilled to disk as usual). " +
+            "Reduces the memory used per read end, and the time spent in garbage collection; the duplicates marked are the same.")
+    public boolean PACKED_READ_ENDS = false;
+
+    @Argument(doc = "The input is grouped by read name (queryname sorted, or with group order query as written by an aligner) " +
+            "rather than coordinate sorted. The ends of each pair are matched as the reads are read, with no map of unmatched " +
+            "mates, and the input is read only once: the reads are held until all duplicates are known, in memory up to " +
+            "MAX_RECORDS_IN_RAM of them and in temporary files in TMP_DIR beyond that, and are then written in the input order. " +
+            "Reads with the same name must be adjacent. Reads tied on duplicate score may be resolved differently than for " +
+            "the same reads coordinate sorted, since their indexes in the file differ.")
+    public boolean QUERYNAME_GROUPED_INPUT = false;
 
     private SortingCollection<ReadEndsForMarkDuplicates> pairSort;
     private SortingCollection<ReadEndsForMarkDuplicates> fragSort;
+    // used instead of pairSort and fragSort with PACKED_READ_ENDS
+    private PackedReadEnds packedPairs;
+    private PackedReadEnds packedFrags;
     private SortingLongCollection duplicateIndexes;
     private int numDuplicateIndices = 0;
 
     private LibraryIdGenerator libraryIdGenerator = null; // this is initialized in buildSortedReadEndLists
 
+    // with QUERYNAME_GROUPED_INPUT, the header and the records of the input, held from the pass that builds the read
+    // ends to the one that writes the output
+    private SAMFileHeader groupedInputHeader;
+    private DiskBackedQueue<SAMRecord> groupedInputRecords;
+    // with QUERYNAME_GROUPED_INPUT, the keys of the pairs that had a single mapped end among the reads with their name
+    private final Set<String> unmatchedPairKeys = new HashSet<>();
+
     public MarkDuplicates() {
         DUPLICATE_SCORING_STRATEGY = DuplicateScoringStrategy.ScoringStrategy.SUM_OF_BASE_QUALITIES;
     }
@@ -72,6 +105,7 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
      * the 5' ends of both ends of each read (or just one end in the case of pairs).
      * Then makes a pass through those determining duplicates before re-reading the
      * input file and writing it out with duplication flags set correctly.
+     * With QUERYNAME_GROUPED_INPUT, the input is read only once, and the records held from the first pass are written.
      */
     @Override
     protected Object doWork() {
@@ -81,7 +115,11 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
 
         reportMemoryStats("Start of doWork");
         logger.info("Reading input file and constructing read end information.");
-        buildSortedReadEndLists();
+        if (QUERYNAME_GROUPED_INPUT) {
+            buildSortedReadEndListsFromGroupedReads();
+        } else {
+            buildSortedReadEndLists();
+        }
         reportMemoryStats("After buildSortedReadEndLists");
         generateDuplicateIndexes();
         reportMemoryStats("After generateDuplicateIndexes");
@@ -93,11 +131,18 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
             logger.info("Found " + (this.libraryIdGenerator.getNumberOfOpticalDuplicateClusters()) + " optical duplicate clusters.");
         }
 
-        try( final SamHeaderAndIterator headerAndIterator = openInputs()) {
+        try( final SamHeaderAndIterator headerAndIterator = QUERYNAME_GROUPED_INPUT ? takeGroupedInputRecords() : openInputs()) {
             final SAMFileHeader header = headerAndIterator.header;
 
             final SAMFileHeader outputHeader = ReadUtils.cloneSAMFileHeader(header);
-            outputHeader.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+            if (!QUERYNAME_GROUPED_INPUT) {
+                outputHeader.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+            } else if (outputHeader.getSortOrder() != SAMFileHeader.SortOrder.queryname) {
+                // the output is in the input order, which is only known to be grouped (the header may claim otherwise
+                // with ASSUME_SORTED), so it must not be declared, and checked, as sorted
+                outputHeader.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+                outputHeader.setGroupOrder(SAMFileHeader.GroupOrder.query);
+            }
             for (final String comment : COMMENT) outputHeader.addComment(comment);
 
             // Key: previous PG ID on a SAM Record (or null).  Value: New PG ID to replace it.
@@ -185,8 +230,19 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
         if(reportMemoryStats) {
             System.gc();
             final Runtime runtime = Runtime.getRuntime();
+            long peakHeapUsed = 0;
+            for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                    peakHeapUsed += pool.getPeakUsage().getUsed();
+                }
+            }
             logger.info(stage + " freeMemory: " + runtime.freeMemory() + "; totalMemory: " + runtime.totalMemory() +
-                    "; maxMemory: " + runtime.maxMemory());
+                    "; maxMemory: " + runtime.maxMemory() + "; peakHeapUsed: " + peakHeapUsed);
+            if (packedPairs != null && packedFrags != null) {
+                logger.info(stage + " packed read ends: " + packedPairs.size() + " pairs and " + packedFrags.size() +
+                        " fragments, " + (packedPairs.getBytesInRam() + packedFrags.getBytesInRam()) + " bytes in RAM, " +
+                        (packedPairs.getSpillBytes() + packedFrags.getSpillBytes()) + " bytes spilled to disk");
+            }
         }
     }
 
@@ -196,24 +252,12 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
      * duplication, caching to disk as necessary to sort them.
      */
     private void buildSortedReadEndLists() {
-        final int maxInMemory = (int) ((Runtime.getRuntime().maxMemory() * SORTING_COLLECTION_SIZE_RATIO) / ReadEndsForMarkDuplicates.SIZE_OF);
-        logger.info("Will retain up to " + maxInMemory + " data points before spilling to disk.");
-
-        this.pairSort = SortingCollection.newInstance(ReadEndsForMarkDuplicates.class,
-                new ReadEndsForMarkDuplicatesCodec(),
-                new ReadEndsMDComparator(),
-                maxInMemory,
-                TMP_DIR);
-
-        this.fragSort = SortingCollection.newInstance(ReadEndsForMarkDuplicates.class,
-                new ReadEndsForMarkDuplicatesCodec(),
-                new ReadEndsMDComparator(),
-                maxInMemory,
-                TMP_DIR);
+        createReadEndLists();
 
         try(final SamHeaderAndIterator headerAndIterator = openInputs()) {
             final SAMFileHeader header = headerAndIterator.header;
-            final ReadEndsForMarkDuplicatesMap tmp = new DiskBasedReadEndsForMarkDuplicatesMap(MAX_FILE_HANDLES_FOR_READ_ENDS_MAP);
+            final ReadEndsForMarkDuplicatesMap diskBasedMap = new DiskBasedReadEndsForMarkDuplicatesMap(MAX_FILE_HANDLES_FOR_READ_ENDS_MAP);
+            final ReadEndsForMarkDuplicatesMap tmp = PACKED_READ_ENDS ? new PackedReadEndsForMarkDuplicatesMap(diskBasedMap) : diskBasedMap;
             long index = 0;
             final ProgressLogger progress = new ProgressLogger(logger, (int) 1e6, "Read");
             final CloseableIterator<SAMRecord> iterator = headerAndIterator.iterator;
@@ -244,7 +288,7 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
                     // If this read is unmapped but sorted with the mapped reads, just skip it.
                 } else if (!rec.isSecondaryOrSupplementary()) {
                     final ReadEndsForMarkDuplicates fragmentEnd = buildReadEnds(header, index, rec);
-                    this.fragSort.add(fragmentEnd);
+                    addFragment(fragmentEnd);
 
                     if (rec.getReadPairedFlag() && !rec.getMateUnmappedFlag()) {
                         final String key = rec.getAttribute(ReservedTagConstants.READ_GROUP_ID) + ":" + rec.getReadName();
@@ -255,38 +299,8 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
                             pairedEnds = buildReadEnds(header, index, rec);
                             tmp.put(pairedEnds.read2ReferenceIndex, key, pairedEnds);
                         } else {
-                            final int sequence = fragmentEnd.read1ReferenceIndex;
-                            final int coordinate = fragmentEnd.read1Coordinate;
-
-                            // Set orientationForOpticalDuplicates, which always goes by the first then the second end for the strands.  NB: must do this
-                            // before updating the orientation later.
-                            if (rec.getFirstOfPairFlag()) {
-                                pairedEnds.orientationForOpticalDuplicates = ReadEnds.getOrientationByte(rec.getReadNegativeStrandFlag(), pairedEnds.orientation == ReadEnds.R);
-                            } else {
-                                pairedEnds.orientationForOpticalDuplicates = ReadEnds.getOrientationByte(pairedEnds.orientation == ReadEnds.R, rec.getReadNegativeStrandFlag());
-                            }
-
-                            // If the second read is actually later, just add the second read data, else flip the reads
-                            if (sequence > pairedEnds.read1ReferenceIndex ||
-                                    (sequence == pairedEnds.read1ReferenceIndex && coordinate >= pairedEnds.read1Coordinate)) {
-                                pairedEnds.read2ReferenceIndex = sequence;
-                                pairedEnds.read2Coordinate = coordinate;
-                                pairedEnds.read2IndexInFile = index;
-                                pairedEnds.orientation = ReadEnds.getOrientationByte(pairedEnds.orientation == ReadEnds.R,
-                                        rec.getReadNegativeStrandFlag());
-                            } else {
-                                pairedEnds.read2ReferenceIndex = pairedEnds.read1ReferenceIndex;
-                                pairedEnds.read2Coordinate = pairedEnds.read1Coordinate;
-                                pairedEnds.read2IndexInFile = pairedEnds.read1IndexInFile;
-                                pairedEnds.read1ReferenceIndex = sequence;
-                                pairedEnds.read1Coordinate = coordinate;
-                                pairedEnds.read1IndexInFile = index;
-                                pairedEnds.orientation = ReadEnds.getOrientationByte(rec.getReadNegativeStrandFlag(),
-                                        pairedEnds.orientation == ReadEnds.R);
-                            }
-
-                            pairedEnds.score += DuplicateScoringStrategy.computeDuplicateScore(rec, this.DUPLICATE_SCORING_STRATEGY);
-                            this.pairSort.add(pairedEnds);
+                            addSecondEnd(pairedEnds, fragmentEnd, index, rec);
+                            addPair(pairedEnds);
                         }
                     }
                 }
@@ -299,12 +313,232 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
             }
 
             logger.info("Read " + index + " records. " + tmp.size() + " pairs never matched.");
+            if (tmp instanceof PackedReadEndsForMarkDuplicatesMap) {
+                final PackedReadEndsForMarkDuplicatesMap packedMap = (PackedReadEndsForMarkDuplicatesMap) tmp;
+                logger.info("Tracked up to " + packedMap.getMaxSize() + " unmatched pairs with mates on the same sequence at once, in " + packedMap.getBytesInRam() + " bytes.");
+            }
             iterator.close();
         }
 
-        // Tell these collections to free up memory if possible.
-        this.pairSort.doneAdding();
-        this.fragSort.doneAdding();
+        doneAddingReadEnds();
+    }
+
+    /**
+     * Reads the queryname-grouped input once, generating the read ends of the reads with each name (including the
+     * read ends of their pairs, when both ends are mapped) when all of them have been read, and holding the records
+     * (spilling them to disk beyond MAX_RECORDS_IN_RAM) for {@link #takeGroupedInputRecords}.
+     */
+    private void buildSortedReadEndListsFromGroupedReads() {
+        createReadEndLists();
+
+        try (final SamHeaderAndIterator headerAndIterator = openInputs(true)) {
+            final SAMFileHeader header = headerAndIterator.header;
+            final ProgressLogger progress = new ProgressLogger(logger, (int) 1e6, "Read");
+            final CloseableIterator<SAMRecord> iterator = headerAndIterator.iterator;
+
+            if (null == this.libraryIdGenerator) {
+                this.libraryIdGenerator = new LibraryIdGenerator(header);
+            }
+            groupedInputHeader = header;
+            groupedInputRecords = DiskBackedQueue.newInstance(new BAMRecordCodec(header),
+                    MAX_RECORDS_IN_RAM != null ? MAX_RECORDS_IN_RAM : SAMFileWriterImpl.getDefaultMaxRecordsInRam(), TMP_DIR);
+
+            final List<SAMRecord> reads = new ArrayList<>();
+            long index = 0;
+            while (iterator.hasNext()) {
+                final SAMRecord rec = iterator.next();
+                if (!reads.isEmpty() && !reads.get(0).getReadName().equals(rec.getReadName())) {
+                    addGroupedReadEnds(header, reads, index - reads.size());
+                    reads.clear();
+                }
+                if (PROGRAM_RECORD_ID != null) {
+                    pgIdsSeen.add(rec.getStringAttribute(SAMTag.PG.name()));
+                }
+                groupedInputRecords.add(rec);
+                reads.add(rec);
+                ++index;
+                progress.record(rec);
+            }
+            if (!reads.isEmpty()) {
+                addGroupedReadEnds(header, reads, index - reads.size());
+            }
+            logger.info("Read " + index + " records, " + groupedInputRecords.getNumRecordsOnDisk() + " of them held on disk. " +
+                    unmatchedPairKeys.size() + " pairs never matched.");
+        }
+
+        doneAddingReadEnds();
+    }
+
+    /**
+     * Adds the read ends of the reads with one name, which are at consecutive indexes from firstIndex. The mapped
+     * ends of pairs are matched by read group as well as by name, as for coordinate sorted input.
+     */
+    private void addGroupedReadEnds(final SAMFileHeader header, final List<SAMRecord> reads, final long firstIndex) {
+        final Map<String, List<Integer>> mappedMatesByKey = new LinkedHashMap<>();
+        for (int i = 0; i < reads.size(); i++) {
+            final SAMRecord rec = reads.get(i);
+            if (rec.getReadUnmappedFlag() || rec.isSecondaryOrSupplementary()) {
+                continue;
+            }
+            addFragment(buildReadEnds(header, firstIndex + i, rec));
+            if (rec.getReadPairedFlag() && !rec.getMateUnmappedFlag()) {
+                final String key = rec.getAttribute(ReservedTagConstants.READ_GROUP_ID) + ":" + rec.getReadName();
+                mappedMatesByKey.computeIfAbsent(key, k -> new ArrayList<>(2)).add(i);
+            }
+        }
+        for (final Map.Entry<String, List<Integer>> keyAndMates : mappedMatesByKey.entrySet()) {
+            // a mate after the reads of its name were all read means that the input is not grouped, and its pair would
+            // be left out without a word
+            if (unmatchedPairKeys.remove(keyAndMates.getKey())) {
+                throw new UserException("The reads with name " + reads.get(0).getReadName() + " are not all adjacent, " +
+                        "so the input is not grouped by query name; sort it by query name or do not use QUERYNAME_GROUPED_INPUT.");
+            }
+            final List<Integer> mates = keyAndMates.getValue();
+            // as for coordinate sorted input, pairs without exactly two mapped primary ends are left out
+            if (mates.size() != 2) {
+                if (mates.size() == 1) {
+                    unmatchedPairKeys.add(keyAndMates.getKey());
+                }
+                continue;
+            }
+            addGroupedPair(header, reads.get(mates.get(0)), firstIndex + mates.get(0), reads.get(mates.get(1)), firstIndex + mates.get(1));
+        }
+    }
+
+    private void addGroupedPair(final SAMFileHeader header, final SAMRecord firstMate, final long firstMateIndex,
+                                final SAMRecord secondMate, final long secondMateIndex) {
+        SAMRecord firstEnd = firstMate;
+        long firstEndIndex = firstMateIndex;
+        SAMRecord secondEnd = secondMate;
+        long secondEndIndex = secondMateIndex;
+        // the pair's read ends are started from the end that comes first in coordinate order
+        if (secondEnd.getReferenceIndex() < firstEnd.getReferenceIndex() || (secondEnd.getReferenceIndex().equals(firstEnd.getReferenceIndex())
+                && secondEnd.getAlignmentStart() < firstEnd.getAlignmentStart())) {
+            firstEnd = secondMate;
+            firstEndIndex = secondMateIndex;
+            secondEnd = firstMate;
+            secondEndIndex = firstMateIndex;
+        }
+        final ReadEndsForMarkDuplicates pairedEnds = buildReadEnds(header, firstEndIndex, firstEnd);
+        addSecondEnd(pairedEnds, buildReadEnds(header, secondEndIndex, secondEnd), secondEndIndex, secondEnd);
+        addPair(pairedEnds);
+    }
+
+    /**
+     * Hands over the records held by {@link #buildSortedReadEndListsFromGroupedReads}, in the input order. Those held
+     * on disk are deleted as they are read, or when the iterator is closed.
+     */
+    private SamHeaderAndIterator takeGroupedInputRecords() {
+        final DiskBackedQueue<SAMRecord> records = groupedInputRecords;
+        groupedInputRecords = null;
+        return new SamHeaderAndIterator(groupedInputHeader, new CloseableIterator<SAMRecord>() {
+            @Override
+            public boolean hasNext() {
+                return !records.isEmpty();
+            }
+
+            @Override
+            public SAMRecord next() {
+                if (records.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return records.poll();
+            }
+
+            @Override
+            public void close() {
+                records.clear();
+            }
+        }, Collections.emptyList());
+    }
+
+    /**
+     * Completes the read ends of a pair, built from one end, with the other end.
+     *
+     * @param fragmentEnd the read ends of the other end alone
+     * @param index index of the other end in the file
+     * @param rec the other end
+     */
+    private void addSecondEnd(final ReadEndsForMarkDuplicates pairedEnds, final ReadEndsForMarkDuplicates fragmentEnd, final long index, final SAMRecord rec) {
+        final int sequence = fragmentEnd.read1ReferenceIndex;
+        final int coordinate = fragmentEnd.read1Coordinate;
+
+        // Set orientationForOpticalDuplicates, which always goes by the first then the second end for the strands.  NB: must do this
+        // before updating the orientation later.
+        if (rec.getFirstOfPairFlag()) {
+            pairedEnds.orientationForOpticalDuplicates = ReadEnds.getOrientationByte(rec.getReadNegativeStrandFlag(), pairedEnds.orientation == ReadEnds.R);
+        } else {
+            pairedEnds.orientationForOpticalDuplicates = ReadEnds.getOrientationByte(pairedEnds.orientation == ReadEnds.R, rec.getReadNegativeStrandFlag());
+        }
+
+        // If the second read is actually later, just add the second read data, else flip the reads
+        if (sequence > pairedEnds.read1ReferenceIndex ||
+                (sequence == pairedEnds.read1ReferenceIndex && coordinate >= pairedEnds.read1Coordinate)) {
+            pairedEnds.read2ReferenceIndex = sequence;
+            pairedEnds.read2Coordinate = coordinate;
+            pairedEnds.read2IndexInFile = index;
+            pairedEnds.orientation = ReadEnds.getOrientationByte(pairedEnds.orientation == ReadEnds.R,
+                    rec.getReadNegativeStrandFlag());
+        } else {
+            pairedEnds.read2ReferenceIndex = pairedEnds.read1ReferenceIndex;
+            pairedEnds.read2Coordinate = pairedEnds.read1Coordinate;
+            pairedEnds.read2IndexInFile = pairedEnds.read1IndexInFile;
+            pairedEnds.read1ReferenceIndex = sequence;
+            pairedEnds.read1Coordinate = coordinate;
+            pairedEnds.read1IndexInFile = index;
+            pairedEnds.orientation = ReadEnds.getOrientationByte(rec.getReadNegativeStrandFlag(),
+                    pairedEnds.orientation == ReadEnds.R);
+        }
+
+        pairedEnds.score += DuplicateScoringStrategy.computeDuplicateScore(rec, this.DUPLICATE_SCORING_STRATEGY);
+    }
+
+    private void createReadEndLists() {
+        final int sizeOfReadEnds = PACKED_READ_ENDS ? PackedReadEnds.SIZE_OF : ReadEndsForMarkDuplicates.SIZE_OF;
+        final int maxInMemory = (int) Math.min((Runtime.getRuntime().maxMemory() * SORTING_COLLECTION_SIZE_RATIO) / sizeOfReadEnds,
+                (double) Integer.MAX_VALUE);
+        logger.info("Will retain up to " + maxInMemory + " data points before spilling to disk.");
+
+        if (PACKED_READ_ENDS) {
+            this.packedPairs = new PackedReadEnds(Math.max(1, maxInMemory), TMP_DIR);
+            this.packedFrags = new PackedReadEnds(Math.max(1, maxInMemory), TMP_DIR);
+        } else {
+            this.pairSort = SortingCollection.newInstance(ReadEndsForMarkDuplicates.class,
+                    new ReadEndsForMarkDuplicatesCodec(),
+                    new ReadEndsMDComparator(),
+                    maxInMemory,
+                    TMP_DIR);
+
+            this.fragSort = SortingCollection.newInstance(ReadEndsForMarkDuplicates.class,
+                    new ReadEndsForMarkDuplicatesCodec(),
+                    new ReadEndsMDComparator(),
+                    maxInMemory,
+                    TMP_DIR);
+        }
+    }
+
+    /** Tells the read end collections that all read ends have been added, to free up memory if possible. */
+    private void doneAddingReadEnds() {
+        if (!PACKED_READ_ENDS) {
+            this.pairSort.doneAdding();
+            this.fragSort.doneAdding();
+        }
+    }
+
+    private void addPair(final ReadEndsForMarkDuplicates pairedEnds) {
+        if (PACKED_READ_ENDS) {
+            this.packedPairs.add(pairedEnds);
+        } else {
+            this.pairSort.add(pairedEnds);
+        }
+    }
+
+    private void addFragment(final ReadEndsForMarkDuplicates fragmentEnd) {
+        if (PACKED_READ_ENDS) {
+            this.packedFrags.add(fragmentEnd);
+        } else {
+            this.fragSort.add(fragmentEnd);
+        }
     }
 
     /** Builds a read ends object that represents a single read. */
@@ -360,7 +594,7 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
 
         // First just do the pairs
         logger.info("Traversing read pair information and detecting duplicates.");
-        for (final ReadEndsForMarkDuplicates next : this.pairSort) {
+        for (final ReadEndsForMarkDuplicates next : PACKED_READ_ENDS ? this.packedPairs : this.pairSort) {
             if (firstOfNextChunk == null) {
                 firstOfNextChunk = next;
                 nextChunk.add(firstOfNextChunk);
@@ -377,15 +611,19 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
             }
         }
         if (nextChunk.size() > 1) markDuplicatePairs(nextChunk);
-        this.pairSort.cleanup();
-        this.pairSort = null;
+        if (PACKED_READ_ENDS) {
+            this.packedPairs.cleanup();
+        } else {
+            this.pairSort.cleanup();
+            this.pairSort = null;
+        }
 
         // Now deal with the fragments
         logger.info("Traversing fragment information and detecting duplicates.");
         boolean containsPairs = false;
         boolean containsFrags = false;
 
-        for (final ReadEndsForMarkDuplicates next : this.fragSort) {
+        for (final ReadEndsForMarkDuplicates next : PACKED_READ_ENDS ? this.packedFrags : this.fragSort) {
             if (firstOfNextChunk != null && areComparableForDuplicates(firstOfNextChunk, next, false)) {
                 nextChunk.add(next);
                 containsPairs = containsPairs || next.isPaired();
@@ -403,8 +641,12 @@ public final class MarkDuplicates extends AbstractMarkDuplicatesCommandLineProgr
             }
         }
         markDuplicateFragments(nextChunk, containsPairs);
-        this.fragSort.cleanup();
-        this.fragSort = null;
+        if (PACKED_READ_ENDS) {
+            this.packedFrags.cleanup();
+        } else {
+            this.fragSort.cleanup();
+            this.fragSort = null;
+        }
 
         logger.info("Sorting list of duplicate records.");
         this.duplicateIndexes.doneAddingStartIteration();
@@ -1,7 +1,9 @@
 package org.broadinstitute.hellbender.tools.picard.vcf;
 
+import htsjdk.samtools.SAMFileWriterImpl;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.CloserUtil;
 import htsjdk.samtools.util.IOUtil;
 import htsjdk.samtools.util.SortingCollection;
@@ -18,12 +20,14 @@ import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.cmdline.PicardCommandLineProgram;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.VariantProgramGroup;
+import org.broadinstitute.hellbender.utils.collections.ParallelSortingCollection;
 import org.broadinstitute.hellbender.utils.runtime.ProgressLogger;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Sorts one or more VCF files according to the order of the contigs in the header/sequence dictionary and then
@@ -50,6 +54,10 @@ public final class SortVcf extends PicardCommandLineProgram {
     @Argument(shortName = StandardArgumentDefinitions.SEQUENCE_DICTIONARY_SHORT_NAME, optional = true)
     public File SEQUENCE_DICTIONARY;
 
+    @Argument(doc = "Number of threads with which to sort and spill runs of records, and read them back to merge them. " +
+            "With 1, the records are sorted on a single thread.", optional = true)
+    public int SORTING_THREADS = 1;
+
     private final List<VCFFileReader> inputReaders = new ArrayList<>();
     private final List<VCFHeader> inputHeaders = new ArrayList<>();
 
@@ -58,6 +66,14 @@ public final class SortVcf extends PicardCommandLineProgram {
         this.CREATE_INDEX = true;
     }
 
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (SORTING_THREADS < 1) {
+            return new String[]{"SORTING_THREADS must be at least 1, but was " + SORTING_THREADS};
+        }
+        return super.customCommandLineValidation();
+    }
+
     @Override
     protected Object doWork() {
         final List<String> sampleList = new ArrayList<>();
@@ -78,11 +94,18 @@ public final class SortVcf extends PicardCommandLineProgram {
         // Create the merged output header from the input headers
         final VCFHeader outputHeader = new VCFHeader(VCFUtils.smartMergeHeaders(inputHeaders, false), sampleList);
 
+        if (SORTING_THREADS > 1) {
+            sortInParallel(inputReaders, outputHeader);
+            return null;
+        }
+
         // Load entries into the sorting collection
         final SortingCollection<VariantContext> sortedOutput = sortInputs(inputReaders, outputHeader);
 
         // Output to the final file
-        writeSortedOutput(outputHeader, sortedOutput);
+        try (final CloseableIterator<VariantContext> sorted = sortedOutput.iterator()) {
+            writeSortedOutput(outputHeader, sorted);
+        }
 
         return null;
     }
@@ -131,7 +154,6 @@ public final class SortVcf extends PicardCommandLineProgram {
      * @param outputHeader - The merged header whose information we intend to use in the final output file
      */
     private SortingCollection<VariantContext> sortInputs(final List<VCFFileReader> readers, final VCFHeader outputHeader) {
-        final ProgressLogger readProgress = new ProgressLogger(logger, 25000, "read", "records");
 
         // NB: The default MAX_RECORDS_IN_RAM may not be appropriate here. VariantContexts are smaller than SamRecords
         // We would have to play around empirically to find an appropriate value. We are not performing this optimization at this time.
@@ -142,20 +164,41 @@ public final class SortVcf extends PicardCommandLineProgram {
                         outputHeader.getVCFRecordComparator(),
                         MAX_RECORDS_IN_RAM,
                         TMP_DIR);
+        addInputs(readers, sorter::add);
+        return sorter;
+    }
+
+    /**
+     * As {@link #sortInputs} followed by {@link #writeSortedOutput}, but sorting and spilling runs of records, and
+     * reading them back, on {@link #SORTING_THREADS} threads.
+     */
+    private void sortInParallel(final List<VCFFileReader> readers, final VCFHeader outputHeader) {
+        final int maxRecordsInRam = MAX_RECORDS_IN_RAM != null ? MAX_RECORDS_IN_RAM : SAMFileWriterImpl.getDefaultMaxRecordsInRam();
+        try (final ParallelSortingCollection<VariantContext> sorter = new ParallelSortingCollection<>(
+                new VCFRecordCodec(outputHeader), outputHeader.getVCFRecordComparator(), maxRecordsInRam, TMP_DIR, SORTING_THREADS)) {
+            addInputs(readers, sorter::add);
+            try (final CloseableIterator<VariantContext> sorted = sorter.iterator()) {
+                writeSortedOutput(outputHeader, sorted);
+            }
+            logger.info(sorter.getStatistics());
+        }
+    }
+
+    private void addInputs(final List<VCFFileReader> readers, final Consumer<VariantContext> sorter) {
+        final ProgressLogger readProgress = new ProgressLogger(logger, 25000, "read", "records");
         int readerCount = 1;
         for (final VCFFileReader reader : readers) {
             logger.info("Reading entries from input file " + readerCount);
             for (final VariantContext variantContext : reader) {
-                sorter.add(variantContext);
+                sorter.accept(variantContext);
                 readProgress.record(variantContext.getContig(), variantContext.getStart());
             }
             reader.close();
             readerCount++;
         }
-        return sorter;
     }
 
-    private void writeSortedOutput(final VCFHeader outputHeader, final SortingCollection<VariantContext> sortedOutput) {
+    private void writeSortedOutput(final VCFHeader outputHeader, final CloseableIterator<VariantContext> sortedOutput) {
         final ProgressLogger writeProgress = new ProgressLogger(logger, 25000, "wrote", "records");
         final EnumSet<Options> options = CREATE_INDEX ? EnumSet.of(Options.INDEX_ON_THE_FLY) : EnumSet.noneOf(Options.class);
         final VariantContextWriter out = new VariantContextWriterBuilder().
@@ -163,7 +206,8 @@ public final class SortVcf extends PicardCommandLineProgram {
                 setOptions(options).
                 setOutputFile(OUTPUT).build();
         out.writeHeader(outputHeader);
-        for (final VariantContext variantContext : sortedOutput) {
+        while (sortedOutput.hasNext()) {
+            final VariantContext variantContext = sortedOutput.next();
             out.add(variantContext);
             writeProgress.record(variantContext.getContig(), variantContext.getStart());
         }
@@ -38,4 +38,9 @@ final class AllelicPanelOfNormalsReader extends TableReader<Map.Entry<SimpleInte
 
         return new AbstractMap.SimpleEntry<>(interval, hyperparameterValues);
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
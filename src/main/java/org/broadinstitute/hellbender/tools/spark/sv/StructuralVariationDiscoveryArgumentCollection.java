@@ -90,6 +90,11 @@ public class StructuralVariationDiscoveryArgumentCollection implements Serializa
         @Argument(doc = "Don't look for extra reads mapped outside the interval.", fullName = "intervalOnlyAssembly")
         public boolean intervalOnlyAssembly = false;
 
+        @Argument(doc = "Strip the reads of everything not needed to gather evidence, and persist them to local disk " +
+                "after the first pass so that the later passes don't re-read the input.", fullName = "cacheCompactReads",
+                optional = true)
+        public boolean cacheCompactReads = false;
+
         // --------- locations ----------
 
         @Argument(doc = "bwa-mem index image file", fullName = "alignerIndexImage")
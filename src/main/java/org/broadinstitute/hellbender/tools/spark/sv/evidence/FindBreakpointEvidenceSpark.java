@@ -9,6 +9,7 @@ import org.apache.spark.HashPartitioner;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.storage.StorageLevel;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
@@ -100,11 +101,22 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
 
         final SVReadFilter filter = new SVReadFilter(params);
 
+        // optionally strip the reads down and persist them, so that each of the passes below doesn't re-read the input
+        final JavaRDD<GATKRead> evidenceReads;
+        if ( params.cacheCompactReads ) {
+            evidenceReads = SVReadCompactor.compactAndPersist(unfilteredReads, filter, StorageLevel.DISK_ONLY());
+        } else {
+            evidenceReads = unfilteredReads;
+        }
+
         // develop evidence, intervals, and, finally, a set of template names for each interval
         final Tuple2<List<SVInterval>, HopscotchUniqueMultiMap<String, Integer, QNameAndInterval>> intervalsAndQNameMap =
-                getMappedQNamesSet(params, ctx, header, unfilteredReads, filter, toolLogger);
+                getMappedQNamesSet(params, ctx, header, evidenceReads, filter, toolLogger);
         final List<SVInterval> intervals = intervalsAndQNameMap._1;
-        if ( intervals.isEmpty() ) return new ArrayList<>();
+        if ( intervals.isEmpty() ) {
+            if ( params.cacheCompactReads ) evidenceReads.unpersist();
+            return new ArrayList<>();
+        }
 
         final HopscotchUniqueMultiMap<String, Integer, QNameAndInterval> qNamesMultiMap = intervalsAndQNameMap._2;
 
@@ -114,7 +126,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             alignedAssemblyOrExcuseList = new ArrayList<>();
         } else {
             alignedAssemblyOrExcuseList = addAssemblyQNames(params, ctx, qNamesMultiMap, intervals.size(),
-                    unfilteredReads, filter, toolLogger);
+                    evidenceReads, filter, toolLogger);
         }
 
         // write a FASTQ file for each interval
@@ -122,9 +134,11 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
                 new FermiLiteAssemblyHandler(params.alignerIndexImageFile, params.maxFASTQSize,
                                                 params.fastqDir, params.gfaDir);
         alignedAssemblyOrExcuseList.addAll(
-                handleAssemblies(ctx, qNamesMultiMap, unfilteredReads, filter, intervals.size(),
+                handleAssemblies(ctx, qNamesMultiMap, evidenceReads, filter, intervals.size(),
                         params.includeMappingLocation, fermiLiteAssemblyHandler));
 
+        if ( params.cacheCompactReads ) evidenceReads.unpersist();
+
         alignedAssemblyOrExcuseList.sort(Comparator.comparingInt(AlignedAssemblyOrExcuse::getAssemblyId));
 
         // record the intervals
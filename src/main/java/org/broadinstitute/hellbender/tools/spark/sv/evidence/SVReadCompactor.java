@@ -0,0 +1,66 @@
+package org.broadinstitute.hellbender.tools.spark.sv.evidence;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.storage.StorageLevel;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.Iterator;
+
+/**
+ * Strips the input reads down to the data that the evidence-gathering passes of FindBreakpointEvidenceSpark
+ * actually look at, so that the stripped reads can be persisted once and reused by each of the later passes
+ * instead of re-reading and re-decoding the input for every one of them.
+ *
+ * Reads that no pass can use (junk or unmapped secondary and supplementary alignments) are dropped.
+ * Every tag except the read group and the supplementary alignment tag is removed.
+ * Everything else about the read (name, flags, alignment, mate information, bases and quals) is left intact,
+ * so the partitioning and the results of the downstream passes are unchanged.
+ */
+public final class SVReadCompactor implements java.io.Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final String READ_GROUP_TAG_NAME = "RG";
+    public static final String SA_TAG_NAME = "SA";
+
+    private final SVReadFilter filter;
+
+    public SVReadCompactor( final SVReadFilter filter ) {
+        this.filter = filter;
+    }
+
+    /** Is this read examined by any of the evidence-gathering passes? */
+    public boolean isUsable( final GATKRead read ) {
+        return filter.isPrimaryLine(read) || filter.isMapped(read);
+    }
+
+    /** Returns a copy of the read with all tags other than RG and SA removed. */
+    public GATKRead compact( final GATKRead read ) {
+        final String readGroup = read.getReadGroup();
+        final String tagSA = read.hasAttribute(SA_TAG_NAME) ? read.getAttributeAsString(SA_TAG_NAME) : null;
+        final GATKRead result = read.copy();
+        result.clearAttributes();
+        if ( readGroup != null ) result.setAttribute(READ_GROUP_TAG_NAME, readGroup);
+        if ( tagSA != null ) result.setAttribute(SA_TAG_NAME, tagSA);
+        return result;
+    }
+
+    public Iterator<GATKRead> apply( final Iterator<GATKRead> unfilteredReadItr ) {
+        final Iterator<GATKRead> readItr = filter.applyFilter(unfilteredReadItr, (f, read) -> isUsable(read));
+        return new Iterator<GATKRead>() {
+            @Override public boolean hasNext() { return readItr.hasNext(); }
+            @Override public GATKRead next() { return compact(readItr.next()); }
+        };
+    }
+
+    /**
+     * Make a single pass over the unfiltered reads to compact them, and persist the result.
+     * The partitioning of the input is preserved.  The caller is responsible for unpersisting the returned RDD.
+     */
+    public static JavaRDD<GATKRead> compactAndPersist( final JavaRDD<GATKRead> unfilteredReads,
+                                                       final SVReadFilter filter,
+                                                       final StorageLevel storageLevel ) {
+        final SVReadCompactor compactor = new SVReadCompactor(filter);
+        final JavaRDD<GATKRead> compactReads = unfilteredReads.mapPartitions(compactor::apply, true);
+        compactReads.persist(storageLevel);
+        return compactReads;
+    }
+}
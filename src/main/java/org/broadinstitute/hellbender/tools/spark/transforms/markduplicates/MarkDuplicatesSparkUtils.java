@@ -48,8 +48,8 @@ public class MarkDuplicatesSparkUtils {
     static JavaRDD<GATKRead> transformReads(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder, final JavaRDD<GATKRead> reads, final int numReducers) {
 
         JavaPairRDD<String, Iterable<GATKRead>> keyedReads;
-        if (SAMFileHeader.SortOrder.queryname.equals(header.getSortOrder())) {
-            // reads are already sorted by name, so perform grouping within the partition (no shuffle)
+        if (isGroupedByName(header)) {
+            // reads are already grouped by name, so perform grouping within the partition (no shuffle)
             keyedReads = spanReadsByKey(header, reads);
         } else {
             // sort by group and name (incurs a shuffle)
@@ -88,6 +88,14 @@ public class MarkDuplicatesSparkUtils {
         return markPairedEnds(keyedPairs, scoringStrategy, finder, header);
     }
 
+    /**
+     * Are the reads with the same name known to be adjacent: sorted by name, or grouped by name as an aligner writes them?
+     */
+    static boolean isGroupedByName(final SAMFileHeader header) {
+        return SAMFileHeader.SortOrder.queryname.equals(header.getSortOrder()) ||
+                SAMFileHeader.GroupOrder.query.equals(header.getGroupOrder());
+    }
+
     static JavaPairRDD<String, Iterable<GATKRead>> spanReadsByKey(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
         JavaPairRDD<String, GATKRead> nameReadPairs = reads.mapToPair(read -> new Tuple2<>(read.getName(), read));
         return spanByKey(nameReadPairs).flatMapToPair(namedRead -> {
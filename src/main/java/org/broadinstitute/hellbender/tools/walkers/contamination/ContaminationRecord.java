@@ -78,6 +78,11 @@ public class ContaminationRecord {
             final double error = dataLine.getDouble(ContaminationTableColumn.ERROR);
             return new ContaminationRecord(sample, contamination, error);
         }
+
+        @Override
+        protected boolean usesDefaultLineClassification() {
+            return true;
+        }
     }
 
     private enum ContaminationTableColumn {
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.contamination;
 
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.vcf.VCFConstants;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.BetaFeature;
@@ -12,8 +13,12 @@ import org.broadinstitute.hellbender.engine.FeatureContext;
 import org.broadinstitute.hellbender.engine.MultiVariantWalker;
 import org.broadinstitute.hellbender.engine.ReadsContext;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.utils.GATKProtectedVariantContextUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
+import org.broadinstitute.hellbender.utils.pileup.SparseSiteBaseCounter;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -39,6 +44,13 @@ import java.util.List;
  *   -O pileups.table
  * </pre>
  *
+ * <p>
+ *     With --sparseSiteTraversal, the reads are streamed once and their bases are counted directly at the sites,
+ *     rather than querying the reads overlapping each site and building its pileup, which is much faster for long
+ *     lists of sites.  The counts are the same, except that bases spliced out of a read (N in its cigar) are not
+ *     counted.
+ * </p>
+ *
  * @author David Benjamin &lt;davidben@broadinstitute.org&gt;
  */
 @CommandLineProgramProperties(
@@ -72,8 +84,15 @@ public class GetPileupSummaries extends MultiVariantWalker {
             doc = "Maximum population allele frequency of sites to consider.", optional = true)
     private double maxPopulationAlleleFrequency = DEFAULT_MAX_POPULATION_AF;
 
+    @Argument(fullName = StandardArgumentDefinitions.SPARSE_SITE_TRAVERSAL_LONG_NAME,
+            doc = "Count bases at the sites from a single stream of reads, instead of querying the reads at each site.", optional = true)
+    private boolean sparseSiteTraversal = false;
+
     private final List<PileupSummary> pileupSummaries = new ArrayList<>();
 
+    // the sites to summarize, if sparseSiteTraversal is set; their counts are collected after traversing the variants
+    private final List<VariantContext> sites = new ArrayList<>();
+
     private VariantContext lastVariant = null;
 
     @Override
@@ -92,12 +111,45 @@ public class GetPileupSummaries extends MultiVariantWalker {
         if (lastVariant != null && vc.getStart() == lastVariant.getStart()) {
             return;
         } else if ( vc.isBiallelic() && vc.isSNP() && alleleFrequencyInRange(vc) ) {
-            final ReadPileup pileup = GATKProtectedVariantContextUtils.getPileup(vc, readsContext);
-            pileupSummaries.add(new PileupSummary(vc, pileup));
+            if (sparseSiteTraversal) {
+                // drop the genotypes, which aren't needed, so that they aren't kept in memory
+                sites.add(new VariantContextBuilder(vc).noGenotypes().make());
+            } else {
+                final ReadPileup pileup = GATKProtectedVariantContextUtils.getPileup(vc, readsContext);
+                pileupSummaries.add(new PileupSummary(vc, pileup));
+            }
         }
         lastVariant = vc;
     }
 
+    @Override
+    public void traverse() {
+        super.traverse();
+        if (sparseSiteTraversal) {
+            summarizeSitesFromReads();
+        }
+    }
+
+    /**
+     * Counts the bases at all the sites in a single pass over the reads, filtered as for the pileups at each site.
+     */
+    private void summarizeSitesFromReads() {
+        final List<SimpleInterval> siteIntervals = new ArrayList<>(sites.size());
+        sites.forEach(vc -> siteIntervals.add(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart())));
+        final SparseSiteBaseCounter baseCounter = new SparseSiteBaseCounter(siteIntervals, 0);
+        final CountingReadFilter readFilter = makeReadFilter();
+        getTransformedReadStream(readFilter)
+                .filter(ReadFilterLibrary.PASSES_VENDOR_QUALITY_CHECK.and(ReadFilterLibrary.NOT_DUPLICATE))
+                .forEach(baseCounter::add);
+        logger.info(readFilter.getSummaryLine());
+        logger.info(baseCounter.getStatistics());
+
+        for (int i = 0; i < sites.size(); i++) {
+            pileupSummaries.add(new PileupSummary(sites.get(i), baseCounter.getBaseCounts(i)));
+        }
+        sites.clear();
+    }
+
     @Override
     public Object onTraversalSuccess() {
         PileupSummary.writePileupSummaries(pileupSummaries, outputTable);
@@ -14,6 +14,18 @@ import java.util.PriorityQueue;
  */
 public final class GenotypeLikelihoodCalculator {
 
+    /**
+     * Largest number of entries (reads times genotypes) of the read-by-genotype likelihood matrix that
+     * {@link #genotypeLikelihoods(LikelihoodMatrix)} will materialize. Beyond this the reads are processed in blocks
+     * of {@link #DEFAULT_READ_BLOCK_SIZE}, see {@link #genotypeLikelihoodsInReadBlocks}.
+     */
+    public static final long MAXIMUM_READ_BY_GENOTYPE_MATRIX_SIZE = 1L << 22;
+
+    /**
+     * Number of reads per block when genotype likelihoods are accumulated over blocks of reads.
+     */
+    public static final int DEFAULT_READ_BLOCK_SIZE = 64;
+
     /**
      * Maximum number of components (or distinct alleles) for any genotype with this calculator ploidy and allele count.
      */
@@ -137,6 +149,15 @@ public final class GenotypeLikelihoodCalculator {
      */
     private double[] readGenotypeLikelihoodComponents;
 
+    /**
+     * Buffers used instead of {@link #readAlleleLikelihoodByAlleleCount} and {@link #readLikelihoodsByGenotypeIndex}
+     * when genotype likelihoods are accumulated over blocks of reads: likelihood components for the reads in a block,
+     * in the same layout as the former, and the likelihoods of the reads in the block for a single genotype.
+     * Their size depends only on the block size, not on the number of reads or genotypes.
+     */
+    private double[] blockReadAlleleLikelihoodByAlleleCount = null;
+    private double[] blockReadLikelihoods = null;
+
     /**
      * Creates a new calculator providing its ploidy and number of genotyping alleles.
      */
@@ -255,16 +276,88 @@ public final class GenotypeLikelihoodCalculator {
         Utils.nonNull(likelihoods);
         Utils.validateArg(likelihoods.numberOfAlleles() == alleleCount, "mismatch between allele list and alleleCount");
         final int readCount = likelihoods.numberOfReads();
+
+        // with many genotypes (high ploidy or many alleles) the read-by-genotype matrix gets too large to hold
+        if ((long) readCount * genotypeCount > MAXIMUM_READ_BY_GENOTYPE_MATRIX_SIZE) {
+            return genotypeLikelihoodsInReadBlocks(likelihoods, DEFAULT_READ_BLOCK_SIZE);
+        }
         ensureReadCapacity(readCount);
 
         /// [x][y][z] = z * LnLk(Read_x | Allele_y)
         final double[] readLikelihoodComponentsByAlleleCount
-                = readLikelihoodComponentsByAlleleCount(likelihoods);
+                = readLikelihoodComponentsByAlleleCount(likelihoods, 0, readCount, readAlleleLikelihoodByAlleleCount);
         final double[][] genotypeLikelihoodByRead = genotypeLikelihoodByRead(readLikelihoodComponentsByAlleleCount,readCount);
         final double[] readLikelihoodsByGenotypeIndex = genotypeLikelihoods(genotypeLikelihoodByRead, readCount);
         return GenotypeLikelihoods.fromLog10Likelihoods(readLikelihoodsByGenotypeIndex);
     }
 
+    /**
+     * Calculate the likelihoods given the list of alleles and the likelihood map, as
+     * {@link #genotypeLikelihoods(LikelihoodMatrix)} does, but without materializing the read-by-genotype likelihood
+     * matrix: the reads are processed in blocks of at most {@code readBlockSize}, and the likelihood of each genotype
+     * is accumulated over the blocks. The memory used is proportional to the number of genotypes plus the block size,
+     * rather than to their product.
+     *
+     * <p>The reads are summed in the same order, so the result is identical to that of
+     * {@link #genotypeLikelihoods(LikelihoodMatrix)}.</p>
+     *
+     * @param likelihoods the likelihood matrix all alleles vs all reads.
+     * @param readBlockSize maximum number of reads to process at a time.
+     *
+     * @throws IllegalArgumentException if {@code likelihoods} is {@code null} or its allele count does not match the
+     *     allele-count of this calculator, or {@code readBlockSize} is not positive.
+     *
+     * @return never {@code null}.
+     */
+    public <A extends Allele> GenotypeLikelihoods genotypeLikelihoodsInReadBlocks(final LikelihoodMatrix<A> likelihoods, final int readBlockSize) {
+        Utils.nonNull(likelihoods);
+        Utils.validateArg(likelihoods.numberOfAlleles() == alleleCount, "mismatch between allele list and alleleCount");
+        Utils.validateArg(readBlockSize > 0, () -> "readBlockSize must be positive but was " + readBlockSize);
+        final int readCount = likelihoods.numberOfReads();
+        final int blockCapacity = Math.max(1, Math.min(readBlockSize, readCount));
+        ensureReadBlockCapacity(blockCapacity);
+
+        final double[] result = new double[genotypeCount];
+        for (int blockStart = 0; blockStart < readCount; blockStart += blockCapacity) {
+            final int blockReadCount = Math.min(blockCapacity, readCount - blockStart);
+            final double[] readLikelihoodComponentsByAlleleCount =
+                    readLikelihoodComponentsByAlleleCount(likelihoods, blockStart, blockReadCount, blockReadAlleleLikelihoodByAlleleCount);
+
+            GenotypeAlleleCounts alleleCounts = genotypeAlleleCounts[0];
+            for (int genotypeIndex = 0; genotypeIndex < genotypeCount; genotypeIndex++) {
+                genotypeLikelihoodByRead(alleleCounts, blockReadLikelihoods, readLikelihoodComponentsByAlleleCount, blockReadCount);
+                double sum = result[genotypeIndex];
+                for (int r = 0; r < blockReadCount; r++) {
+                    sum += blockReadLikelihoods[r];
+                }
+                result[genotypeIndex] = sum;
+                if (genotypeIndex < genotypeCount - 1) {
+                    alleleCounts = nextGenotypeAlleleCounts(alleleCounts);
+                }
+            }
+        }
+
+        final double denominator = readCount * MathUtils.log10(ploidy);
+        for (int g = 0; g < genotypeCount; g++) {
+            result[g] -= denominator;
+        }
+        return GenotypeLikelihoods.fromLog10Likelihoods(result);
+    }
+
+    /**
+     * Makes sure that the buffers used by {@link #genotypeLikelihoodsInReadBlocks} can hold a block of reads.
+     * @param blockCapacity the number of reads in a block.
+     */
+    private void ensureReadBlockCapacity(final int blockCapacity) {
+        if (blockReadLikelihoods == null || blockReadLikelihoods.length < blockCapacity) {
+            blockReadAlleleLikelihoodByAlleleCount = new double[blockCapacity * alleleCount * (ploidy + 1)];
+            blockReadLikelihoods = new double[blockCapacity];
+        }
+        if (readGenotypeLikelihoodComponents == null || readGenotypeLikelihoodComponents.length < maximumDistinctAllelesInGenotype * blockCapacity) {
+            readGenotypeLikelihoodComponents = new double[maximumDistinctAllelesInGenotype * blockCapacity];
+        }
+    }
+
     /**
      * Calculates the final genotype likelihood array out of the likelihoods for each genotype per read.
      *
@@ -299,18 +392,7 @@ public final class GenotypeLikelihoodCalculator {
         GenotypeAlleleCounts alleleCounts = genotypeAlleleCounts[0];
 
         for (int genotypeIndex = 0; genotypeIndex < genotypeCount; genotypeIndex++) {
-            final double[] readLikelihoods = this.readLikelihoodsByGenotypeIndex[genotypeIndex];
-            final int componentCount = alleleCounts.distinctAlleleCount();
-            switch (componentCount) {
-                case 1: //
-                    singleComponentGenotypeLikelihoodByRead(alleleCounts, readLikelihoods, readLikelihoodComponentsByAlleleCount, readCount);
-                    break;
-                case 2:
-                    twoComponentGenotypeLikelihoodByRead(alleleCounts,readLikelihoods,readLikelihoodComponentsByAlleleCount, readCount);
-                    break;
-                default:
-                    manyComponentGenotypeLikelihoodByRead(alleleCounts,readLikelihoods,readLikelihoodComponentsByAlleleCount, readCount);
-            }
+            genotypeLikelihoodByRead(alleleCounts, this.readLikelihoodsByGenotypeIndex[genotypeIndex], readLikelihoodComponentsByAlleleCount, readCount);
             if (genotypeIndex < genotypeCount - 1) {
                 alleleCounts = nextGenotypeAlleleCounts(alleleCounts);
             }
@@ -318,6 +400,24 @@ public final class GenotypeLikelihoodCalculator {
         return readLikelihoodsByGenotypeIndex;
     }
 
+    /**
+     * Calculates the likelihood component of each read on a single genotype.
+     */
+    private void genotypeLikelihoodByRead(final GenotypeAlleleCounts alleleCounts, final double[] readLikelihoods,
+                                          final double[] readLikelihoodComponentsByAlleleCount, final int readCount) {
+        final int componentCount = alleleCounts.distinctAlleleCount();
+        switch (componentCount) {
+            case 1: //
+                singleComponentGenotypeLikelihoodByRead(alleleCounts, readLikelihoods, readLikelihoodComponentsByAlleleCount, readCount);
+                break;
+            case 2:
+                twoComponentGenotypeLikelihoodByRead(alleleCounts,readLikelihoods,readLikelihoodComponentsByAlleleCount, readCount);
+                break;
+            default:
+                manyComponentGenotypeLikelihoodByRead(alleleCounts,readLikelihoods,readLikelihoodComponentsByAlleleCount, readCount);
+        }
+    }
+
     private GenotypeAlleleCounts nextGenotypeAlleleCounts(final GenotypeAlleleCounts alleleCounts) {
         final int index = alleleCounts.index();
         final GenotypeAlleleCounts result;
@@ -401,33 +501,43 @@ public final class GenotypeLikelihoodCalculator {
     }
 
     /**
-     * Returns a 3rd matrix with the likelihood components.
+     * Returns a 3rd matrix with the likelihood components of the reads from {@code readStart} to
+     * {@code readStart + readCount - 1}, in {@code destination}.
      *
      * <pre>
-     *     result[y][z][x] :=  z * lnLk ( read_x | allele_y ).
+     *     result[y][z][x] :=  z * lnLk ( read_(readStart + x) | allele_y ).
      * </pre>
      *
      * @return never {@code null}.
      */
-    private <A extends Allele> double[] readLikelihoodComponentsByAlleleCount(final LikelihoodMatrix<A> likelihoods) {
-        final int readCount = likelihoods.numberOfReads();
+    private <A extends Allele> double[] readLikelihoodComponentsByAlleleCount(final LikelihoodMatrix<A> likelihoods,
+                                                                              final int readStart,
+                                                                              final int readCount,
+                                                                              final double[] destination) {
         final int alleleDataSize = readCount * (ploidy + 1);
+        final boolean allReads = readStart == 0 && readCount == likelihoods.numberOfReads();
 
         // frequency1Offset = readCount to skip the useless frequency == 0. So now we are at the start frequency == 1
         // frequency1Offset += alleleDataSize to skip to the next allele index data location (+ readCount) at each iteration.
         for (int a = 0, frequency1Offset = readCount; a < alleleCount; a++, frequency1Offset += alleleDataSize) {
-            likelihoods.copyAlleleLikelihoods(a, readAlleleLikelihoodByAlleleCount, frequency1Offset);
+            if (allReads) {
+                likelihoods.copyAlleleLikelihoods(a, destination, frequency1Offset);
+            } else {
+                for (int r = 0; r < readCount; r++) {
+                    destination[frequency1Offset + r] = likelihoods.get(a, readStart + r);
+                }
+            }
 
             // p = 2 because the frequency == 1 we already have it.
             for (int frequency = 2, destinationOffset = frequency1Offset + readCount; frequency <= ploidy; frequency++) {
                 final double log10frequency = MathUtils.log10(frequency);
                 for (int r = 0, sourceOffset = frequency1Offset; r < readCount; r++) {
-                    readAlleleLikelihoodByAlleleCount[destinationOffset++] =
-                            readAlleleLikelihoodByAlleleCount[sourceOffset++] + log10frequency;
+                    destination[destinationOffset++] =
+                            destination[sourceOffset++] + log10frequency;
                 }
             }
         }
-        return readAlleleLikelihoodByAlleleCount;
+        return destination;
     }
 
     /**
@@ -4,7 +4,9 @@ import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.Hidden;
 
-public class AssemblyRegionTrimmerArgumentCollection {
+import java.io.Serializable;
+
+public class AssemblyRegionTrimmerArgumentCollection implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Advanced
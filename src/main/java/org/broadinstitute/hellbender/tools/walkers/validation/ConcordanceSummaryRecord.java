@@ -88,6 +88,12 @@ public class ConcordanceSummaryRecord {
 
             return new ConcordanceSummaryRecord(type, truePositives, falsePositives, falseNegatives);
         }
+
+        @Override
+        protected boolean usesDefaultLineClassification() {
+            // subclasses may override isCommentLine or isHeaderLine.
+            return getClass() == Reader.class;
+        }
     }
 }
 
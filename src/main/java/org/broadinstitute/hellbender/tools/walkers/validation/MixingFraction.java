@@ -95,5 +95,10 @@ public class MixingFraction {
             final double mixingFraction = dataLine.getDouble(MixingFractionTableColumn.MIXING_FRACTION);
             return new MixingFraction(sample, mixingFraction);
         }
+
+        @Override
+        protected boolean usesDefaultLineClassification() {
+            return true;
+        }
     }
 }
@@ -414,6 +414,8 @@ public final class SelectVariants extends VariantWalker {
 
     private SortedSet<String> samples = new TreeSet<>();
     private boolean noSamplesSpecified = false;
+    // the number of samples in the input, or -1 if input records are not restricted to the selected samples
+    private int projectedInputSampleCount = -1;
 
     private Set<VariantContext.Type> selectedTypes = new LinkedHashSet<>();
     private final ArrayList<String> selectNames = new ArrayList<>();
@@ -474,6 +476,12 @@ public final class SelectVariants extends VariantWalker {
             mv = new MendelianViolation(mendelianViolationQualThreshold, false, true);
         }
 
+        // only the selected samples need to be decoded, unless the pedigree or the comparison tracks refer to others
+        if (!noSamplesSpecified && !mendelianViolations && !discordanceOnly && !concordanceOnly) {
+            setDrivingVariantsProjection(VariantProjection.ALL.withSamples(samples));
+            projectedInputSampleCount = getHeaderForVariants().getNGenotypeSamples();
+        }
+
         selectRandomFraction = fractionRandom > 0;
         if (selectRandomFraction) {
             logger.info("Selecting approximately " + 100.0*fractionRandom + "% of the variants at random from the variant track");
@@ -1015,7 +1023,8 @@ public final class SelectVariants extends VariantWalker {
         final VariantContext sub = vc.subContextFromSamples(samples, removeUnusedAlternates);
 
         // If no subsetting happened, exit now
-        if (sub.getNSamples() == vc.getNSamples() && sub.getNAlleles() == vc.getNAlleles()) {
+        final int inputSampleCount = projectedInputSampleCount == -1 ? vc.getNSamples() : projectedInputSampleCount;
+        if (sub.getNSamples() == inputSampleCount && sub.getNAlleles() == vc.getNAlleles()) {
             return vc;
         }
 
@@ -19,6 +19,7 @@ import org.broadinstitute.hellbender.engine.VariantWalker;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+import org.broadinstitute.hellbender.utils.variant.VariantProjection;
 import org.broadinstitute.hellbender.utils.variant.VcfUtils;
 
 import java.io.FileNotFoundException;
@@ -26,6 +27,7 @@ import java.io.PrintStream;
 import java.lang.reflect.Array;
 import java.util.*;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Extract specific fields from a VCF file to a tab-delimited table
@@ -169,6 +171,8 @@ public final class VariantsToTable extends VariantWalker {
             }
         }
 
+        setDrivingVariantsProjection(createProjection());
+
         // print out the header
         if ( moltenizeOutput ) {
             outputStream.println("RecordID\tSample\tVariable\tValue");
@@ -180,6 +184,23 @@ public final class VariantsToTable extends VariantWalker {
         }
     }
 
+    /**
+     * @return the columns of the input needed for the requested fields, so that the others need not be decoded
+     */
+    private VariantProjection createProjection() {
+        VariantProjection projection = VariantProjection.ALL;
+        if ( genotypeFieldsToTake.isEmpty() && fieldsToTake.stream().noneMatch(GENOTYPE_COUNT_FIELDS::contains) ) {
+            projection = projection.withoutGenotypes();
+        } else if ( !genotypeFieldsToTake.isEmpty() ) {
+            projection = projection.withFormatKeys(genotypeFieldsToTake);
+        }
+        // a wildcard can match any INFO key
+        if ( fieldsToTake.stream().noneMatch(VariantsToTable::isWildCard) ) {
+            projection = projection.withInfoKeys(fieldsToTake.stream().filter(field -> !getters.containsKey(field)).collect(Collectors.toList()));
+        }
+        return projection;
+    }
+
     private PrintStream createPrintStream() {
         try {
             return out != null ? new PrintStream(out) : System.out;
@@ -378,6 +399,9 @@ public final class VariantsToTable extends VariantWalker {
     // ----------------------------------------------------------------------------------------------------
 
     private final Map<String, Function<VariantContext, String>> getters = new LinkedHashMap<>();
+
+    // the fields computed from the genotypes of all the samples
+    private static final Set<String> GENOTYPE_COUNT_FIELDS = new LinkedHashSet<>(Arrays.asList("HET", "HOM-REF", "HOM-VAR", "NO-CALL", "VAR", "NSAMPLES", "NCALLED"));
     {
         // #CHROM  POS     ID      REF     ALT     QUAL    FILTER  INFO    FORMAT
         getters.put("CHROM", vc -> vc.getContig());
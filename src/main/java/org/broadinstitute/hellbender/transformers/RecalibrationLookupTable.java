@@ -0,0 +1,157 @@
+package org.broadinstitute.hellbender.transformers;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.EventType;
+import org.broadinstitute.hellbender.utils.recalibration.RecalDatum;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationTables;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.List;
+
+import static org.broadinstitute.hellbender.utils.MathUtils.fastRound;
+import static org.broadinstitute.hellbender.utils.QualityUtils.boundQual;
+import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_RECALIBRATED_Q_SCORE;
+
+/**
+ * Precomputed form of the recalibration tables, used by {@link BQSRReadTransformer} to recalibrate base
+ * substitution qualities without walking the {@link NestedIntegerArray}s and re-evaluating
+ * {@link BQSRReadTransformer#hierarchicalBayesianQualityEstimate} for every base.
+ *
+ * The hierarchical estimate for a base is the conditional prior for its (read group, reported quality) pair plus
+ * one delta per additional covariate, and each delta depends only on (read group, reported quality, covariate key).
+ * We therefore materialize, at load time, the conditional prior for every (read group, reported quality) pair and a
+ * dense array of deltas for every (read group, reported quality) pair that has data for a covariate. Recalibrating a
+ * base then takes a handful of array loads and additions, followed by a lookup in a byte array that combines
+ * quantization and static binning. The sums are evaluated in the same order as in
+ * {@link BQSRReadTransformer#hierarchicalBayesianQualityEstimate}, so the results are identical.
+ */
+final class RecalibrationLookupTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
+
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final int specialCovariateCount;
+
+    // true for read groups that have data in the read group table
+    private final boolean[] hasReadGroupData;
+
+    // conditional prior (deltaQReported + globalDeltaQ + epsilon) indexed by readGroup * qualDimension + reportedQual
+    private final double[] conditionalPriors;
+
+    // conditional prior for a read group when the reported quality is out of range (i.e., there is no quality score data)
+    private final double[] conditionalPriorsWithoutQualData;
+
+    // deltas indexed by [additional covariate][readGroup * qualDimension + reportedQual][covariate key]
+    // a null row means that there is no data for that (read group, reported quality) pair
+    private final double[][][] covariateDeltas;
+
+    // maps the bounded, rounded recalibrated quality to the quality that is emitted
+    private final byte[] emittedQuals;
+
+    /**
+     * @param recalibrationTables recalibration tables output from BQSR
+     * @param covariates standard covariate set
+     * @param globalQScorePrior the global Qscore prior, or a non-positive value to use the reported quality of each read group
+     * @param quantizedQuals the map from recalibrated to quantized qualities
+     * @param staticQuantizedMapping the map from quantized to statically binned qualities, or null for no static binning
+     */
+    RecalibrationLookupTable( final RecalibrationTables recalibrationTables,
+                              final StandardCovariateList covariates,
+                              final double globalQScorePrior,
+                              final List<Byte> quantizedQuals,
+                              final byte[] staticQuantizedMapping ) {
+        Utils.nonNull(recalibrationTables);
+        Utils.nonNull(covariates);
+        Utils.nonNull(quantizedQuals);
+
+        final NestedIntegerArray<RecalDatum> readGroupTable = recalibrationTables.getReadGroupTable();
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
+        numReadGroups = readGroupTable.getDimensions()[0];
+        qualDimension = qualityScoreTable.getDimensions()[1];
+        specialCovariateCount = covariates.numberOfSpecialCovariates();
+
+        hasReadGroupData = new boolean[numReadGroups];
+        conditionalPriors = new double[numReadGroups * qualDimension];
+        conditionalPriorsWithoutQualData = new double[numReadGroups];
+        for ( int rgKey = 0; rgKey < numReadGroups; rgKey++ ) {
+            final RecalDatum empiricalQualRG = readGroupTable.get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
+            if ( empiricalQualRG == null ) {
+                continue;
+            }
+            hasReadGroupData[rgKey] = true;
+            final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+            final double globalDeltaQ = empiricalQualRG.getEmpiricalQuality(epsilon) - epsilon;
+            conditionalPriorsWithoutQualData[rgKey] = 0.0 + globalDeltaQ + epsilon;
+            for ( int qualKey = 0; qualKey < qualDimension; qualKey++ ) {
+                final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(rgKey, qualKey, BASE_SUBSTITUTION_INDEX);
+                final double deltaQReported = empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(globalDeltaQ + epsilon) - (globalDeltaQ + epsilon);
+                conditionalPriors[rgKey * qualDimension + qualKey] = deltaQReported + globalDeltaQ + epsilon;
+            }
+        }
+
+        final List<NestedIntegerArray<RecalDatum>> additionalTables = recalibrationTables.getAdditionalTables();
+        covariateDeltas = new double[additionalTables.size()][][];
+        for ( int i = 0; i < additionalTables.size(); i++ ) {
+            final NestedIntegerArray<RecalDatum> table = additionalTables.get(i);
+            final int keyDimension = table.getDimensions()[2];
+            final double[][] deltas = new double[numReadGroups * qualDimension][];
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+                final int rgKey = leaf.keys[0];
+                if ( leaf.keys[3] != BASE_SUBSTITUTION_INDEX || !hasReadGroupData[rgKey] ) {
+                    continue;
+                }
+                final int row = rgKey * qualDimension + leaf.keys[1];
+                if ( deltas[row] == null ) {
+                    deltas[row] = new double[keyDimension];
+                }
+                final double conditionalPrior2 = conditionalPriors[row];
+                deltas[row][leaf.keys[2]] = leaf.value.getEmpiricalQuality(conditionalPrior2) - conditionalPrior2;
+            }
+            covariateDeltas[i] = deltas;
+        }
+
+        emittedQuals = new byte[Math.min(quantizedQuals.size(), MAX_RECALIBRATED_Q_SCORE + 1)];
+        for ( int qual = 0; qual < emittedQuals.length; qual++ ) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            emittedQuals[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+    }
+
+    /**
+     * @return true if the read group table has base substitution data for this read group key.
+     *         Reads from other read groups are not recalibrated.
+     */
+    boolean hasReadGroupData( final int rgKey ) {
+        return rgKey < numReadGroups && hasReadGroupData[rgKey];
+    }
+
+    /**
+     * Computes the quality to be emitted for a single base.
+     *
+     * @param rgKey the read group key of the read, which must satisfy {@link #hasReadGroupData}
+     * @param keySet the base substitution covariate keys for the base
+     * @return the recalibrated, quantized and statically binned quality
+     */
+    byte getRecalibratedQual( final int rgKey, final int[] keySet ) {
+        final int qualKey = keySet[1];
+        if ( qualKey >= qualDimension ) {
+            return emittedQuals[boundQual(fastRound(conditionalPriorsWithoutQualData[rgKey]), MAX_RECALIBRATED_Q_SCORE)];
+        }
+        final int row = rgKey * qualDimension + qualKey;
+        double deltaQCovariates = 0.0;
+        for ( int i = 0; i < covariateDeltas.length; i++ ) {
+            final int key = keySet[i + specialCovariateCount];
+            if ( key >= 0 ) {
+                final double[] deltas = covariateDeltas[i][row];
+                if ( deltas != null && key < deltas.length ) {
+                    deltaQCovariates += deltas[key];
+                }
+            }
+        }
+        return emittedQuals[boundQual(fastRound(conditionalPriors[row] + deltaQCovariates), MAX_RECALIBRATED_Q_SCORE)];
+    }
+}
@@ -0,0 +1,537 @@
+package org.broadinstitute.hellbender.utils;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalList;
+import htsjdk.samtools.util.Locatable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A set of genomic intervals over the contigs of a sequence dictionary, stored as a sorted array of starts and a
+ * parallel array of ends for each contig, rather than as interval objects. The intervals of a contig are sorted by
+ * start, and never overlap (abutting intervals are kept apart only if the set was built with
+ * {@link IntervalMergingRule#OVERLAPPING_ONLY}), so that merging, intersecting, padding and subtracting sets take
+ * linear time, and overlap queries a binary search.
+ *
+ * The set may also include the unmapped reads ({@link GenomeLoc#UNMAPPED}).
+ *
+ * Sets are immutable, and are made with a {@link Builder}.
+ */
+public final class IntervalArraySet {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final SAMSequenceDictionary dictionary;
+    private final int[][] starts;
+    private final int[][] ends;
+    private final boolean includesUnmapped;
+
+    private IntervalArraySet(final SAMSequenceDictionary dictionary, final int[][] starts, final int[][] ends, final boolean includesUnmapped) {
+        this.dictionary = dictionary;
+        this.starts = starts;
+        this.ends = ends;
+        this.includesUnmapped = includesUnmapped;
+    }
+
+    /**
+     * @return a set of the whole of every contig in the dictionary
+     */
+    public static IntervalArraySet fromSequenceDictionary(final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(dictionary);
+        final Builder builder = new Builder(dictionary);
+        for (final SAMSequenceRecord sequence : dictionary.getSequences()) {
+            builder.add(sequence.getSequenceIndex(), 1, sequence.getSequenceLength());
+        }
+        return builder.build(IntervalMergingRule.ALL);
+    }
+
+    /**
+     * @return an empty set over the contigs of a dictionary
+     */
+    public static IntervalArraySet empty(final SAMSequenceDictionary dictionary) {
+        return new Builder(dictionary).build(IntervalMergingRule.ALL);
+    }
+
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return true if the set includes the unmapped reads
+     */
+    public boolean includesUnmapped() {
+        return includesUnmapped;
+    }
+
+    /**
+     * @return true if the set has neither intervals nor the unmapped reads
+     */
+    public boolean isEmpty() {
+        return size() == 0 && !includesUnmapped;
+    }
+
+    /**
+     * @return the number of intervals in the set (not counting the unmapped reads)
+     */
+    public int size() {
+        int size = 0;
+        for (final int[] contigStarts : starts) {
+            size += contigStarts.length;
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of bases covered by the intervals
+     */
+    public long coveredSize() {
+        long size = 0;
+        for (int contig = 0; contig < starts.length; contig++) {
+            for (int i = 0; i < starts[contig].length; i++) {
+                size += (long) ends[contig][i] - starts[contig][i] + 1;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return true if any interval of the set overlaps the locatable, which must be on a contig of the dictionary
+     */
+    public boolean overlaps(final Locatable locatable) {
+        Utils.nonNull(locatable);
+        final int contig = dictionary.getSequenceIndex(locatable.getContig());
+        Utils.validateArg(contig >= 0, () -> "Contig " + locatable.getContig() + " is not in the sequence dictionary");
+        return overlaps(contig, locatable.getStart(), locatable.getEnd());
+    }
+
+    /**
+     * @return true if any interval of the set overlaps [start, end] on the contig with an index in the dictionary
+     */
+    public boolean overlaps(final int contig, final int start, final int end) {
+        Utils.validIndex(contig, starts.length);
+        // the first interval that ends at or after start, which is the only candidate since the intervals are sorted
+        final int[] contigEnds = ends[contig];
+        int low = 0;
+        int high = contigEnds.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (contigEnds[mid] < start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < contigEnds.length && starts[contig][low] <= end;
+    }
+
+    /**
+     * @return the intervals, in the order of the contigs in the dictionary and then by start
+     */
+    public List<SimpleInterval> toList() {
+        final List<SimpleInterval> intervals = new ArrayList<>(size());
+        for (int contig = 0; contig < starts.length; contig++) {
+            final String name = dictionary.getSequence(contig).getSequenceName();
+            for (int i = 0; i < starts[contig].length; i++) {
+                intervals.add(new SimpleInterval(name, starts[contig][i], ends[contig][i]));
+            }
+        }
+        return intervals;
+    }
+
+    /**
+     * @return the intervals as genome locs, sorted, followed by {@link GenomeLoc#UNMAPPED} if the set includes it
+     */
+    public List<GenomeLoc> toGenomeLocs() {
+        final List<GenomeLoc> locs = new ArrayList<>(size() + 1);
+        for (int contig = 0; contig < starts.length; contig++) {
+            final String name = dictionary.getSequence(contig).getSequenceName();
+            for (int i = 0; i < starts[contig].length; i++) {
+                locs.add(new GenomeLoc(name, contig, starts[contig][i], ends[contig][i]));
+            }
+        }
+        if (includesUnmapped) {
+            locs.add(GenomeLoc.UNMAPPED);
+        }
+        return locs;
+    }
+
+    /**
+     * @return the set of the bases in either set, merged by a rule
+     */
+    public IntervalArraySet union(final IntervalArraySet other, final IntervalMergingRule rule) {
+        checkSameContigs(other);
+        final int[][] unionStarts = new int[starts.length][];
+        final int[][] unionEnds = new int[starts.length][];
+        for (int contig = 0; contig < starts.length; contig++) {
+            final int[] aStarts = starts[contig], aEnds = ends[contig], bStarts = other.starts[contig], bEnds = other.ends[contig];
+            final int n = aStarts.length + bStarts.length;
+            final int[] mergedStarts = new int[n];
+            final int[] mergedEnds = new int[n];
+            int i = 0, j = 0;
+            for (int k = 0; k < n; k++) {
+                final boolean takeA = j == bStarts.length || (i < aStarts.length &&
+                        (aStarts[i] < bStarts[j] || (aStarts[i] == bStarts[j] && aEnds[i] <= bEnds[j])));
+                if (takeA) {
+                    mergedStarts[k] = aStarts[i];
+                    mergedEnds[k] = aEnds[i++];
+                } else {
+                    mergedStarts[k] = bStarts[j];
+                    mergedEnds[k] = bEnds[j++];
+                }
+            }
+            mergeSorted(mergedStarts, mergedEnds, n, rule, unionStarts, unionEnds, contig);
+        }
+        return new IntervalArraySet(dictionary, unionStarts, unionEnds, includesUnmapped || other.includesUnmapped);
+    }
+
+    /**
+     * @return the set of the bases in both sets, merged by a rule
+     */
+    public IntervalArraySet intersect(final IntervalArraySet other, final IntervalMergingRule rule) {
+        checkSameContigs(other);
+        final int[][] intersectionStarts = new int[starts.length][];
+        final int[][] intersectionEnds = new int[starts.length][];
+        for (int contig = 0; contig < starts.length; contig++) {
+            final int[] aStarts = starts[contig], aEnds = ends[contig], bStarts = other.starts[contig], bEnds = other.ends[contig];
+            // each interval of the intersection ends where an interval of one of the sets ends
+            final int[] newStarts = new int[aStarts.length + bStarts.length];
+            final int[] newEnds = new int[newStarts.length];
+            int n = 0;
+            int i = 0, j = 0;
+            while (i < aStarts.length && j < bStarts.length) {
+                if (bEnds[j] < aStarts[i]) {
+                    j++;
+                } else if (aEnds[i] < bStarts[j]) {
+                    i++;
+                } else {
+                    newStarts[n] = Math.max(aStarts[i], bStarts[j]);
+                    newEnds[n++] = Math.min(aEnds[i], bEnds[j]);
+                    if (aEnds[i] < bEnds[j]) {
+                        i++;
+                    } else {
+                        j++;
+                    }
+                }
+            }
+            mergeSorted(newStarts, newEnds, n, rule, intersectionStarts, intersectionEnds, contig);
+        }
+        return new IntervalArraySet(dictionary, intersectionStarts, intersectionEnds, includesUnmapped && other.includesUnmapped);
+    }
+
+    /**
+     * @return the set of the bases in this set but not in the other one
+     */
+    public IntervalArraySet subtract(final IntervalArraySet other) {
+        checkSameContigs(other);
+        final int[][] differenceStarts = new int[starts.length][];
+        final int[][] differenceEnds = new int[starts.length][];
+        for (int contig = 0; contig < starts.length; contig++) {
+            final int[] aStarts = starts[contig], aEnds = ends[contig], bStarts = other.starts[contig], bEnds = other.ends[contig];
+            // each interval removed splits at most one interval in two
+            final int[] newStarts = new int[aStarts.length + bStarts.length];
+            final int[] newEnds = new int[newStarts.length];
+            int n = 0;
+            int j = 0;
+            for (int i = 0; i < aStarts.length; i++) {
+                int start = aStarts[i];
+                final int end = aEnds[i];
+                while (j < bStarts.length && bEnds[j] < start) {
+                    j++;
+                }
+                // remove the intervals overlapping [start, end] from its left end
+                int k = j;
+                while (k < bStarts.length && bStarts[k] <= end && start <= end) {
+                    if (bStarts[k] > start) {
+                        newStarts[n] = start;
+                        newEnds[n++] = bStarts[k] - 1;
+                    }
+                    start = bEnds[k] == Integer.MAX_VALUE ? end + 1 : Math.max(start, bEnds[k] + 1);
+                    if (bEnds[k] > end) {
+                        break;
+                    }
+                    k++;
+                }
+                if (start <= end) {
+                    newStarts[n] = start;
+                    newEnds[n++] = end;
+                }
+                j = k;
+            }
+            differenceStarts[contig] = Arrays.copyOf(newStarts, n);
+            differenceEnds[contig] = Arrays.copyOf(newEnds, n);
+        }
+        return new IntervalArraySet(dictionary, differenceStarts, differenceEnds, includesUnmapped && !other.includesUnmapped);
+    }
+
+    /**
+     * @return the set with each interval extended by padding bases on both sides (but not past the ends of its
+     * contig), and the intervals then merged with {@link IntervalMergingRule#ALL}
+     */
+    public IntervalArraySet pad(final int padding) {
+        Utils.validateArg(padding >= 0, "padding must be non-negative");
+        if (padding == 0) {
+            return this;
+        }
+        final int[][] paddedStarts = new int[starts.length][];
+        final int[][] paddedEnds = new int[starts.length][];
+        for (int contig = 0; contig < starts.length; contig++) {
+            final int contigLength = dictionary.getSequence(contig).getSequenceLength();
+            final int[] newStarts = new int[starts[contig].length];
+            final int[] newEnds = new int[newStarts.length];
+            int n = 0;
+            for (int i = 0; i < starts[contig].length; i++) {
+                final long start = Math.max(1L, (long) starts[contig][i] - padding);
+                final long end = Math.min(contigLength, (long) ends[contig][i] + padding);
+                // as GenomeLocParser.createPaddedGenomeLoc, intervals entirely off the contig are dropped
+                if (start <= contigLength && end >= 1) {
+                    newStarts[n] = (int) start;
+                    newEnds[n++] = (int) end;
+                }
+            }
+            // padding keeps the intervals sorted by start, since they did not overlap
+            mergeSorted(newStarts, newEnds, n, IntervalMergingRule.ALL, paddedStarts, paddedEnds, contig);
+        }
+        return new IntervalArraySet(dictionary, paddedStarts, paddedEnds, includesUnmapped);
+    }
+
+    private void checkSameContigs(final IntervalArraySet other) {
+        Utils.nonNull(other);
+        Utils.validateArg(other.starts.length == starts.length, "The interval sets are over different sequence dictionaries");
+    }
+
+    /**
+     * Merges the first n intervals of starts and ends, which are sorted by start and then end, by a rule, and stores
+     * the result for a contig.
+     */
+    private static void mergeSorted(final int[] starts, final int[] ends, final int n, final IntervalMergingRule rule,
+                                    final int[][] mergedStarts, final int[][] mergedEnds, final int contig) {
+        final boolean mergeAbutting = rule == null || rule == IntervalMergingRule.ALL;
+        int merged = 0;
+        for (int i = 0; i < n; i++) {
+            if (merged > 0 && (starts[i] <= ends[merged - 1] || (mergeAbutting && starts[i] == (long) ends[merged - 1] + 1))) {
+                ends[merged - 1] = Math.max(ends[merged - 1], ends[i]);
+            } else {
+                starts[merged] = starts[i];
+                ends[merged++] = ends[i];
+            }
+        }
+        mergedStarts[contig] = merged == 0 ? NO_POSITIONS : Arrays.copyOf(starts, merged);
+        mergedEnds[contig] = merged == 0 ? NO_POSITIONS : Arrays.copyOf(ends, merged);
+    }
+
+    @Override
+    public String toString() {
+        return "IntervalArraySet{" + size() + " intervals covering " + coveredSize() + " bases" +
+                (includesUnmapped ? ", and the unmapped reads}" : "}");
+    }
+
+    /**
+     * Collects intervals in any order, which may overlap, and builds a set of them, sorted and merged.
+     *
+     * Each interval is packed into a long (start in the high bits, end in the low ones), so that sorting the longs of
+     * a contig sorts its intervals by start and then end.
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 16;
+        private static final Pattern BED_FIELD_SEPARATOR = Pattern.compile("\\t|( +)");
+
+        private final SAMSequenceDictionary dictionary;
+        private final long[][] intervals;
+        private final int[] sizes;
+        private boolean includesUnmapped = false;
+
+        // contig lookups for the files being read, with the last contig found, since files are usually grouped by contig
+        private Map<String, Integer> contigIndexes = null;
+        private String lastContig = null;
+        private int lastContigIndex = -1;
+
+        public Builder(final SAMSequenceDictionary dictionary) {
+            this.dictionary = Utils.nonNull(dictionary);
+            this.intervals = new long[dictionary.size()][];
+            this.sizes = new int[dictionary.size()];
+        }
+
+        /**
+         * Adds the interval [start, end] on the contig with an index in the dictionary.
+         */
+        public Builder add(final int contig, final int start, final int end) {
+            Utils.validIndex(contig, intervals.length);
+            Utils.validateArg(start <= end, () -> "The end " + end + " is before the start " + start);
+            if (intervals[contig] == null) {
+                intervals[contig] = new long[INITIAL_CAPACITY];
+            } else if (sizes[contig] == intervals[contig].length) {
+                intervals[contig] = Arrays.copyOf(intervals[contig], 2 * sizes[contig]);
+            }
+            intervals[contig][sizes[contig]++] = (long) start << 32 | (end & 0xFFFFFFFFL);
+            return this;
+        }
+
+        /**
+         * Adds a genome loc, which may be {@link GenomeLoc#UNMAPPED}.
+         */
+        public Builder add(final GenomeLoc loc) {
+            Utils.nonNull(loc);
+            if (GenomeLoc.isUnmapped(loc)) {
+                includesUnmapped = true;
+                return this;
+            }
+            return add(loc.getContigIndex(), loc.getStart(), loc.getStop());
+        }
+
+        /**
+         * Adds the intervals of a BED file (uncompressed) read directly, rather than through the BED codec. The
+         * intervals are checked as {@link GenomeLocParser#createGenomeLoc(htsjdk.tribble.Feature)} does.
+         *
+         * @return false if the file has a line that the fast path does not handle (a line without an interval, or with
+         * an unknown contig or an invalid interval), in which case the builder holds some of the file's intervals and
+         * should be discarded
+         */
+        public boolean addBedFile(final File bedFile) throws IOException {
+            try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(bedFile), StandardCharsets.UTF_8), 1 << 16)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // lines skipped by the BED codec
+                    if (line.trim().isEmpty() || line.startsWith("#") || line.startsWith("track") || line.startsWith("browser")) {
+                        continue;
+                    }
+                    final String[] fields = splitFields(line);
+                    if (fields.length < 2) {
+                        return false;
+                    }
+                    final int contig = getContigIndex(fields[0]);
+                    final int start;
+                    final int end;
+                    try {
+                        // BED starts are 0-based
+                        start = Integer.parseInt(fields[1]) + 1;
+                        end = fields.length > 2 ? Integer.parseInt(fields[2]) : start;
+                    } catch (final NumberFormatException e) {
+                        return false;
+                    }
+                    if (contig < 0 || start < 1 || end < start) {
+                        return false;
+                    }
+                    add(contig, start, end);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Adds the intervals of a Picard interval list, checked as {@link IntervalUtils#intervalFileToList} does.
+         *
+         * @return false if the file is not an interval list, or has an invalid interval, in which case the builder
+         * holds some of the file's intervals and should be discarded
+         */
+        public boolean addIntervalListFile(final File intervalListFile) {
+            final IntervalList intervalList;
+            try {
+                intervalList = IntervalList.fromFile(intervalListFile);
+            } catch (final Exception e) {
+                return false;
+            }
+            for (final Interval interval : intervalList.getIntervals()) {
+                // this rejects the intervals ending one before their start, about which IntervalUtils.intervalFileToList warns
+                final int contig = getContigIndex(interval.getContig());
+                if (contig < 0 || interval.getStart() < 1 || interval.getEnd() < interval.getStart()) {
+                    return false;
+                }
+                final int contigLength = dictionary.getSequence(contig).getSequenceLength();
+                if (contigLength != SAMSequenceRecord.UNKNOWN_SEQUENCE_LENGTH && interval.getEnd() > contigLength) {
+                    return false;
+                }
+                add(contig, interval.getStart(), interval.getEnd());
+            }
+            return true;
+        }
+
+        /**
+         * @return the number of intervals added (not counting the unmapped reads)
+         */
+        public long size() {
+            long size = 0;
+            for (final int contigSize : sizes) {
+                size += contigSize;
+            }
+            return size;
+        }
+
+        /**
+         * Sorts the intervals added, and merges them by a rule.
+         */
+        public IntervalArraySet build(final IntervalMergingRule rule) {
+            final int[][] starts = new int[intervals.length][];
+            final int[][] ends = new int[intervals.length][];
+            for (int contig = 0; contig < intervals.length; contig++) {
+                final int n = sizes[contig];
+                if (n == 0) {
+                    starts[contig] = NO_POSITIONS;
+                    ends[contig] = NO_POSITIONS;
+                    continue;
+                }
+                final long[] packed = intervals[contig];
+                Arrays.sort(packed, 0, n);
+                final int[] contigStarts = new int[n];
+                final int[] contigEnds = new int[n];
+                for (int i = 0; i < n; i++) {
+                    contigStarts[i] = (int) (packed[i] >> 32);
+                    contigEnds[i] = (int) packed[i];
+                }
+                mergeSorted(contigStarts, contigEnds, n, rule, starts, ends, contig);
+            }
+            return new IntervalArraySet(dictionary, starts, ends, includesUnmapped);
+        }
+
+        private int getContigIndex(final String contig) {
+            if (!contig.equals(lastContig)) {
+                if (contigIndexes == null) {
+                    contigIndexes = new HashMap<>(2 * dictionary.size());
+                    for (final SAMSequenceRecord sequence : dictionary.getSequences()) {
+                        contigIndexes.put(sequence.getSequenceName(), sequence.getSequenceIndex());
+                    }
+                }
+                lastContig = contig;
+                lastContigIndex = contigIndexes.getOrDefault(contig, -1);
+            }
+            return lastContigIndex;
+        }
+
+        /**
+         * Splits the first three fields of a BED line from the rest, as the BED codec splits lines: on a tab or on a
+         * run of spaces. Lines without spaces, the usual case, are split without a regular expression.
+         *
+         * @return the fields found, with the rest of the line (if any) as a last element
+         */
+        private static String[] splitFields(final String line) {
+            if (line.indexOf(' ') >= 0) {
+                return BED_FIELD_SEPARATOR.split(line, 4);
+            }
+            final String[] fields = new String[4];
+            int numFields = 0;
+            int fieldStart = 0;
+            while (numFields < 3) {
+                final int tab = line.indexOf('\t', fieldStart);
+                if (tab < 0) {
+                    break;
+                }
+                fields[numFields++] = line.substring(fieldStart, tab);
+                fieldStart = tab + 1;
+            }
+            fields[numFields++] = line.substring(fieldStart);
+            return Arrays.copyOf(fields, numFields);
+        }
+    }
+}
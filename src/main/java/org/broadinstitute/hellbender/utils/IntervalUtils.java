@@ -227,6 +227,71 @@ public final class IntervalUtils {
         return sortAndMergeIntervals(genomeLocParser, allIntervals, intervalMergingRule);
     }
 
+    /**
+     * Loads intervals as {@link #loadIntervals} does, into an {@link IntervalArraySet} rather than a
+     * {@link GenomeLocSortedSet}. BED files and Picard interval lists are read directly into the set (see
+     * {@link IntervalArraySet.Builder#addBedFile} and {@link IntervalArraySet.Builder#addIntervalListFile}), without
+     * making a GenomeLoc for each interval; other interval arguments, and files that the direct readers reject, are
+     * parsed by {@link #parseIntervalArguments(GenomeLocParser, String)}.
+     */
+    public static IntervalArraySet loadIntervalArraySet(
+            final List<String> intervalStrings,
+            final IntervalSetRule intervalSetRule,
+            final IntervalMergingRule intervalMergingRule,
+            final int padding,
+            final GenomeLocParser genomeLocParser) {
+        Utils.nonNull(intervalStrings);
+        Utils.nonNull(genomeLocParser);
+        IntervalArraySet allIntervals = IntervalArraySet.empty(genomeLocParser.getSequenceDictionary());
+        for ( final String intervalString : intervalStrings) {
+            Utils.nonNull(intervalString);
+            IntervalArraySet intervals = parseIntervalArgumentToArraySet(genomeLocParser, intervalString, intervalMergingRule);
+
+            if ( padding > 0 ) {
+                intervals = intervals.pad(padding);
+            }
+
+            // as mergeListsBySetOperator, if either set is empty the other one is kept
+            if ( allIntervals.isEmpty() ) {
+                allIntervals = intervals;
+            } else if ( !intervals.isEmpty() ) {
+                if ( intervalSetRule == IntervalSetRule.INTERSECTION ) {
+                    allIntervals = allIntervals.intersect(intervals, intervalMergingRule);
+                    if ( allIntervals.isEmpty() ) {
+                        throw new UserException.EmptyIntersection("There was an empty intersection");
+                    }
+                } else {
+                    allIntervals = allIntervals.union(intervals, intervalMergingRule);
+                }
+            }
+        }
+        return allIntervals;
+    }
+
+    private static IntervalArraySet parseIntervalArgumentToArraySet(final GenomeLocParser parser, final String arg, final IntervalMergingRule mergingRule) {
+        final SAMSequenceDictionary dictionary = parser.getSequenceDictionary();
+        final File file = new File(arg);
+        if ( arg.indexOf(';') == -1 && file.isFile() ) {
+            final IntervalArraySet.Builder builder = new IntervalArraySet.Builder(dictionary);
+            final boolean isFeatureFile = FeatureManager.isFeatureFile(file);
+            try {
+                if ( isFeatureFile && arg.toLowerCase().endsWith(".bed") && builder.addBedFile(file) ) {
+                    return builder.build(mergingRule);
+                }
+            } catch ( final IOException e ) {
+                throw new UserException.CouldNotReadInputFile(file, e);
+            }
+            if ( !isFeatureFile && isIntervalFile(arg) && builder.addIntervalListFile(file) ) {
+                if ( builder.size() == 0 ) {
+                    throw new UserException.MalformedFile(file, "It contains no intervals.");
+                }
+                return builder.build(mergingRule);
+            }
+        }
+        final IntervalArraySet.Builder builder = new IntervalArraySet.Builder(dictionary);
+        parseIntervalArguments(parser, arg).forEach(builder::add);
+        return builder.build(mergingRule);
+    }
 
     /**
      * Turns a set of strings describing intervals into a parsed set of intervals.  Valid string elements can be files,
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.utils;
 
+import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.util.Histogram;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.log4j.Logger;
@@ -171,6 +172,40 @@ public class MannWhitneyU {
     private static final double NORMAL_SD = 1;
     private static final NormalDistribution NORMAL = new NormalDistribution(NORMAL_MEAN, NORMAL_SD);
 
+    /**
+     * Series at least this long whose values are all integers in [0, {@link #COUNTING_SORT_MAX_VALUE}], such as mapping
+     * and base qualities, are sorted with a counting sort rather than {@link Arrays#sort(double[])}.
+     */
+    private static final int COUNTING_SORT_MIN_LENGTH = 32;
+    private static final int COUNTING_SORT_MAX_VALUE = 255;
+
+    /**
+     * Buffers for the ranking done by {@link #test}, reused across calls so that ranking allocates nothing once they
+     * are large enough. Rank sum annotations run the test at every site, creating a new instance of this class each
+     * time, so the buffers are per thread rather than per instance.
+     */
+    private static final class RankBuffers {
+        // the values of both series in merged order, whether each one comes from the first series, and its rank
+        double[] values = new double[0];
+        boolean[] fromFirstSeries = new boolean[0];
+        float[] ranks = new float[0];
+
+        final int[] valueCounts = new int[COUNTING_SORT_MAX_VALUE + 1];
+
+        // the positions of the current combination in the permutation test
+        int[] combination = new int[0];
+
+        void ensureCapacity(final int length) {
+            if (values.length < length) {
+                values = new double[length];
+                fromFirstSeries = new boolean[length];
+                ranks = new float[length];
+            }
+        }
+    }
+
+    private static final ThreadLocal<RankBuffers> RANK_BUFFERS = ThreadLocal.withInitial(RankBuffers::new);
+
     /**
      * A map of an Integer[] of the labels to the set of all possible permutations of those labels.
      */
@@ -365,6 +400,8 @@ public class MannWhitneyU {
     /**
      * Constructs a new rank sum test with the given data.
      *
+     * Both series are sorted in place.
+     *
      * @param series1   group 1 data
      * @param series2   group 2 data
      * @param whichSide indicator of two sided test, 0 for two sided, 1 for series1 as dominator, 2 for series2 as dominator
@@ -379,6 +416,62 @@ public class MannWhitneyU {
             return new Result(Float.NaN, Float.NaN, Float.NaN, Float.NaN);
         }
 
+        final RankBuffers buffers = RANK_BUFFERS.get();
+        final double nties = rank(series1, series2, buffers);
+
+        // Calculate R1 and R2 and U, in the same order and precision as calculateU1andU2 so that the results are identical.
+        float r1 = 0, r2 = 0;
+        final float[] ranks = buffers.ranks;
+        final boolean[] fromFirstSeries = buffers.fromFirstSeries;
+        for (int i = 0; i < n1 + n2; i++) {
+            if (fromFirstSeries[i]) r1 += ranks[i];
+            else r2 += ranks[i];
+        }
+        final double u1 = r1 - ((n1 * (n1 + 1.0)) / 2);
+        final double u2 = r2 - ((n2 * (n2 + 1.0)) / 2);
+
+        final double u;
+        if (whichSide == TestType.TWO_SIDED) {
+            u = Math.min(u1, u2);
+        } else {
+            u = whichSide == TestType.FIRST_DOMINATES ? u1 : u2;
+        }
+
+        double z;
+        double p;
+
+        if (n1 >= this.minimumNormalN || n2 >= this.minimumNormalN) {
+            z = calculateZ(u, n1, n2, nties, whichSide);
+            p = 2 * NORMAL.cumulativeProbability(NORMAL_MEAN + z * NORMAL_SD);
+            if (whichSide != TestType.TWO_SIDED) {
+                p = p / 2;
+            }
+        } else {
+            // TODO -- This exact test is only implemented for the one sided test, but we currently don't call the two sided version
+            if (whichSide != TestType.FIRST_DOMINATES) {
+                logger.warn("An exact two-sided MannWhitneyU test was called. Only the one-sided exact test is implemented, use the approximation instead by setting minimumNormalN to 0.");
+            }
+            p = permutationTest(buffers, n1, n2, u);
+            z = NORMAL.inverseCumulativeProbability(p);
+        }
+
+        return new Result(u, z, p, Math.abs(median(series1) - median(series2)));
+    }
+
+    /**
+     * The original implementation of {@link #test}, which ranks the data with {@link #calculateRank}. Kept as the
+     * reference for {@link #test}, which must give identical results.
+     */
+    @VisibleForTesting
+    Result testWithRankObjects(final double[] series1, final double[] series2, final TestType whichSide) {
+        final int n1 = series1.length;
+        final int n2 = series2.length;
+
+        //If one of the groups is empty we return NaN
+        if (n1 == 0 || n2 == 0) {
+            return new Result(Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+        }
+
         double u;
         double nties;
 
@@ -402,10 +495,6 @@ public class MannWhitneyU {
                 p = p / 2;
             }
         } else {
-            // TODO -- This exact test is only implemented for the one sided test, but we currently don't call the two sided version
-            if (whichSide != TestType.FIRST_DOMINATES) {
-                logger.warn("An exact two-sided MannWhitneyU test was called. Only the one-sided exact test is implemented, use the approximation instead by setting minimumNormalN to 0.");
-            }
             p = permutationTest(series1, series2, u);
             z = NORMAL.inverseCumulativeProbability(p);
         }
@@ -413,6 +502,131 @@ public class MannWhitneyU {
         return new Result(u, z, p, Math.abs(median(series1) - median(series2)));
     }
 
+    /**
+     * Sorts both series in place and ranks them together into the buffers, as {@link #calculateRank} does but without
+     * creating any objects: tied values get the average of their ranks, computed in float as there.
+     *
+     * @return the transformed number of ties, as computed by {@link #transformTies}.
+     */
+    private static double rank(final double[] series1, final double[] series2, final RankBuffers buffers) {
+        sort(series1, buffers);
+        sort(series2, buffers);
+
+        final int length = series1.length + series2.length;
+        buffers.ensureCapacity(length);
+        final double[] values = buffers.values;
+        final boolean[] fromFirstSeries = buffers.fromFirstSeries;
+        final float[] ranks = buffers.ranks;
+
+        // Merge the two series, taking the first series first on equal values
+        for (int i = 0, j = 0, r = 0; r < length; r++) {
+            final boolean first = j >= series2.length || (i < series1.length && series1[i] <= series2[j]);
+            values[r] = first ? series1[i++] : series2[j++];
+            fromFirstSeries[r] = first;
+            ranks[r] = r + 1;
+        }
+
+        // Average the ranks of each tie band, and accumulate the ties for sigma in the same pass
+        double numOfTiesForSigma = 0.0;
+        for (int i = 0; i < length; ) {
+            float rank = ranks[i];
+            int count = 1;
+            for (int j = i + 1; j < length && values[j] == values[i]; ++j) {
+                rank += ranks[j];
+                ++count;
+            }
+
+            if (count > 1) {
+                rank /= count;
+                Arrays.fill(ranks, i, i + count, rank);
+                if (count != length) {
+                    numOfTiesForSigma += Math.pow(count, 3) - count;
+                }
+            }
+            i += count;
+        }
+        return numOfTiesForSigma;
+    }
+
+    /**
+     * Sorts a series in place, with a counting sort if it is long enough and all its values are small non-negative
+     * integers, which is the case for mapping and base qualities.
+     */
+    private static void sort(final double[] series, final RankBuffers buffers) {
+        if (series.length < COUNTING_SORT_MIN_LENGTH) {
+            Arrays.sort(series);
+            return;
+        }
+
+        final int[] valueCounts = buffers.valueCounts;
+        Arrays.fill(valueCounts, 0);
+        for (final double value : series) {
+            final int intValue = (int) value;
+            // the sign bit check rejects -0.0, which sorts before 0.0 and would not survive the round trip
+            if (intValue != value || intValue > COUNTING_SORT_MAX_VALUE || Double.doubleToRawLongBits(value) < 0) {
+                Arrays.sort(series);
+                return;
+            }
+            valueCounts[intValue]++;
+        }
+
+        for (int value = 0, i = 0; i < series.length; value++) {
+            for (int count = valueCounts[value]; count > 0; count--) {
+                series[i++] = value;
+            }
+        }
+    }
+
+    /**
+     * Computes the p-value of the exact test from the ranks left in the buffers by {@link #rank}, as
+     * {@link #permutationTest(double[], double[], double)} does, by enumerating the subsets of n1 ranks rather than
+     * the permutations of the series labels.
+     */
+    private static double permutationTest(final RankBuffers buffers, final int n1, final int n2, final double testStatU) {
+        final int length = n1 + n2;
+        final float[] ranks = buffers.ranks;
+        if (buffers.combination.length < n1) {
+            buffers.combination = new int[n1];
+        }
+        final int[] combination = buffers.combination;
+        for (int i = 0; i < n1; i++) {
+            combination[i] = i;
+        }
+
+        long equalCount = 0;
+        long smallerCount = 0;
+        long totalCount = 0;
+        while (true) {
+            double sum = 0.0;
+            for (int i = 0; i < n1; i++) {
+                sum += ranks[combination[i]];
+            }
+            final double newU = sum - ((n1 * (n1 + 1)) / 2.0);
+            if (newU == testStatU) {
+                equalCount++;
+            } else if (newU < testStatU) {
+                smallerCount++;
+            }
+            totalCount++;
+
+            // advance to the next combination in lexicographic order
+            int k = n1 - 1;
+            while (k >= 0 && combination[k] == length - n1 + k) {
+                k--;
+            }
+            if (k < 0) {
+                break;
+            }
+            combination[k]++;
+            for (int i = k + 1; i < n1; i++) {
+                combination[i] = combination[i - 1] + 1;
+            }
+        }
+
+        // see permutationTest(double[], double[], double) for why half of the observed bin is counted
+        return (equalCount / 2.0 + smallerCount) / totalCount;
+    }
+
     private void swap(Integer[] arr, int i, int j) {
         int temp = arr[i];
         arr[i] = arr[j];
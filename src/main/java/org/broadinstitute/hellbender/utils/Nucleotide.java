@@ -82,6 +82,17 @@ public enum Nucleotide {
             counts[Utils.nonNull(nucleotide).ordinal()]++;
         }
 
+        /**
+         * Increases the count for a nucleotide by a given amount.
+         * @param nucleotide the target nucleotide.
+         * @param count the amount to add.
+         * @throws IllegalArgumentException if nucleotide is {@code null} or {@code count} is negative.
+         */
+        public void add(final Nucleotide nucleotide, final long count) {
+            Utils.validateArg(count >= 0, "count must be non-negative");
+            counts[Utils.nonNull(nucleotide).ordinal()] += count;
+        }
+
         /**
          * Increases the nucleotide that corresponds to the input base own count by 1.
          * @param base the base code.
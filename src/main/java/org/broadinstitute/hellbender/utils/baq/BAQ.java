@@ -15,8 +15,13 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 /*
   The topology of the profile HMM:
@@ -89,6 +94,18 @@ public final class BAQ implements Serializable {
     private double ce = 0.1;    // gap extension probability [0.1]
     private int cb = DEFAULT_BANDWIDTH;   // band width [7]
 
+    /**
+     * If true, the forward and backward matrices are stored in single precision, which halves their size but
+     * gives results that may differ slightly from the double precision (samtools-compatible) calculation
+     */
+    private boolean useSinglePrecision = false;
+
+    // forward and backward matrices and scaling factors for hmm_glocal, grown as needed and reused between calls.
+    // Because of these, a BAQ object must not be used by more than one thread at a time.
+    private transient BandMatrix forwardMatrix;
+    private transient BandMatrix backwardMatrix;
+    private transient double[] scalingFactors;
+
     public byte getMinBaseQual() {
         return minBaseQual;
     }
@@ -134,10 +151,28 @@ public final class BAQ implements Serializable {
      * @param minBaseQual All bases with Q < minBaseQual are up'd to this value
      */
 	public BAQ(final double d, final double e, final int b, final byte minBaseQual) {
-		cd = d; ce = e; cb = b;
+		this(d, e, b, minBaseQual, false);
+	}
+
+    /**
+     * Create a new HmmGlocal object with specified parameters
+     *
+     * @param d gap open prob (not phred scaled!).
+     * @param e gap extension prob.
+     * @param b band width
+     * @param minBaseQual All bases with Q < minBaseQual are up'd to this value
+     * @param useSinglePrecision store the forward and backward matrices in single precision
+     */
+    public BAQ(final double d, final double e, final int b, final byte minBaseQual, final boolean useSinglePrecision) {
+        cd = d; ce = e; cb = b;
         this.minBaseQual = minBaseQual;
+        this.useSinglePrecision = useSinglePrecision;
         initializeCachedData();
-	}
+    }
+
+    public boolean usesSinglePrecision() {
+        return useSinglePrecision;
+    }
 
     private static final double EM = 0.33333333333;
     private static final double EI = 0.25;
@@ -177,7 +212,7 @@ public final class BAQ implements Serializable {
         if ( query == null ) throw new GATKException("BUG: query sequence is null");
         if ( _iqual == null ) throw new GATKException("BUG: query quality vector is null");
         if ( query.length != _iqual.length ) throw new GATKException("BUG: read sequence length != qual length");
-        if ( l_query < 1 ) throw new GATKException("BUG: length of query sequence < 0: " + l_query);
+        if ( l_query < 1 ) throw new GATKException("BUG: length of query sequence < 1: " + l_query);
         if ( qstart < 0 ) throw new GATKException("BUG: query sequence start < 0: " + qstart);
 
         //if ( q != null && q.length != state.length ) throw new GATKException("BUG: BAQ quality length != read sequence length");
@@ -204,10 +239,11 @@ public final class BAQ implements Serializable {
         //System.out.printf("c->bw = %d, bw = %d, l_ref = %d, l_query = %d\n", cb, bw, l_ref, l_query);
 		bw2 = bw * 2 + 1;
 
-        // allocate the forward and backward matrices f[][] and b[][] and the scaling array s[]
-		double[][] f = new double[l_query+1][bw2*3 + 6];
-		double[][] b = new double[l_query+1][bw2*3 + 6];
-		double[] s = new double[l_query+2];
+        // get the forward and backward matrices f[][] and b[][] and the scaling array s[], zeroed as if newly allocated
+		if (forwardMatrix == null) { forwardMatrix = newBandMatrix(); backwardMatrix = newBandMatrix(); }
+		final BandMatrix f = forwardMatrix, b = backwardMatrix;
+		f.reset(l_query+1, bw2*3 + 6); b.reset(l_query+1, bw2*3 + 6);
+		final double[] s = scalingFactors = scalingFactors != null && scalingFactors.length >= l_query+2 ? scalingFactors : new double[l_query+2];
 
 		// initialize transition probabilities
 		double sM, sI, bM, bI;
@@ -222,27 +258,25 @@ public final class BAQ implements Serializable {
 
 		/*** forward ***/
 		// f[0]
-		f[0][set_u(bw, 0, 0)] = s[0] = 1.;
+		f.set(0, set_u(bw, 0, 0), 1.); s[0] = 1.;
 		{ // f[1]
-			double[] fi = f[1];
 			double sum;
 			int beg = 1, end = l_ref < bw + 1? l_ref : bw + 1, _beg, _end;
 			for (k = beg, sum = 0.; k <= end; ++k) {
 				int u;
                 double e = calcEpsilon(ref[k-1], query[qstart], _iqual[qstart]);
 				u = set_u(bw, 1, k);
-				fi[u+0] = e * bM; fi[u+1] = EI * bI;
-				sum += fi[u] + fi[u+1];
+				f.set(1, u+0, e * bM); f.set(1, u+1, EI * bI);
+				sum += f.get(1, u) + f.get(1, u+1);
 			}
 			// rescale
 			s[1] = sum;
 			_beg = set_u(bw, 1, beg); _end = set_u(bw, 1, end); _end += 2;
-			for (k = _beg; k <= _end; ++k) fi[k] /= sum;
+			for (k = _beg; k <= _end; ++k) f.set(1, k, f.get(1, k) / sum);
 		}
 
 		// f[2..l_query]
 		for (i = 2; i <= l_query; ++i) {
-			double[] fi = f[i], fi1 = f[i-1];
 			double sum;
 			int beg = 1, end = l_ref, x, _beg, _end;
 			byte qyi = query[qstart+i-1];
@@ -252,23 +286,23 @@ public final class BAQ implements Serializable {
 				int u, v11, v01, v10;
                 double e = calcEpsilon(ref[k-1], qyi, _iqual[qstart+i-1]);
 				u = set_u(bw, i, k); v11 = set_u(bw, i-1, k-1); v10 = set_u(bw, i-1, k); v01 = set_u(bw, i, k-1);
-				fi[u+0] = e * (m[0] * fi1[v11+0] + m[3] * fi1[v11+1] + m[6] * fi1[v11+2]);
-				fi[u+1] = EI * (m[1] * fi1[v10+0] + m[4] * fi1[v10+1]);
-				fi[u+2] = m[2] * fi[v01+0] + m[8] * fi[v01+2];
-				sum += fi[u] + fi[u+1] + fi[u+2];
+				f.set(i, u+0, e * (m[0] * f.get(i-1, v11+0) + m[3] * f.get(i-1, v11+1) + m[6] * f.get(i-1, v11+2)));
+				f.set(i, u+1, EI * (m[1] * f.get(i-1, v10+0) + m[4] * f.get(i-1, v10+1)));
+				f.set(i, u+2, m[2] * f.get(i, v01+0) + m[8] * f.get(i, v01+2));
+				sum += f.get(i, u) + f.get(i, u+1) + f.get(i, u+2);
 				//System.out.println("("+i+","+k+";"+u+"): "+fi[u]+","+fi[u+1]+","+fi[u+2]);
 			}
 			// rescale
 			s[i] = sum;
 			_beg = set_u(bw, i, beg); _end = set_u(bw, i, end); _end += 2;
-			for (k = _beg, sum = 1./sum; k <= _end; ++k) fi[k] *= sum;
+			for (k = _beg, sum = 1./sum; k <= _end; ++k) f.set(i, k, f.get(i, k) * sum);
 		}
 		{ // f[l_query+1]
 			double sum;
 			for (k = 1, sum = 0.; k <= l_ref; ++k) {
 				int u = set_u(bw, l_query, k);
 				if (u < 3 || u >= bw2*3+3) continue;
-				sum += f[l_query][u+0] * sM + f[l_query][u+1] * sI;
+				sum += f.get(l_query, u+0) * sM + f.get(l_query, u+1) * sI;
 			}
 			s[l_query+1] = sum; // the last scaling factor
 		}
@@ -277,14 +311,12 @@ public final class BAQ implements Serializable {
 		// b[l_query] (b[l_query+1][0]=1 and thus \tilde{b}[][]=1/s[l_query+1]; this is where s[l_query+1] comes from)
 		for (k = 1; k <= l_ref; ++k) {
 			int u = set_u(bw, l_query, k);
-			double[] bi = b[l_query];
 			if (u < 3 || u >= bw2*3+3) continue;
-			bi[u+0] = sM / s[l_query] / s[l_query+1]; bi[u+1] = sI / s[l_query] / s[l_query+1];
+			b.set(l_query, u+0, sM / s[l_query] / s[l_query+1]); b.set(l_query, u+1, sI / s[l_query] / s[l_query+1]);
 		}
 		// b[l_query-1..1]
 		for (i = l_query - 1; i >= 1; --i) {
 			int beg = 1, end = l_ref, x, _beg, _end;
-			double[] bi = b[i], bi1 = b[i+1];
 			double y = (i > 1)? 1. : 0.;
 			byte qyi1 = query[qstart+i];
 			x = i - bw; beg = beg > x? beg : x;
@@ -292,14 +324,14 @@ public final class BAQ implements Serializable {
 			for (k = end; k >= beg; --k) {
 				int u, v11, v01, v10;
 				u = set_u(bw, i, k); v11 = set_u(bw, i+1, k+1); v10 = set_u(bw, i+1, k); v01 = set_u(bw, i, k+1);
-                final double e = (k >= l_ref? 0 : calcEpsilon(ref[k], qyi1, _iqual[qstart+i])) * bi1[v11];
-                bi[u+0] = e * m[0] + EI * m[1] * bi1[v10+1] + m[2] * bi[v01+2]; // bi1[v11] has been folded into e.
-				bi[u+1] = e * m[3] + EI * m[4] * bi1[v10+1];
-				bi[u+2] = (e * m[6] + m[8] * bi[v01+2]) * y;
+                final double e = (k >= l_ref? 0 : calcEpsilon(ref[k], qyi1, _iqual[qstart+i])) * b.get(i+1, v11);
+                b.set(i, u+0, e * m[0] + EI * m[1] * b.get(i+1, v10+1) + m[2] * b.get(i, v01+2)); // b[i+1][v11] has been folded into e.
+				b.set(i, u+1, e * m[3] + EI * m[4] * b.get(i+1, v10+1));
+				b.set(i, u+2, (e * m[6] + m[8] * b.get(i, v01+2)) * y);
 			}
 			// rescale
 			_beg = set_u(bw, i, beg); _end = set_u(bw, i, end); _end += 2;
-			for (k = _beg, y = 1./s[i]; k <= _end; ++k) bi[k] *= y;
+			for (k = _beg, y = 1./s[i]; k <= _end; ++k) b.set(i, k, b.get(i, k) * y);
 		}
 
  		double pb;
@@ -310,24 +342,23 @@ public final class BAQ implements Serializable {
 				int u = set_u(bw, 1, k);
                 double e = calcEpsilon(ref[k-1], query[qstart], _iqual[qstart]);
                 if (u < 3 || u >= bw2*3+3) continue;
-				sum += e * b[1][u+0] * bM + EI * b[1][u+1] * bI;
+				sum += e * b.get(1, u+0) * bM + EI * b.get(1, u+1) * bI;
 			}
-			pb = b[0][set_u(bw, 0, 0)] = sum / s[0]; // if everything works as is expected, pb == 1.0
+			pb = sum / s[0]; b.set(0, set_u(bw, 0, 0), pb); // if everything works as is expected, pb == 1.0
 		}
 
         
 		/*** MAP ***/
 		for (i = 1; i <= l_query; ++i) {
 			double sum = 0., max = 0.;
-			final double[] fi = f[i], bi = b[i];
 			int beg = 1, end = l_ref, x, max_k = -1;
 			x = i - bw; beg = beg > x? beg : x;
 			x = i + bw; end = end < x? end : x;
 			for (k = beg; k <= end; ++k) {
 				final int u = set_u(bw, i, k);
 				double z;
-				sum += (z = fi[u+0] * bi[u+0]); if (z > max) { max = z; max_k = (k-1)<<2 | 0; }
-				sum += (z = fi[u+1] * bi[u+1]); if (z > max) { max = z; max_k = (k-1)<<2 | 1; }
+				sum += (z = f.get(i, u+0) * b.get(i, u+0)); if (z > max) { max = z; max_k = (k-1)<<2 | 0; }
+				sum += (z = f.get(i, u+1) * b.get(i, u+1)); if (z > max) { max = z; max_k = (k-1)<<2 | 1; }
 			}
 			max /= sum; sum *= s[i]; // if everything works as is expected, sum == 1.0
 			if (state != null) state[qstart+i-1] = max_k;
@@ -363,6 +394,77 @@ public final class BAQ implements Serializable {
 		return (k + 1 - x) * 3;
 	}
 
+    private BandMatrix newBandMatrix() {
+        return useSinglePrecision ? new FloatBandMatrix() : new DoubleBandMatrix();
+    }
+
+    /**
+     * A forward or backward matrix of hmm_glocal, grown as needed and reused between calls.
+     * Entries are read and written as doubles, so all the arithmetic is done in double precision whatever the storage;
+     * single precision storage only rounds each entry as it is stored.
+     */
+    private abstract static class BandMatrix {
+        /**
+         * Makes the matrix have at least rows x cols entries, with those entries zeroed.
+         * hmm_glocal relies on entries outside the band being zero, as they would be in a newly allocated matrix.
+         */
+        abstract void reset(final int rows, final int cols);
+
+        abstract double get(final int i, final int u);
+
+        abstract void set(final int i, final int u, final double value);
+    }
+
+    private static final class DoubleBandMatrix extends BandMatrix {
+        private double[][] values;
+
+        @Override
+        void reset(final int rows, final int cols) {
+            if ( values == null || values.length < rows || values[0].length < cols ) {
+                values = new double[values == null ? rows : Math.max(rows, values.length)][values == null ? cols : Math.max(cols, values[0].length)];
+                return;
+            }
+            for ( int i = 0; i < rows; i++ ) {
+                Arrays.fill(values[i], 0, cols, 0.0);
+            }
+        }
+
+        @Override
+        double get(final int i, final int u) {
+            return values[i][u];
+        }
+
+        @Override
+        void set(final int i, final int u, final double value) {
+            values[i][u] = value;
+        }
+    }
+
+    private static final class FloatBandMatrix extends BandMatrix {
+        private float[][] values;
+
+        @Override
+        void reset(final int rows, final int cols) {
+            if ( values == null || values.length < rows || values[0].length < cols ) {
+                values = new float[values == null ? rows : Math.max(rows, values.length)][values == null ? cols : Math.max(cols, values[0].length)];
+                return;
+            }
+            for ( int i = 0; i < rows; i++ ) {
+                Arrays.fill(values[i], 0, cols, 0.0f);
+            }
+        }
+
+        @Override
+        double get(final int i, final int u) {
+            return values[i][u];
+        }
+
+        @Override
+        void set(final int i, final int u, final double value) {
+            values[i][u] = (float) value;
+        }
+    }
+
     // ---------------------------------------------------------------------------------------------------------------
     //
     // Actually working with the BAQ tag now
@@ -518,6 +620,75 @@ public final class BAQ implements Serializable {
         }
     }
 
+    /**
+     * Calculates BAQ for a batch of reads, querying the reference once for each run of consecutive reads on the same
+     * contig rather than once per read. The reads should be coordinate sorted, and close enough together that the
+     * reference span of each run is reasonable.
+     *
+     * @param reads reads to BAQ
+     * @param refDS source of reference bases
+     * @return the BAQ results for the reads, in order, with null for each read that cannot be BAQ'ed
+     */
+    public List<BAQCalculationResult> calcBAQFromHMM(final List<GATKRead> reads, final ReferenceDataSource refDS) {
+        Utils.nonNull(reads);
+        Utils.nonNull(refDS);
+        final List<BAQCalculationResult> results = new ArrayList<>(reads.size());
+        int runStart = 0;
+        while ( runStart < reads.size() ) {
+            final String contig = reads.get(runStart).getContig();
+            final int contigLength = refDS.getSequenceDictionary().getSequence(contig).getSequenceLength();
+            int runEnd = runStart;
+            int windowStart = Integer.MAX_VALUE;
+            int windowEnd = 0;
+            final List<SimpleInterval> readWindows = new ArrayList<>();
+            for ( ; runEnd < reads.size() && reads.get(runEnd).getContig().equals(contig); runEnd++ ) {
+                final SimpleInterval readWindow = getReferenceWindowForRead(reads.get(runEnd), getBandWidth());
+                if ( readWindow.getEnd() <= contigLength ) {
+                    windowStart = Math.min(windowStart, readWindow.getStart());
+                    windowEnd = Math.max(windowEnd, readWindow.getEnd());
+                }
+                readWindows.add(readWindow);
+            }
+
+            final ReferenceBases reference = windowEnd == 0 ? null :
+                    new ReferenceBases(refDS.queryAndPrefetch(contig, windowStart, windowEnd).getBases(), new SimpleInterval(contig, windowStart, windowEnd));
+            for ( int i = runStart; i < runEnd; i++ ) {
+                final SimpleInterval readWindow = readWindows.get(i - runStart);
+                results.add(readWindow.getEnd() > contigLength ? null : calcBAQFromHMM(reads.get(i), readWindow, reference));
+            }
+            runStart = runEnd;
+        }
+        return results;
+    }
+
+    /**
+     * Calculates BAQ for a batch of reads against a single window of reference bases, which must cover the
+     * {@link #getReferenceWindowForRead reference window} of every read.
+     *
+     * @param reads reads to BAQ
+     * @param reference reference bases covering the reads
+     * @return the BAQ results for the reads, in order, with null for each read that cannot be BAQ'ed
+     */
+    public List<BAQCalculationResult> calcBAQFromHMM(final List<GATKRead> reads, final ReferenceBases reference) {
+        Utils.nonNull(reads);
+        Utils.nonNull(reference);
+        final List<BAQCalculationResult> results = new ArrayList<>(reads.size());
+        for ( final GATKRead read : reads ) {
+            final SimpleInterval readWindow = getReferenceWindowForRead(read, getBandWidth());
+            Utils.validateArg(reference.getInterval().contains(readWindow),
+                    () -> "Reference bases " + reference.getInterval() + " do not cover the reference window " + readWindow + " of read " + read.getName());
+            results.add(calcBAQFromHMM(read, readWindow, reference));
+        }
+        return results;
+    }
+
+    // copies the read's own reference window out of the shared one, so that the result's refBases are the same as for a single read
+    private BAQCalculationResult calcBAQFromHMM(final GATKRead read, final SimpleInterval readWindow, final ReferenceBases reference) {
+        final int windowOffset = readWindow.getStart() - reference.getInterval().getStart();
+        final byte[] readRefBases = Arrays.copyOfRange(reference.getBases(), windowOffset, windowOffset + readWindow.size());
+        return calcBAQFromHMM(read, readRefBases, readWindow.getStart() - read.getStart());
+    }
+
     public BAQCalculationResult calcBAQFromHMM(byte[] ref, byte[] query, byte[] quals, int queryStart, int queryEnd ) {
         if ( queryStart < 0 ) throw new GATKException("BUG: queryStart < 0: " + queryStart);
         if ( queryEnd < 0 ) throw new GATKException("BUG: queryEnd < 0: " + queryEnd);
@@ -637,7 +808,42 @@ public final class BAQ implements Serializable {
      */
     public byte[] baqRead(GATKRead read, ReferenceDataSource refDS, CalculationMode calculationType, QualityMode qmode ) {
         if ( DEBUG ) System.out.printf("BAQ %s read %s%n", calculationType, read.getName());
+        final BAQCalculationResult hmmResult = needsHMM(read, calculationType) ? calcBAQFromHMM(read, refDS) : null;
+        return applyBAQ(read, hmmResult, calculationType, qmode);
+    }
+
+    /**
+     * As {@link #baqRead}, for a batch of reads. The reads that need the HMM are BAQ'ed with
+     * {@link #calcBAQFromHMM(List, ReferenceDataSource)}, so the reads should be coordinate sorted and close together.
+     *
+     * @return BQ qualities for use for each read, in order, in case qmode is DONT_MODIFY
+     */
+    public List<byte[]> baqReads(final List<GATKRead> reads, final ReferenceDataSource refDS, final CalculationMode calculationType, final QualityMode qmode ) {
+        Utils.nonNull(reads);
+        final boolean[] needsHMM = new boolean[reads.size()];
+        final List<GATKRead> hmmReads = new ArrayList<>();
+        for ( int i = 0; i < reads.size(); i++ ) {
+            needsHMM[i] = needsHMM(reads.get(i), calculationType);
+            if ( needsHMM[i] ) {
+                hmmReads.add(reads.get(i));
+            }
+        }
+        final Iterator<BAQCalculationResult> hmmResults = calcBAQFromHMM(hmmReads, refDS).iterator();
+
+        final List<byte[]> BAQQuals = new ArrayList<>(reads.size());
+        for ( int i = 0; i < reads.size(); i++ ) {
+            BAQQuals.add(applyBAQ(reads.get(i), needsHMM[i] ? hmmResults.next() : null, calculationType, qmode));
+        }
+        return BAQQuals;
+    }
+
+    private boolean needsHMM(final GATKRead read, final CalculationMode calculationType) {
+        return calculationType != CalculationMode.OFF && ! excludeReadFromBAQ(read)
+                && (calculationType == CalculationMode.RECALCULATE || ! hasBAQTag(read));
+    }
 
+    // applies the result of the HMM, if it was needed, or else the BAQ tag, to read according to qmode
+    private byte[] applyBAQ(final GATKRead read, final BAQCalculationResult hmmResult, final CalculationMode calculationType, final QualityMode qmode ) {
         byte[] BAQQuals = read.getBaseQualities();      // in general we are overwriting quals, so just get a pointer to them
         if ( calculationType == CalculationMode.OFF) { // we don't want to do anything
             // just fall though
@@ -648,7 +854,6 @@ public final class BAQ implements Serializable {
 
             if ( calculationType == CalculationMode.RECALCULATE || ! readHasBAQTag ) {
                 if ( DEBUG ) System.out.printf("  Calculating BAQ on the fly%n");
-                BAQCalculationResult hmmResult = calcBAQFromHMM(read, refDS);
                 if ( hmmResult != null ) {
                     switch ( qmode ) {
                         case ADD_TAG:         addBAQTag(read, hmmResult.bq); break;
@@ -0,0 +1,491 @@
+package org.broadinstitute.hellbender.utils.collections;
+
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An external sort, like htsjdk's {@link SortingCollection}, that sorts and spills its runs on several threads.
+ *
+ * Records are added on the calling thread into a buffer; when the buffer is full, it is handed to a worker thread,
+ * which sorts it and spills it to a temporary file as a run, while the calling thread fills the next buffer. Runs are
+ * encoded with the given codec and compressed with the fastest deflate level, which usually makes the spill files a
+ * fraction of their encoded size for little CPU. At most {@code numThreads} runs are sorted and spilled at once, and
+ * there are that many buffers plus the one being filled, so no more than {@code maxRecordsInRam} records are held in
+ * memory while adding.
+ *
+ * {@link #iterator} merges the runs, and the records left in the last buffer, with a priority queue. Each run is read
+ * through a prefetching reader, which decodes the next batch of records of its run on a worker thread while the
+ * current batch is being merged. If no run was spilled, the records are sorted in memory and no file is written.
+ *
+ * The sort is stable: records that compare equal are returned in the order in which they were added.
+ */
+public final class ParallelSortingCollection<T> implements Iterable<T>, AutoCloseable {
+
+    /**
+     * Largest number of records decoded at once by the reader of a run while merging.
+     */
+    static final int MAX_PREFETCH_BATCH_SIZE = 1024;
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    private static final AtomicInteger collectionCount = new AtomicInteger();
+
+    private final SortingCollection.Codec<T> codec;
+    private final Comparator<T> comparator;
+    private final int maxRecordsInRam;
+    private final int numThreads;
+    private final int bufferSize;
+    private final List<File> tmpDirs;
+    private final ExecutorService executor;
+
+    private Object[] buffer;
+    private int numInBuffer = 0;
+    // runs being sorted and spilled, or spilled, in the order in which they were filled
+    private final List<Future<Run>> runs = new ArrayList<>();
+    private int runsInFlight = 0;
+
+    private boolean doneAdding = false;
+    private boolean iterated = false;
+    private boolean closed = false;
+
+    // statistics
+    private final long startNanos = System.nanoTime();
+    private long recordsAdded = 0;
+    private long addingWaits = 0;
+    private final AtomicLong spilledRecords = new AtomicLong();
+    private final AtomicLong encodedBytes = new AtomicLong();
+    private final AtomicLong spillBytes = new AtomicLong();
+    private long mergeStartNanos = 0;
+    private long recordsMerged = 0;
+
+    /**
+     * @param codec encodes the records into the spill files; it is cloned for each run
+     * @param comparator order of the records
+     * @param maxRecordsInRam maximum number of records to hold in memory while adding
+     * @param tmpDirs directories for the spill files, used in turn; if empty, the default temporary directory is used
+     * @param numThreads number of threads sorting and spilling runs, and reading them back while merging
+     */
+    public ParallelSortingCollection(final SortingCollection.Codec<T> codec, final Comparator<T> comparator,
+                                     final int maxRecordsInRam, final List<File> tmpDirs, final int numThreads) {
+        this.codec = Utils.nonNull(codec);
+        this.comparator = Utils.nonNull(comparator);
+        Utils.nonNull(tmpDirs);
+        Utils.validateArg(maxRecordsInRam > 0, "maxRecordsInRam must be positive");
+        Utils.validateArg(numThreads > 0, "numThreads must be positive");
+        this.maxRecordsInRam = maxRecordsInRam;
+        this.numThreads = numThreads;
+        this.bufferSize = Math.max(1, maxRecordsInRam / (numThreads + 1));
+        this.tmpDirs = tmpDirs.isEmpty() ? Collections.singletonList(null) : new ArrayList<>(tmpDirs);
+        this.buffer = new Object[bufferSize];
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder()
+                .setNameFormat("sorting-collection-" + collectionCount.getAndIncrement() + "-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Adds a record to be sorted.
+     */
+    public void add(final T record) {
+        Utils.validate(!doneAdding, "Records cannot be added once the collection has been iterated");
+        buffer[numInBuffer++] = record;
+        recordsAdded++;
+        if (numInBuffer == bufferSize) {
+            spillBuffer();
+        }
+    }
+
+    private void spillBuffer() {
+        // wait for a thread to be free, so that no more than maxRecordsInRam records are held at once
+        while (runsInFlight >= numThreads) {
+            final Future<Run> oldest = runs.get(runs.size() - runsInFlight);
+            if (!oldest.isDone()) {
+                addingWaits++;
+            }
+            getResult(oldest);
+            runsInFlight--;
+        }
+        final Object[] records = buffer;
+        final int numRecords = numInBuffer;
+        final File tmpDir = tmpDirs.get(runs.size() % tmpDirs.size());
+        // codecs are cloned here rather than on the workers, since cloning may not be thread-safe
+        final SortingCollection.Codec<T> encoder = codec.clone();
+        runs.add(executor.submit(() -> sortAndSpill(records, numRecords, encoder, tmpDir)));
+        runsInFlight++;
+        buffer = new Object[bufferSize];
+        numInBuffer = 0;
+    }
+
+    // runs on a worker thread
+    @SuppressWarnings("unchecked")
+    private Run sortAndSpill(final Object[] records, final int numRecords, final SortingCollection.Codec<T> encoder, final File tmpDir) {
+        Arrays.sort((T[]) records, 0, numRecords, comparator);
+        final File file;
+        try {
+            file = File.createTempFile("sortingcollection.", ".tmp", tmpDir);
+        } catch (final IOException e) {
+            throw new GATKException("Unable to create a temporary file for sorting in " + tmpDir, e);
+        }
+        file.deleteOnExit();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (final CountingOutputStream encoded = new CountingOutputStream(new BufferedOutputStream(new DeflaterOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE), deflater, IO_BUFFER_SIZE), IO_BUFFER_SIZE))) {
+            encoder.setOutputStream(encoded);
+            for (int i = 0; i < numRecords; i++) {
+                encoder.encode((T) records[i]);
+            }
+            encoded.flush();
+            encodedBytes.addAndGet(encoded.getCount());
+        } catch (final IOException e) {
+            IOUtils.tryDelete(file);
+            throw new GATKException("Unable to spill records to " + file.getAbsolutePath(), e);
+        } finally {
+            deflater.end();
+        }
+        spilledRecords.addAndGet(numRecords);
+        spillBytes.addAndGet(file.length());
+        return new Run(file, numRecords);
+    }
+
+    /**
+     * Ends adding (no more records may be added), and returns the records in sorted order. May only be called once.
+     */
+    @Override
+    public CloseableIterator<T> iterator() {
+        Utils.validate(!closed, "The collection has been closed");
+        Utils.validate(!iterated, "The collection can only be iterated once");
+        doneAdding = true;
+        iterated = true;
+        mergeStartNanos = System.nanoTime();
+        final List<Source<T>> sources = new ArrayList<>(runs.size() + 1);
+        final int batchSize = Math.max(1, Math.min(MAX_PREFETCH_BATCH_SIZE, maxRecordsInRam / (2 * (runs.size() + 1))));
+        for (final Future<Run> run : runs) {
+            sources.add(new RunReader(getResult(run), batchSize, sources.size()));
+        }
+        runsInFlight = 0;
+        if (numInBuffer > 0) {
+            sources.add(new BufferSource<>(sortBuffer(), sources.size()));
+        }
+        buffer = null;
+        return new MergingIterator(sources);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] sortBuffer() {
+        final T[] records = (T[]) Arrays.copyOf(buffer, numInBuffer);
+        if (runs.isEmpty() && numThreads > 1) {
+            // all of the records are in memory, so use all of the threads to sort them
+            Arrays.parallelSort(records, comparator);
+        } else {
+            Arrays.sort(records, comparator);
+        }
+        return records;
+    }
+
+    private static <R> R getResult(final Future<R> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while sorting", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GATKException("Error while sorting", cause);
+        }
+    }
+
+    /**
+     * Stops the worker threads and deletes the spill files.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        doneAdding = true;
+        buffer = null;
+        executor.shutdownNow();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // keep waiting for the current runs to finish
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (final Future<Run> run : runs) {
+            try {
+                if (run.isDone() && !run.isCancelled()) {
+                    IOUtils.tryDelete(run.get().file);
+                }
+            } catch (final InterruptedException | ExecutionException e) {
+                // we're only cleaning up
+            }
+        }
+        runs.clear();
+    }
+
+    /** @return number of records added */
+    public long getRecordsAdded() {
+        return recordsAdded;
+    }
+
+    /** @return number of runs spilled to disk, or being spilled */
+    public int getNumRuns() {
+        return runs.size();
+    }
+
+    /** @return total size of the spill files, in bytes */
+    public long getSpillBytes() {
+        return spillBytes.get();
+    }
+
+    public String getStatistics() {
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+        final double mergeSeconds = mergeStartNanos > 0 ? (System.nanoTime() - mergeStartNanos) / 1e9 : 0.0;
+        return String.format("Sorted %d records in %.1f s (%.0f records/s) on %d threads: %d records spilled in %d runs, " +
+                        "%.1f MB encoded, %.1f MB on disk; adding waited for a free thread %d times; merged %d records in %.1f s",
+                recordsAdded, seconds, seconds > 0 ? recordsAdded / seconds : 0.0, numThreads, spilledRecords.get(),
+                runs.size(), encodedBytes.get() / (1024.0 * 1024.0), spillBytes.get() / (1024.0 * 1024.0),
+                addingWaits, recordsMerged, mergeSeconds);
+    }
+
+    /** A sorted run spilled to disk. */
+    private static final class Run {
+        private final File file;
+        private final int numRecords;
+
+        Run(final File file, final int numRecords) {
+            this.file = file;
+            this.numRecords = numRecords;
+        }
+    }
+
+    /** A sorted sequence of records to merge. Sources are numbered in the order their records were added. */
+    private abstract static class Source<T> {
+        final int index;
+
+        Source(final int index) {
+            this.index = index;
+        }
+
+        // moves to the first record, returning false if there is none
+        abstract boolean start();
+
+        abstract T peek();
+
+        // moves on to the next record, returning false if there is none
+        abstract boolean advance();
+
+        abstract void close();
+    }
+
+    private static final class BufferSource<T> extends Source<T> {
+        private final T[] records;
+        private int next = 0;
+
+        BufferSource(final T[] records, final int index) {
+            super(index);
+            this.records = records;
+        }
+
+        @Override
+        boolean start() {
+            return records.length > 0;
+        }
+
+        @Override
+        T peek() {
+            return records[next];
+        }
+
+        @Override
+        boolean advance() {
+            records[next] = null;
+            return ++next < records.length;
+        }
+
+        @Override
+        void close() {
+            next = records.length;
+        }
+    }
+
+    /** Reads a run in batches, decoding the next batch on a worker thread while the current one is merged. */
+    private final class RunReader extends Source<T> {
+        private final Run run;
+        private final int batchSize;
+        private final InputStream input;
+        private final SortingCollection.Codec<T> decoder = codec.clone();
+        private final Inflater inflater = new Inflater();
+        private int remaining;
+
+        private List<T> batch = Collections.emptyList();
+        private int next = 0;
+        private Future<List<T>> nextBatch = null;
+
+        RunReader(final Run run, final int batchSize, final int index) {
+            super(index);
+            this.run = run;
+            this.batchSize = batchSize;
+            this.remaining = run.numRecords;
+            try {
+                input = new BufferedInputStream(new InflaterInputStream(
+                        new BufferedInputStream(new FileInputStream(run.file), IO_BUFFER_SIZE), inflater, IO_BUFFER_SIZE), IO_BUFFER_SIZE);
+            } catch (final IOException e) {
+                throw new GATKException("Unable to read sorted records from " + run.file.getAbsolutePath(), e);
+            }
+            decoder.setInputStream(input);
+            prefetch();
+        }
+
+        private void prefetch() {
+            if (remaining > 0) {
+                final int size = Math.min(batchSize, remaining);
+                remaining -= size;
+                nextBatch = executor.submit(() -> decodeBatch(size));
+            } else {
+                nextBatch = null;
+            }
+        }
+
+        // runs on a worker thread; batches of a run are decoded one at a time, so the decoder is never shared
+        private List<T> decodeBatch(final int size) {
+            final List<T> records = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final T record = decoder.decode();
+                if (record == null) {
+                    throw new GATKException("The sorted records in " + run.file.getAbsolutePath() + " ended early");
+                }
+                records.add(record);
+            }
+            return records;
+        }
+
+        @Override
+        boolean start() {
+            next = -1;
+            return advance();
+        }
+
+        @Override
+        T peek() {
+            return batch.get(next);
+        }
+
+        @Override
+        boolean advance() {
+            if (++next < batch.size()) {
+                return true;
+            }
+            if (nextBatch == null) {
+                close();
+                return false;
+            }
+            batch = getResult(nextBatch);
+            next = 0;
+            prefetch();
+            return true;
+        }
+
+        @Override
+        void close() {
+            if (nextBatch != null) {
+                nextBatch.cancel(false);
+                nextBatch = null;
+            }
+            batch = Collections.emptyList();
+            try {
+                input.close();
+            } catch (final IOException e) {
+                // we're only cleaning up
+            }
+            inflater.end();
+            IOUtils.tryDelete(run.file);
+        }
+    }
+
+    private final class MergingIterator implements CloseableIterator<T> {
+        private final PriorityQueue<Source<T>> queue;
+        private final Deque<Source<T>> all;
+
+        MergingIterator(final List<Source<T>> sources) {
+            // ties go to the source with the records added first, which keeps the sort stable
+            final Comparator<Source<T>> order = (a, b) -> {
+                final int result = comparator.compare(a.peek(), b.peek());
+                return result != 0 ? result : Integer.compare(a.index, b.index);
+            };
+            queue = new PriorityQueue<>(Math.max(1, sources.size()), order);
+            all = new ArrayDeque<>(sources);
+            // the readers of all of the runs have started decoding their first batch by now
+            for (final Source<T> source : sources) {
+                if (source.start()) {
+                    queue.add(source);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more sorted records");
+            }
+            final Source<T> source = queue.poll();
+            final T record = source.peek();
+            if (source.advance()) {
+                queue.add(source);
+            }
+            recordsMerged++;
+            return record;
+        }
+
+        @Override
+        public void close() {
+            queue.clear();
+            all.forEach(Source::close);
+            all.clear();
+        }
+    }
+}
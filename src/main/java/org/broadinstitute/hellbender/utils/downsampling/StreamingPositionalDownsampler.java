@@ -0,0 +1,283 @@
+package org.broadinstitute.hellbender.utils.downsampling;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StreamingPositionalDownsampler: Downsample each stack of reads at each alignment start to a size <= a target coverage,
+ * optionally separately for each sample, like {@link PositionalDownsampler}.
+ *
+ * Reads are reservoir sampled ("Algorithm R", see {@link ReservoirDownsampler}) into a fixed-size array per sample as
+ * they arrive. The arrays are allocated once and reused at every position, so no more than the target coverage of
+ * reads per sample is ever held for the current position, however deep the stack is, and downsampling a stack
+ * allocates nothing but the list of finalized reads.
+ *
+ * The number of reads discarded at each position can be reported to a {@link DiscardListener}.
+ *
+ * Unmapped reads with assigned positions are subject to downsampling in the same way as mapped reads,
+ * but unmapped reads without assigned positions are not subject to downsampling.
+ */
+public final class StreamingPositionalDownsampler extends ReadsDownsampler {
+
+    /**
+     * Receives the number of reads discarded at each position where any were discarded.
+     */
+    @FunctionalInterface
+    public interface DiscardListener {
+        /**
+         * @param position the alignment start (or assigned start, for unmapped reads) of the stack
+         * @param numDiscarded number of reads discarded from the stack, > 0
+         */
+        void readsDiscarded( final SimpleInterval position, final int numDiscarded );
+    }
+
+    private final int targetCoverage;
+
+    private final SAMFileHeader header;
+
+    private final DiscardListener discardListener;
+
+    /**
+     * Index of the reservoir for the reads of each read group, or null if all reads share one reservoir.
+     * Reads without a read group, or whose read group is not in the header, share one extra reservoir.
+     */
+    private final Map<String, Integer> reservoirIndexByReadGroup;
+
+    private final GATKRead[][] reservoirs;
+
+    /**
+     * Number of reads submitted to each reservoir at the current position
+     */
+    private final int[] readsSeen;
+
+    /**
+     * Indices of the reservoirs that hold reads at the current position, in the order they were first used
+     */
+    private final int[] activeReservoirs;
+
+    private int numActiveReservoirs;
+
+    /**
+     * Total number of reads held in the reservoirs
+     */
+    private int numPendingReads;
+
+    /**
+     * Number of reads discarded at the current position
+     */
+    private int numDiscardedAtPosition;
+
+    private GATKRead previousRead;
+
+    private List<GATKRead> finalizedReads;
+
+    /**
+     * Construct a StreamingPositionalDownsampler
+     *
+     * @param targetCoverage Maximum number of reads (per sample, if perSample is true) that may share any given
+     *                       alignment start position. Must be > 0
+     * @param header SAMFileHeader to use to determine contig ordering and the samples. Non-null.
+     * @param perSample if true, downsample the reads of each sample separately to the targetCoverage
+     * @param discardListener if non-null, told the number of reads discarded at each position
+     */
+    public StreamingPositionalDownsampler( final int targetCoverage, final SAMFileHeader header, final boolean perSample, final DiscardListener discardListener ) {
+        Utils.validateArg(targetCoverage > 0, "targetCoverage must be > 0");
+        Utils.nonNull(header);
+
+        this.targetCoverage = targetCoverage;
+        this.header = header;
+        this.discardListener = discardListener;
+
+        int numReservoirs = 1;
+        if ( perSample ) {
+            reservoirIndexByReadGroup = new HashMap<>();
+            final Map<String, Integer> reservoirIndexBySample = new HashMap<>();
+            for ( final SAMReadGroupRecord readGroup : header.getReadGroups() ) {
+                Integer index = reservoirIndexBySample.get(readGroup.getSample());
+                if ( index == null ) {
+                    index = numReservoirs++;
+                    reservoirIndexBySample.put(readGroup.getSample(), index);
+                }
+                reservoirIndexByReadGroup.put(readGroup.getId(), index);
+            }
+        }
+        else {
+            reservoirIndexByReadGroup = null;
+        }
+
+        // allocated on first use, since some samples may never need a reservoir
+        this.reservoirs = new GATKRead[numReservoirs][];
+        this.readsSeen = new int[numReservoirs];
+        this.activeReservoirs = new int[numReservoirs];
+        this.finalizedReads = new ArrayList<>();
+        clearItems();
+        resetStats();
+    }
+
+    /**
+     * Construct a StreamingPositionalDownsampler that downsamples all samples together and reports nothing
+     *
+     * @param targetCoverage Maximum number of reads that may share any given alignment start position. Must be > 0
+     * @param header SAMFileHeader to use to determine contig ordering. Non-null.
+     */
+    public StreamingPositionalDownsampler( final int targetCoverage, final SAMFileHeader header ) {
+        this(targetCoverage, header, false, null);
+    }
+
+    @Override
+    public void submit( final GATKRead newRead ) {
+        Utils.nonNull(newRead, "newRead");
+
+        // If we've moved to a new position, finalize the reads currently in our reservoirs.
+        handlePositionalChange(newRead);
+
+        // Pass-through reads that have no assigned position, to avoid downsampling all unmapped reads
+        // to the targetCoverage. Unmapped reads that do have an assigned position *will* be subject to
+        // downsampling, however.
+        if ( ReadUtils.readHasNoAssignedPosition(newRead) ) {
+            finalizedReads.add(newRead);
+        }
+        else {
+            addToReservoir(reservoirIndex(newRead), newRead);
+        }
+
+        previousRead = newRead;
+    }
+
+    private int reservoirIndex( final GATKRead read ) {
+        if ( reservoirIndexByReadGroup == null ) {
+            return 0;
+        }
+        final String readGroup = read.getReadGroup();
+        final Integer index = readGroup == null ? null : reservoirIndexByReadGroup.get(readGroup);
+        return index == null ? 0 : index;
+    }
+
+    private void addToReservoir( final int index, final GATKRead read ) {
+        if ( readsSeen[index] == 0 ) {
+            if ( reservoirs[index] == null ) {
+                reservoirs[index] = new GATKRead[targetCoverage];
+            }
+            activeReservoirs[numActiveReservoirs++] = index;
+        }
+
+        final int seen = ++readsSeen[index];
+        if ( seen <= targetCoverage ) {
+            reservoirs[index][seen - 1] = read;
+            numPendingReads++;
+        }
+        else {
+            final int randomSlot = Utils.getRandomGenerator().nextInt(seen);
+            if ( randomSlot < targetCoverage ) {
+                reservoirs[index][randomSlot] = read;
+            }
+            numDiscardedAtPosition++;
+            incrementNumberOfDiscardedItems(1);
+        }
+    }
+
+    private void handlePositionalChange( final GATKRead newRead ) {
+        // Use ReadCoordinateComparator to determine whether we've moved to a new start position.
+        // ReadCoordinateComparator will correctly distinguish between purely unmapped reads and unmapped reads that
+        // are assigned a nominal position.
+        if ( previousRead != null && ReadCoordinateComparator.compareCoordinates(previousRead, newRead, header) != 0 ) {
+            if ( hasPendingItems() ) {
+                finalizeReservoirs();
+            }
+        }
+    }
+
+    private void finalizeReservoirs() {
+        if ( numDiscardedAtPosition > 0 && discardListener != null ) {
+            final GATKRead read = peekPending();
+            discardListener.readsDiscarded(new SimpleInterval(read.getAssignedContig(), read.getAssignedStart(), read.getAssignedStart()), numDiscardedAtPosition);
+        }
+
+        for ( int i = 0; i < numActiveReservoirs; i++ ) {
+            final int index = activeReservoirs[i];
+            final GATKRead[] reservoir = reservoirs[index];
+            final int numReads = Math.min(readsSeen[index], targetCoverage);
+            for ( int slot = 0; slot < numReads; slot++ ) {
+                finalizedReads.add(reservoir[slot]);
+                reservoir[slot] = null;
+            }
+            readsSeen[index] = 0;
+        }
+        numActiveReservoirs = 0;
+        numPendingReads = 0;
+        numDiscardedAtPosition = 0;
+    }
+
+    @Override
+    public boolean hasFinalizedItems() {
+        return ! finalizedReads.isEmpty();
+    }
+
+    @Override
+    public List<GATKRead> consumeFinalizedItems() {
+        final List<GATKRead> toReturn = finalizedReads;
+        finalizedReads = new ArrayList<>();
+        return toReturn;
+    }
+
+    @Override
+    public boolean hasPendingItems() {
+        return numPendingReads > 0;
+    }
+
+    @Override
+    public GATKRead peekFinalized() {
+        return finalizedReads.isEmpty() ? null : finalizedReads.get(0);
+    }
+
+    @Override
+    public GATKRead peekPending() {
+        return numActiveReservoirs == 0 ? null : reservoirs[activeReservoirs[0]][0];
+    }
+
+    @Override
+    public int size() {
+        return finalizedReads.size() + numPendingReads;
+    }
+
+    @Override
+    public void signalEndOfInput() {
+        finalizeReservoirs();
+    }
+
+    @Override
+    public void clearItems() {
+        for ( int i = 0; i < numActiveReservoirs; i++ ) {
+            final int index = activeReservoirs[i];
+            // nulls out the slots, so that the reservoirs don't keep the reads alive
+            Arrays.fill(reservoirs[index], null);
+            readsSeen[index] = 0;
+        }
+        numActiveReservoirs = 0;
+        numPendingReads = 0;
+        numDiscardedAtPosition = 0;
+        finalizedReads.clear();
+        previousRead = null;
+    }
+
+    @Override
+    public boolean requiresCoordinateSortOrder() {
+        return true;
+    }
+
+    @Override
+    public void signalNoMoreReadsBefore( final GATKRead read ) {
+        handlePositionalChange(read);
+    }
+}
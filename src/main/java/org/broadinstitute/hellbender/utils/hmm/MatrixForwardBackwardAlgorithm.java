@@ -0,0 +1,295 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.apache.commons.math3.util.FastMath;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+
+import java.util.Arrays;
+
+/**
+ * Performs the Forward-backward algorithm for a {@link MatrixHMM}, giving the same posterior probabilities as
+ * {@link ForwardBackwardAlgorithm} does for the {@link HMM} it was created from.
+ *
+ * <p>Forward and backward probabilities are computed in linear space, each vector rescaled to sum 1 at every
+ * position, so that every step is a plain matrix-vector product with no logarithms or exponentials other than
+ * those of the emission probabilities. The data log-likelihood is recovered from the scale factors.</p>
+ *
+ * <p>Only every <i>k</i>th forward vector is kept, where <i>k</i> is about the square root of the sequence length;
+ * the backward pass recomputes the forward vectors of one block of <i>k</i> positions at a time from the nearest
+ * kept one. So besides the model itself, the working memory is proportional to the square root of the sequence
+ * length times the number of states, at the cost of computing the forward vectors twice.</p>
+ */
+public final class MatrixForwardBackwardAlgorithm {
+
+    /**
+     * Receives the posterior probabilities of the hidden states at each position.
+     */
+    @FunctionalInterface
+    public interface PosteriorConsumer {
+        /**
+         * @param position the position index.
+         * @param posteriors the posterior probability of each state at that position, summing 1.
+         *                   The array is reused for other positions, so it must not be retained or modified.
+         */
+        void accept(final int position, final double[] posteriors);
+    }
+
+    /**
+     * The forward-backward algorithm result: the data likelihood and the posterior probabilities.
+     */
+    public static final class Result {
+
+        private final MatrixHMM model;
+
+        private final double logDataLikelihood;
+
+        /**
+         * Posterior probabilities indexed [position][state].
+         */
+        private final double[][] posteriors;
+
+        private Result(final MatrixHMM model, final double logDataLikelihood, final double[][] posteriors) {
+            this.model = model;
+            this.logDataLikelihood = logDataLikelihood;
+            this.posteriors = posteriors;
+        }
+
+        /**
+         * @return the log probability of the observed data, summed over all hidden state sequences.
+         */
+        public double logDataLikelihood() {
+            return logDataLikelihood;
+        }
+
+        /**
+         * Returns the posterior log probability of a hidden state at a position.
+         * @param position the position index.
+         * @param state the state index.
+         * @return a valid log probability between -Inf and 0.
+         * @throws IllegalArgumentException if either index is out of range.
+         */
+        public double logProbability(final int position, final int state) {
+            Utils.validIndex(position, posteriors.length);
+            Utils.validIndex(state, posteriors[position].length);
+            return FastMath.log(posteriors[position][state]);
+        }
+
+        /**
+         * Calculates the posterior log probability of the hidden state chain, as
+         * {@link ForwardBackwardAlgorithm.Result#logChainPosteriorProbability()} does: the data log-likelihood minus
+         * the posterior expectation of the log emission probabilities.
+         *
+         * @return a log scaled probability from -Inf to 0.
+         */
+        public double logChainPosteriorProbability() {
+            double logEmissionPosteriorExpectation = 0;
+            for (int position = 0; position < posteriors.length; position++) {
+                final double[] logEmissions = model.logEmissions(position);
+                double positionExpectation = 0;
+                for (int s = 0; s < logEmissions.length; s++) {
+                    positionExpectation += posteriors[position][s] * logEmissions[s];
+                }
+                logEmissionPosteriorExpectation += positionExpectation;
+            }
+            return logDataLikelihood - logEmissionPosteriorExpectation;
+        }
+    }
+
+    private MatrixForwardBackwardAlgorithm() {}
+
+    /**
+     * Runs the forward-backward algorithm, keeping the posterior probabilities of all states at all positions.
+     *
+     * @param model the precomputed model.
+     * @return never {@code null}.
+     * @throws IllegalArgumentException if {@code model} is {@code null} or the data has probability 0 under it.
+     */
+    public static Result apply(final MatrixHMM model) {
+        Utils.nonNull(model);
+        final double[][] posteriors = new double[model.length()][];
+        final double logDataLikelihood = apply(model, (position, positionPosteriors) -> posteriors[position] = positionPosteriors.clone());
+        return new Result(model, logDataLikelihood, posteriors);
+    }
+
+    /**
+     * Runs the forward-backward algorithm, passing the posterior probabilities of the states at each position to a
+     * consumer instead of keeping them, from the last position to the first.
+     *
+     * @param model the precomputed model.
+     * @param consumer receives the posterior probabilities at each position.
+     * @return the log probability of the observed data, or 0 if there are no positions.
+     * @throws IllegalArgumentException if any input is {@code null} or the data has probability 0 under the model.
+     */
+    public static double apply(final MatrixHMM model, final PosteriorConsumer consumer) {
+        Utils.nonNull(model);
+        return apply(model, consumer, (int) Math.ceil(Math.sqrt(model.length())));
+    }
+
+    /**
+     * As {@link #apply(MatrixHMM, PosteriorConsumer)}, keeping every {@code blockLength}th forward vector.
+     */
+    static double apply(final MatrixHMM model, final PosteriorConsumer consumer, final int blockLength) {
+        Utils.nonNull(model);
+        Utils.nonNull(consumer);
+        final int length = model.length();
+        if (length == 0) {
+            return 0;
+        }
+        ParamUtils.isPositive(blockLength, "the block length must be positive");
+        final int numStates = model.numStates();
+        final int numBlocks = (length + blockLength - 1) / blockLength;
+        final double[] emissions = new double[numStates];
+
+        // forward pass, keeping only the first forward vector of each block.
+        final double[][] checkpoints = new double[numBlocks][];
+        double[] forward = new double[numStates];
+        double[] nextForward = new double[numStates];
+        double logDataLikelihood = initialForward(model, forward);
+        checkpoints[0] = forward.clone();
+        for (int position = 1; position < length; position++) {
+            logDataLikelihood += forwardStep(model, position, forward, nextForward, emissions);
+            final double[] swap = forward;
+            forward = nextForward;
+            nextForward = swap;
+            if (position % blockLength == 0) {
+                checkpoints[position / blockLength] = forward.clone();
+            }
+        }
+
+        // backward pass, recomputing the forward vectors one block at a time.
+        final double[][] blockForward = new double[Math.min(blockLength, length)][numStates];
+        final double[] posteriors = new double[numStates];
+        double[] backward = new double[numStates];
+        double[] previousBackward = new double[numStates];
+        Arrays.fill(backward, 1.0);
+        for (int block = numBlocks - 1; block >= 0; block--) {
+            final int blockStart = block * blockLength;
+            final int blockEnd = Math.min(length, blockStart + blockLength);
+            System.arraycopy(checkpoints[block], 0, blockForward[0], 0, numStates);
+            for (int position = blockStart + 1; position < blockEnd; position++) {
+                forwardStep(model, position, blockForward[position - blockStart - 1], blockForward[position - blockStart], emissions);
+            }
+            for (int position = blockEnd - 1; position >= blockStart; position--) {
+                final double[] positionForward = blockForward[position - blockStart];
+                for (int s = 0; s < numStates; s++) {
+                    posteriors[s] = positionForward[s] * backward[s];
+                }
+                normalize(posteriors);
+                consumer.accept(position, posteriors);
+                if (position > 0) {
+                    backwardStep(model, position, backward, previousBackward, emissions);
+                    final double[] swap = backward;
+                    backward = previousBackward;
+                    previousBackward = swap;
+                }
+            }
+            checkpoints[block] = null;
+        }
+        return logDataLikelihood;
+    }
+
+    /**
+     * Calculates the scaled forward vector at the first position.
+     * @return the log of the scale factor.
+     */
+    private static double initialForward(final MatrixHMM model, final double[] forward) {
+        final double[] logEmissions = model.logEmissions(0);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int s = 0; s < forward.length; s++) {
+            forward[s] = model.logPrior(s) + logEmissions[s];
+            max = Math.max(max, forward[s]);
+        }
+        checkPossible(max, 0);
+        for (int s = 0; s < forward.length; s++) {
+            forward[s] = FastMath.exp(forward[s] - max);
+        }
+        return max + FastMath.log(normalize(forward));
+    }
+
+    /**
+     * Calculates the scaled forward vector at a position from the one at the previous position.
+     * @return the log of the scale factor.
+     */
+    private static double forwardStep(final MatrixHMM model, final int position, final double[] previousForward,
+                                      final double[] forward, final double[] emissions) {
+        final double logScale = exponentiateEmissions(model, position, emissions);
+        final double[][] transitions = model.transitions(position - 1);
+        Arrays.fill(forward, 0.0);
+        for (int from = 0; from < previousForward.length; from++) {
+            final double previous = previousForward[from];
+            if (previous == 0) {
+                continue;
+            }
+            final double[] row = transitions[from];
+            for (int to = 0; to < forward.length; to++) {
+                forward[to] += previous * row[to];
+            }
+        }
+        for (int s = 0; s < forward.length; s++) {
+            forward[s] *= emissions[s];
+        }
+        final double sum = normalize(forward);
+        checkPossible(sum == 0 ? Double.NEGATIVE_INFINITY : 0, position);
+        return logScale + FastMath.log(sum);
+    }
+
+    /**
+     * Calculates the (arbitrarily scaled) backward vector at the previous position from the one at a position.
+     */
+    private static void backwardStep(final MatrixHMM model, final int position, final double[] backward,
+                                     final double[] previousBackward, final double[] emissions) {
+        exponentiateEmissions(model, position, emissions);
+        for (int s = 0; s < emissions.length; s++) {
+            emissions[s] *= backward[s];
+        }
+        final double[][] transitions = model.transitions(position - 1);
+        for (int from = 0; from < previousBackward.length; from++) {
+            final double[] row = transitions[from];
+            double sum = 0;
+            for (int to = 0; to < row.length; to++) {
+                sum += row[to] * emissions[to];
+            }
+            previousBackward[from] = sum;
+        }
+        normalize(previousBackward);
+    }
+
+    /**
+     * Fills {@code emissions} with the emission probabilities at a position divided by the largest of them.
+     * @return the log of the largest emission probability.
+     */
+    private static double exponentiateEmissions(final MatrixHMM model, final int position, final double[] emissions) {
+        final double[] logEmissions = model.logEmissions(position);
+        double max = Double.NEGATIVE_INFINITY;
+        for (final double logEmission : logEmissions) {
+            max = Math.max(max, logEmission);
+        }
+        checkPossible(max, position);
+        for (int s = 0; s < emissions.length; s++) {
+            emissions[s] = FastMath.exp(logEmissions[s] - max);
+        }
+        return max;
+    }
+
+    private static void checkPossible(final double logProbability, final int position) {
+        Utils.validateArg(logProbability != Double.NEGATIVE_INFINITY,
+                () -> "the data has probability 0 under the model at position " + position);
+    }
+
+    /**
+     * Scales the values to sum 1.
+     * @return the sum before scaling.
+     */
+    private static double normalize(final double[] values) {
+        double sum = 0;
+        for (final double value : values) {
+            sum += value;
+        }
+        if (sum > 0) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] /= sum;
+            }
+        }
+        return sum;
+    }
+}
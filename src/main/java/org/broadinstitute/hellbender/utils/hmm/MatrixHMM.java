@@ -0,0 +1,212 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.apache.commons.math3.util.FastMath;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * A discrete-state HMM over a fixed sequence of observations, with all its probabilities precomputed into arrays
+ * for {@link MatrixForwardBackwardAlgorithm} and {@link MatrixViterbiAlgorithm}.
+ *
+ * <p>States are identified by their index, in the order of {@link HMM#hiddenStates()} when the instance is
+ * created with {@link #fromModel}. Positions are identified by their index in the observation sequence.</p>
+ *
+ * <p>Transition matrices are indexed [from state][to state], one for each pair of consecutive positions.
+ * Consecutive position pairs may share the same matrix instance; genomic HMMs whose transitions depend only on the
+ * distance between positions typically need only a few distinct matrices, which are then stored (and
+ * exponentiated) only once.</p>
+ */
+public final class MatrixHMM {
+
+    private final int numStates;
+
+    private final double[] logPriors;
+
+    /**
+     * Log emission probabilities, indexed [position][state].
+     */
+    private final double[][] logEmissions;
+
+    /**
+     * Log transition matrices; element i is the one for the transition from position i to i + 1.
+     */
+    private final double[][][] logTransitions;
+
+    /**
+     * The exponentiated {@link #logTransitions}, sharing instances in the same way.
+     */
+    private final double[][][] transitions;
+
+    private final int numDistinctTransitions;
+
+    /**
+     * Creates a new model.
+     *
+     * @param logPriors log prior probability of each state at the first position.
+     * @param logEmissions log emission probability of the observed datum at each position, indexed [position][state].
+     * @param logTransitions log transition probability matrices indexed [from state][to state]; the ith one is used for
+     *                       the transition from position i to i + 1, so there must be one less than there are positions
+     *                       (or none if there are no positions). The arrays are not copied and must not be modified
+     *                       afterwards.
+     * @throws IllegalArgumentException if any input is {@code null} or the array dimensions are inconsistent.
+     */
+    public MatrixHMM(final double[] logPriors, final double[][] logEmissions, final double[][][] logTransitions) {
+        Utils.nonNull(logPriors, "the log priors cannot be null");
+        Utils.nonNull(logEmissions, "the log emissions cannot be null");
+        Utils.nonNull(logTransitions, "the log transitions cannot be null");
+        numStates = logPriors.length;
+        Utils.validateArg(numStates > 0, "there must be at least one hidden state");
+        Utils.validateArg(logTransitions.length == Math.max(0, logEmissions.length - 1),
+                "there must be exactly one transition matrix between each pair of consecutive positions");
+        for (final double[] positionLogEmissions : logEmissions) {
+            Utils.validateArg(positionLogEmissions != null && positionLogEmissions.length == numStates,
+                    "there must be an emission probability for each state at each position");
+        }
+
+        this.logPriors = logPriors;
+        this.logEmissions = logEmissions;
+        this.logTransitions = logTransitions;
+        this.transitions = new double[logTransitions.length][][];
+        final Map<double[][], double[][]> exponentiated = new IdentityHashMap<>();
+        for (int i = 0; i < logTransitions.length; i++) {
+            transitions[i] = exponentiated.computeIfAbsent(logTransitions[i], this::exponentiateTransitions);
+        }
+        numDistinctTransitions = exponentiated.size();
+    }
+
+    private double[][] exponentiateTransitions(final double[][] logTransitionMatrix) {
+        Utils.validateArg(logTransitionMatrix != null && logTransitionMatrix.length == numStates,
+                "each transition matrix must have a row for each state");
+        final double[][] result = new double[numStates][numStates];
+        for (int from = 0; from < numStates; from++) {
+            Utils.validateArg(logTransitionMatrix[from] != null && logTransitionMatrix[from].length == numStates,
+                    "each transition matrix must have a column for each state");
+            for (int to = 0; to < numStates; to++) {
+                result[from][to] = FastMath.exp(logTransitionMatrix[from][to]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Precomputes the probabilities of a {@link HMM} over a sequence of data and positions.
+     *
+     * <p>If {@code transitionKey} is not {@code null}, the transition matrix between two consecutive positions is
+     * only computed for the first pair of positions that maps to a key; all later pairs with an equal key share it.
+     * For example, if the model's transitions depend only on the distance between positions, the key may be
+     * that distance.</p>
+     *
+     * @param model the model.
+     * @param data the observed data.
+     * @param positions the observation positions.
+     * @param transitionKey maps a pair of consecutive positions to a key that determines the transition matrix between
+     *                      them, or {@code null} to compute each transition matrix separately.
+     * @param <D> observed data type.
+     * @param <T> time data type.
+     * @param <S> hidden state data-type.
+     * @return never {@code null}.
+     * @throws IllegalArgumentException if any of {@code model}, {@code data} or {@code positions} is {@code null},
+     *         or {@code data} and {@code positions} have different lengths.
+     */
+    public static <D, T, S> MatrixHMM fromModel(final HMM<D, T, S> model, final List<D> data, final List<T> positions,
+                                                final BiFunction<? super T, ? super T, ?> transitionKey) {
+        Utils.nonNull(model);
+        Utils.nonNull(data);
+        Utils.nonNull(positions);
+        Utils.validateArg(data.size() == positions.size(), "the data and time input sequences must have the same length");
+
+        final List<S> states = model.hiddenStates();
+        final int numStates = states.size();
+        final int length = data.size();
+
+        final double[] logPriors = new double[numStates];
+        if (length > 0) {
+            for (int s = 0; s < numStates; s++) {
+                logPriors[s] = model.logPriorProbability(states.get(s), positions.get(0));
+            }
+        }
+
+        final double[][] logEmissions = new double[length][numStates];
+        for (int i = 0; i < length; i++) {
+            final D datum = data.get(i);
+            final T position = positions.get(i);
+            for (int s = 0; s < numStates; s++) {
+                logEmissions[i][s] = model.logEmissionProbability(datum, states.get(s), position);
+            }
+        }
+
+        final double[][][] logTransitions = new double[Math.max(0, length - 1)][][];
+        final Map<Object, double[][]> logTransitionsByKey = new HashMap<>();
+        for (int i = 0; i < logTransitions.length; i++) {
+            final T from = positions.get(i);
+            final T to = positions.get(i + 1);
+            if (transitionKey == null) {
+                logTransitions[i] = calculateLogTransitions(model, states, from, to);
+            } else {
+                logTransitions[i] = logTransitionsByKey.computeIfAbsent(transitionKey.apply(from, to),
+                        key -> calculateLogTransitions(model, states, from, to));
+            }
+        }
+        return new MatrixHMM(logPriors, logEmissions, logTransitions);
+    }
+
+    private static <D, T, S> double[][] calculateLogTransitions(final HMM<D, T, S> model, final List<S> states,
+                                                                final T from, final T to) {
+        final int numStates = states.size();
+        final double[][] result = new double[numStates][numStates];
+        for (int fromState = 0; fromState < numStates; fromState++) {
+            for (int toState = 0; toState < numStates; toState++) {
+                result[fromState][toState] = model.logTransitionProbability(states.get(fromState), from, states.get(toState), to);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of hidden states.
+     */
+    public int numStates() {
+        return numStates;
+    }
+
+    /**
+     * @return the number of positions in the observation sequence.
+     */
+    public int length() {
+        return logEmissions.length;
+    }
+
+    /**
+     * @return the number of distinct transition matrix instances.
+     */
+    public int numDistinctTransitions() {
+        return numDistinctTransitions;
+    }
+
+    double logPrior(final int state) {
+        return logPriors[state];
+    }
+
+    double[] logEmissions(final int position) {
+        return logEmissions[position];
+    }
+
+    /**
+     * Log transition matrix from position {@code position} to {@code position + 1}, indexed [from state][to state].
+     */
+    double[][] logTransitions(final int position) {
+        return logTransitions[position];
+    }
+
+    /**
+     * Transition matrix from position {@code position} to {@code position + 1}, indexed [from state][to state].
+     */
+    double[][] transitions(final int position) {
+        return transitions[position];
+    }
+}
@@ -0,0 +1,76 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * Implements the Viterbi Algorithm for a {@link MatrixHMM}, giving the same state sequence as
+ * {@link ViterbiAlgorithm} does for the {@link HMM} it was created from.
+ *
+ * <p>Instead of a linked path object per position and state, the best previous state of each state at each position
+ * is kept in a single int array, from which the best sequence is traced back at the end.</p>
+ */
+public final class MatrixViterbiAlgorithm {
+
+    private MatrixViterbiAlgorithm() {}
+
+    /**
+     * Calculates the most likely hidden state sequence that explains the observed data.
+     *
+     * @param model the precomputed model.
+     * @return never {@code null}, the index of the state at each position; as long as the model.
+     * @throws IllegalArgumentException if {@code model} is {@code null}.
+     */
+    public static int[] apply(final MatrixHMM model) {
+        Utils.nonNull(model);
+        final int length = model.length();
+        if (length == 0) {
+            return new int[0];
+        }
+        final int numStates = model.numStates();
+
+        // bestPrevious[position * numStates + state] is the best state at position - 1 for a path in state at position.
+        final int[] bestPrevious = new int[length * numStates];
+        double[] logProbs = new double[numStates];
+        double[] nextLogProbs = new double[numStates];
+        final double[] logEmissions0 = model.logEmissions(0);
+        for (int s = 0; s < numStates; s++) {
+            logProbs[s] = model.logPrior(s) + logEmissions0[s];
+        }
+
+        for (int position = 1; position < length; position++) {
+            final double[][] logTransitions = model.logTransitions(position - 1);
+            final double[] logEmissions = model.logEmissions(position);
+            final int offset = position * numStates;
+            for (int to = 0; to < numStates; to++) {
+                // ties go to the lowest state index.
+                int bestFrom = 0;
+                double bestLogProb = logProbs[0] + logTransitions[0][to];
+                for (int from = 1; from < numStates; from++) {
+                    final double candidateLogProb = logProbs[from] + logTransitions[from][to];
+                    if (candidateLogProb > bestLogProb) {
+                        bestLogProb = candidateLogProb;
+                        bestFrom = from;
+                    }
+                }
+                bestPrevious[offset + to] = bestFrom;
+                nextLogProbs[to] = bestLogProb + logEmissions[to];
+            }
+            final double[] swap = logProbs;
+            logProbs = nextLogProbs;
+            nextLogProbs = swap;
+        }
+
+        int bestLast = 0;
+        for (int s = 1; s < numStates; s++) {
+            if (logProbs[s] > logProbs[bestLast]) {
+                bestLast = s;
+            }
+        }
+        final int[] result = new int[length];
+        result[length - 1] = bestLast;
+        for (int position = length - 1; position > 0; position--) {
+            result[position - 1] = bestPrevious[position * numStates + result[position]];
+        }
+        return result;
+    }
+}
@@ -61,4 +61,10 @@ public class HiddenStateSegmentRecordReader<S, T extends Target> extends TableRe
         return new HiddenStateSegmentRecord<>(
                 dataLine.get(SegmentTableColumn.SAMPLE), segment);
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        // subclasses may override isCommentLine or isHeaderLine.
+        return getClass() == HiddenStateSegmentRecordReader.class;
+    }
 }
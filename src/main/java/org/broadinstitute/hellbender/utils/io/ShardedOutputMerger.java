@@ -0,0 +1,219 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Merges the records emitted by a number of concurrent producers ("shards") into a single stream, in shard order.
+ *
+ * Each record is tagged with the ordinal of the shard that produced it. Records from the lowest incomplete shard
+ * are passed straight through to the sink; records from later shards are held until all earlier shards have been
+ * completed. If the shards are ordered and non-overlapping (for example, the interval lists produced by splitting
+ * a sorted interval list) and each producer emits its records in order, the sink sees a single sorted stream.
+ *
+ * At most {@code maxRecordsInRam} held records are kept in memory. When that bound is exceeded, the largest
+ * in-memory buffer is spilled to a temporary file for its shard using the supplied codec, so memory use is bounded
+ * no matter how far ahead of the lowest incomplete shard the producers run. A spill file is only open while records
+ * are being appended to it or read back from it, so the number of open files does not grow with the number of shards.
+ *
+ * All methods are thread-safe. The sink is only ever called while holding this object's lock, so it need not be.
+ *
+ * @param <T> the type of record being merged
+ */
+public final class ShardedOutputMerger<T> implements AutoCloseable {
+
+    private final Consumer<T> sink;
+    private final SortingCollection.Codec<T> codec;
+    private final int maxRecordsInRam;
+    private final File tmpDir;
+
+    private final List<List<T>> buffers;
+    private final List<Spill> spills;
+    private final boolean[] completed;
+
+    // the lowest shard that has not yet been completed; records for this shard go straight to the sink
+    private int currentShard = 0;
+    // total number of records held in the in-memory buffers
+    private int recordsInRam = 0;
+    private boolean closed = false;
+
+    /**
+     * @param numShards number of shards that will contribute records, numbered 0 to numShards - 1
+     * @param sink destination for the merged records
+     * @param codec codec used to spill held records to disk
+     * @param maxRecordsInRam maximum number of held records to keep in memory
+     * @param tmpDir directory for spill files, or null to use the default temporary directory
+     */
+    public ShardedOutputMerger( final int numShards,
+                                final Consumer<T> sink,
+                                final SortingCollection.Codec<T> codec,
+                                final int maxRecordsInRam,
+                                final File tmpDir ) {
+        Utils.validateArg(numShards > 0, "numShards must be positive");
+        Utils.validateArg(maxRecordsInRam > 0, "maxRecordsInRam must be positive");
+        this.sink = Utils.nonNull(sink);
+        this.codec = Utils.nonNull(codec);
+        this.maxRecordsInRam = maxRecordsInRam;
+        this.tmpDir = tmpDir;
+        this.buffers = new ArrayList<>(numShards);
+        this.spills = new ArrayList<>(numShards);
+        for ( int i = 0; i < numShards; i++ ) {
+            buffers.add(new ArrayList<>());
+            spills.add(null);
+        }
+        this.completed = new boolean[numShards];
+    }
+
+    public int getNumShards() {
+        return completed.length;
+    }
+
+    /**
+     * Adds a record produced by the given shard.
+     */
+    public synchronized void add( final int shard, final T record ) {
+        validateOpenShard(shard);
+        Utils.nonNull(record);
+        if ( shard == currentShard ) {
+            sink.accept(record);
+            return;
+        }
+        buffers.get(shard).add(record);
+        if ( ++recordsInRam > maxRecordsInRam ) {
+            spillLargestBuffer();
+        }
+    }
+
+    /**
+     * Marks the given shard as complete: it will produce no more records. If this was the lowest incomplete shard,
+     * the held records of the following shards are written to the sink until an incomplete shard is reached.
+     */
+    public synchronized void completeShard( final int shard ) {
+        validateOpenShard(shard);
+        completed[shard] = true;
+        while ( currentShard < completed.length && completed[currentShard] ) {
+            if ( ++currentShard < completed.length ) {
+                drain(currentShard);
+            }
+        }
+    }
+
+    /**
+     * @return true if every shard has been completed, in which case all records have been passed to the sink
+     */
+    public synchronized boolean isComplete() {
+        return currentShard == completed.length;
+    }
+
+    /**
+     * Deletes any remaining spill files.
+     *
+     * @throws IllegalStateException if some shard was not completed, since its records and those of all later
+     *                               shards will then never reach the sink
+     */
+    @Override
+    public synchronized void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        for ( final Spill spill : spills ) {
+            if ( spill != null ) {
+                spill.delete();
+            }
+        }
+        Utils.validate(isComplete(), () -> "Closed while shard " + currentShard + " of " + completed.length + " is incomplete");
+    }
+
+    private void validateOpenShard( final int shard ) {
+        Utils.validate(!closed, "The merger has been closed");
+        Utils.validateArg(shard >= 0 && shard < completed.length, () -> "Invalid shard ordinal " + shard);
+        Utils.validate(!completed[shard], () -> "Shard " + shard + " has already been completed");
+    }
+
+    private void spillLargestBuffer() {
+        int largest = -1;
+        for ( int i = currentShard + 1; i < buffers.size(); i++ ) {
+            if ( largest == -1 || buffers.get(i).size() > buffers.get(largest).size() ) {
+                largest = i;
+            }
+        }
+        final List<T> buffer = buffers.get(largest);
+        if ( spills.get(largest) == null ) {
+            spills.set(largest, new Spill(largest));
+        }
+        spills.get(largest).write(buffer);
+        recordsInRam -= buffer.size();
+        buffer.clear();
+    }
+
+    // spilled records precede the in-memory records for a shard, since each spill empties the buffer
+    private void drain( final int shard ) {
+        final Spill spill = spills.get(shard);
+        if ( spill != null ) {
+            spill.readAll(sink);
+            spill.delete();
+            spills.set(shard, null);
+        }
+        final List<T> buffer = buffers.get(shard);
+        buffer.forEach(sink);
+        recordsInRam -= buffer.size();
+        buffers.set(shard, new ArrayList<>());
+    }
+
+    /** Temporary file holding the spilled records of a single shard. */
+    private final class Spill {
+        private final File file;
+        private long nRecords = 0;
+
+        Spill( final int shard ) {
+            try {
+                file = File.createTempFile("shard" + shard + ".", ".tmp", tmpDir);
+                file.deleteOnExit();
+            } catch ( final IOException e ) {
+                throw new GATKException("Unable to create a spill file for shard " + shard, e);
+            }
+        }
+
+        // appends the records, reopening the file and closing it again, so that it is not held open between spills
+        void write( final List<T> records ) {
+            try ( final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file, true)) ) {
+                final SortingCollection.Codec<T> encoder = codec.clone();
+                encoder.setOutputStream(outputStream);
+                records.forEach(encoder::encode);
+            } catch ( final IOException e ) {
+                throw new GATKException("Unable to write spill file " + file.getAbsolutePath(), e);
+            }
+            nRecords += records.size();
+        }
+
+        void readAll( final Consumer<T> consumer ) {
+            try ( final InputStream inputStream = new BufferedInputStream(new FileInputStream(file)) ) {
+                final SortingCollection.Codec<T> decoder = codec.clone();
+                decoder.setInputStream(inputStream);
+                for ( long i = 0; i < nRecords; i++ ) {
+                    consumer.accept(decoder.decode());
+                }
+            } catch ( final IOException e ) {
+                throw new GATKException("Unable to read spill file " + file.getAbsolutePath(), e);
+            }
+        }
+
+        void delete() {
+            IOUtils.tryDelete(file);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pulls records from a source iterator on a background thread, in batches, ahead of consumption.
+ *
+ * The background thread reads up to {@code maxQueuedBatches} batches of {@code batchSize} records ahead of the
+ * consumer, passing each record to a {@code prepare} action (for example, to force lazily-decoded fields to be
+ * decoded) before queuing it. The consumer takes whole batches from the queue, so the two threads synchronize once
+ * per batch rather than once per record.
+ *
+ * The source iterator must not be used by anyone else until this iterator has been closed. Closing this iterator
+ * stops the background thread, but does not close the source.
+ *
+ * Queue-depth statistics are kept so that the batch and queue sizes can be tuned: if the consumer rarely waits,
+ * decoding is keeping up with the traversal.
+ *
+ * @param <T> type of record
+ */
+public final class ReadAheadIterator<T> implements CloseableIterator<T> {
+    private static final AtomicInteger iteratorCount = new AtomicInteger();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final Iterator<T> source;
+    private final Consumer<T> prepare;
+    private final int batchSize;
+    private final BlockingQueue<List<T>> queue;
+    private final Thread producer;
+
+    // queued by the producer after the last batch; compared by identity
+    private final List<T> endOfStream = new ArrayList<>(0);
+
+    private volatile boolean closed = false;
+    private volatile Throwable producerError = null;
+
+    // consumer state
+    private Iterator<T> currentBatch = Collections.emptyIterator();
+    private boolean exhausted = false;
+
+    // statistics
+    private long batchesConsumed = 0;
+    private long totalQueueDepth = 0;
+    private long consumerWaits = 0;
+    private volatile long producerWaits = 0;
+
+    /**
+     * @param source iterator to read ahead of
+     * @param batchSize number of records per batch
+     * @param maxQueuedBatches maximum number of batches to queue ahead of the consumer
+     * @param prepare action to perform on each record on the background thread before it is queued
+     */
+    public ReadAheadIterator( final Iterator<T> source, final int batchSize, final int maxQueuedBatches, final Consumer<T> prepare ) {
+        this.source = Utils.nonNull(source);
+        this.prepare = Utils.nonNull(prepare);
+        Utils.validateArg(batchSize > 0, "batchSize must be positive");
+        Utils.validateArg(maxQueuedBatches > 0, "maxQueuedBatches must be positive");
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(maxQueuedBatches);
+        this.producer = new ThreadFactoryBuilder()
+                .setNameFormat("read-ahead-" + iteratorCount.getAndIncrement())
+                .setDaemon(true)
+                .build()
+                .newThread(this::produce);
+        producer.start();
+    }
+
+    private void produce() {
+        try {
+            while ( !closed && source.hasNext() ) {
+                final List<T> batch = new ArrayList<>(batchSize);
+                while ( batch.size() < batchSize && source.hasNext() ) {
+                    final T record = source.next();
+                    prepare.accept(record);
+                    batch.add(record);
+                }
+                if ( !enqueue(batch) ) {
+                    return;
+                }
+            }
+        } catch ( final Throwable e ) {
+            producerError = e;
+        }
+        try {
+            enqueue(endOfStream);
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // We wait with a timeout rather than indefinitely, so that we notice when we're closed: we can't simply interrupt
+    // this thread, since an interrupt during NIO on the source would close the underlying channel.
+    private boolean enqueue( final List<T> batch ) throws InterruptedException {
+        if ( queue.offer(batch) ) {
+            return true;
+        }
+        producerWaits++;
+        while ( !closed ) {
+            if ( queue.offer(batch, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if ( currentBatch.hasNext() ) {
+            return true;
+        }
+        if ( exhausted ) {
+            return false;
+        }
+        Utils.validate(!closed, "Iterator has been closed");
+
+        final int queueDepth = queue.size();
+        List<T> batch = queue.poll();
+        if ( batch == null ) {
+            consumerWaits++;
+            try {
+                batch = queue.take();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for reads", e);
+            }
+        }
+        if ( batch == endOfStream ) {
+            exhausted = true;
+            rethrowProducerError();
+            return false;
+        }
+        batchesConsumed++;
+        totalQueueDepth += queueDepth;
+        currentBatch = batch.iterator();
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if ( !hasNext() ) {
+            throw new NoSuchElementException("No more records");
+        }
+        return currentBatch.next();
+    }
+
+    private void rethrowProducerError() {
+        final Throwable error = producerError;
+        if ( error instanceof RuntimeException ) {
+            throw (RuntimeException)error;
+        } else if ( error instanceof Error ) {
+            throw (Error)error;
+        } else if ( error != null ) {
+            throw new GATKException("Error reading ahead", error);
+        }
+    }
+
+    /**
+     * Stops the background thread. Does not close the source iterator, which may be reused once this returns.
+     */
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        try {
+            producer.join();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while stopping read-ahead thread", e);
+        }
+        queue.clear();
+        currentBatch = Collections.emptyIterator();
+    }
+
+    /** @return number of batches handed to the consumer */
+    public long getBatchesConsumed() {
+        return batchesConsumed;
+    }
+
+    /** @return mean number of batches that were waiting in the queue when the consumer asked for the next batch */
+    public double getMeanQueueDepth() {
+        return batchesConsumed == 0 ? 0.0 : (double)totalQueueDepth / batchesConsumed;
+    }
+
+    /** @return number of times the consumer found the queue empty and had to wait for a batch */
+    public long getConsumerWaits() {
+        return consumerWaits;
+    }
+
+    /** @return number of times the background thread found the queue full and had to wait for the consumer */
+    public long getProducerWaits() {
+        return producerWaits;
+    }
+
+    public String getStatistics() {
+        return String.format("Read-ahead batches consumed: %d, mean queue depth: %.2f, consumer waits: %d, producer waits: %d",
+                getBatchesConsumed(), getMeanQueueDepth(), getConsumerWaits(), getProducerWaits());
+    }
+}
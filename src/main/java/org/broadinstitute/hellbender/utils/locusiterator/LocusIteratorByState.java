@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.PrimitivePileup;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
@@ -78,6 +79,13 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      */
     private final boolean includeReadsWithNsAtLoci;
 
+    /**
+     * If non-null, the AlignmentContexts we produce are backed by primitive pileups rather than by lists of
+     * PileupElements, and this holds the pileups of released contexts (see {@link AlignmentContext#release}),
+     * whose arrays are reused for later loci
+     */
+    private final Deque<PrimitivePileup> freePrimitivePileups;
+
     /**
      * The next alignment context.  A non-null value means that a
      * context is waiting from hasNext() for sending off to the next next() call.  A null
@@ -209,6 +217,44 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                                 final SAMFileHeader header,
                                 final boolean includeReadsWithDeletionAtLoci,
                                 final boolean includeReadsWithNsAtLoci) {
+        this(samIterator,
+                downsamplingInfo,
+                keepUniqueReadListInLIBS,
+                samples,
+                header,
+                includeReadsWithDeletionAtLoci,
+                includeReadsWithNsAtLoci,
+                false
+        );
+    }
+
+    /**
+     * Create a new LocusIteratorByState
+     *
+     * @param samIterator                    the iterator of reads to process into pileups.  Reads must be ordered
+     *                                       according to standard coordinate-sorted BAM conventions
+     * @param downsamplingInfo               meta-information about how to downsample the reads
+     * @param keepUniqueReadListInLIBS       if true, we will keep the unique reads from the samIterator and make them
+     *                                       available via the transferReadsFromAllPreviousPileups interface
+     * @param samples                        a complete list of samples present in the read groups for the reads coming from samIterator.
+     *                                       This is generally just the set of read group sample fields in the SAMFileHeader.  This
+     *                                       list of samples may contain a null element, and all reads without read groups will
+     *                                       be mapped to this null sample
+     * @param header                         header from the reads
+     * @param includeReadsWithDeletionAtLoci Include reads with deletion at loci
+     * @param includeReadsWithNsAtLoci       Include reads with Ns at loci (usually it is not needed)
+     * @param usePrimitivePileups            if true, produce AlignmentContexts backed by {@link PrimitivePileup}s, whose
+     *                                       PileupElements are only created if the {@link ReadPileup} is requested, and
+     *                                       whose pileups are reused for later loci once they are released
+     */
+    public LocusIteratorByState(final Iterator<GATKRead> samIterator,
+                                final LIBSDownsamplingInfo downsamplingInfo,
+                                final boolean keepUniqueReadListInLIBS,
+                                final Collection<String> samples,
+                                final SAMFileHeader header,
+                                final boolean includeReadsWithDeletionAtLoci,
+                                final boolean includeReadsWithNsAtLoci,
+                                final boolean usePrimitivePileups) {
         Utils.nonNull(samIterator, "samIterator cannot be null");
         Utils.nonNull(downsamplingInfo, "downsamplingInfo cannot be null");
         Utils.nonNull(samples, "Samples cannot be null");
@@ -222,6 +268,7 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
 
         this.includeReadsWithDeletionAtLoci = includeReadsWithDeletionAtLoci;
         this.includeReadsWithNsAtLoci = includeReadsWithNsAtLoci;
+        this.freePrimitivePileups = usePrimitivePileups ? new ArrayDeque<>() : null;
         this.samples = new ArrayList<>(samples);
         this.readStates = new ReadStateManager(samIterator, this.samples, downsamplingInfo, keepUniqueReadListInLIBS, header);
     }
@@ -311,6 +358,11 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      * next entry.
      */
     private void lazyLoadNextAlignmentContext() {
+        if (freePrimitivePileups != null) {
+            lazyLoadNextPrimitiveAlignmentContext();
+            return;
+        }
+
         while (nextAlignmentContext == null && readStates.hasNext()) {
             readStates.collectPendingReads();
 
@@ -325,18 +377,7 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                 while (iterator.hasNext()) {
                     // state object with the read/offset information
                     final AlignmentStateMachine state = iterator.next();
-                    final GATKRead read = state.getRead();
-                    final CigarOperator op = state.getCigarOperator();
-
-                    if (!includeReadsWithNsAtLoci && op == CigarOperator.N) {
-                        continue;
-                    }
-
-                    if (!dontIncludeReadInPileup(read, location.getStart())) {
-                        if (!includeReadsWithDeletionAtLoci && op == CigarOperator.D) {
-                            continue;
-                        }
-
+                    if (includeInPileup(state, location)) {
                         pile.add(state.makePileupElement());
                     }
                 }
@@ -353,6 +394,60 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
         }
     }
 
+    /**
+     * As {@link #lazyLoadNextAlignmentContext}, but accumulates the pileup in a primitive pileup rather than in
+     * per-sample lists of PileupElements.  The elements are in the same order in both cases.  The pileup is one
+     * released by an earlier context if there is one, so once the released pileups have grown to the depth of coverage
+     * no arrays are allocated per locus; it is handed to the context as is rather than copied.
+     */
+    private void lazyLoadNextPrimitiveAlignmentContext() {
+        if (nextAlignmentContext != null) {
+            return;
+        }
+        final PrimitivePileup pileup = freePrimitivePileups.isEmpty() ? new PrimitivePileup(null) : freePrimitivePileups.pop();
+        while (nextAlignmentContext == null && readStates.hasNext()) {
+            readStates.collectPendingReads();
+
+            final Locatable location = getLocation();
+            pileup.clear(location);
+            for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
+                for (final AlignmentStateMachine state : sampleStatePair.getValue()) {
+                    if (includeInPileup(state, location)) {
+                        pileup.add(state.getRead(),
+                                state.getReadOffset(),
+                                state.getCurrentCigarElement(),
+                                state.getCurrentCigarElementOffset(),
+                                state.getOffsetIntoCurrentCigarElement());
+                    }
+                }
+            }
+
+            readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
+            if (!pileup.isEmpty()) {
+                nextAlignmentContext = AlignmentContext.fromPrimitivePileup(location, pileup, freePrimitivePileups::push);
+            }
+        }
+        if (nextAlignmentContext == null) {
+            // no more loci, so keep the pileup for reuse without holding on to any reads
+            pileup.clear(null);
+            freePrimitivePileups.push(pileup);
+        }
+    }
+
+    /**
+     * Should the read in this state be included in the pileup at location?
+     */
+    private boolean includeInPileup(final AlignmentStateMachine state, final Locatable location) {
+        final CigarOperator op = state.getCigarOperator();
+        if (!includeReadsWithNsAtLoci && op == CigarOperator.N) {
+            return false;
+        }
+        if (dontIncludeReadInPileup(state.getRead(), location.getStart())) {
+            return false;
+        }
+        return includeReadsWithDeletionAtLoci || op != CigarOperator.D;
+    }
+
     /**
      * Should this read be excluded from the pileup?
      *
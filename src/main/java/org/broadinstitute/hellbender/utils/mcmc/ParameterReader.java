@@ -44,4 +44,9 @@ public final class ParameterReader<T extends Enum<T> & ParameterEnum> extends Ta
         posteriorSummary.setDeciles(deciles);
         return new AbstractMap.SimpleEntry<>(parameter, posteriorSummary);
     }
+
+    @Override
+    protected boolean usesDefaultLineClassification() {
+        return true;
+    }
 }
@@ -0,0 +1,246 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A pileup of reads at a given position, stored in parallel primitive arrays rather than as a list of
+ * {@link PileupElement}s.
+ *
+ * Element {@code i} of the pileup is described by the read, the offset into the read, the cigar element (and its index
+ * in the read's cigar, and the offset into it) aligning the read to this position, and the base, quality and flags at
+ * that offset. The base and quality follow the conventions of {@link PileupElement#getBase} and
+ * {@link PileupElement#getQual} for deletions.
+ *
+ * {@link PileupElement}s, and a {@link ReadPileup} of them, are only created when asked for, so tools that only need
+ * bases and qualities (such as allele counters) can work from the arrays without allocating an object per read per
+ * locus. The arrays are grown as needed and can be reused by calling {@link #clear} before filling the pileup again.
+ */
+public final class PrimitivePileup {
+    /** flag set for elements whose read has a deletion at this position */
+    public static final byte DELETION_FLAG = 1;
+    /** flag set for elements whose read has a reference skip (N) at this position */
+    public static final byte REF_SKIP_FLAG = 2;
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private Locatable location;
+    private int size;
+
+    private GATKRead[] reads;
+    private int[] offsets;
+    private CigarElement[] cigarElements;
+    private int[] cigarElementIndices;
+    private int[] offsetsIntoCigarElements;
+    private byte[] bases;
+    private byte[] quals;
+    private byte[] flags;
+
+    /**
+     * Create a new empty pileup at location
+     */
+    public PrimitivePileup( final Locatable location ) {
+        this(location, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a new empty pileup at location, with room for initialCapacity elements
+     */
+    public PrimitivePileup( final Locatable location, final int initialCapacity ) {
+        Utils.validateArg(initialCapacity >= 0, "initialCapacity must be non-negative");
+        this.location = location;
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Create a primitive pileup with the elements of a ReadPileup
+     */
+    public static PrimitivePileup of( final ReadPileup pileup ) {
+        Utils.nonNull(pileup);
+        final PrimitivePileup result = new PrimitivePileup(pileup.getLocation(), pileup.size());
+        for ( final PileupElement pe : pileup ) {
+            result.add(pe.getRead(), pe.getOffset(), pe.getCurrentCigarElement(), pe.getCurrentCigarOffset(), pe.getOffsetInCurrentCigar());
+        }
+        return result;
+    }
+
+    private void allocate( final int capacity ) {
+        reads = new GATKRead[capacity];
+        offsets = new int[capacity];
+        cigarElements = new CigarElement[capacity];
+        cigarElementIndices = new int[capacity];
+        offsetsIntoCigarElements = new int[capacity];
+        bases = new byte[capacity];
+        quals = new byte[capacity];
+        flags = new byte[capacity];
+    }
+
+    private void ensureCapacity( final int capacity ) {
+        if ( capacity > reads.length ) {
+            final int newCapacity = Math.max(capacity, 2 * reads.length);
+            reads = Arrays.copyOf(reads, newCapacity);
+            offsets = Arrays.copyOf(offsets, newCapacity);
+            cigarElements = Arrays.copyOf(cigarElements, newCapacity);
+            cigarElementIndices = Arrays.copyOf(cigarElementIndices, newCapacity);
+            offsetsIntoCigarElements = Arrays.copyOf(offsetsIntoCigarElements, newCapacity);
+            bases = Arrays.copyOf(bases, newCapacity);
+            quals = Arrays.copyOf(quals, newCapacity);
+            flags = Arrays.copyOf(flags, newCapacity);
+        }
+    }
+
+    /**
+     * Empty this pileup and move it to a new location, keeping the arrays for reuse
+     */
+    public void clear( final Locatable location ) {
+        // drop the read references so that we don't keep reads alive
+        Arrays.fill(reads, 0, size, null);
+        Arrays.fill(cigarElements, 0, size, null);
+        this.location = location;
+        this.size = 0;
+    }
+
+    /**
+     * Add an element to this pileup. The arguments are as for {@link PileupElement#PileupElement}.
+     */
+    public void add( final GATKRead read,
+                     final int baseOffset,
+                     final CigarElement currentElement,
+                     final int currentCigarOffset,
+                     final int offsetInCurrentCigar ) {
+        ensureCapacity(size + 1);
+        final CigarOperator op = currentElement.getOperator();
+        final boolean isDeletion = op == CigarOperator.D;
+        reads[size] = read;
+        offsets[size] = baseOffset;
+        cigarElements[size] = currentElement;
+        cigarElementIndices[size] = currentCigarOffset;
+        offsetsIntoCigarElements[size] = offsetInCurrentCigar;
+        bases[size] = isDeletion ? PileupElement.DELETION_BASE : read.getBase(baseOffset);
+        quals[size] = isDeletion ? PileupElement.DELETION_QUAL : read.getBaseQuality(baseOffset);
+        flags[size] = isDeletion ? DELETION_FLAG : (op == CigarOperator.N ? REF_SKIP_FLAG : 0);
+        size++;
+    }
+
+    /**
+     * @return a copy of this pileup whose arrays are trimmed to its size
+     */
+    public PrimitivePileup copy() {
+        final PrimitivePileup result = new PrimitivePileup(location, 0);
+        result.size = size;
+        result.reads = Arrays.copyOf(reads, size);
+        result.offsets = Arrays.copyOf(offsets, size);
+        result.cigarElements = Arrays.copyOf(cigarElements, size);
+        result.cigarElementIndices = Arrays.copyOf(cigarElementIndices, size);
+        result.offsetsIntoCigarElements = Arrays.copyOf(offsetsIntoCigarElements, size);
+        result.bases = Arrays.copyOf(bases, size);
+        result.quals = Arrays.copyOf(quals, size);
+        result.flags = Arrays.copyOf(flags, size);
+        return result;
+    }
+
+    public Locatable getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the number of elements in this pileup
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public GATKRead getRead( final int i ) {
+        Utils.validIndex(i, size);
+        return reads[i];
+    }
+
+    /**
+     * @return the offset into the read of element i (for a deletion, the offset of the last aligned base before it)
+     */
+    public int getOffset( final int i ) {
+        Utils.validIndex(i, size);
+        return offsets[i];
+    }
+
+    /**
+     * @return the base of element i, or {@link PileupElement#DELETION_BASE} if it is a deletion
+     */
+    public byte getBase( final int i ) {
+        Utils.validIndex(i, size);
+        return bases[i];
+    }
+
+    /**
+     * @return the base quality of element i, or {@link PileupElement#DELETION_QUAL} if it is a deletion
+     */
+    public byte getQual( final int i ) {
+        Utils.validIndex(i, size);
+        return quals[i];
+    }
+
+    /**
+     * @return the flags of element i ({@link #DELETION_FLAG}, {@link #REF_SKIP_FLAG})
+     */
+    public byte getFlags( final int i ) {
+        Utils.validIndex(i, size);
+        return flags[i];
+    }
+
+    public boolean isDeletion( final int i ) {
+        return (getFlags(i) & DELETION_FLAG) != 0;
+    }
+
+    public boolean isRefSkip( final int i ) {
+        return (getFlags(i) & REF_SKIP_FLAG) != 0;
+    }
+
+    /**
+     * @return the bases of this pileup, in a new array
+     */
+    public byte[] getBases() {
+        return Arrays.copyOf(bases, size);
+    }
+
+    /**
+     * @return the base qualities of this pileup, in a new array
+     */
+    public byte[] getBaseQuals() {
+        return Arrays.copyOf(quals, size);
+    }
+
+    /**
+     * @return a new PileupElement for element i
+     */
+    public PileupElement getPileupElement( final int i ) {
+        Utils.validIndex(i, size);
+        return new PileupElement(reads[i], offsets[i], cigarElements[i], cigarElementIndices[i], offsetsIntoCigarElements[i]);
+    }
+
+    /**
+     * @return a new ReadPileup holding a PileupElement for every element of this pileup, in order
+     */
+    public ReadPileup toReadPileup() {
+        final List<PileupElement> elements = new ArrayList<>(size);
+        for ( int i = 0; i < size; i++ ) {
+            elements.add(getPileupElement(i));
+        }
+        return new ReadPileup(location, elements);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s", location, new String(bases, 0, size));
+    }
+}
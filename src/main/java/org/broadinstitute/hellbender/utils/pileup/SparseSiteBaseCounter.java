@@ -0,0 +1,190 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the bases of reads at a fixed, possibly very large and sparse, set of sites, without building a pileup
+ * at each of them.
+ *
+ * The sites are every position of a list of intervals, numbered in the order of the list. Each read added is
+ * matched against the sorted intervals of its contig with a binary search, and its CIGAR is walked once to increment
+ * the counts of A, C, G and T (indexed as by {@link BaseUtils#simpleBaseToBaseIndex}) at the sites covered by its
+ * aligned bases. As in a pileup, deleted and skipped positions are not counted, and neither are soft-clipped or
+ * inserted bases; other base calls (such as N) and bases below the minimum quality are ignored. Reads may be added
+ * in any order, so the input need not be traversed locus by locus, and memory use is a constant four counts per
+ * site.
+ *
+ * With no downsampling, the counts at a site are the base counts of the pileup that
+ * {@link org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState} builds there from the same reads.
+ */
+public final class SparseSiteBaseCounter {
+
+    private final Map<String, ContigSites> sitesByContig = new HashMap<>();
+    private final int minBaseQuality;
+    private final int numSites;
+    private final int[] counts;
+
+    // statistics
+    private long readsAdded = 0;
+    private long basesCounted = 0;
+
+    /**
+     * @param intervals the intervals whose positions are the sites; the intervals on each contig must be sorted and
+     *                  non-overlapping, but the contigs may come in any order
+     * @param minBaseQuality minimum quality of a base for it to be counted
+     */
+    public SparseSiteBaseCounter(final List<? extends Locatable> intervals, final int minBaseQuality) {
+        Utils.nonNull(intervals);
+        ParamUtils.isPositiveOrZero(minBaseQuality, "Minimum base quality must be zero or higher.");
+        this.minBaseQuality = minBaseQuality;
+
+        long site = 0;
+        for (final Locatable interval : intervals) {
+            Utils.nonNull(interval);
+            Utils.validateArg(interval.getStart() <= interval.getEnd(), () -> "Empty interval " + interval);
+            sitesByContig.computeIfAbsent(interval.getContig(), contig -> new ContigSites())
+                    .add(interval, (int) site);
+            site += interval.getEnd() - interval.getStart() + 1;
+            Utils.validateArg(site <= Integer.MAX_VALUE / BaseUtils.BASES.length, "Too many sites");
+        }
+        this.numSites = (int) site;
+        this.counts = new int[numSites * BaseUtils.BASES.length];
+        sitesByContig.values().forEach(ContigSites::trim);
+    }
+
+    /**
+     * @return the number of sites, which are numbered from 0 in the order of the intervals given to the constructor
+     */
+    public int getNumSites() {
+        return numSites;
+    }
+
+    /**
+     * Counts the bases of a read at the sites it covers. Unmapped reads are ignored.
+     */
+    public void add(final GATKRead read) {
+        Utils.nonNull(read);
+        readsAdded++;
+        if (read.isUnmapped()) {
+            return;
+        }
+        final ContigSites sites = sitesByContig.get(read.getContig());
+        if (sites == null) {
+            return;
+        }
+        final int numIntervals = sites.size;
+        int interval = sites.firstIntervalEndingAtOrAfter(read.getStart());
+        int refPosition = read.getStart();
+        int readOffset = 0;
+        final int numCigarElements = read.numCigarElements();
+        for (int e = 0; e < numCigarElements && interval < numIntervals; e++) {
+            final CigarElement element = read.getCigarElement(e);
+            final CigarOperator operator = element.getOperator();
+            final int length = element.getLength();
+            if (operator.isAlignment()) {
+                final int blockEnd = refPosition + length - 1;
+                while (interval < numIntervals && sites.starts[interval] <= blockEnd) {
+                    final int from = Math.max(refPosition, sites.starts[interval]);
+                    final int to = Math.min(blockEnd, sites.ends[interval]);
+                    for (int position = from; position <= to; position++) {
+                        count(read, readOffset + position - refPosition, sites.firstSites[interval] + position - sites.starts[interval]);
+                    }
+                    if (sites.ends[interval] > blockEnd) {
+                        break;
+                    }
+                    interval++;
+                }
+            }
+            if (operator.consumesReadBases()) {
+                readOffset += length;
+            }
+            if (operator.consumesReferenceBases()) {
+                refPosition += length;
+                // skip the intervals that were deleted or skipped over
+                while (interval < numIntervals && sites.ends[interval] < refPosition) {
+                    interval++;
+                }
+            }
+        }
+    }
+
+    private void count(final GATKRead read, final int offset, final int site) {
+        if (minBaseQuality > 0 && read.getBaseQuality(offset) < minBaseQuality) {
+            return;
+        }
+        final int baseIndex = BaseUtils.simpleBaseToBaseIndex(read.getBase(offset));
+        if (baseIndex != -1) {
+            counts[site * BaseUtils.BASES.length + baseIndex]++;
+            basesCounted++;
+        }
+    }
+
+    /**
+     * @return the number of bases counted at a site, for a base index as given by {@link BaseUtils#simpleBaseToBaseIndex}
+     */
+    public int getCount(final int site, final int baseIndex) {
+        Utils.validIndex(site, numSites);
+        Utils.validIndex(baseIndex, BaseUtils.BASES.length);
+        return counts[site * BaseUtils.BASES.length + baseIndex];
+    }
+
+    /**
+     * @return the counts of A, C, G and T at a site, indexed as by {@link BaseUtils#simpleBaseToBaseIndex}, in the
+     * same form as {@link ReadPileup#getBaseCounts}
+     */
+    public int[] getBaseCounts(final int site) {
+        Utils.validIndex(site, numSites);
+        final int from = site * BaseUtils.BASES.length;
+        return Arrays.copyOfRange(counts, from, from + BaseUtils.BASES.length);
+    }
+
+    public String getStatistics() {
+        return String.format("Counted %d bases at %d sites from %d reads", basesCounted, numSites, readsAdded);
+    }
+
+    /** The intervals on one contig, as sorted parallel arrays. */
+    private static final class ContigSites {
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        // the number of the first site of each interval
+        private int[] firstSites = new int[16];
+        private int size = 0;
+
+        void add(final Locatable interval, final int firstSite) {
+            Utils.validateArg(size == 0 || interval.getStart() > ends[size - 1],
+                    () -> "Intervals must be sorted and non-overlapping, but " + interval + " follows one ending at " + ends[size - 1]);
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * size);
+                ends = Arrays.copyOf(ends, 2 * size);
+                firstSites = Arrays.copyOf(firstSites, 2 * size);
+            }
+            starts[size] = interval.getStart();
+            ends[size] = interval.getEnd();
+            firstSites[size] = firstSite;
+            size++;
+        }
+
+        void trim() {
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+            firstSites = Arrays.copyOf(firstSites, size);
+        }
+
+        // since the intervals are sorted and disjoint, their ends are sorted too
+        int firstIntervalEndingAtOrAfter(final int position) {
+            final int index = Arrays.binarySearch(ends, 0, size, position);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Encodes reads as uncompressed BAM records, for temporary storage. Reads are converted to SAM format on the way out,
+ * as they would be by a {@link SAMFileGATKReadWriter}, and decoded reads are backed by lazily-decoded {@link SAMRecord}s.
+ */
+public final class GATKReadCodec implements SortingCollection.Codec<GATKRead> {
+    private final SAMFileHeader header;
+    private final BAMRecordCodec bamCodec;
+
+    public GATKReadCodec( final SAMFileHeader header ) {
+        this.header = Utils.nonNull(header);
+        this.bamCodec = new BAMRecordCodec(header);
+    }
+
+    @Override
+    public void setOutputStream( final OutputStream os ) {
+        bamCodec.setOutputStream(os);
+    }
+
+    @Override
+    public void setInputStream( final InputStream is ) {
+        bamCodec.setInputStream(is);
+    }
+
+    @Override
+    public void encode( final GATKRead read ) {
+        bamCodec.encode(read.convertToSAMRecord(header));
+    }
+
+    /**
+     * @return the next read, or null at the end of the input
+     */
+    @Override
+    public GATKRead decode() {
+        final SAMRecord record = bamCodec.decode();
+        return record == null ? null : new SAMRecordToGATKReadAdapter(record);
+    }
+
+    @Override
+    public GATKReadCodec clone() {
+        return new GATKReadCodec(header);
+    }
+}
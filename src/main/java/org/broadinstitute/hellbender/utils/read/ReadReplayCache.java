@@ -0,0 +1,227 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import com.google.common.io.CountingOutputStream;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * Records a stream of reads once so that it can be replayed later without going back to the original source, for
+ * instance for the second pass of a two-pass traversal.
+ *
+ * Reads are stored as uncompressed BAM records (see {@link GATKReadCodec}), so replaying them costs neither block
+ * decompression nor any of the filtering and transformation done before they were added. They are kept in memory
+ * until they take up more than {@code maxBytesInMemory}, at which point they are spilled to a temporary file, and
+ * all further reads are appended to that file.
+ *
+ * Reads are encoded as they are added, so later changes to a read object are not recorded.
+ */
+public final class ReadReplayCache implements AutoCloseable {
+
+    // the largest buffer a ByteArrayOutputStream can safely grow to
+    private static final long MAX_IN_MEMORY_BYTES = Integer.MAX_VALUE - 8;
+
+    private final GATKReadCodec encoder;
+    private final long maxBytesInMemory;
+    private final File tmpDir;
+
+    private InMemoryBuffer memory = new InMemoryBuffer();
+    private File spillFile = null;
+    private CountingOutputStream output;
+    // number of bytes recorded in memory before the reads were spilled
+    private long bytesBeforeSpill = 0;
+
+    private long numReads = 0;
+    private boolean recording = true;
+    private boolean closed = false;
+
+    // statistics
+    private long recordingNanos = 0;
+    private long replayNanos = 0;
+    private long readsReplayed = 0;
+
+    /**
+     * @param header header of the reads, used to encode them
+     * @param maxBytesInMemory maximum size of the encoded reads to keep in memory before spilling them to disk
+     *                         (0 to always spill)
+     * @param tmpDir directory for the spill file, or null to use the default temporary directory
+     */
+    public ReadReplayCache( final SAMFileHeader header, final long maxBytesInMemory, final File tmpDir ) {
+        Utils.nonNull(header);
+        Utils.validateArg(maxBytesInMemory >= 0, "maxBytesInMemory must be non-negative");
+        this.encoder = new GATKReadCodec(header);
+        this.maxBytesInMemory = Math.min(maxBytesInMemory, MAX_IN_MEMORY_BYTES);
+        this.tmpDir = tmpDir;
+        this.output = new CountingOutputStream(memory);
+        encoder.setOutputStream(output);
+    }
+
+    /**
+     * Records a read, to be returned by {@link #replay} in the order added.
+     */
+    public void add( final GATKRead read ) {
+        Utils.nonNull(read);
+        Utils.validate(recording, "Reads cannot be added to a cache once it has been replayed");
+        final long start = System.nanoTime();
+        encoder.encode(read);
+        numReads++;
+        if ( memory != null && memory.size() > maxBytesInMemory ) {
+            spill();
+        }
+        recordingNanos += System.nanoTime() - start;
+    }
+
+    // moves the reads recorded so far to a temporary file, and redirects further reads there
+    private void spill() {
+        try {
+            spillFile = File.createTempFile("readReplayCache.", ".tmp", tmpDir);
+            spillFile.deleteOnExit();
+            final OutputStream fileStream = new BufferedOutputStream(new FileOutputStream(spillFile), 1 << 20);
+            memory.writeTo(fileStream);
+            bytesBeforeSpill = memory.size();
+            output = new CountingOutputStream(fileStream);
+        } catch ( final IOException e ) {
+            throw new GATKException("Unable to spill cached reads to a temporary file", e);
+        }
+        encoder.setOutputStream(output);
+        memory = null;
+    }
+
+    /**
+     * Ends recording (no more reads may be added), and returns the recorded reads in the order they were added.
+     * May be called more than once, but each iterator should be closed before the next is requested.
+     */
+    public CloseableIterator<GATKRead> replay() {
+        Utils.validate(!closed, "The cache has been closed");
+        if ( recording ) {
+            recording = false;
+            try {
+                output.close();
+            } catch ( final IOException e ) {
+                throw new GATKException("Unable to finish writing cached reads to " + spillFile.getAbsolutePath(), e);
+            }
+        }
+        final InputStream input;
+        try {
+            input = memory != null ? memory.toInputStream() : new BufferedInputStream(new FileInputStream(spillFile), 1 << 20);
+        } catch ( final IOException e ) {
+            throw new GATKException("Unable to read cached reads from " + spillFile.getAbsolutePath(), e);
+        }
+        return new ReplayIterator(input);
+    }
+
+    /**
+     * @return number of reads recorded
+     */
+    public long getNumReads() {
+        return numReads;
+    }
+
+    /**
+     * @return total size of the encoded reads, in bytes
+     */
+    public long getNumBytes() {
+        return bytesBeforeSpill + output.getCount();
+    }
+
+    /**
+     * @return true if the reads have been spilled to disk
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    public String getStatistics() {
+        return String.format("Read replay cache: %d reads, %.1f MB %s; recorded at %.0f reads/s, replayed at %.0f reads/s",
+                numReads, getNumBytes() / (1024.0 * 1024.0), isSpilled() ? "spilled to disk" : "in memory",
+                rate(numReads, recordingNanos), rate(readsReplayed, replayNanos));
+    }
+
+    private static double rate( final long reads, final long nanos ) {
+        return nanos > 0 ? reads / (nanos / 1e9) : 0.0;
+    }
+
+    /**
+     * Discards the recorded reads, deleting the spill file if there is one.
+     */
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        try {
+            output.close();
+        } catch ( final IOException e ) {
+            // we're only cleaning up
+        }
+        memory = null;
+        if ( spillFile != null ) {
+            IOUtils.tryDelete(spillFile);
+        }
+    }
+
+    private final class ReplayIterator implements CloseableIterator<GATKRead> {
+        private final InputStream input;
+        private final GATKReadCodec decoder = encoder.clone();
+        private long remaining = numReads;
+
+        ReplayIterator( final InputStream input ) {
+            this.input = input;
+            decoder.setInputStream(input);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public GATKRead next() {
+            if ( !hasNext() ) {
+                throw new NoSuchElementException("No more cached reads");
+            }
+            final long start = System.nanoTime();
+            final GATKRead read = decoder.decode();
+            Utils.validate(read != null, "The read cache ended early");
+            remaining--;
+            readsReplayed++;
+            replayNanos += System.nanoTime() - start;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            try {
+                input.close();
+            } catch ( final IOException e ) {
+                // we're only cleaning up
+            }
+        }
+    }
+
+    /** Exposes its buffer, so the recorded reads can be replayed without copying them. */
+    private static final class InMemoryBuffer extends ByteArrayOutputStream {
+        InMemoryBuffer() {
+            super(1 << 16);
+        }
+
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
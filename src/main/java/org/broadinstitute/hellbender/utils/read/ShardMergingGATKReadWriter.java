@@ -0,0 +1,88 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ShardedOutputMerger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes the reads produced by a number of concurrent shard workers to a single {@link GATKReadWriter},
+ * with no separate gather step.
+ *
+ * Each worker writes through the writer returned by {@link #getShardWriter}, and closes it when it is done.
+ * Reads from the lowest unfinished shard are written as they arrive; reads from later shards are held in
+ * memory, or spilled to temporary BAM-encoded files beyond {@code maxRecordsInRam}, until the earlier shards are
+ * closed. See {@link ShardedOutputMerger}. If the shards are ordered and non-overlapping and each worker writes its
+ * reads in order, the output is sorted, so the underlying writer can index it on the fly.
+ */
+public final class ShardMergingGATKReadWriter implements Closeable {
+
+    private final GATKReadWriter underlyingWriter;
+    private final ShardedOutputMerger<GATKRead> merger;
+
+    /**
+     * @param underlyingWriter the ultimate destination of the reads
+     * @param header header used to encode spilled reads
+     * @param numShards number of shard workers
+     * @param maxRecordsInRam maximum number of held reads to keep in memory
+     * @param tmpDir directory for spill files, or null to use the default temporary directory
+     */
+    public ShardMergingGATKReadWriter( final GATKReadWriter underlyingWriter,
+                                       final SAMFileHeader header,
+                                       final int numShards,
+                                       final int maxRecordsInRam,
+                                       final File tmpDir ) {
+        this.underlyingWriter = Utils.nonNull(underlyingWriter);
+        Utils.nonNull(header);
+        this.merger = new ShardedOutputMerger<>(numShards, underlyingWriter::addRead, new GATKReadCodec(header), maxRecordsInRam, tmpDir);
+    }
+
+    /**
+     * Adds a read produced by the given shard.
+     */
+    public void addRead( final int shard, final GATKRead read ) {
+        merger.add(shard, read);
+    }
+
+    /**
+     * Marks the given shard as finished.
+     */
+    public void completeShard( final int shard ) {
+        merger.completeShard(shard);
+    }
+
+    /**
+     * @return a writer for a single shard worker, which completes the shard when it is closed
+     */
+    public GATKReadWriter getShardWriter( final int shard ) {
+        Utils.validateArg(shard >= 0 && shard < merger.getNumShards(), () -> "Invalid shard ordinal " + shard);
+        return new GATKReadWriter() {
+            @Override
+            public void addRead( final GATKRead read ) {
+                merger.add(shard, read);
+            }
+
+            @Override
+            public void close() {
+                merger.completeShard(shard);
+            }
+        };
+    }
+
+    /**
+     * Closes the underlying writer.
+     *
+     * @throws IllegalStateException if some shard was not completed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            merger.close();
+        } finally {
+            underlyingWriter.close();
+        }
+    }
+}
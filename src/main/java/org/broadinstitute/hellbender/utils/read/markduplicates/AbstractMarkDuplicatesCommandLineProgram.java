@@ -207,6 +207,14 @@ public abstract class AbstractMarkDuplicatesCommandLineProgram extends AbstractO
      * and checking of the inputs.
      */
     protected SamHeaderAndIterator openInputs() {
+        return openInputs(false);
+    }
+
+    /**
+     * Opens the inputs, checking that they are coordinate sorted, or (if querynameGrouped) that the reads with the
+     * same name are together: the inputs are queryname sorted, or a single input has group order query.
+     */
+    protected SamHeaderAndIterator openInputs(final boolean querynameGrouped) {
         final List<SAMFileHeader> headers = new ArrayList<>(INPUT.size());
         final List<SamReader> readers = new ArrayList<>(INPUT.size());
 
@@ -217,7 +225,14 @@ public abstract class AbstractMarkDuplicatesCommandLineProgram extends AbstractO
                     .open(f); // eager decode
             final SAMFileHeader header = reader.getFileHeader();
 
-            if (!ASSUME_SORTED && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+            if (querynameGrouped) {
+                final boolean grouped = header.getSortOrder() == SAMFileHeader.SortOrder.queryname ||
+                        (INPUT.size() == 1 && header.getGroupOrder() == SAMFileHeader.GroupOrder.query);
+                if (!ASSUME_SORTED && !grouped) {
+                    throw new UserException("Input file " + f.getAbsolutePath() + " is not queryname sorted" +
+                            (INPUT.size() == 1 ? " or grouped by query name." : "."));
+                }
+            } else if (!ASSUME_SORTED && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
                 throw new UserException("Input file " + f.getAbsolutePath() + " is not coordinate sorted.");
             }
 
@@ -228,7 +243,8 @@ public abstract class AbstractMarkDuplicatesCommandLineProgram extends AbstractO
         if (headers.size() == 1) {
             return new SamHeaderAndIterator(headers.get(0), readers.get(0).iterator(), readers);
         } else {
-            final SamFileHeaderMerger headerMerger = new SamFileHeaderMerger(SAMFileHeader.SortOrder.coordinate, headers, false);
+            final SAMFileHeader.SortOrder sortOrder = querynameGrouped ? SAMFileHeader.SortOrder.queryname : SAMFileHeader.SortOrder.coordinate;
+            final SamFileHeaderMerger headerMerger = new SamFileHeaderMerger(sortOrder, headers, false);
             final MergingSamRecordIterator iterator = new MergingSamRecordIterator(headerMerger, readers, ASSUME_SORTED);
             return new SamHeaderAndIterator(headerMerger.getMergedHeader(), iterator, readers);
         }
@@ -0,0 +1,460 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * A sorting collection of {@link ReadEndsForMarkDuplicates}, which stores each read end as a fixed-width record of
+ * {@link #LONGS_PER_RECORD} longs in one array, rather than as an object, and sorts the records in place.
+ *
+ * Read ends are sorted by library, then by the reference index, coordinate and orientation of read 1, then by the
+ * reference index and coordinate of read 2, and then by their indexes in the file, as by MarkDuplicates'
+ * comparator. When more than {@code maxRecordsInRam} read ends have been added, the records in memory are sorted and
+ * spilled to a temporary file, and the files are merged when the read ends are iterated.
+ *
+ * Iteration returns a new {@link ReadEndsForMarkDuplicates} object for each read end.
+ */
+public final class PackedReadEnds implements Iterable<ReadEndsForMarkDuplicates> {
+
+    /**
+     * Number of longs in a packed read end:
+     * <ol>
+     *     <li>library id, orientation, orientation for optical duplicates, score and read group</li>
+     *     <li>read 1 reference index and coordinate</li>
+     *     <li>read 2 reference index and coordinate</li>
+     *     <li>read 1 index in file</li>
+     *     <li>read 2 index in file</li>
+     *     <li>tile, x and y</li>
+     * </ol>
+     */
+    public static final int LONGS_PER_RECORD = 6;
+
+    /**
+     * Size in memory of a packed read end, in bytes.
+     */
+    public static final int SIZE_OF = LONGS_PER_RECORD * Long.BYTES;
+
+    // the largest array a JVM can safely allocate
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private final int maxRecordsInRam;
+    private final List<File> tmpDirs;
+
+    private long[] data;
+    private int size = 0;
+    private final long[] swapSpace = new long[LONGS_PER_RECORD];
+
+    private final List<File> runs = new ArrayList<>();
+    private long numRecords = 0;
+    private long spillBytes = 0;
+    private boolean iterated = false;
+
+    /**
+     * @param maxRecordsInRam maximum number of read ends to hold in memory before spilling them to disk
+     * @param tmpDirs directories for the spill files, used in turn; if empty, the default temporary directory is used
+     */
+    public PackedReadEnds(final int maxRecordsInRam, final List<File> tmpDirs) {
+        Utils.validateArg(maxRecordsInRam > 0, "maxRecordsInRam must be positive");
+        Utils.nonNull(tmpDirs);
+        this.maxRecordsInRam = Math.min(maxRecordsInRam, MAX_ARRAY_LENGTH / LONGS_PER_RECORD);
+        this.tmpDirs = tmpDirs.isEmpty() ? Collections.singletonList(null) : new ArrayList<>(tmpDirs);
+        this.data = new long[Math.min(INITIAL_CAPACITY, this.maxRecordsInRam) * LONGS_PER_RECORD];
+    }
+
+    /**
+     * Adds a copy of a read end.
+     */
+    public void add(final ReadEndsForMarkDuplicates ends) {
+        Utils.nonNull(ends);
+        Utils.validate(!iterated, "Read ends cannot be added once the collection has been iterated");
+        if (size == maxRecordsInRam) {
+            spill();
+        } else if ((size + 1) * LONGS_PER_RECORD > data.length) {
+            data = Arrays.copyOf(data, (int) Math.min((long) maxRecordsInRam * LONGS_PER_RECORD, 2L * data.length));
+        }
+        encode(ends, data, size * LONGS_PER_RECORD);
+        size++;
+        numRecords++;
+    }
+
+    /**
+     * Packs a read end into {@link #LONGS_PER_RECORD} longs of an array, starting at an offset.
+     */
+    static void encode(final ReadEndsForMarkDuplicates ends, final long[] data, final int offset) {
+        data[offset] = (ends.libraryId & 0xFFFFL) << 48 | (ends.orientation & 0xFFL) << 40
+                | (ends.orientationForOpticalDuplicates & 0xFFL) << 32 | (ends.score & 0xFFFFL) << 16 | (ends.readGroup & 0xFFFFL);
+        data[offset + 1] = (long) ends.read1ReferenceIndex << 32 | (ends.read1Coordinate & 0xFFFFFFFFL);
+        data[offset + 2] = (long) ends.read2ReferenceIndex << 32 | (ends.read2Coordinate & 0xFFFFFFFFL);
+        data[offset + 3] = ends.read1IndexInFile;
+        data[offset + 4] = ends.read2IndexInFile;
+        data[offset + 5] = (ends.tile & 0xFFFFL) << 48 | (ends.x & 0xFFFFL) << 32 | (ends.y & 0xFFFFL) << 16;
+    }
+
+    /**
+     * @return the read end packed into {@link #LONGS_PER_RECORD} longs of an array, starting at an offset
+     */
+    static ReadEndsForMarkDuplicates decode(final long[] data, final int offset) {
+        final ReadEndsForMarkDuplicates ends = new ReadEndsForMarkDuplicates();
+        final long first = data[offset];
+        ends.libraryId = (short) (first >>> 48);
+        ends.orientation = (byte) (first >>> 40);
+        ends.orientationForOpticalDuplicates = (byte) (first >>> 32);
+        ends.score = (short) (first >>> 16);
+        ends.readGroup = (short) first;
+        ends.read1ReferenceIndex = (int) (data[offset + 1] >> 32);
+        ends.read1Coordinate = (int) data[offset + 1];
+        ends.read2ReferenceIndex = (int) (data[offset + 2] >> 32);
+        ends.read2Coordinate = (int) data[offset + 2];
+        ends.read1IndexInFile = data[offset + 3];
+        ends.read2IndexInFile = data[offset + 4];
+        final long last = data[offset + 5];
+        ends.tile = (short) (last >>> 48);
+        ends.x = (short) (last >>> 32);
+        ends.y = (short) (last >>> 16);
+        return ends;
+    }
+
+    /**
+     * Compares two packed read ends, starting at offsets in arrays.
+     */
+    static int compare(final long[] a, final int i, final long[] b, final int j) {
+        int result = Short.compare((short) (a[i] >>> 48), (short) (b[j] >>> 48));
+        if (result == 0) {
+            // read 1 reference index, then coordinate
+            result = Integer.compare((int) (a[i + 1] >> 32), (int) (b[j + 1] >> 32));
+        }
+        if (result == 0) {
+            result = Integer.compare((int) a[i + 1], (int) b[j + 1]);
+        }
+        if (result == 0) {
+            result = Byte.compare((byte) (a[i] >>> 40), (byte) (b[j] >>> 40));
+        }
+        if (result == 0) {
+            // read 2 reference index, then coordinate
+            result = Integer.compare((int) (a[i + 2] >> 32), (int) (b[j + 2] >> 32));
+        }
+        if (result == 0) {
+            result = Integer.compare((int) a[i + 2], (int) b[j + 2]);
+        }
+        if (result == 0) {
+            result = Long.compare(a[i + 3], b[j + 3]);
+        }
+        if (result == 0) {
+            result = Long.compare(a[i + 4], b[j + 4]);
+        }
+        return result;
+    }
+
+    private int compare(final int i, final int j) {
+        return compare(data, i * LONGS_PER_RECORD, data, j * LONGS_PER_RECORD);
+    }
+
+    private void swap(final int i, final int j) {
+        final int a = i * LONGS_PER_RECORD;
+        final int b = j * LONGS_PER_RECORD;
+        System.arraycopy(data, a, swapSpace, 0, LONGS_PER_RECORD);
+        System.arraycopy(data, b, data, a, LONGS_PER_RECORD);
+        System.arraycopy(swapSpace, 0, data, b, LONGS_PER_RECORD);
+    }
+
+    /**
+     * Sorts the records in memory in place, with an introsort.
+     */
+    void sortInMemory() {
+        sort(0, size, 2 * (32 - Integer.numberOfLeadingZeros(Math.max(1, size))));
+    }
+
+    // sorts the records in [from, to)
+    private void sort(final int from, final int to, final int depthLimit) {
+        int lo = from;
+        int hi = to;
+        int depth = depthLimit;
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            if (depth == 0) {
+                heapSort(lo, hi);
+                return;
+            }
+            depth--;
+            final int pivot = partition(lo, hi);
+            // recurse into the smaller part, and loop over the larger one
+            if (pivot - lo < hi - pivot - 1) {
+                sort(lo, pivot, depth);
+                lo = pivot + 1;
+            } else {
+                sort(pivot + 1, hi, depth);
+                hi = pivot;
+            }
+        }
+        insertionSort(lo, hi);
+    }
+
+    // partitions [lo, hi) around the median of its first, middle and last records, and returns the pivot's position
+    private int partition(final int lo, final int hi) {
+        final int mid = (lo + hi) >>> 1;
+        final int last = hi - 1;
+        if (compare(mid, lo) < 0) {
+            swap(mid, lo);
+        }
+        if (compare(last, lo) < 0) {
+            swap(last, lo);
+        }
+        if (compare(last, mid) < 0) {
+            swap(last, mid);
+        }
+        swap(mid, last);
+        int store = lo;
+        for (int i = lo; i < last; i++) {
+            if (compare(i, last) < 0) {
+                swap(i, store++);
+            }
+        }
+        swap(store, last);
+        return store;
+    }
+
+    private void insertionSort(final int lo, final int hi) {
+        for (int i = lo + 1; i < hi; i++) {
+            for (int j = i; j > lo && compare(j - 1, j) > 0; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private void heapSort(final int lo, final int hi) {
+        final int n = hi - lo;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(lo, i, n);
+        }
+        for (int end = n - 1; end > 0; end--) {
+            swap(lo, lo + end);
+            siftDown(lo, 0, end);
+        }
+    }
+
+    private void siftDown(final int lo, final int root, final int n) {
+        int parent = root;
+        while (2 * parent + 1 < n) {
+            int child = 2 * parent + 1;
+            if (child + 1 < n && compare(lo + child + 1, lo + child) > 0) {
+                child++;
+            }
+            if (compare(lo + parent, lo + child) >= 0) {
+                return;
+            }
+            swap(lo + parent, lo + child);
+            parent = child;
+        }
+    }
+
+    // sorts the records in memory and writes them to a temporary file
+    private void spill() {
+        sortInMemory();
+        final File file;
+        try {
+            file = File.createTempFile("readEnds.", ".tmp", tmpDirs.get(runs.size() % tmpDirs.size()));
+        } catch (final IOException e) {
+            throw new GATKException("Unable to create a temporary file for read ends", e);
+        }
+        file.deleteOnExit();
+        runs.add(file);
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            for (int i = 0; i < size * LONGS_PER_RECORD; i++) {
+                out.writeLong(data[i]);
+            }
+        } catch (final IOException e) {
+            throw new GATKException("Unable to spill read ends to " + file.getAbsolutePath(), e);
+        }
+        spillBytes += file.length();
+        size = 0;
+    }
+
+    /**
+     * Ends adding (no more read ends may be added), and returns the read ends in sorted order. May be called only once.
+     */
+    @Override
+    public CloseableIterator<ReadEndsForMarkDuplicates> iterator() {
+        Utils.validate(!iterated, "The read ends can only be iterated once");
+        iterated = true;
+        sortInMemory();
+        if (runs.isEmpty()) {
+            return new InMemoryIterator();
+        }
+        return new MergingIterator();
+    }
+
+    /**
+     * Deletes the spill files and frees the memory held.
+     */
+    public void cleanup() {
+        iterated = true;
+        runs.forEach(IOUtils::tryDelete);
+        data = new long[0];
+        size = 0;
+    }
+
+    /** @return number of read ends added */
+    public long size() {
+        return numRecords;
+    }
+
+    /** @return bytes held in memory by the records */
+    public long getBytesInRam() {
+        return (long) data.length * Long.BYTES;
+    }
+
+    /** @return number of times the records in memory were spilled to disk */
+    public int getNumRuns() {
+        return runs.size();
+    }
+
+    /** @return total size of the spill files, in bytes */
+    public long getSpillBytes() {
+        return spillBytes;
+    }
+
+    private final class InMemoryIterator implements CloseableIterator<ReadEndsForMarkDuplicates> {
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public ReadEndsForMarkDuplicates next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more read ends");
+            }
+            return decode(data, LONGS_PER_RECORD * next++);
+        }
+
+        @Override
+        public void close() {
+            next = size;
+        }
+    }
+
+    /** A sorted sequence of packed records: a spill file, or the records in memory. */
+    private final class Cursor {
+        private final int index;
+        private final DataInputStream input;
+        private long remaining;
+        private final long[] record;
+        private int offset;
+
+        Cursor(final int index, final File file) {
+            this.index = index;
+            this.remaining = file.length() / SIZE_OF;
+            this.record = new long[LONGS_PER_RECORD];
+            try {
+                this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            } catch (final IOException e) {
+                throw new GATKException("Unable to read read ends from " + file.getAbsolutePath(), e);
+            }
+        }
+
+        Cursor(final int index) {
+            this.index = index;
+            this.input = null;
+            this.remaining = size;
+            this.record = data;
+            this.offset = -LONGS_PER_RECORD;
+        }
+
+        // moves to the next record, returning false if there is none
+        boolean advance() {
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            remaining--;
+            if (input == null) {
+                offset += LONGS_PER_RECORD;
+                return true;
+            }
+            try {
+                for (int i = 0; i < LONGS_PER_RECORD; i++) {
+                    record[i] = input.readLong();
+                }
+            } catch (final IOException e) {
+                throw new GATKException("Unable to read spilled read ends", e);
+            }
+            return true;
+        }
+
+        void close() {
+            remaining = 0;
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (final IOException e) {
+                    // we're only cleaning up
+                }
+            }
+        }
+    }
+
+    private final class MergingIterator implements CloseableIterator<ReadEndsForMarkDuplicates> {
+        private final List<Cursor> cursors = new ArrayList<>();
+        private final PriorityQueue<Cursor> queue;
+
+        MergingIterator() {
+            for (final File run : runs) {
+                cursors.add(new Cursor(cursors.size(), run));
+            }
+            cursors.add(new Cursor(cursors.size()));
+            queue = new PriorityQueue<>(cursors.size(), (a, b) -> {
+                final int result = compare(a.record, a.offset, b.record, b.offset);
+                return result != 0 ? result : Integer.compare(a.index, b.index);
+            });
+            for (final Cursor cursor : cursors) {
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public ReadEndsForMarkDuplicates next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more read ends");
+            }
+            final Cursor cursor = queue.poll();
+            final ReadEndsForMarkDuplicates ends = decode(cursor.record, cursor.offset);
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+            return ends;
+        }
+
+        @Override
+        public void close() {
+            queue.clear();
+            cursors.forEach(Cursor::close);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Implementation of ReadEndsForMarkDuplicatesMap for coordinate sorted input, which keeps the read ends whose mates
+ * are on the current sequence (the one for which remove() has been most recently called) in memory, packed into longs
+ * (see {@link PackedReadEnds}) rather than as objects, in an open-addressing hash table keyed by a 64-bit hash of the
+ * key. Keys are kept as bytes in one shared arena, and compared with the key looked up when their hashes are equal,
+ * so that hash collisions never pair the wrong reads.
+ * <p/>
+ * Read ends whose mates are on any other sequence are passed to another map, typically a
+ * {@link DiskBasedReadEndsForMarkDuplicatesMap}, which spills them to disk until their sequence is reached, so the
+ * memory used does not grow with the number of pairs whose mates are on other sequences.
+ */
+public final class PackedReadEndsForMarkDuplicatesMap implements ReadEndsForMarkDuplicatesMap {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int INITIAL_ARENA_SIZE = 1 << 16;
+    private static final int MAX_ARENA_SIZE = Integer.MAX_VALUE - 8;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ReadEndsForMarkDuplicatesMap otherSequencesMap;
+    private final long hashMask;
+
+    // the sequence of the most recent remove(); -1 before the first
+    private int currentSequenceIndex = -1;
+
+    // open-addressing table of entry numbers + 1 (0 is an empty slot), with linear probing; at most half full
+    private int[] table = new int[2 * INITIAL_CAPACITY];
+
+    // the entries, in parallel arrays; entries freed by remove() are chained through freeEntries and reused
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private int[] keyOffsets = new int[INITIAL_CAPACITY];
+    private int[] keyLengths = new int[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY * PackedReadEnds.LONGS_PER_RECORD];
+    private int[] freeEntries = new int[INITIAL_CAPACITY];
+    private int numFreeEntries = 0;
+    private int numEntries = 0;
+
+    // UTF-8 bytes of the keys, appended at arenaEnd; the space of removed keys is reclaimed by compacting the arena
+    private byte[] keyArena = new byte[INITIAL_ARENA_SIZE];
+    private int arenaEnd = 0;
+    private long keyBytes = 0;
+
+    private int size = 0;
+    private int maxSize = 0;
+
+    /**
+     * @param otherSequencesMap map for the read ends whose mates are not on the current sequence
+     */
+    public PackedReadEndsForMarkDuplicatesMap(final ReadEndsForMarkDuplicatesMap otherSequencesMap) {
+        this(otherSequencesMap, -1L);
+    }
+
+    /**
+     * @param otherSequencesMap map for the read ends whose mates are not on the current sequence
+     * @param hashMask mask applied to the hashes of the keys, so that tests can force collisions
+     */
+    PackedReadEndsForMarkDuplicatesMap(final ReadEndsForMarkDuplicatesMap otherSequencesMap, final long hashMask) {
+        this.otherSequencesMap = Utils.nonNull(otherSequencesMap);
+        this.hashMask = hashMask;
+    }
+
+    @Override
+    public ReadEndsForMarkDuplicates remove(final int mateSequenceIndex, final String key) {
+        Utils.nonNull(key);
+        currentSequenceIndex = mateSequenceIndex;
+        final long hash = hash(key);
+        final int mask = table.length - 1;
+        for (int slot = slotOf(hash); table[slot] != 0; slot = (slot + 1) & mask) {
+            final int entry = table[slot] - 1;
+            if (hashes[entry] == hash && keyEquals(entry, key)) {
+                final ReadEndsForMarkDuplicates readEnds = PackedReadEnds.decode(ends, entry * PackedReadEnds.LONGS_PER_RECORD);
+                deleteSlot(slot);
+                keyBytes -= keyLengths[entry];
+                freeEntries[numFreeEntries++] = entry;
+                size--;
+                return readEnds;
+            }
+        }
+        // read ends put when this sequence was not the current one
+        return otherSequencesMap.remove(mateSequenceIndex, key);
+    }
+
+    @Override
+    public void put(final int mateSequenceIndex, final String key, final ReadEndsForMarkDuplicates readEnds) {
+        Utils.nonNull(key);
+        Utils.nonNull(readEnds);
+        if (mateSequenceIndex != currentSequenceIndex) {
+            otherSequencesMap.put(mateSequenceIndex, key, readEnds);
+            return;
+        }
+        if (2 * (size + 1) > table.length) {
+            rehash(2 * table.length);
+        }
+        final int entry = newEntry();
+        final long hash = hash(key);
+        hashes[entry] = hash;
+        storeKey(entry, key.getBytes(StandardCharsets.UTF_8));
+        PackedReadEnds.encode(readEnds, ends, entry * PackedReadEnds.LONGS_PER_RECORD);
+
+        final int mask = table.length - 1;
+        int slot = slotOf(hash);
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+        size++;
+        maxSize = Math.max(maxSize, size);
+    }
+
+    @Override
+    public int size() {
+        return size + otherSequencesMap.size();
+    }
+
+    @Override
+    public int sizeInRam() {
+        return size + otherSequencesMap.sizeInRam();
+    }
+
+    /**
+     * @return the largest number of elements stored in the packed table at once
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return approximate number of bytes held by the packed table, including the keys
+     */
+    public long getBytesInRam() {
+        return (long) (table.length + freeEntries.length + keyOffsets.length + keyLengths.length) * Integer.BYTES
+                + (long) (hashes.length + ends.length) * Long.BYTES
+                + keyArena.length;
+    }
+
+    private int newEntry() {
+        if (numFreeEntries > 0) {
+            return freeEntries[--numFreeEntries];
+        }
+        if (numEntries == hashes.length) {
+            final int capacity = 2 * hashes.length;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            keyLengths = Arrays.copyOf(keyLengths, capacity);
+            ends = Arrays.copyOf(ends, capacity * PackedReadEnds.LONGS_PER_RECORD);
+            freeEntries = Arrays.copyOf(freeEntries, capacity);
+        }
+        return numEntries++;
+    }
+
+    private void storeKey(final int entry, final byte[] key) {
+        if (key.length > keyArena.length - arenaEnd) {
+            makeArenaSpace(key.length);
+        }
+        System.arraycopy(key, 0, keyArena, arenaEnd, key.length);
+        keyOffsets[entry] = arenaEnd;
+        keyLengths[entry] = key.length;
+        arenaEnd += key.length;
+        keyBytes += key.length;
+    }
+
+    // compacts the arena if at most half of it is live keys, and grows it if that does not free enough space
+    private void makeArenaSpace(final int needed) {
+        final long required = keyBytes + needed;
+        if (required > MAX_ARENA_SIZE) {
+            throw new GATKException("Too many bytes of read names of unmatched pairs to hold in memory: " + required);
+        }
+        final byte[] compacted = 2 * keyBytes <= keyArena.length && required <= keyArena.length ? keyArena
+                : new byte[(int) Math.min(MAX_ARENA_SIZE, Math.max(2L * keyArena.length, 2 * required))];
+        // the live keys in the order they are in the arena, so that they can be moved down in place
+        final int[] live = new int[size];
+        int numLive = 0;
+        for (final int value : table) {
+            if (value != 0) {
+                live[numLive++] = value - 1;
+            }
+        }
+        final long[] offsetsAndEntries = new long[numLive];
+        for (int i = 0; i < numLive; i++) {
+            offsetsAndEntries[i] = ((long) keyOffsets[live[i]] << 32) | live[i];
+        }
+        Arrays.sort(offsetsAndEntries);
+        int newEnd = 0;
+        for (final long offsetAndEntry : offsetsAndEntries) {
+            final int entry = (int) offsetAndEntry;
+            System.arraycopy(keyArena, keyOffsets[entry], compacted, newEnd, keyLengths[entry]);
+            keyOffsets[entry] = newEnd;
+            newEnd += keyLengths[entry];
+        }
+        keyArena = compacted;
+        arenaEnd = newEnd;
+    }
+
+    // empties a slot, moving later entries of its probe sequence back so that lookups still find them
+    private void deleteSlot(final int deleted) {
+        final int mask = table.length - 1;
+        int hole = deleted;
+        for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            final int home = slotOf(hashes[table[slot] - 1]);
+            // the entry may fill the hole if its home slot is not cyclically within (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[hole] = table[slot];
+                hole = slot;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private void rehash(final int capacity) {
+        final int[] oldTable = table;
+        table = new int[capacity];
+        final int mask = capacity - 1;
+        for (final int value : oldTable) {
+            if (value != 0) {
+                int slot = slotOf(hashes[value - 1]);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+
+    private int slotOf(final long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (table.length - 1);
+    }
+
+    // 64-bit FNV-1a of the characters of the key, with the bits mixed so that the low ones can index the table
+    private long hash(final String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash & hashMask;
+    }
+
+    private boolean keyEquals(final int entry, final String key) {
+        final int offset = keyOffsets[entry];
+        final int length = keyLengths[entry];
+        if (length != key.length()) {
+            // the key has non-ASCII characters, or differs
+            return utf8Equals(offset, length, key);
+        }
+        for (int i = 0; i < length; i++) {
+            final char c = key.charAt(i);
+            if (c >= 0x80) {
+                return utf8Equals(offset, length, key);
+            }
+            if (keyArena[offset + i] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean utf8Equals(final int offset, final int length, final String key) {
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyArena[offset + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -22,6 +22,10 @@ import java.util.function.Function;
  * You can use {@link #columns()} to obtain the corresponding {@link TableColumnCollection} and query the presence of
  * and the index of columns.
  * </p>
+ * <p>
+ * Data-lines read by a {@link TableReader} keep a copy of the text of their line, and only create the string for a
+ * value when it is asked for; numeric values are parsed directly from the text when possible.
+ * </p>
  */
 public final class DataLine {
 
@@ -55,6 +59,37 @@ public final class DataLine {
      */
     private Function<String, RuntimeException> formatErrorFactory;
 
+    /**
+     * Text of the input line this data-line was read from, if any, from which values are extracted when first requested.
+     * <p>
+     * This is {@code null} when the data-line was not read from text, or once it has been modified.
+     * </p>
+     */
+    private char[] text;
+
+    /**
+     * Start and end offsets of the values in {@link #text}, in pairs.
+     */
+    private int[] bounds;
+
+    /**
+     * Largest number of decimal digits that an int (or long) is parsed from without checking for overflow.
+     */
+    private static final int MAX_SAFE_INT_DIGITS = 9;
+    private static final int MAX_SAFE_LONG_DIGITS = 18;
+
+    /**
+     * Largest number of significant decimal digits that are exactly represented in a double's mantissa.
+     */
+    private static final int MAX_EXACT_DOUBLE_DIGITS = 15;
+
+    /**
+     * Powers of ten that are exactly represented as doubles.
+     */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
     /**
      * String accepted as a "false" as parsed from a table file cell value.
      */
@@ -91,6 +126,27 @@ public final class DataLine {
         }
     }
 
+    /**
+     * Creates a new data-line instance whose values are in the text of its line, as a {@link TableChunkReader} splits it.
+     * <p>
+     * Neither the text nor the offsets are copied, and must not be modified.
+     * </p>
+     *
+     * @param lineNumber the line number for this data-line, {@link #NO_LINE_NUMBER} when this is unspecified.
+     * @param text               the text that contains the values.
+     * @param bounds             start and end offsets of the values in {@code text}, in pairs, one pair per column.
+     * @param columns            the columns of the table that will enclose this data-line instance.
+     * @param formatErrorFactory to be used when there is a column formatting error based on the requested data-type.
+     * @throws IllegalArgumentException if {@code text}, {@code bounds}, {@code columns} or {@code formatErrorFactory} are {@code null},
+     *                                  or there is not one pair of offsets per column.
+     */
+    DataLine(final long lineNumber, final char[] text, final int[] bounds, final TableColumnCollection columns, final Function<String, RuntimeException> formatErrorFactory) {
+        this(lineNumber, columns, formatErrorFactory);
+        this.text = Utils.nonNull(text, "the text cannot be null");
+        this.bounds = Utils.nonNull(bounds, "the value offsets cannot be null");
+        Utils.validateArg(bounds.length == 2 * values.length, "there must be a pair of value offsets per column");
+    }
+
     /**
      * Creates a new data-line instance.
      *
@@ -144,6 +200,7 @@ public final class DataLine {
      * @return never {@code null} and with no {@code null} elements.
      */
     String[] unpack() {
+        detachFromText();
         for (int i = 0; i < values.length; i++) {
             if (values[i] == null) {
                 throw new IllegalStateException(String.format("some data line value remains undefined: e.g. column '%s' index %d", columns.nameAt(i), i));
@@ -222,6 +279,7 @@ public final class DataLine {
      */
     public DataLine set(final int index, final String value) {
         Utils.validIndex(index, values.length);
+        detachFromText();
         if (index == 0 && value != null) {
             if (value.startsWith(TableUtils.COMMENT_PREFIX)) {
                 throw new IllegalArgumentException("the value of the first column cannot start with the comment prefix: " + TableUtils.COMMENT_PREFIX);
@@ -283,10 +341,161 @@ public final class DataLine {
      */
     public String get(final int index) {
         Utils.validIndex(index, values.length);
-        Utils.validate(values[index] != null, () -> "requested column value at " + index + " has not been initialized yet");
+        Utils.validate(value(index) != null, () -> "requested column value at " + index + " has not been initialized yet");
+        return values[index];
+    }
+
+    /**
+     * Returns the value in a column, extracting it from the text first if needed.
+     *
+     * @param index a valid column index.
+     * @return {@code null} if the value is undefined.
+     */
+    private String value(final int index) {
+        if (values[index] == null && text != null) {
+            final int start = bounds[2 * index];
+            values[index] = new String(text, start, bounds[2 * index + 1] - start);
+        }
         return values[index];
     }
 
+    /**
+     * Extracts all values from the text, if they are still in it, before this data-line is modified or its values
+     * are handed out.
+     */
+    private void detachFromText() {
+        if (text != null) {
+            for (int i = 0; i < values.length; i++) {
+                value(i);
+            }
+            text = null;
+            bounds = null;
+        }
+    }
+
+    /**
+     * Checks whether a value is still only in the text, so that it can be parsed from there.
+     */
+    private boolean isInText(final int index) {
+        Utils.validIndex(index, values.length);
+        return text != null && values[index] == null;
+    }
+
+    /**
+     * Parses an optionally signed sequence of at most {@code maxDigits} decimal digits, which cannot overflow a long,
+     * from the text of a value.
+     *
+     * @return the value, or {@link Long#MIN_VALUE} if the text is anything else (and must be parsed as a string).
+     */
+    private long parsePlainInteger(final int index, final int maxDigits) {
+        final int end = bounds[2 * index + 1];
+        int i = bounds[2 * index];
+        final boolean negative = i < end && text[i] == '-';
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            i++;
+        }
+        if (i == end || end - i > maxDigits) {
+            return Long.MIN_VALUE;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            final int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            result = 10 * result + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses a plain decimal number (an optional sign, digits with an optional decimal point and an optional exponent)
+     * from the text of a value, when its significant digits and its power of ten are both exact as doubles. The
+     * result of the single multiplication or division is then correctly rounded, as is {@link Double#parseDouble}'s.
+     *
+     * @return the value, or {@link Double#NaN} if the text is anything else (and must be parsed as a string).
+     */
+    private double parsePlainDouble(final int index) {
+        final int end = bounds[2 * index + 1];
+        int i = bounds[2 * index];
+        final boolean negative = i < end && text[i] == '-';
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int significantDigits = 0;
+        boolean anyDigits = false;
+        boolean inFraction = false;
+        for (; i < end; i++) {
+            final char c = text[i];
+            if (c == '.' && !inFraction) {
+                inFraction = true;
+                continue;
+            }
+            final int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            anyDigits = true;
+            if (mantissa > 0 || digit > 0) {
+                if (++significantDigits > MAX_EXACT_DOUBLE_DIGITS) {
+                    return Double.NaN;
+                }
+                mantissa = 10 * mantissa + digit;
+            }
+            if (inFraction) {
+                exponent--;
+            }
+        }
+        if (!anyDigits) {
+            return Double.NaN;
+        }
+        if (i < end && (text[i] == 'e' || text[i] == 'E')) {
+            final long exponentValue = parsePlainExponent(i + 1, end);
+            if (exponentValue == Long.MIN_VALUE) {
+                return Double.NaN;
+            }
+            exponent += exponentValue;
+        } else if (i != end) {
+            return Double.NaN;
+        }
+        final double result;
+        if (mantissa == 0) {
+            result = 0.0;
+        } else if (exponent < -EXACT_POWERS_OF_TEN.length + 1 || exponent > EXACT_POWERS_OF_TEN.length - 1) {
+            return Double.NaN;
+        } else {
+            result = exponent >= 0 ? mantissa * EXACT_POWERS_OF_TEN[exponent] : mantissa / EXACT_POWERS_OF_TEN[-exponent];
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses the exponent of a number, an optionally signed sequence of up to four digits.
+     *
+     * @return the exponent, or {@link Long#MIN_VALUE} if the text is anything else.
+     */
+    private long parsePlainExponent(final int start, final int end) {
+        int i = start;
+        final boolean negative = i < end && text[i] == '-';
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            i++;
+        }
+        if (i == end || end - i > 4) {
+            return Long.MIN_VALUE;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            final int digit = text[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            result = 10 * result + digit;
+        }
+        return negative ? -result : result;
+    }
+
     /**
      * Returns the int value in a column by its index.
      *
@@ -299,6 +508,12 @@ public final class DataLine {
      *                                  {@link DataLine}.
      */
     public int getInt(final int index) {
+        if (isInText(index)) {
+            final long result = parsePlainInteger(index, MAX_SAFE_INT_DIGITS);
+            if (result != Long.MIN_VALUE) {
+                return (int) result;
+            }
+        }
         try {
             return Integer.parseInt(get(index));
         } catch (final NumberFormatException ex) {
@@ -318,6 +533,12 @@ public final class DataLine {
      *                                  {@link DataLine}.
      */
     public long getLong(final int index) {
+        if (isInText(index)) {
+            final long result = parsePlainInteger(index, MAX_SAFE_LONG_DIGITS);
+            if (result != Long.MIN_VALUE) {
+                return result;
+            }
+        }
         try {
             return Long.parseLong(get(index));
         } catch (final NumberFormatException ex) {
@@ -377,6 +598,12 @@ public final class DataLine {
      *                                  {@link DataLine}.
      */
     public double getDouble(final int index, final Function<String, RuntimeException> formatErrorFactory) {
+        if (isInText(index)) {
+            final double result = parsePlainDouble(index);
+            if (!Double.isNaN(result)) {
+                return result;
+            }
+        }
         try {
             return Double.parseDouble(get(index));
         } catch (final NumberFormatException ex) {
@@ -398,7 +625,7 @@ public final class DataLine {
      */
     public String get(final String columnName) {
         final int index = columnIndex(columnName);
-        Utils.validate(values[index] != null, () -> String.format("the value for column '%s' is undefined", columnName));
+        Utils.validate(value(index) != null, () -> String.format("the value for column '%s' is undefined", columnName));
         return values[index];
     }
 
@@ -414,7 +641,7 @@ public final class DataLine {
         if (index < 0) {
             return defaultValue;
         } else {
-            return values[index];
+            return value(index);
         }
     }
 
@@ -582,6 +809,7 @@ public final class DataLine {
      */
     public DataLine append(final String value) {
         Utils.validate(nextIndex < values.length, "gone beyond of the end of the data-line");
+        detachFromText();
         values[nextIndex++] = value;
         return this;
     }
@@ -723,6 +951,7 @@ public final class DataLine {
         if (values[0] != null && values[0].startsWith(TableUtils.COMMENT_PREFIX)) {
             throw new IllegalArgumentException("first column value cannot start as a comment: " + TableUtils.COMMENT_PREFIX);
         }
+        detachFromText();
         System.arraycopy(values,0,this.values,0,values.length);
         return this;
     }
@@ -776,6 +1005,7 @@ public final class DataLine {
      * @return never {@code null}, but it can contain {@code null}s.
      */
     public String[] toArray() {
+        detachFromText();
         return values.clone();
     }
 
@@ -0,0 +1,340 @@
+package org.broadinstitute.hellbender.utils.tsv;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Reads the lines of a table in large line-aligned chunks of text, and splits each chunk into lines and
+ * values by recording their offsets in the chunk, so that lines can be classified without creating a {@link String}
+ * per value. A data line can then be handed a copy of just its own text and offsets (see {@link #lineText} and
+ * {@link #lineValueBounds}), from which {@link DataLine} parses numbers and creates strings only when asked for.
+ * <p>
+ * Lines end as for {@link java.io.BufferedReader#readLine}, and values are separated by
+ * {@link TableUtils#COLUMN_SEPARATOR}. Quoting and escaping are not interpreted: lines that contain
+ * {@link TableUtils#QUOTE_CHARACTER} or {@link TableUtils#ESCAPE_CHARACTER} are flagged (see {@link #isPlain}),
+ * so that the caller can parse them some other way.
+ * </p>
+ * <p>
+ * Chunks are read from the input in order on the calling thread, but the splitting of up to
+ * {@code maxChunksAhead} chunks ahead of the current one runs on the common fork-join pool. Lines are returned
+ * in input order.
+ * </p>
+ */
+final class TableChunkReader {
+
+    /**
+     * Default number of characters read per chunk.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Default number of chunks split ahead of the current one.
+     */
+    static final int DEFAULT_MAX_CHUNKS_AHEAD = Math.min(8, Runtime.getRuntime().availableProcessors());
+
+    private final Reader reader;
+    private final int chunkSize;
+    private final int maxChunksAhead;
+
+    private final Deque<CompletableFuture<Chunk>> ahead = new ArrayDeque<>();
+
+    // the start of a line read after the end of the last chunk
+    private char[] carry = new char[0];
+    private boolean endOfInput = false;
+
+    private Chunk chunk = null;
+    private int line = -1;
+    private long lineNumber;
+
+    /**
+     * @param reader the input, positioned at the start of a line
+     * @param lineNumber the number of lines already read from the input
+     * @param chunkSize the number of characters to read per chunk (chunks grow to hold lines that are longer)
+     * @param maxChunksAhead the number of chunks to split in parallel ahead of the current one; with 0 chunks are
+     *                       split on the calling thread as they are needed
+     */
+    TableChunkReader(final Reader reader, final long lineNumber, final int chunkSize, final int maxChunksAhead) {
+        this.reader = Utils.nonNull(reader);
+        Utils.validateArg(chunkSize > 0, "the chunk size must be positive");
+        Utils.validateArg(maxChunksAhead >= 0, "the number of chunks ahead cannot be negative");
+        this.lineNumber = lineNumber;
+        this.chunkSize = chunkSize;
+        this.maxChunksAhead = maxChunksAhead;
+    }
+
+    /**
+     * Moves on to the next line.
+     *
+     * @return {@code false} if there are no more lines in the input.
+     * @throws IOException if any is raised when reading from the input.
+     */
+    boolean nextLine() throws IOException {
+        if (chunk != null && line + 1 < chunk.numLines) {
+            line++;
+            lineNumber++;
+            return true;
+        }
+        while (true) {
+            readAhead();
+            if (ahead.isEmpty()) {
+                chunk = null;
+                return false;
+            }
+            chunk = join(ahead.poll());
+            if (chunk.numLines > 0) {
+                line = 0;
+                lineNumber++;
+                return true;
+            }
+        }
+    }
+
+    private void readAhead() throws IOException {
+        while (!endOfInput && ahead.size() <= maxChunksAhead) {
+            final char[] text = readChunk();
+            if (maxChunksAhead == 0 || endOfInput && ahead.isEmpty()) {
+                ahead.add(CompletableFuture.completedFuture(new Chunk(text)));
+            } else {
+                ahead.add(CompletableFuture.supplyAsync(() -> new Chunk(text)));
+            }
+        }
+    }
+
+    private static Chunk join(final CompletableFuture<Chunk> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads the next chunk of whole lines, keeping any partial line at its end for the next chunk.
+     */
+    private char[] readChunk() throws IOException {
+        char[] buffer = Arrays.copyOf(carry, Math.max(chunkSize, 2 * carry.length));
+        int length = carry.length;
+        while (true) {
+            final int read = reader.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                endOfInput = true;
+                carry = new char[0];
+                return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+            }
+            length += read;
+            if (length == buffer.length) {
+                final int cut = lastLineEnd(buffer, length);
+                if (cut > 0) {
+                    carry = Arrays.copyOfRange(buffer, cut, length);
+                    return cut == length ? buffer : Arrays.copyOf(buffer, cut);
+                }
+                // not even one whole line yet
+                buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+            }
+        }
+    }
+
+    /**
+     * @return the offset just after the last line end in the text that is known to be complete (so a carriage return
+     * at the very end does not count, as it may be followed by a line feed), or 0 if there is none.
+     */
+    private static int lastLineEnd(final char[] text, final int length) {
+        int lastCarriageReturn = -1;
+        for (int i = length - 1; i >= 0; i--) {
+            if (text[i] == '\n') {
+                return i + 1;
+            } else if (text[i] == '\r' && lastCarriageReturn < 0 && i < length - 1) {
+                lastCarriageReturn = i;
+            }
+        }
+        return lastCarriageReturn + 1;
+    }
+
+    /**
+     * @return the number of the current line in the input, counting from 1.
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the index in the current chunk's value offsets of the start of the current line's first value.
+     */
+    private int firstValueBound() {
+        return 2 * chunk.firstValues[line];
+    }
+
+    /**
+     * @return the number of values in the current line.
+     */
+    int valueCount() {
+        return chunk.firstValues[line + 1] - chunk.firstValues[line];
+    }
+
+    /**
+     * @return {@code true} if the current line contains neither quote nor escape characters.
+     */
+    boolean isPlain() {
+        return !chunk.special[line];
+    }
+
+    /**
+     * @return {@code true} if the current line starts with a prefix.
+     */
+    boolean startsWith(final String prefix) {
+        final int start = chunk.bounds[firstValueBound()];
+        final int end = chunk.bounds[2 * chunk.firstValues[line + 1] - 1];
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (chunk.text[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if a value of the current line is equal to a string.
+     */
+    boolean valueEquals(final int index, final String value) {
+        final int bound = firstValueBound() + 2 * index;
+        final int start = chunk.bounds[bound];
+        if (chunk.bounds[bound + 1] - start != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (chunk.text[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the current line, without its line end.
+     */
+    String lineString() {
+        final int start = chunk.bounds[firstValueBound()];
+        return new String(chunk.text, start, chunk.bounds[2 * chunk.firstValues[line + 1] - 1] - start);
+    }
+
+    /**
+     * @return a copy of the text of the current line, without its line end.
+     */
+    char[] lineText() {
+        final int start = chunk.bounds[firstValueBound()];
+        return Arrays.copyOfRange(chunk.text, start, chunk.bounds[2 * chunk.firstValues[line + 1] - 1]);
+    }
+
+    /**
+     * @return the start and end offsets of the values of the current line in its {@link #lineText}, in pairs.
+     */
+    int[] lineValueBounds() {
+        final int first = firstValueBound();
+        final int start = chunk.bounds[first];
+        final int[] bounds = Arrays.copyOfRange(chunk.bounds, first, 2 * chunk.firstValues[line + 1]);
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] -= start;
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the values of the current line, as strings.
+     */
+    String[] values() {
+        final String[] values = new String[valueCount()];
+        int bound = firstValueBound();
+        for (int i = 0; i < values.length; i++, bound += 2) {
+            values[i] = new String(chunk.text, chunk.bounds[bound], chunk.bounds[bound + 1] - chunk.bounds[bound]);
+        }
+        return values;
+    }
+
+    /**
+     * Stops splitting chunks ahead of the current one.
+     */
+    void close() {
+        ahead.forEach(future -> future.cancel(false));
+        ahead.clear();
+        chunk = null;
+    }
+
+    /**
+     * A chunk of whole lines, with the offsets of their values.
+     */
+    private static final class Chunk {
+        private final char[] text;
+        private int numLines = 0;
+        // the index of the first value of each line in the value pairs, plus one past the end
+        private int[] firstValues;
+        private int[] bounds;
+        private boolean[] special;
+
+        private Chunk(final char[] text) {
+            this.text = text;
+            int numValues = 0;
+            firstValues = new int[Math.max(16, text.length / 64)];
+            bounds = new int[4 * firstValues.length];
+            special = new boolean[firstValues.length];
+            int lineStart = 0;
+            int valueStart = 0;
+            boolean lineIsSpecial = false;
+            for (int i = 0; i < text.length; i++) {
+                final char c = text[i];
+                if (c == TableUtils.COLUMN_SEPARATOR) {
+                    numValues = addValue(numValues, valueStart, i);
+                    valueStart = i + 1;
+                } else if (c == '\n' || c == '\r') {
+                    numValues = addValue(numValues, valueStart, i);
+                    addLine(numValues, lineIsSpecial);
+                    if (c == '\r' && i + 1 < text.length && text[i + 1] == '\n') {
+                        i++;
+                    }
+                    lineStart = valueStart = i + 1;
+                    lineIsSpecial = false;
+                } else if (c == TableUtils.QUOTE_CHARACTER || c == TableUtils.ESCAPE_CHARACTER) {
+                    lineIsSpecial = true;
+                }
+            }
+            // the last line of the input may have no line end
+            if (lineStart < text.length) {
+                numValues = addValue(numValues, valueStart, text.length);
+                addLine(numValues, lineIsSpecial);
+            }
+        }
+
+        private int addValue(final int numValues, final int start, final int end) {
+            if (2 * numValues + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+            }
+            bounds[2 * numValues] = start;
+            bounds[2 * numValues + 1] = end;
+            return numValues + 1;
+        }
+
+        private void addLine(final int numValues, final boolean isSpecial) {
+            if (numLines + 2 > firstValues.length) {
+                firstValues = Arrays.copyOf(firstValues, 2 * firstValues.length);
+                special = Arrays.copyOf(special, firstValues.length);
+            }
+            special[numLines] = isSpecial;
+            firstValues[++numLines] = numValues;
+        }
+    }
+}
@@ -34,6 +34,14 @@ import java.util.stream.Stream;
  * any special formatting characters like a new-line, the quote character itself, the column separator character or
  * the escape character {@link TableUtils#ESCAPE_CHARACTER}.</p>
  * <p>Within quotes, especial characters must be escaped using the {@link TableUtils#ESCAPE_CHARACTER}</p>
+ * <h3>Parsing</h3>
+ * <p>
+ * Data lines are read in large chunks of text that are split into lines and values ahead of time, in parallel for
+ * large inputs, and are passed to {@link #createRecord} in input order. When the reader uses the default line
+ * classification (see {@link #usesDefaultLineClassification}), each {@link DataLine} holds a copy of its own line's
+ * text rather than a string per value, so records do not hold on to the chunk. Lines that contain {@link TableUtils#QUOTE_CHARACTER} or
+ * {@link TableUtils#ESCAPE_CHARACTER} are parsed as described above, one at a time.
+ * </p>
  * <h3>Implementing your own reader</h3>
  * <p>
  * Implementations control how instances of {@link R} are instantiated by extending
@@ -118,6 +126,27 @@ public abstract class TableReader<R> implements Closeable, Iterable<R> {
      */
     private CSVReader csvReader;
 
+    /**
+     * Reads the data lines following the header line in chunks. {@code null} until the first data line is requested.
+     */
+    private TableChunkReader chunkReader;
+
+    /**
+     * Number of characters per chunk and of chunks split ahead for {@link #chunkReader}.
+     */
+    private int chunkSize = TableChunkReader.DEFAULT_CHUNK_SIZE;
+    private int maxChunksAhead = TableChunkReader.DEFAULT_MAX_CHUNKS_AHEAD;
+
+    /**
+     * Values parsed so far of a data line that contains a quoted value that continues on the next line of the input.
+     */
+    private String[] pendingValues;
+
+    /**
+     * Value of {@link #usesDefaultLineClassification()}, taken when the first data line is requested.
+     */
+    private boolean defaultLineClassification;
+
     /**
      * Indicates whether the reader has tried to fetch the next record.
      * <p>If {@code true} the content of {@link #nextRecord} represent the next record to be returned
@@ -253,9 +282,9 @@ public abstract class TableReader<R> implements Closeable, Iterable<R> {
     private String formatExceptionMessageWithLocationInfo(final String message) {
         final String explanation = message == null ? "" : ": " + message;
         if (source == null) {
-            return String.format("format error at line %d" + explanation, reader.getLineNumber());
+            return String.format("format error at line %d" + explanation, currentLineNumber());
         } else {
-            return String.format("format error in '%s' at line %d" + explanation, source, reader.getLineNumber());
+            return String.format("format error in '%s' at line %d" + explanation, source, currentLineNumber());
         }
     }
 
@@ -344,24 +373,137 @@ public abstract class TableReader<R> implements Closeable, Iterable<R> {
      */
     private R fetchNextRecord() throws IOException {
         nextRecordFetched = true;
-        String[] line;
-        while ((line = csvReader.readNext()) != null) {
-            if (isCommentLine(line)) {
-                processCommentLine(line, reader.getLineNumber());
-            } else if (!isHeaderLine(line)) {
-                if (line.length != columns.columnCount()) {
-                    throw formatException(String.format("mismatch between number of values in line (%d) and number of columns (%d)", line.length, columns.columnCount()));
-                } else {
-                    final R result = createRecord(new DataLine(reader.getLineNumber(), line, columns, this::formatException));
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        if (chunkReader == null) {
+            chunkReader = new TableChunkReader(reader, reader.getLineNumber(), chunkSize, maxChunksAhead);
+            defaultLineClassification = usesDefaultLineClassification();
+        }
+        while (chunkReader.nextLine()) {
+            final R result;
+            if (pendingValues != null || !chunkReader.isPlain()) {
+                result = parseQuotedLine(chunkReader.lineString());
+            } else if (defaultLineClassification) {
+                result = parsePlainLine();
+            } else {
+                result = parseLine(chunkReader.values());
+            }
+            if (result != null) {
+                return result;
+            }
+        }
+        // the input may end in the middle of a quoted value, in which case the values before it make up the last line
+        if (pendingValues != null) {
+            final String[] line = pendingValues;
+            pendingValues = null;
+            return parseLine(line);
+        }
+        return null;
+    }
+
+    /**
+     * Parses the current line of {@link #chunkReader}, which contains no quote nor escape characters, without
+     * splitting it into strings, as {@link #parseLine} does with the default implementations of
+     * {@link #isCommentLine} and {@link #isHeaderLine}.
+     *
+     * @return {@code null} if the line does not result in a record.
+     */
+    private R parsePlainLine() {
+        if (chunkReader.startsWith(TableUtils.COMMENT_PREFIX)) {
+            processCommentLine(chunkReader.lineString().substring(TableUtils.COMMENT_PREFIX.length()), chunkReader.getLineNumber());
+            return null;
+        } else if (chunkReader.valueCount() != columns.columnCount()) {
+            throw formatException(String.format("mismatch between number of values in line (%d) and number of columns (%d)", chunkReader.valueCount(), columns.columnCount()));
+        } else if (isPlainHeaderLine()) {
+            return null;
+        } else {
+            return createRecord(new DataLine(chunkReader.getLineNumber(), chunkReader.lineText(), chunkReader.lineValueBounds(), columns, this::formatException));
+        }
+    }
+
+    private boolean isPlainHeaderLine() {
+        for (int i = 0; i < columns.columnCount(); i++) {
+            if (!chunkReader.valueEquals(i, columns.nameAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a line that contains quote or escape characters, or that follows one with a quoted value that has not
+     * ended yet, as the {@link CSVReader} that reads the header line would.
+     *
+     * @return {@code null} if the line does not result in a record, or if its last value continues on the next line.
+     */
+    private R parseQuotedLine(final String text) throws IOException {
+        final String[] values = csvReader.getParser().parseLineMulti(text);
+        if (pendingValues == null || values.length == 0) {
+            pendingValues = pendingValues == null ? values : pendingValues;
+        } else {
+            final String[] combined = Arrays.copyOf(pendingValues, pendingValues.length + values.length);
+            System.arraycopy(values, 0, combined, pendingValues.length, values.length);
+            pendingValues = combined;
+        }
+        if (csvReader.getParser().isPending()) {
+            return null;
+        }
+        final String[] line = pendingValues;
+        pendingValues = null;
+        return parseLine(line);
+    }
+
+    /**
+     * Parses a line split into values.
+     *
+     * @return {@code null} if the line does not result in a record.
+     */
+    private R parseLine(final String[] line) {
+        if (isCommentLine(line)) {
+            processCommentLine(line, currentLineNumber());
+        } else if (!isHeaderLine(line)) {
+            if (line.length != columns.columnCount()) {
+                throw formatException(String.format("mismatch between number of values in line (%d) and number of columns (%d)", line.length, columns.columnCount()));
+            } else {
+                return createRecord(new DataLine(currentLineNumber(), line, columns, this::formatException));
             }
         }
         return null;
     }
 
+    /**
+     * Returns the number of the last line read from the input.
+     */
+    private long currentLineNumber() {
+        return chunkReader == null ? reader.getLineNumber() : chunkReader.getLineNumber();
+    }
+
+    /**
+     * Indicates whether comment and header lines are those recognized by the default implementations of
+     * {@link #isCommentLine(String[])} and {@link #isHeaderLine(String[])}.
+     * <p>
+     *     If so, data lines with no quote nor escape characters are classified without splitting them into strings,
+     *     and without calling those methods, and their values are only turned into strings if they are asked for.
+     *     Extending classes that do not override either method may override this one to return {@code true};
+     *     a class that is not final should then only do so for instances of exactly that class, so that its own
+     *     subclasses' overrides are not bypassed.
+     * </p>
+     *
+     * @return {@code false} by default, so that every line is classified by {@link #isCommentLine(String[])} and
+     * {@link #isHeaderLine(String[])}.
+     */
+    protected boolean usesDefaultLineClassification() {
+        return false;
+    }
+
+    /**
+     * Changes the number of characters read per chunk, and the number of chunks split ahead of time, for testing.
+     * Must be called before the first record is read.
+     */
+    void setChunking(final int chunkSize, final int maxChunksAhead) {
+        Utils.validate(chunkReader == null, "records have already been read");
+        this.chunkSize = chunkSize;
+        this.maxChunksAhead = maxChunksAhead;
+    }
+
     private void processCommentLine(final String[] line, final long lineNumber) {
         final StringBuilder builder = new StringBuilder();
         builder.append(line[0].substring(TableUtils.COMMENT_PREFIX.length()));
@@ -438,6 +580,9 @@ public abstract class TableReader<R> implements Closeable, Iterable<R> {
 
     @Override
     public void close() throws IOException {
+        if (chunkReader != null) {
+            chunkReader.close();
+        }
         csvReader.close();
     }
 
@@ -111,6 +111,11 @@ public final class TableUtils {
             protected R createRecord(DataLine dataLine) {
                 return recordExtractor.apply(dataLine);
             }
+
+            @Override
+            protected boolean usesDefaultLineClassification() {
+                return true;
+            }
         };
     }
 
@@ -154,6 +159,11 @@ public final class TableUtils {
             protected R createRecord(DataLine dataLine) {
                 return recordExtractor.apply(dataLine);
             }
+
+            @Override
+            protected boolean usesDefaultLineClassification() {
+                return true;
+            }
         };
     }
 
@@ -199,6 +209,11 @@ public final class TableUtils {
             protected R createRecord(DataLine dataLine) {
                 return recordExtractor.apply(dataLine);
             }
+
+            @Override
+            protected boolean usesDefaultLineClassification() {
+                return true;
+            }
         };
     }
 
@@ -0,0 +1,243 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFConstants;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link VCFCodec} that decodes only the columns requested by a {@link VariantProjection}: the genotype columns of
+ * other samples, and INFO and FORMAT entries with other keys, are cut out of each line before it is parsed, so no
+ * strings or {@link htsjdk.variant.variantcontext.Genotype} objects are created for them. With no projection (or
+ * {@link VariantProjection#ALL}) it behaves exactly like {@link VCFCodec}.
+ *
+ * Decoded records refer to a header restricted to the projected samples, but {@link #readActualHeader} still returns
+ * the full header of the file.
+ *
+ * The projection should be set before records are decoded, since genotypes are decoded lazily with the current
+ * projection.
+ *
+ * This codec lives outside the packages searched for codecs by {@link org.broadinstitute.hellbender.engine.FeatureManager},
+ * so that it never competes with {@link VCFCodec} for a file; {@link org.broadinstitute.hellbender.engine.FeatureDataSource}
+ * uses it in place of {@link VCFCodec}.
+ */
+public final class ProjectingVCFCodec extends VCFCodec {
+
+    private VariantProjection projection = VariantProjection.ALL;
+
+    // the header of the file, including all samples
+    private VCFHeader fullHeader = null;
+
+    // whether each genotype column of the file is kept, or null to keep them all
+    private boolean[] keptSamples = null;
+
+    // the FORMAT of the previous record, and which of its keys are kept (null for all), since it rarely changes
+    private String lastFormat = null;
+    private boolean[] lastKeptFormatKeys = null;
+
+    private final StringBuilder projectedLine = new StringBuilder();
+
+    /**
+     * Sets the columns to decode from now on.
+     */
+    public void setProjection(final VariantProjection projection) {
+        this.projection = Utils.nonNull(projection);
+        applyProjection();
+    }
+
+    public VariantProjection getProjection() {
+        return projection;
+    }
+
+    @Override
+    public Object readActualHeader(final LineIterator lineIterator) {
+        final Object result = super.readActualHeader(lineIterator);
+        fullHeader = header;
+        applyProjection();
+        return result;
+    }
+
+    /**
+     * Points the codec at a header with only the projected samples, and works out which columns to keep.
+     */
+    private void applyProjection() {
+        if (fullHeader == null) {
+            // the projection is applied once the header has been read
+            return;
+        }
+        final Set<String> samples = projection.getSamples();
+        final List<String> fileSamples = fullHeader.getGenotypeSamples();
+        if (samples == null || projection.isSitesOnly() && fileSamples.isEmpty()) {
+            keptSamples = null;
+            header = fullHeader;
+        } else {
+            keptSamples = new boolean[fileSamples.size()];
+            final List<String> projectedSamples = new ArrayList<>();
+            for (int i = 0; i < fileSamples.size(); i++) {
+                keptSamples[i] = samples.contains(fileSamples.get(i));
+                if (keptSamples[i]) {
+                    projectedSamples.add(fileSamples.get(i));
+                }
+            }
+            setVCFHeader(new VCFHeader(fullHeader.getMetaDataInInputOrder(), projectedSamples), version);
+        }
+        // these are sized from the header on first use
+        parts = null;
+        genotypeParts = null;
+        lastFormat = null;
+    }
+
+    @Override
+    public VariantContext decode(final String line) {
+        if (projection.keepsAll() || line.startsWith(VCFHeader.HEADER_INDICATOR)) {
+            return super.decode(line);
+        }
+        return super.decode(projectLine(line));
+    }
+
+    /**
+     * @return the line with only the projected columns and keys; malformed lines are returned unchanged, for the
+     * codec to report
+     */
+    private String projectLine(final String line) {
+        // find the INFO column, which follows the first seven
+        int infoStart = 0;
+        for (int i = 0; i < NUM_STANDARD_FIELDS - 1; i++) {
+            infoStart = line.indexOf(VCFConstants.FIELD_SEPARATOR_CHAR, infoStart) + 1;
+            if (infoStart == 0) {
+                return line;
+            }
+        }
+        final int infoEnd = columnEnd(line, infoStart);
+
+        final StringBuilder result = projectedLine;
+        result.setLength(0);
+        result.append(line, 0, infoStart);
+        appendInfo(result, line, infoStart, infoEnd);
+
+        if (infoEnd == line.length() || projection.isSitesOnly()) {
+            return result.toString();
+        }
+        if (keptSamples == null && projection.getFormatKeys() == null) {
+            return result.append(line, infoEnd, line.length()).toString();
+        }
+
+        final int formatStart = infoEnd + 1;
+        final int formatEnd = columnEnd(line, formatStart);
+        final boolean[] keptFormatKeys = keptFormatKeys(line, formatStart, formatEnd);
+        result.append(VCFConstants.FIELD_SEPARATOR_CHAR);
+        appendFields(result, line, formatStart, formatEnd, keptFormatKeys);
+
+        for (int sample = 0, sampleStart = formatEnd + 1; sampleStart <= line.length(); sample++) {
+            final int sampleEnd = columnEnd(line, sampleStart);
+            // keep any extra columns, so that the codec reports them
+            if (keptSamples == null || sample >= keptSamples.length || keptSamples[sample]) {
+                result.append(VCFConstants.FIELD_SEPARATOR_CHAR);
+                appendFields(result, line, sampleStart, sampleEnd, keptFormatKeys);
+            }
+            sampleStart = sampleEnd + 1;
+        }
+        return result.toString();
+    }
+
+    private static int columnEnd(final String line, final int columnStart) {
+        final int end = line.indexOf(VCFConstants.FIELD_SEPARATOR_CHAR, columnStart);
+        return end == -1 ? line.length() : end;
+    }
+
+    /**
+     * Appends the INFO column, keeping only the projected keys.
+     */
+    private void appendInfo(final StringBuilder result, final String line, final int start, final int end) {
+        final Set<String> infoKeys = projection.getInfoKeys();
+        if (infoKeys == null || line.startsWith(VCFConstants.EMPTY_INFO_FIELD, start) && end - start == 1) {
+            result.append(line, start, end);
+            return;
+        }
+        boolean empty = true;
+        for (int entryStart = start; entryStart <= end; ) {
+            int entryEnd = line.indexOf(VCFConstants.INFO_FIELD_SEPARATOR_CHAR, entryStart);
+            if (entryEnd == -1 || entryEnd > end) {
+                entryEnd = end;
+            }
+            int keyEnd = line.indexOf('=', entryStart);
+            if (keyEnd == -1 || keyEnd > entryEnd) {
+                keyEnd = entryEnd;
+            }
+            if (infoKeys.contains(line.substring(entryStart, keyEnd))) {
+                if (!empty) {
+                    result.append(VCFConstants.INFO_FIELD_SEPARATOR_CHAR);
+                }
+                result.append(line, entryStart, entryEnd);
+                empty = false;
+            }
+            entryStart = entryEnd + 1;
+        }
+        if (empty) {
+            result.append(VCFConstants.EMPTY_INFO_FIELD);
+        }
+    }
+
+    /**
+     * @return which of the keys in the FORMAT column are kept, or null if they all are (including when none of the
+     * projected keys is present, so that the FORMAT column is never empty)
+     */
+    private boolean[] keptFormatKeys(final String line, final int start, final int end) {
+        final Set<String> formatKeys = projection.getFormatKeys();
+        if (formatKeys == null) {
+            return null;
+        }
+        if (lastFormat != null && lastFormat.length() == end - start && line.startsWith(lastFormat, start)) {
+            return lastKeptFormatKeys;
+        }
+        lastFormat = line.substring(start, end);
+        final String[] keys = lastFormat.split(VCFConstants.GENOTYPE_FIELD_SEPARATOR);
+        final boolean[] kept = new boolean[keys.length];
+        boolean allKept = true;
+        boolean anyKept = false;
+        for (int i = 0; i < keys.length; i++) {
+            kept[i] = formatKeys.contains(keys[i]);
+            allKept &= kept[i];
+            anyKept |= kept[i];
+        }
+        lastKeptFormatKeys = allKept || !anyKept ? null : kept;
+        return lastKeptFormatKeys;
+    }
+
+    /**
+     * Appends a FORMAT or genotype column, keeping only the fields at the kept positions (all if {@code keptFields}
+     * is null). A genotype column may have fewer fields than the FORMAT column, and may be left empty, in which case
+     * it is written as missing.
+     */
+    private static void appendFields(final StringBuilder result, final String line, final int start, final int end, final boolean[] keptFields) {
+        if (keptFields == null) {
+            result.append(line, start, end);
+            return;
+        }
+        boolean empty = true;
+        int field = 0;
+        for (int fieldStart = start; fieldStart <= end && field < keptFields.length; field++) {
+            int fieldEnd = line.indexOf(VCFConstants.GENOTYPE_FIELD_SEPARATOR_CHAR, fieldStart);
+            if (fieldEnd == -1 || fieldEnd > end) {
+                fieldEnd = end;
+            }
+            if (keptFields[field]) {
+                if (!empty) {
+                    result.append(VCFConstants.GENOTYPE_FIELD_SEPARATOR_CHAR);
+                }
+                result.append(line, fieldStart, fieldEnd);
+                empty = false;
+            }
+            fieldStart = fieldEnd + 1;
+        }
+        if (empty) {
+            result.append(VCFConstants.MISSING_VALUE_v4);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import htsjdk.variant.vcf.VCFConstants;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The columns of a VCF that a tool needs: a subset of the samples (possibly none, for a sites-only view) and of the
+ * INFO and FORMAT keys. Used by {@link ProjectingVCFCodec} to skip the other columns without parsing them.
+ *
+ * A projection is only a hint: records decoded with it contain at least the requested data, but may contain more
+ * (for instance when the input is not a VCF text file), so tools should still subset records themselves if they
+ * need to.
+ *
+ * Instances are immutable; the {@code with} methods return new projections.
+ */
+public final class VariantProjection {
+
+    /**
+     * The projection that keeps every column.
+     */
+    public static final VariantProjection ALL = new VariantProjection(null, null, null);
+
+    // null means all samples / keys
+    private final Set<String> samples;
+    private final Set<String> infoKeys;
+    private final Set<String> formatKeys;
+
+    private VariantProjection(final Set<String> samples, final Set<String> infoKeys, final Set<String> formatKeys) {
+        this.samples = samples;
+        this.infoKeys = infoKeys;
+        this.formatKeys = formatKeys;
+    }
+
+    /**
+     * @return a projection that keeps only the genotypes of the given samples (which need not all be present in the input)
+     */
+    public VariantProjection withSamples(final Collection<String> samples) {
+        Utils.nonNull(samples);
+        return new VariantProjection(Collections.unmodifiableSet(new LinkedHashSet<>(samples)), infoKeys, formatKeys);
+    }
+
+    /**
+     * @return a projection that keeps no genotypes at all
+     */
+    public VariantProjection withoutGenotypes() {
+        return new VariantProjection(Collections.emptySet(), infoKeys, formatKeys);
+    }
+
+    /**
+     * @return a projection that keeps only the given INFO keys, plus the end position ({@value VCFConstants#END_KEY}),
+     * which is always kept since the extent of a record depends on it
+     */
+    public VariantProjection withInfoKeys(final Collection<String> infoKeys) {
+        Utils.nonNull(infoKeys);
+        final Set<String> keys = new LinkedHashSet<>();
+        keys.add(VCFConstants.END_KEY);
+        keys.addAll(infoKeys);
+        return new VariantProjection(samples, Collections.unmodifiableSet(keys), formatKeys);
+    }
+
+    /**
+     * @return a projection that keeps only the given FORMAT keys, plus the genotype ({@value VCFConstants#GENOTYPE_KEY}),
+     * which is always kept
+     */
+    public VariantProjection withFormatKeys(final Collection<String> formatKeys) {
+        Utils.nonNull(formatKeys);
+        final Set<String> keys = new LinkedHashSet<>();
+        keys.add(VCFConstants.GENOTYPE_KEY);
+        keys.addAll(formatKeys);
+        return new VariantProjection(samples, infoKeys, Collections.unmodifiableSet(keys));
+    }
+
+    /**
+     * @return true if this projection keeps every column
+     */
+    public boolean keepsAll() {
+        return samples == null && infoKeys == null && formatKeys == null;
+    }
+
+    /**
+     * @return true if this projection keeps no genotypes
+     */
+    public boolean isSitesOnly() {
+        return samples != null && samples.isEmpty();
+    }
+
+    /**
+     * @return the samples to keep, or null to keep all of them
+     */
+    public Set<String> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the INFO keys to keep, or null to keep all of them
+     */
+    public Set<String> getInfoKeys() {
+        return infoKeys;
+    }
+
+    /**
+     * @return the FORMAT keys to keep, or null to keep all of them
+     */
+    public Set<String> getFormatKeys() {
+        return formatKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "VariantProjection{" +
+                "samples=" + (samples == null ? "all" : samples.size()) +
+                ", infoKeys=" + (infoKeys == null ? "all" : infoKeys) +
+                ", formatKeys=" + (formatKeys == null ? "all" : formatKeys) +
+                '}';
+    }
+}
@@ -0,0 +1,102 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFRecordCodec;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ShardedOutputMerger;
+
+import java.io.Closeable;
+import java.io.File;
+
+/**
+ * Writes the variants produced by a number of concurrent shard workers to a single {@link VariantContextWriter},
+ * with no separate gather step.
+ *
+ * Each worker writes through the writer returned by {@link #getShardWriter}, and closes it when it is done.
+ * Variants from the lowest unfinished shard are written as they arrive; variants from later shards are held in
+ * memory, or spilled to temporary files beyond {@code maxRecordsInRam}, until the earlier shards are closed.
+ * See {@link ShardedOutputMerger}. If the shards are ordered and non-overlapping and each worker writes its variants
+ * in order, the output is sorted, so the underlying writer can index it on the fly.
+ */
+public final class ShardMergingVariantContextWriter implements Closeable {
+
+    private final VariantContextWriter underlyingWriter;
+    private final ShardedOutputMerger<VariantContext> merger;
+
+    /**
+     * @param underlyingWriter the ultimate destination of the variants
+     * @param header header to write to the underlying writer; it is also used to encode spilled variants
+     * @param numShards number of shard workers
+     * @param maxRecordsInRam maximum number of held variants to keep in memory
+     * @param tmpDir directory for spill files, or null to use the default temporary directory
+     */
+    public ShardMergingVariantContextWriter( final VariantContextWriter underlyingWriter,
+                                             final VCFHeader header,
+                                             final int numShards,
+                                             final int maxRecordsInRam,
+                                             final File tmpDir ) {
+        this.underlyingWriter = Utils.nonNull(underlyingWriter);
+        Utils.nonNull(header);
+        this.merger = new ShardedOutputMerger<>(numShards, underlyingWriter::add, new VCFRecordCodec(header), maxRecordsInRam, tmpDir);
+        underlyingWriter.writeHeader(header);
+    }
+
+    /**
+     * Adds a variant produced by the given shard.
+     */
+    public void add( final int shard, final VariantContext vc ) {
+        merger.add(shard, vc);
+    }
+
+    /**
+     * Marks the given shard as finished.
+     */
+    public void completeShard( final int shard ) {
+        merger.completeShard(shard);
+    }
+
+    /**
+     * @return a writer for a single shard worker, which completes the shard when it is closed.
+     *         The header has already been written, so {@link VariantContextWriter#writeHeader} is not supported.
+     */
+    public VariantContextWriter getShardWriter( final int shard ) {
+        Utils.validateArg(shard >= 0 && shard < merger.getNumShards(), () -> "Invalid shard ordinal " + shard);
+        return new VariantContextWriter() {
+            @Override
+            public void writeHeader( final VCFHeader header ) {
+                throw new UnsupportedOperationException("The header is written by the merging writer");
+            }
+
+            @Override
+            public void add( final VariantContext vc ) {
+                merger.add(shard, vc);
+            }
+
+            @Override
+            public boolean checkError() {
+                return underlyingWriter.checkError();
+            }
+
+            @Override
+            public void close() {
+                merger.completeShard(shard);
+            }
+        };
+    }
+
+    /**
+     * Closes the underlying writer.
+     *
+     * @throws IllegalStateException if some shard was not completed
+     */
+    @Override
+    public void close() {
+        try {
+            merger.close();
+        } finally {
+            underlyingWriter.close();
+        }
+    }
+}
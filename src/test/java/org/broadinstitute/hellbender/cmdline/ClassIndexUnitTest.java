@@ -0,0 +1,156 @@
+package org.broadinstitute.hellbender.cmdline;
+
+import htsjdk.tribble.FeatureCodec;
+import org.broadinstitute.hellbender.utils.codecs.table.TableCodec;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public final class ClassIndexUnitTest extends BaseTest {
+
+    private static final String CODEC_PACKAGE = "org.broadinstitute.hellbender.utils.codecs";
+
+    @Test
+    public void testReadIndex() throws IOException {
+        final ClassIndex index = ClassIndex.read(new BufferedReader(new StringReader(
+                "package a.b\npackage c\n\na.b.X\na.b.d.Y\na.bc.Z\nc.W\n")));
+        Assert.assertTrue(index.covers("a.b"));
+        Assert.assertTrue(index.covers("a.b.d"));
+        Assert.assertTrue(index.covers("c"));
+        Assert.assertFalse(index.covers("a"));
+        Assert.assertFalse(index.covers("a.bc"));
+        Assert.assertEquals(index.getClassNames("a.b"), Arrays.asList("a.b.X", "a.b.d.Y"));
+        Assert.assertEquals(index.getClassNames("a.b.d"), Collections.singletonList("a.b.d.Y"));
+        Assert.assertEquals(index.getClassNames("c"), Collections.singletonList("c.W"));
+    }
+
+    @Test
+    public void testIndexFindsSameClassesAsScan() throws IOException, URISyntaxException {
+        final File indexDir = createTempDir("classIndex");
+        ClassIndex.write(indexDir, FeatureCodec.class, Collections.singletonList(CODEC_PACKAGE));
+        final File jar = makeCodecJar(indexDir);
+
+        final Set<Class<?>> fromIndex = findCodecs(jar, true);
+        final Set<Class<?>> fromScan = findCodecs(jar, false);
+        Assert.assertTrue(fromIndex.contains(TableCodec.class));
+        Assert.assertEquals(fromIndex, fromScan);
+    }
+
+    @Test
+    public void testIndexIsUsedWhenPresent() throws IOException, URISyntaxException {
+        // an index that lists only one of the codecs in the jar hides the others
+        final File indexDir = createTempDir("classIndex");
+        final File indexFile = new File(indexDir, ClassIndex.getResourcePath(FeatureCodec.class));
+        Assert.assertTrue(indexFile.getParentFile().mkdirs());
+        Files.write(indexFile.toPath(), Arrays.asList("package " + CODEC_PACKAGE, TableCodec.class.getName()));
+        final File jar = makeCodecJar(indexDir);
+        Assert.assertEquals(findCodecs(jar, true), Collections.singleton(TableCodec.class));
+
+        // and it does not cover other packages or types, which are scanned
+        final ClassFinder finder = new ClassFinder(jar);
+        finder.find(CODEC_PACKAGE, Object.class);
+        Assert.assertTrue(finder.getClasses().size() > 1);
+    }
+
+    @Test
+    public void testScanWithoutIndex() throws IOException, URISyntaxException {
+        final File jar = makeCodecJar(null);
+        final Set<Class<?>> codecs = findCodecs(jar, true);
+        Assert.assertTrue(codecs.contains(TableCodec.class));
+        Assert.assertEquals(codecs, findCodecs(jar, false));
+    }
+
+    @Test
+    public void testStatisticsArePerFinder() throws IOException, URISyntaxException {
+        final File indexDir = createTempDir("classIndex");
+        ClassIndex.write(indexDir, FeatureCodec.class, Collections.singletonList(CODEC_PACKAGE));
+        final File jar = makeCodecJar(indexDir);
+        final ClassFinder indexed = new ClassFinder(jar);
+        indexed.find(CODEC_PACKAGE, FeatureCodec.class);
+        final ClassFinder scanned = new ClassFinder(jar);
+        scanned.setUseIndex(false);
+        scanned.find(CODEC_PACKAGE, FeatureCodec.class);
+
+        Assert.assertTrue(indexed.getStatistics().endsWith(indexed.getClasses().size() + " read from class indexes, 0 scanned"),
+                indexed.getStatistics());
+        Assert.assertTrue(scanned.getStatistics().contains(": 0 read from class indexes"), scanned.getStatistics());
+        Assert.assertTrue(new ClassFinder().getStatistics().endsWith(": 0 read from class indexes, 0 scanned"));
+    }
+
+    private static Set<Class<?>> findCodecs(final File jar, final boolean useIndex) throws IOException {
+        final ClassFinder finder = new ClassFinder(jar);
+        finder.setUseIndex(useIndex);
+        finder.find(CODEC_PACKAGE, FeatureCodec.class);
+        return finder.getClasses();
+    }
+
+    /**
+     * Makes a jar holding the classes of the codec package, and the files in an index directory (if not null).
+     */
+    private static File makeCodecJar(final File indexDir) throws IOException, URISyntaxException {
+        final File jar = createTempFile("codecs", ".jar");
+        final String packagePath = CODEC_PACKAGE.replace('.', '/') + "/";
+        try (final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            final Set<String> directories = new TreeSet<>();
+            final File classLocation = new File(TableCodec.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (classLocation.isDirectory()) {
+                final List<File> classFiles = Files.walk(new File(classLocation, packagePath).toPath())
+                        .map(p -> p.toFile()).filter(File::isFile).collect(Collectors.toList());
+                for (final File classFile : classFiles) {
+                    final String name = classLocation.toPath().relativize(classFile.toPath()).toString().replace('\\', '/');
+                    addEntry(out, directories, name, Files.readAllBytes(classFile.toPath()));
+                }
+            } else {
+                try (final ZipFile zip = new ZipFile(classLocation)) {
+                    final Enumeration<? extends ZipEntry> entries = zip.entries();
+                    while (entries.hasMoreElements()) {
+                        final ZipEntry entry = entries.nextElement();
+                        if (!entry.isDirectory() && entry.getName().startsWith(packagePath)) {
+                            try (final InputStream in = zip.getInputStream(entry)) {
+                                addEntry(out, directories, entry.getName(), org.apache.commons.io.IOUtils.toByteArray(in));
+                            }
+                        }
+                    }
+                }
+            }
+            if (indexDir != null) {
+                final File indexFile = new File(indexDir, ClassIndex.getResourcePath(FeatureCodec.class));
+                addEntry(out, directories, ClassIndex.getResourcePath(FeatureCodec.class), Files.readAllBytes(indexFile.toPath()));
+            }
+        }
+        return jar;
+    }
+
+    // adds an entry, preceded by entries for any of its directories not yet added, so that packages are found as resources
+    private static void addEntry(final JarOutputStream out, final Set<String> directories, final String name, final byte[] content) throws IOException {
+        for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+            final String directory = name.substring(0, slash + 1);
+            if (directories.add(directory)) {
+                out.putNextEntry(new ZipEntry(directory));
+                out.closeEntry();
+            }
+        }
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,153 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.broadinstitute.hellbender.utils.variant.VariantProjection;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class ParallelVariantIteratorUnitTest extends BaseTest {
+    private static final String ENGINE_TEST_DIRECTORY = publicTestDir + "org/broadinstitute/hellbender/engine/";
+    private static final File VCF = new File(ENGINE_TEST_DIRECTORY + "feature_data_source_test.vcf");
+    private static final File GVCF = new File(ENGINE_TEST_DIRECTORY + "feature_data_source_test_gvcf.vcf");
+    private static final File TABIX_VCF = new File(publicTestDir + "org/broadinstitute/hellbender/tools/VQSR/VQSR.AStest.postSNPinput.HACKEDhg38header.vcf.gz");
+    private static final File MULTI_SAMPLE_VCF = new File(publicTestDir + "org/broadinstitute/hellbender/tools/walkers/variantutils/SelectVariants/vcfexample2.vcf");
+
+    @DataProvider(name = "traversals")
+    public Object[][] traversals() {
+        final List<SimpleInterval> vcfIntervals = Arrays.asList(
+                new SimpleInterval("1", 150, 201), new SimpleInterval("1", 202, 999), new SimpleInterval("1", 1077, 1175),
+                new SimpleInterval("2", 1, 600), new SimpleInterval("3", 300, 300), new SimpleInterval("4", 1, 1000));
+        // intervals that the record 1:100-200 spans, and one that it starts before
+        final List<SimpleInterval> gvcfIntervals = Arrays.asList(
+                new SimpleInterval("1", 50, 120), new SimpleInterval("1", 150, 160), new SimpleInterval("1", 170, 210));
+        final List<Object[]> traversals = new ArrayList<>();
+        for ( final int shardSize : new int[] { 1, 7, 100, 100000 } ) {
+            for ( final int threads : new int[] { 1, 3 } ) {
+                traversals.add(new Object[] { VCF, null, shardSize, threads });
+                traversals.add(new Object[] { VCF, vcfIntervals, shardSize, threads });
+                traversals.add(new Object[] { GVCF, null, shardSize, threads });
+                traversals.add(new Object[] { GVCF, gvcfIntervals, shardSize, threads });
+                traversals.add(new Object[] { GVCF, Collections.singletonList(new SimpleInterval("1", 150, 160)), shardSize, threads });
+                traversals.add(new Object[] { MULTI_SAMPLE_VCF, null, shardSize, threads });
+            }
+        }
+        traversals.add(new Object[] { TABIX_VCF, null, 100000, 4 });
+        traversals.add(new Object[] { TABIX_VCF, null, 10000000, 2 });
+        return traversals.toArray(new Object[traversals.size()][]);
+    }
+
+    @Test(dataProvider = "traversals")
+    public void testSameAsSerialTraversal( final File file, final List<SimpleInterval> intervals, final int shardSize, final int threads ) {
+        final List<String> expected;
+        final List<String> actual = new ArrayList<>();
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(file) ) {
+            source.setIntervalsForTraversal(intervals);
+            expected = describe(source);
+
+            final List<SimpleInterval> traversalIntervals = intervals != null ? intervals : ParallelVariantIterator.wholeContigIntervals(source.getSequenceNames(), source.getSequenceDictionary());
+            try ( final ParallelVariantIterator iterator = new ParallelVariantIterator(() -> new FeatureDataSource<>(file, null, 0),
+                    traversalIntervals, source.getSequenceDictionary(), shardSize, threads) ) {
+                iterator.forEachRemaining(vc -> actual.add(describe(vc)));
+                Assert.assertEquals(iterator.getVariantsConsumed(), expected.size());
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testProjectedSources() {
+        final List<String> expected;
+        final List<String> actual = new ArrayList<>();
+        final VariantProjection projection = VariantProjection.ALL.withSamples(Arrays.asList("NA11894", "NA12873"));
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(MULTI_SAMPLE_VCF) ) {
+            source.setVariantProjection(projection);
+            expected = describe(source);
+            try ( final ParallelVariantIterator iterator = new ParallelVariantIterator(() -> {
+                        final FeatureDataSource<VariantContext> workerSource = new FeatureDataSource<>(MULTI_SAMPLE_VCF, null, 0);
+                        workerSource.setVariantProjection(projection);
+                        return workerSource;
+                    }, ParallelVariantIterator.wholeContigIntervals(source.getSequenceNames(), null), null, 1000, 2) ) {
+                iterator.forEachRemaining(vc -> {
+                    Assert.assertEquals(vc.getNSamples(), 2);
+                    actual.add(describe(vc));
+                });
+            }
+        }
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testCloseBeforeExhausted() {
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(VCF) ) {
+            final ParallelVariantIterator iterator = new ParallelVariantIterator(() -> new FeatureDataSource<>(VCF, null, 0),
+                    ParallelVariantIterator.wholeContigIntervals(source.getSequenceNames(), null), null, 1, 2);
+            Assert.assertTrue(iterator.hasNext());
+            iterator.next();
+            iterator.close();
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void testOpenEndedQueries() {
+        // without a dictionary, each contig is queried to its end
+        final List<String> expected;
+        final List<String> actual = new ArrayList<>();
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(TABIX_VCF) ) {
+            expected = describe(source);
+            try ( final ParallelVariantIterator iterator = new ParallelVariantIterator(() -> new FeatureDataSource<>(TABIX_VCF, null, 0),
+                    ParallelVariantIterator.wholeContigIntervals(source.getSequenceNames(), null), null, 1000, 2) ) {
+                iterator.forEachRemaining(vc -> actual.add(describe(vc)));
+            }
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testWholeContigIntervals() {
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(Arrays.asList(new SAMSequenceRecord("1", 25), new SAMSequenceRecord("2", 0)));
+        Assert.assertEquals(ParallelVariantIterator.wholeContigIntervals(Arrays.asList("1", "2", "3"), dictionary), Arrays.asList(
+                new SimpleInterval("1", 1, 25), new SimpleInterval("2", 1, Integer.MAX_VALUE), new SimpleInterval("3", 1, Integer.MAX_VALUE)));
+        Assert.assertEquals(ParallelVariantIterator.wholeContigIntervals(Collections.singletonList("1"), null),
+                Collections.singletonList(new SimpleInterval("1", 1, Integer.MAX_VALUE)));
+    }
+
+    @Test
+    public void testMakeShards() {
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(Arrays.asList(new SAMSequenceRecord("1", 25), new SAMSequenceRecord("2", 0)));
+        final List<SimpleInterval> intervals = Arrays.asList(new SimpleInterval("1", 1, ParallelVariantIterator.UNBOUNDED_END),
+                new SimpleInterval("2", 5, 24), new SimpleInterval("3", 1, 10), new SimpleInterval("4", 1, ParallelVariantIterator.UNBOUNDED_END));
+        final List<ParallelVariantIterator.Shard> shards = ParallelVariantIterator.makeShards(intervals, dictionary, 10);
+        Assert.assertEquals(shards.stream().map(shard -> shard.interval).collect(Collectors.toList()), Arrays.asList(
+                new SimpleInterval("1", 1, 10), new SimpleInterval("1", 11, 20), new SimpleInterval("1", 21, ParallelVariantIterator.UNBOUNDED_END),
+                new SimpleInterval("2", 5, 14), new SimpleInterval("2", 15, 24),
+                new SimpleInterval("3", 1, 10), new SimpleInterval("4", 1, ParallelVariantIterator.UNBOUNDED_END)));
+        Assert.assertNull(shards.get(0).previousInterval);
+        Assert.assertEquals(shards.get(3).previousInterval, intervals.get(0));
+        Assert.assertEquals(shards.get(5).previousInterval, intervals.get(1));
+    }
+
+    private static List<String> describe( final FeatureDataSource<VariantContext> source ) {
+        final List<String> descriptions = new ArrayList<>();
+        source.forEach(vc -> descriptions.add(describe(vc)));
+        return descriptions;
+    }
+
+    private static String describe( final VariantContext vc ) {
+        return vc.getContig() + ":" + vc.getStart() + "-" + vc.getEnd() + " " + vc.getID() + " " + vc.getAlleles() + " " + vc.getGenotypes();
+    }
+}
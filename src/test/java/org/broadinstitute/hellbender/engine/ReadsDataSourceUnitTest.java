@@ -168,6 +168,43 @@ public final class ReadsDataSourceUnitTest extends BaseTest {
         }
     }
 
+    @Test(dataProvider = "MultipleFilesTraversalWithIntervalsData")
+    public void testTraversalWithReadAhead( final List<Path> samFiles, final List<SimpleInterval> intervals, final List<String> expectedReadNames ) {
+        final SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).setUseAsyncIo(true);
+        try (ReadsDataSource readsSource = new ReadsDataSource(samFiles, factory)) {
+            readsSource.enableReadAhead(2, 3);
+            readsSource.setTraversalBounds(intervals);
+
+            // traverse twice, to make sure that the read-ahead of the first traversal is stopped cleanly
+            for ( int traversal = 0; traversal < 2; traversal++ ) {
+                final List<String> readNames = new ArrayList<>();
+                for (GATKRead read : readsSource) {
+                    readNames.add(read.getName());
+                }
+                Assert.assertEquals(readNames, expectedReadNames, "Wrong reads returned in traversal with read-ahead of " + samFiles);
+            }
+        }
+    }
+
+    @Test
+    public void testQueryDuringTraversalWithReadAhead() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(Arrays.asList(FIRST_TEST_BAM, SECOND_TEST_BAM))) {
+            readsSource.enableReadAhead(1, 1);
+
+            // abandon a partially-consumed traversal, which must stop the read-ahead thread before the query
+            final Iterator<GATKRead> traversal = readsSource.iterator();
+            Assert.assertEquals(traversal.next().getName(), "a");
+
+            final List<String> queryNames = new ArrayList<>();
+            readsSource.query(new SimpleInterval("1", 205, 207)).forEachRemaining(read -> queryNames.add(read.getName()));
+            Assert.assertEquals(queryNames, Arrays.asList("a", "b", "l"));
+
+            final List<String> readNames = new ArrayList<>();
+            readsSource.iterator().forEachRemaining(read -> readNames.add(read.getName()));
+            Assert.assertEquals(readNames.size(), 22);
+        }
+    }
+
     @DataProvider(name = "SingleFileQueryByIntervalData")
     public Object[][] getSingleFileQueryByIntervalData() {
         // Files, with a single query interval, and expected read names in the expected order
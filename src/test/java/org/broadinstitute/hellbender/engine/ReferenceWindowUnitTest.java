@@ -0,0 +1,125 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Random;
+
+public final class ReferenceWindowUnitTest extends BaseTest {
+
+    // four contigs of 16000 bases
+    private static final File TEST_REFERENCE = new File(hg19MiniReference);
+
+    @DataProvider(name = "blockSizes")
+    public Object[][] blockSizes() {
+        return new Object[][] { { 1, 0 }, { 10, 3 }, { 1000, 100 }, { ReferenceWindow.DEFAULT_BLOCK_SIZE, ReferenceWindow.DEFAULT_LOOKBEHIND } };
+    }
+
+    @Test(dataProvider = "blockSizes")
+    public void testSameBasesAsReference( final int blockSize, final int lookbehind ) {
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            final ReferenceWindow window = new ReferenceWindow(reference, blockSize, lookbehind);
+            // walk along each contig, as a locus traversal does, with some windowed queries
+            for ( final String contig : new String[] { "1", "2", "4" } ) {
+                for ( int position = 9990; position <= 16000; position += 3 ) {
+                    final SimpleInterval locus = new SimpleInterval(contig, position, position);
+                    Assert.assertEquals(window.getBase(contig, position), reference.queryAndPrefetch(locus).getBases()[0]);
+                    assertSameSequence(window.queryAndPrefetch(locus), reference.queryAndPrefetch(locus));
+                    final SimpleInterval around = new SimpleInterval(contig, Math.max(1, position - 5), Math.min(16000, position + 20));
+                    assertSameSequence(window.queryAndPrefetch(around), reference.queryAndPrefetch(around));
+                }
+            }
+            // random access, including queries larger than a block
+            final Random random = new Random(4);
+            for ( int i = 0; i < 1000; i++ ) {
+                final String contig = Integer.toString(random.nextInt(4) + 1);
+                final int start = random.nextInt(16000) + 1;
+                final SimpleInterval interval = new SimpleInterval(contig, start, Math.min(16000, start + random.nextInt(2000)));
+                assertSameSequence(window.queryAndPrefetch(interval), reference.queryAndPrefetch(interval));
+            }
+        }
+    }
+
+    @Test
+    public void testFetchesBlocks() {
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            final ReferenceWindow window = new ReferenceWindow(reference, 1000, 10);
+            for ( int position = 1; position <= 16000; position++ ) {
+                window.getBase("1", position);
+            }
+            Assert.assertEquals(window.getQueriesFromWindow(), 16000);
+            // the first position fetches just itself; each block after the first starts 10 bases before the position that fetched it
+            Assert.assertEquals(window.getSpansFetched(), 1);
+            Assert.assertEquals(window.getBlocksFetched(), 17);
+
+            // moving back within the lookbehind fetches nothing, and moving to another contig fetches a small span
+            window.getBase("1", 15845);
+            Assert.assertEquals(window.getBlocksFetched(), 17);
+            Assert.assertEquals(window.getSpansFetched(), 1);
+            window.getBase("2", 15845);
+            Assert.assertEquals(window.getBlocksFetched(), 17);
+            Assert.assertEquals(window.getSpansFetched(), 2);
+        }
+    }
+
+    @Test
+    public void testReferenceContextUsesWindow() {
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            final ReferenceWindow window = new ReferenceWindow(reference);
+            for ( int position = 11041; position <= 11045; position++ ) {
+                final SimpleInterval locus = new SimpleInterval("1", position, position);
+                final ReferenceContext windowed = new ReferenceContext(window, locus);
+                final ReferenceContext direct = new ReferenceContext(reference, locus);
+                Assert.assertEquals(windowed.getBase(), direct.getBase());
+                windowed.setWindow(3, 5);
+                direct.setWindow(3, 5);
+                Assert.assertEquals(windowed.getBases(), direct.getBases());
+                Assert.assertEquals(windowed.getForwardBases(), direct.getForwardBases());
+                Assert.assertEquals(windowed.getBase(), direct.getBase());
+            }
+            Assert.assertEquals(window.getSpansFetched(), 1);
+            Assert.assertEquals(window.getBlocksFetched(), 1);
+        }
+    }
+
+    @Test
+    public void testSparseLociFetchOnlyTheirSpans() {
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            final ReferenceWindow window = new ReferenceWindow(reference, 100, 10);
+            // loci further apart than a block each fetch just themselves and the lookbehind, never a full block
+            for ( int position = 1; position <= 16000; position += 250 ) {
+                final SimpleInterval locus = new SimpleInterval("1", position, position);
+                Assert.assertEquals(window.getBase("1", position), reference.queryAndPrefetch(locus).getBases()[0]);
+                assertSameSequence(window.queryAndPrefetch(locus), reference.queryAndPrefetch(locus));
+            }
+            Assert.assertEquals(window.getBlocksFetched(), 0);
+            Assert.assertEquals(window.getSpansFetched(), 64);
+
+            // a locus within a block length of the last one fetches a full block again
+            window.getBase("1", 15800);
+            Assert.assertEquals(window.getBlocksFetched(), 1);
+            for ( int position = 15790; position <= 15889; position++ ) {
+                window.getBase("1", position);
+            }
+            Assert.assertEquals(window.getBlocksFetched(), 1);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBlockSize() {
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            new ReferenceWindow(reference, 10, 10);
+        }
+    }
+
+    private static void assertSameSequence( final ReferenceSequence actual, final ReferenceSequence expected ) {
+        Assert.assertEquals(actual.getName(), expected.getName());
+        Assert.assertEquals(actual.getContigIndex(), expected.getContigIndex());
+        Assert.assertEquals(actual.getBases(), expected.getBases());
+    }
+}
@@ -54,6 +54,26 @@ public class TwoPassReadsWalkerUnitTest extends CommandLineProgramTest{
         Assert.assertTrue(tool.betweenTraversals);
     }
 
+    @Test(dataProvider = "unsortedFiles")
+    public void testReplayCacheEquivalentBehavior(String file) throws IOException {
+        for (final String maxMemory : new String[] {"256", "0"}) {
+            final TwoPassReadsWalkerUnitTest.dummyTwoPassReadsWalker tool = new TwoPassReadsWalkerUnitTest.dummyTwoPassReadsWalker();
+
+            final String[] args = {
+                    "-I", getTestDataDir() + file,
+                    "-R", getTestDataDir() + "/count_reads.fasta",
+                    "--cacheReadsForSecondPass",
+                    "--readCacheMaxMemory", maxMemory
+            };
+
+            tool.instanceMain(args);
+
+            Assert.assertEquals(tool.firstPass, 8);
+            Assert.assertEquals(tool.secondPass, 8);
+            Assert.assertTrue(tool.betweenTraversals);
+        }
+    }
+
     @DataProvider(name = "unsortedFiles")
     public Object[][] makeExtensions() {
         return new Object[][] {{"/count_reads.bam"}, {"/count_reads.sam"}, {"/count_reads.cram"}};
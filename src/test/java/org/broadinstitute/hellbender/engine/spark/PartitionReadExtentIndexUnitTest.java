@@ -0,0 +1,132 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.ImmutableList;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.OverlapDetector;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public final class PartitionReadExtentIndexUnitTest extends BaseTest {
+
+    private static final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(ImmutableList.of(
+            new SAMSequenceRecord("1", 100), new SAMSequenceRecord("2", 50), new SAMSequenceRecord("3", 1000), new SAMSequenceRecord("4", 10)));
+
+    // the extents computed by SparkSharder for reads 1:1-3, 1:5-7, 1:7-9, 2:11-13, 2:12-14, 2:13-15 in three partitions
+    private static final List<SparkSharder.PartitionLocatable<SimpleInterval>> threePartitionExtents = ImmutableList.of(
+            new SparkSharder.PartitionLocatable<>(0, new SimpleInterval("1", 1, 10)),
+            new SparkSharder.PartitionLocatable<>(1, new SimpleInterval("1", 7, 100)),
+            new SparkSharder.PartitionLocatable<>(1, new SimpleInterval("2", 1, 15)),
+            new SparkSharder.PartitionLocatable<>(2, new SimpleInterval("2", 12, 50)));
+
+    @DataProvider(name = "threePartitionQueries")
+    public Object[][] threePartitionQueries() {
+        return new Object[][] {
+                { new SimpleInterval("1", 1, 5), 0, 0 },
+                { new SimpleInterval("1", 8, 9), 0, 1 },
+                { new SimpleInterval("1", 11, 100), 1, 1 },
+                { new SimpleInterval("2", 1, 11), 1, 1 },
+                { new SimpleInterval("2", 13, 14), 1, 2 },
+                { new SimpleInterval("2", 16, 50), 2, 2 },
+                { new SimpleInterval("3", 1, 1000), -1, -1 },
+                { new SimpleInterval("X", 1, 1000), -1, -1 },
+        };
+    }
+
+    @Test(dataProvider = "threePartitionQueries")
+    public void testThreePartitions(final SimpleInterval interval, final int expectedFirst, final int expectedLast) {
+        final PartitionReadExtentIndex index = new PartitionReadExtentIndex(threePartitionExtents, dictionary);
+        Assert.assertEquals(index.findOverlappingPartitions(interval), expectedFirst != -1);
+        if (expectedFirst != -1) {
+            Assert.assertEquals(index.getFirstPartition(), expectedFirst);
+            Assert.assertEquals(index.getLastPartition(), expectedLast);
+        }
+    }
+
+    @Test
+    public void testSameAsOverlapDetector() {
+        final Random random = new Random(13);
+        for (int trial = 0; trial < 20; trial++) {
+            final List<SparkSharder.PartitionLocatable<SimpleInterval>> extents = randomExtents(random);
+            final OverlapDetector<SparkSharder.PartitionLocatable<SimpleInterval>> overlapDetector = OverlapDetector.create(extents);
+
+            final List<SimpleInterval> intervals = new ArrayList<>();
+            for (final SAMSequenceRecord contig : dictionary.getSequences()) {
+                for (int start = 1; start <= contig.getSequenceLength(); start += 1 + random.nextInt(5)) {
+                    intervals.add(new SimpleInterval(contig.getSequenceName(), start, start + random.nextInt(40)));
+                }
+            }
+
+            // sorted intervals move the cursors forwards, shuffled ones in both directions
+            final PartitionReadExtentIndex index = new PartitionReadExtentIndex(extents, dictionary);
+            for (final boolean shuffle : new boolean[] { false, true }) {
+                if (shuffle) {
+                    Collections.shuffle(intervals, random);
+                }
+                for (final SimpleInterval interval : intervals) {
+                    final Set<SparkSharder.PartitionLocatable<SimpleInterval>> overlaps = overlapDetector.getOverlaps(interval);
+                    Assert.assertEquals(index.findOverlappingPartitions(interval), !overlaps.isEmpty(), interval.toString());
+                    if (!overlaps.isEmpty()) {
+                        Assert.assertEquals(index.getFirstPartition(), overlaps.stream().mapToInt(SparkSharder.PartitionLocatable::getPartitionIndex).min().getAsInt(), interval.toString());
+                        Assert.assertEquals(index.getLastPartition(), overlaps.stream().mapToInt(SparkSharder.PartitionLocatable::getPartitionIndex).max().getAsInt(), interval.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    // extents in partition order, with sorted starts within each contig and ends that may overhang the contig end
+    private static List<SparkSharder.PartitionLocatable<SimpleInterval>> randomExtents(final Random random) {
+        final List<SparkSharder.PartitionLocatable<SimpleInterval>> extents = new ArrayList<>();
+        int partition = 0;
+        for (final SAMSequenceRecord contig : dictionary.getSequences()) {
+            if (random.nextInt(4) == 0) {
+                continue;
+            }
+            int start = 1;
+            while (start <= contig.getSequenceLength()) {
+                final int end = start + random.nextInt(contig.getSequenceLength() / 3 + 10);
+                extents.add(new SparkSharder.PartitionLocatable<>(partition, new SimpleInterval(contig.getSequenceName(), start, end)));
+                partition += random.nextInt(3);
+                start += random.nextInt(contig.getSequenceLength() / 4 + 2);
+            }
+        }
+        return extents;
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExtentsOutOfOrder() {
+        new PartitionReadExtentIndex(ImmutableList.of(
+                new SparkSharder.PartitionLocatable<>(0, new SimpleInterval("1", 20, 30)),
+                new SparkSharder.PartitionLocatable<>(1, new SimpleInterval("1", 10, 30))), dictionary);
+    }
+
+    @Test
+    public void testGallopToFirstAtLeast() {
+        final int[] values = { 1, 3, 3, 3, 7, 8, 8, 20 };
+        for (int target = 0; target <= 21; target++) {
+            int expected = values.length;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] >= target) {
+                    expected = i;
+                    break;
+                }
+            }
+            for (int hint = -1; hint <= values.length; hint++) {
+                Assert.assertEquals(PartitionReadExtentIndex.gallopToFirstAtLeast(values, 0, values.length, target, hint), expected);
+            }
+        }
+        // a sub-range
+        Assert.assertEquals(PartitionReadExtentIndex.gallopToFirstAtLeast(values, 2, 5, 8, 3), 5);
+        Assert.assertEquals(PartitionReadExtentIndex.gallopToFirstAtLeast(values, 2, 5, 2, 4), 2);
+    }
+}
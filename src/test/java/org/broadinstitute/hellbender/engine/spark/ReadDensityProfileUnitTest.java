@@ -0,0 +1,130 @@
+package org.broadinstitute.hellbender.engine.spark;
+
+import com.google.common.collect.ImmutableList;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.engine.ShardBoundary;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ReadDensityProfileUnitTest extends BaseTest {
+
+    private static final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(
+            ImmutableList.of(new SAMSequenceRecord("1", 1000), new SAMSequenceRecord("2", 500)));
+
+    // contig 1 has 10 reads per 100 bases, except for bins 3 and 4, which have 100 reads each
+    private static ReadDensityProfile makeProfile() {
+        final double[] counts = new double[10];
+        Arrays.fill(counts, 10.0);
+        counts[3] = counts[4] = 100.0;
+        final Map<String, double[]> binCounts = new HashMap<>();
+        binCounts.put("1", counts);
+        return new ReadDensityProfile(100, binCounts);
+    }
+
+    @Test
+    public void testEstimatedCount() {
+        final ReadDensityProfile profile = makeProfile();
+        Assert.assertEquals(profile.getBinCount("1", 3), 100.0);
+        Assert.assertEquals(profile.getBinCount("1", 10), 0.0);
+        Assert.assertEquals(profile.getBinCount("2", 0), 0.0);
+        Assert.assertEquals(profile.getEstimatedCount(new SimpleInterval("1", 1, 1000)), 280.0, 1e-9);
+        Assert.assertEquals(profile.getEstimatedCount(new SimpleInterval("1", 251, 450)), 5.0 + 100.0 + 50.0, 1e-9);
+        Assert.assertEquals(profile.getEstimatedCount(new SimpleInterval("2", 1, 500)), 0.0);
+    }
+
+    @DataProvider(name = "shardingTests")
+    public Object[][] shardingTests() {
+        return new Object[][] {
+                // uniform density: 20 reads every 200 bases
+                { new SimpleInterval("1", 1, 300), 20.0, 1, 1000, 0,
+                        Arrays.asList(new SimpleInterval("1", 1, 200), new SimpleInterval("1", 201, 300)) },
+                // the dense bins are split finely, the sparse ones coarsely
+                { new SimpleInterval("1", 1, 1000), 50.0, 1, 1000, 0,
+                        Arrays.asList(new SimpleInterval("1", 1, 320), new SimpleInterval("1", 321, 370),
+                                new SimpleInterval("1", 371, 420), new SimpleInterval("1", 421, 470),
+                                new SimpleInterval("1", 471, 700), new SimpleInterval("1", 701, 1000)) },
+                // shards are no smaller than minShardSize
+                { new SimpleInterval("1", 301, 500), 10.0, 60, 1000, 0,
+                        Arrays.asList(new SimpleInterval("1", 301, 360), new SimpleInterval("1", 361, 420),
+                                new SimpleInterval("1", 421, 480), new SimpleInterval("1", 481, 500)) },
+                // and no larger than maxShardSize, even where there are no reads
+                { new SimpleInterval("2", 1, 500), 10.0, 1, 200, 0,
+                        Arrays.asList(new SimpleInterval("2", 1, 200), new SimpleInterval("2", 201, 400), new SimpleInterval("2", 401, 500)) },
+                // padding is added as for fixed-size shards
+                { new SimpleInterval("1", 901, 1000), 10.0, 1, 1000, 20,
+                        Arrays.asList(new SimpleInterval("1", 901, 1000)) },
+        };
+    }
+
+    @Test(dataProvider = "shardingTests")
+    public void testDivideIntervalIntoShards( final SimpleInterval interval, final double target, final int minShardSize,
+                                              final int maxShardSize, final int padding, final List<SimpleInterval> expected ) {
+        final List<ShardBoundary> shards = makeProfile().divideIntervalIntoShards(interval, target, minShardSize, maxShardSize, padding, dictionary);
+        final List<SimpleInterval> actual = new ArrayList<>();
+        for ( final ShardBoundary shard : shards ) {
+            actual.add(shard.getInterval());
+            Assert.assertEquals(shard.getPaddedInterval(), shard.getInterval().expandWithinContig(padding, dictionary));
+        }
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testShardsTileIntervals() {
+        final List<SimpleInterval> intervals = Arrays.asList(new SimpleInterval("1", 17, 777), new SimpleInterval("1", 800, 1000), new SimpleInterval("2", 1, 500));
+        final List<ShardBoundary> shards = makeProfile().divideIntervalsIntoShards(intervals, 7.5, 5, 150, 10, dictionary);
+        int shardIndex = 0;
+        for ( final SimpleInterval interval : intervals ) {
+            int expectedStart = interval.getStart();
+            while ( expectedStart <= interval.getEnd() ) {
+                final SimpleInterval shard = shards.get(shardIndex++).getInterval();
+                Assert.assertEquals(shard.getContig(), interval.getContig());
+                Assert.assertEquals(shard.getStart(), expectedStart);
+                Assert.assertTrue(shard.size() <= 150);
+                Assert.assertTrue(shard.size() >= 5 || shard.getEnd() == interval.getEnd());
+                expectedStart = shard.getEnd() + 1;
+            }
+            Assert.assertEquals(expectedStart, interval.getEnd() + 1);
+        }
+        Assert.assertEquals(shardIndex, shards.size());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIntervalOffContig() {
+        makeProfile().divideIntervalIntoShards(new SimpleInterval("1", 900, 1100), 10.0, 1, 100, 0, dictionary);
+    }
+
+    @Test
+    public void testEstimate() {
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final List<SimpleInterval> reads = new ArrayList<>();
+        for ( int start = 1; start <= 1000; start += 10 ) {
+            reads.add(new SimpleInterval("1", start, start + 9));
+        }
+        for ( int i = 0; i < 50; i++ ) {
+            reads.add(new SimpleInterval("2", 499, 500));
+        }
+
+        final ReadDensityProfile profile = ReadDensityProfile.estimate(ctx.parallelize(reads, 4), dictionary, 100, 1.0, 0L);
+        Assert.assertEquals(profile.getBinSize(), 100);
+        for ( int bin = 0; bin < 10; bin++ ) {
+            Assert.assertEquals(profile.getBinCount("1", bin), 10.0);
+        }
+        Assert.assertEquals(profile.getBinCount("2", 3), 0.0);
+        Assert.assertEquals(profile.getBinCount("2", 4), 50.0);
+
+        // a sample gives an estimate of the same total
+        final ReadDensityProfile sampled = ReadDensityProfile.estimate(ctx.parallelize(reads, 4), dictionary, 100, 0.5, 1L);
+        Assert.assertEquals(sampled.getEstimatedCount(new SimpleInterval("1", 1, 1000)), 100.0, 40.0);
+    }
+}
@@ -26,6 +26,25 @@ public final class CountReadsIntegrationTest extends CommandLineProgramTest {
         Assert.assertEquals(res, 8l);
     }
 
+    @Test(dataProvider = "filenames")
+    public void testCountReadsWithReadAhead(final String fileIn, final String referenceName) throws Exception {
+        final File ORIG_BAM = new File(getTestDataDir(), fileIn);
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add("--input");
+        args.add(ORIG_BAM.getAbsolutePath());
+        if (null != referenceName) {
+            final File REF = new File(getTestDataDir(), referenceName);
+            args.add("-R");
+            args.add(REF.getAbsolutePath());
+        }
+        args.add("--readAheadQueueSize");
+        args.add("2");
+        args.add("--readAheadBatchSize");
+        args.add("3");
+        final Object res = this.runCommandLine(args.getArgsArray());
+        Assert.assertEquals(res, 8l);
+    }
+
     @DataProvider(name="filenames")
     public Object[][] filenames() {
         return new String[][]{
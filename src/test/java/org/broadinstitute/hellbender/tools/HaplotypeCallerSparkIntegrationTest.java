@@ -4,16 +4,24 @@ import com.google.cloud.dataflow.sdk.options.PipelineOptions;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFConstants;
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.spark.broadcast.Broadcast;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.engine.AuthHolder;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.FeatureInput;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceMultiSource;
 import org.broadinstitute.hellbender.engine.datasources.ReferenceWindowFunctions;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeCalculationArgumentCollection;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerArgumentCollection;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
 import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
 import org.testng.Assert;
@@ -21,7 +29,10 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.HaplotypeCallerIntegrationTest;
 
@@ -161,6 +172,126 @@ public class HaplotypeCallerSparkIntegrationTest extends CommandLineProgramTest
         Assert.assertTrue(concordance >= 0.99, "Concordance with GATK 3.8 in AS GVCF mode is < 99% (" +  concordance + ")");
     }
 
+    @Test
+    public void testGVCFModeWithSmallShardsIsContiguous() throws Exception {
+        Utils.resetRandomGenerator();
+
+        // with many small shards, the reference blocks must still tile the interval without gaps or overlaps
+        final File output = createTempFile("testGVCFModeWithSmallShardsIsContiguous", ".g.vcf");
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_2bit_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", output.getAbsolutePath(),
+                "-ERC", "GVCF",
+                "-readShardSize", "1000",
+                "-pairHMM", "AVX_LOGLESS_CACHING"
+        };
+
+        runCommandLine(args);
+
+        int expectedStart = 10000000;
+        try ( final FeatureDataSource<VariantContext> variants = new FeatureDataSource<>(output) ) {
+            for ( final VariantContext vc : variants ) {
+                Assert.assertEquals(vc.getStart(), expectedStart, "gap or overlap at " + vc.getContig() + ":" + vc.getStart());
+                expectedStart = vc.getStart() + (vc.hasAttribute(VCFConstants.END_KEY) ? vc.getAttributeAsInt(VCFConstants.END_KEY, 0) - vc.getStart() + 1 : vc.getReference().length());
+            }
+        }
+        Assert.assertEquals(expectedStart, 10010001);
+    }
+
+    @Test
+    public void testDbsnpIdsAreAnnotated() throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testDbsnpIdsAreAnnotated", ".vcf");
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_2bit_reference_20_21,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "--dbsnp", dbsnp_138_b37_20_21_vcf,
+                "-pairHMM", "AVX_LOGLESS_CACHING"
+        };
+
+        runCommandLine(args);
+
+        int numWithIds = 0;
+        try ( final FeatureDataSource<VariantContext> variants = new FeatureDataSource<>(output);
+              final FeatureDataSource<VariantContext> dbsnp = new FeatureDataSource<>(new File(dbsnp_138_b37_20_21_vcf)) ) {
+            for ( final VariantContext vc : variants ) {
+                if ( vc.hasID() ) {
+                    numWithIds++;
+                    final Set<String> dbsnpIds = new HashSet<>();
+                    dbsnp.query(new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart()))
+                            .forEachRemaining(site -> dbsnpIds.addAll(Arrays.asList(site.getID().split(VCFConstants.ID_FIELD_SEPARATOR))));
+                    for ( final String id : vc.getID().split(VCFConstants.ID_FIELD_SEPARATOR) ) {
+                        Assert.assertTrue(dbsnpIds.contains(id), "ID " + id + " at " + vc.getContig() + ":" + vc.getStart() + " is not in dbSNP");
+                    }
+                }
+            }
+        }
+        Assert.assertTrue(numWithIds > 0, "no variants were annotated with dbSNP IDs");
+    }
+
+    @Test
+    public void testBamoutProducesReasonablySizedOutput() {
+        Utils.resetRandomGenerator();
+
+        // as for HaplotypeCaller, the number of reads in the bamout should be within 10% of what GATK3.5 produces over
+        // the same interval; with several shards, the bamout is gathered from several parts
+        final String testInterval = "20:10000000-10010000";
+        final int gatk3BamoutNumReads = 5170;
+
+        final File vcfOutput = createTempFile("testBamoutProducesReasonablySizedOutput", ".vcf");
+        final File bamOutput = createTempFile("testBamoutProducesReasonablySizedOutput", ".bam");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_2bit_reference_20_21,
+                "-L", testInterval,
+                "-O", vcfOutput.getAbsolutePath(),
+                "-bamout", bamOutput.getAbsolutePath(),
+                "-readShardSize", "2500",
+                "-pairHMM", "AVX_LOGLESS_CACHING"
+        };
+
+        runCommandLine(args);
+
+        try ( final ReadsDataSource bamOutReadsSource = new ReadsDataSource(bamOutput.toPath()) ) {
+            int actualBamoutNumReads = 0;
+            GATKRead previousRead = null;
+            for ( final GATKRead read : bamOutReadsSource ) {
+                if ( previousRead != null && !read.isUnmapped() && read.getContig().equals(previousRead.getContig()) ) {
+                    Assert.assertTrue(read.getStart() >= previousRead.getStart(), "bamout is not coordinate sorted");
+                }
+                previousRead = read;
+                ++actualBamoutNumReads;
+            }
+
+            final int readCountDifference = Math.abs(actualBamoutNumReads - gatk3BamoutNumReads);
+            Assert.assertTrue(((double)readCountDifference / gatk3BamoutNumReads) < 0.10,
+                               "-bamout produced a bam with over 10% fewer/more reads than expected");
+        }
+        Assert.assertFalse(new File(bamOutput.getAbsolutePath() + HaplotypeCallerSpark.BAMOUT_PARTS_SUFFIX).exists(), "bamout parts were not deleted");
+    }
+
+    @Test
+    public void testBamOutputPartPath() {
+        Assert.assertEquals(HaplotypeCallerSpark.getBamOutputPartPath("/tmp/out.bam", 12), new File("/tmp/out.bam.parts", "part-00012.bam").getPath());
+    }
+
+    @Test
+    public void testHaplotypeCallerArgsCanBeCopied() {
+        final HaplotypeCallerArgumentCollection args = new HaplotypeCallerArgumentCollection();
+        args.dbsnp.dbsnp = new FeatureInput<>(dbsnp_138_b37_20_21_vcf, "dbsnp", Collections.emptyMap());
+        args.bamOutputPath = "out.bam";
+        final HaplotypeCallerArgumentCollection copy = SerializationUtils.clone(args);
+        Assert.assertEquals(copy.dbsnp.dbsnp, args.dbsnp.dbsnp);
+        Assert.assertEquals(copy.bamOutputPath, args.bamOutputPath);
+        Assert.assertEquals(copy.assemblyRegionTrimmerArgs.indelPadding, args.assemblyRegionTrimmerArgs.indelPadding);
+    }
+
     @Test
     public void testReferenceAdapterIsSerializable() throws IOException {
         final AuthHolder auth = new AuthHolder("name", "somestring");
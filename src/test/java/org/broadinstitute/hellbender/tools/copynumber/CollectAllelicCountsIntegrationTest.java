@@ -56,20 +56,24 @@ public final class CollectAllelicCountsIntegrationTest extends CommandLineProgra
         tumorCountsExpected.add(new AllelicCount(new SimpleInterval("2", 15629, 15629), 5, 3));
 
         return new Object[][]{
-                {NORMAL_BAM_FILE, normalCountsExpected},
-                {TUMOR_BAM_FILE, tumorCountsExpected}
+                {NORMAL_BAM_FILE, normalCountsExpected, false},
+                {TUMOR_BAM_FILE, tumorCountsExpected, false},
+                {NORMAL_BAM_FILE, normalCountsExpected, true},
+                {TUMOR_BAM_FILE, tumorCountsExpected, true}
         };
     }
 
     @Test(dataProvider = "testData")
     public void test(final File inputBAMFile,
-                     final AllelicCountCollection countsExpected) {
+                     final AllelicCountCollection countsExpected,
+                     final boolean sparseSiteTraversal) {
         final File outputFile = createTempFile("collect-allelic-counts-test-output", ".tsv");
         final String[] arguments = {
                 "-" + StandardArgumentDefinitions.INPUT_SHORT_NAME, inputBAMFile.getAbsolutePath(),
                 "-L", SITES_FILE.getAbsolutePath(),
                 "-" + StandardArgumentDefinitions.REFERENCE_SHORT_NAME, REF_FILE.getAbsolutePath(),
-                "-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME, outputFile.getAbsolutePath()
+                "-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME, outputFile.getAbsolutePath(),
+                "--" + StandardArgumentDefinitions.SPARSE_SITE_TRAVERSAL_LONG_NAME, Boolean.toString(sparseSiteTraversal)
         };
         runCommandLine(arguments);
         final AllelicCountCollection countsResult = new AllelicCountCollection(outputFile);
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.exome;
 
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
@@ -285,6 +286,61 @@ public final class CalculateTargetCoverageIntegrationTest extends CommandLinePro
         };
     }
 
+    @DataProvider(name="queryTargetsRunData")
+    public Object[][] queryTargetsRunData() {
+        final List<Object[]> result = new ArrayList<>();
+        for (final String threads : Arrays.asList("1", "3")) {
+            for (final Object[] run : correctRunData()) {
+                final List<String> additionalArguments = new ArrayList<>(Arrays.asList((String[]) run[7]));
+                additionalArguments.addAll(Arrays.asList(
+                        "-" + CalculateTargetCoverage.QUERY_TARGETS_SHORT_NAME, "true",
+                        "-" + CalculateTargetCoverage.COUNTING_THREADS_SHORT_NAME, threads));
+                final Object[] queryRun = run.clone();
+                queryRun[7] = additionalArguments.toArray(new String[additionalArguments.size()]);
+                result.add(queryRun);
+            }
+        }
+        return result.toArray(new Object[result.size()][]);
+    }
+
+    @Test(dataProvider = "queryTargetsRunData")
+    public void testQueryTargetsRun(final File[] bamFiles, final File intervalFile, final File expectedOutputFile, final File expectedRowOutputFile,
+                                    final File expectedColumnOutputFile, final CalculateTargetCoverage.Transform transform,
+                                    final CalculateTargetCoverage.TargetOutInfo targetOutInfo,
+                                    final String[] additionalArguments) {
+        testCorrectRun(bamFiles, intervalFile, expectedOutputFile, expectedRowOutputFile, expectedColumnOutputFile, transform,
+                targetOutInfo, additionalArguments);
+    }
+
+    @Test
+    public void testQueryTargetFileOnly() {
+        testCorrectRun(ALL_BAMS,
+                null,
+                COHORT_COUNT_EXPECTED_OUTPUT_WITH_BED_NAMES,
+                COHORT_COUNT_EXPECTED_ROW_OUTPUT_WITH_BED_NAMES,
+                COHORT_COUNT_EXPECTED_COLUMN_OUTPUT,
+                CalculateTargetCoverage.Transform.RAW,
+                CalculateTargetCoverage.TargetOutInfo.FULL,
+                new String[] { "-" + CalculateTargetCoverage.TARGET_FILE_SHORT_NAME, INTERVALS_BED.getAbsolutePath(),
+                        "-" + CalculateTargetCoverage.QUERY_TARGETS_SHORT_NAME, "true",
+                        "-" + CalculateTargetCoverage.COUNTING_THREADS_SHORT_NAME, "2" }
+        );
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testBadCountingThreads() {
+        testCorrectRun(ALL_BAMS,
+                INTERVALS_LIST,
+                COHORT_COUNT_EXPECTED_OUTPUT,
+                COHORT_COUNT_EXPECTED_ROW_OUTPUT,
+                COHORT_COUNT_EXPECTED_COLUMN_OUTPUT,
+                CalculateTargetCoverage.Transform.RAW,
+                CalculateTargetCoverage.TargetOutInfo.COORDS,
+                new String[] { "-" + CalculateTargetCoverage.QUERY_TARGETS_SHORT_NAME, "true",
+                        "-" + CalculateTargetCoverage.COUNTING_THREADS_SHORT_NAME, "0" }
+        );
+    }
+
     @Test(expectedExceptions = UserException.class)
     public void testMissingTargetNameRun() {
         testCorrectRun(ALL_BAMS,
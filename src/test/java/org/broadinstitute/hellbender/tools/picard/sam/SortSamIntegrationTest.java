@@ -30,12 +30,37 @@ public class SortSamIntegrationTest extends CommandLineProgramTest {
             final String referenceFileName,
             final String outputExtension,
             final String sortOrderName) throws Exception
+    {
+        sortAndCompare(inputFileName, expectedOutputFileName, referenceFileName, outputExtension, sortOrderName, new ArgumentsBuilder());
+    }
+
+    @Test(dataProvider="sortbams")
+    public void testSortBAMsInParallel(
+            final String inputFileName,
+            final String expectedOutputFileName,
+            final String referenceFileName,
+            final String outputExtension,
+            final String sortOrderName) throws Exception
+    {
+        // few enough records in RAM that several runs are spilled
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add("--SORTING_THREADS"); args.add("3");
+        args.add("--MAX_RECORDS_IN_RAM"); args.add("2");
+        sortAndCompare(inputFileName, expectedOutputFileName, referenceFileName, outputExtension, sortOrderName, args);
+    }
+
+    private void sortAndCompare(
+            final String inputFileName,
+            final String expectedOutputFileName,
+            final String referenceFileName,
+            final String outputExtension,
+            final String sortOrderName,
+            final ArgumentsBuilder args) throws Exception
     {
         final File inputBam = new File(getTestDataDir(), inputFileName);
         final File expectedBam = new File(getTestDataDir(), expectedOutputFileName);
         final File outputBam = createTempFile("sort_sam", outputExtension);
         File referenceFile = null == referenceFileName ? null : new File(getTestDataDir(), referenceFileName);
-        ArgumentsBuilder args = new ArgumentsBuilder();
         args.add("--input"); args.add(inputBam.getCanonicalPath());
         args.add("--output"); args.add(outputBam.getCanonicalPath());
         if (null != referenceFile) {
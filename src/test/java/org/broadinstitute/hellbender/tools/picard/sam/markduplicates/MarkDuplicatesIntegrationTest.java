@@ -7,6 +7,7 @@ import htsjdk.samtools.util.IOUtil;
 import htsjdk.samtools.util.TestUtil;
 import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesTester;
 import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
 import org.broadinstitute.hellbender.utils.test.testers.AbstractMarkDuplicatesCommandLineProgramTest;
@@ -17,6 +18,10 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.*;
 
 /**
@@ -266,5 +271,239 @@ public final class MarkDuplicatesIntegrationTest extends AbstractMarkDuplicatesC
         };
     }
 
+    @DataProvider(name = "querynameGroupedInputs")
+    public Object[][] querynameGroupedInputs() {
+        return new Object[][] {
+                {new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam"), false, null},
+                {new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam"), true, null},
+                // most of the reads are held on disk until the output is written
+                {new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam"), false, 10},
+                {new File(TEST_DATA_DIR, "inputSingleLibrarySolexa16404.bam"), false, null},
+                {new File(TEST_DATA_DIR, "optical_dupes.sam"), false, 1},
+        };
+    }
+
+    @Test(dataProvider = "querynameGroupedInputs")
+    public void testQuerynameGroupedInput(final File coordinateSorted, final boolean packedReadEnds, final Integer maxRecordsInRam) throws IOException {
+        final File outputDir = IOUtil.createTempDir(TEST_BASE_NAME + ".", ".tmp");
+        outputDir.deleteOnExit();
+        final File querynameSorted = new File(outputDir, "queryname.bam");
+        final List<String> readNames = new ArrayList<>();
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(coordinateSorted)) {
+            final SAMFileHeader header = reader.getFileHeader().clone();
+            header.setSortOrder(SAMFileHeader.SortOrder.queryname);
+            try (final SAMFileWriter writer = new SAMFileWriterFactory().setTempDirectory(outputDir).makeBAMWriter(header, false, querynameSorted)) {
+                reader.forEach(writer::addAlignment);
+            }
+        }
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(querynameSorted)) {
+            reader.forEach(rec -> readNames.add(rec.getReadName()));
+        }
+
+        final File expectedMetrics = new File(outputDir, "coordinate.duplicate_metrics");
+        final long expectedDuplicates = countDuplicates(runMarkDuplicates(coordinateSorted, new File(outputDir, "coordinate.bam"),
+                expectedMetrics, outputDir, false, packedReadEnds));
+        final File metrics = new File(outputDir, "queryname.duplicate_metrics");
+        final File output = runMarkDuplicates(querynameSorted, new File(outputDir, "queryname.marked.bam"), metrics, outputDir,
+                true, packedReadEnds, false, maxRecordsInRam);
+
+        // the reads are written in the input order, and as many are marked (but ties in the duplicate scores may be
+        // broken in favor of different reads, since the reads' indexes differ)
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(output)) {
+            Assert.assertEquals(reader.getFileHeader().getSortOrder(), SAMFileHeader.SortOrder.queryname);
+            final List<String> outputNames = new ArrayList<>();
+            reader.forEach(rec -> outputNames.add(rec.getReadName()));
+            Assert.assertEquals(outputNames, readNames);
+        }
+        Assert.assertEquals(countDuplicates(output), expectedDuplicates);
+        Assert.assertEquals(readMetrics(metrics), readMetrics(expectedMetrics));
+        // the only temporary files left are the ones made here
+        Assert.assertEquals(outputDir.list().length, 5);
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testQuerynameGroupedInputNotGrouped() {
+        final File outputDir = IOUtil.createTempDir(TEST_BASE_NAME + ".", ".tmp");
+        outputDir.deleteOnExit();
+        runMarkDuplicates(new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam"), new File(outputDir, "out.bam"),
+                new File(outputDir, "out.duplicate_metrics"), outputDir, true, false);
+    }
+
+    @Test
+    public void testQuerynameGroupedInputResolvesTiesByInputOrder() throws IOException {
+        // two fragments with the same position, strand and qualities tie on duplicate score; the one earlier in the
+        // input is kept, so queryname-grouped input marks a different read than the same reads coordinate sorted.
+        // This is the documented contract: the same number of duplicates, but not necessarily the same flags.
+        final File outputDir = IOUtil.createTempDir(TEST_BASE_NAME + ".", ".tmp");
+        outputDir.deleteOnExit();
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        final SAMRecord b = builder.addFrag("b", 0, 100, false, false, "50M", null, 30);
+        final SAMRecord a = builder.addFrag("a", 0, 100, false, false, "50M", null, 30);
+
+        final File coordinateSorted = writeInOrder(builder.getHeader(), SAMFileHeader.SortOrder.coordinate, Arrays.asList(b, a), new File(outputDir, "coordinate.bam"));
+        final File querynameSorted = writeInOrder(builder.getHeader(), SAMFileHeader.SortOrder.queryname, Arrays.asList(a, b), new File(outputDir, "queryname.bam"));
+
+        final File coordinateOutput = runMarkDuplicates(coordinateSorted, new File(outputDir, "coordinate.marked.bam"),
+                new File(outputDir, "coordinate.duplicate_metrics"), outputDir, false, false);
+        final File querynameOutput = runMarkDuplicates(querynameSorted, new File(outputDir, "queryname.marked.bam"),
+                new File(outputDir, "queryname.duplicate_metrics"), outputDir, true, false);
+        Assert.assertEquals(duplicateNames(coordinateOutput), Collections.singleton("a"));
+        Assert.assertEquals(duplicateNames(querynameOutput), Collections.singleton("b"));
+    }
+
+    @Test
+    public void testQuerynameGroupedInputWithCoordinateHeader() throws IOException {
+        // with ASSUME_SORTED, grouped reads whose header claims coordinate order are written as unsorted
+        final File outputDir = IOUtil.createTempDir(TEST_BASE_NAME + ".", ".tmp");
+        outputDir.deleteOnExit();
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.coordinate);
+        // fixed qualities, so that y outscores its duplicate z
+        builder.addPair("x", 0, 500, 100, false, false, "36M", "36M", false, true, 30);
+        builder.addPair("y", 0, 10, 700, false, false, "36M", "36M", false, true, 30);
+        builder.addPair("z", 0, 10, 700, false, false, "36M", "36M", false, true, 20);
+        final List<SAMRecord> grouped = new ArrayList<>(builder.getRecords());
+        grouped.sort(Comparator.comparing(SAMRecord::getReadName));
+        // written as text, since a writer for a coordinate sorted header refuses records out of coordinate order
+        final File input = writeAsText(builder.getHeader(), grouped, new File(outputDir, "grouped.sam"));
+
+        final File output = runMarkDuplicates(input, new File(outputDir, "grouped.marked.bam"),
+                new File(outputDir, "grouped.duplicate_metrics"), outputDir, true, false, true);
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(output)) {
+            Assert.assertEquals(reader.getFileHeader().getSortOrder(), SAMFileHeader.SortOrder.unsorted);
+            Assert.assertEquals(reader.getFileHeader().getGroupOrder(), SAMFileHeader.GroupOrder.query);
+            final List<String> names = new ArrayList<>();
+            reader.forEach(rec -> names.add(rec.getReadName()));
+            Assert.assertEquals(names, Arrays.asList("x", "x", "y", "y", "z", "z"));
+        }
+        Assert.assertEquals(duplicateNames(output), Collections.singleton("z"));
+    }
+
+    @Test
+    public void testQuerynameGroupedInputPairsByReadGroup() throws IOException {
+        // two pairs with the same name in different read groups of the same library are duplicates of each other,
+        // even though their ends are interleaved
+        final File outputDir = IOUtil.createTempDir(TEST_BASE_NAME + ".", ".tmp");
+        outputDir.deleteOnExit();
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.queryname);
+        final List<SAMRecord> first = builder.addPair("p", 0, 100, 300, false, false, "36M", "36M", false, true, 30);
+        final List<SAMRecord> second = builder.addPair("p", 0, 100, 300, false, false, "36M", "36M", false, true, 20);
+        final SAMReadGroupRecord readGroup = builder.getHeader().getReadGroups().get(0);
+        final SAMReadGroupRecord otherReadGroup = new SAMReadGroupRecord(readGroup.getId() + ".other", readGroup);
+        builder.getHeader().addReadGroup(otherReadGroup);
+        second.forEach(rec -> rec.setAttribute(SAMTag.RG.name(), otherReadGroup.getId()));
+
+        final File input = writeAsText(builder.getHeader(), Arrays.asList(first.get(0), second.get(0), first.get(1), second.get(1)),
+                new File(outputDir, "grouped.sam"));
+        final File output = runMarkDuplicates(input, new File(outputDir, "grouped.marked.bam"),
+                new File(outputDir, "grouped.duplicate_metrics"), outputDir, true, false);
+        final List<String> duplicateReadGroups = new ArrayList<>();
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(output)) {
+            for (final SAMRecord rec : reader) {
+                if (rec.getDuplicateReadFlag()) {
+                    duplicateReadGroups.add(rec.getReadGroup().getId());
+                }
+            }
+        }
+        Assert.assertEquals(duplicateReadGroups, Arrays.asList(otherReadGroup.getId(), otherReadGroup.getId()));
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testQuerynameGroupedInputWithSplitPairs() throws IOException {
+        // the header claims the reads are grouped, but the ends of a pair are apart
+        final File outputDir = IOUtil.createTempDir(TEST_BASE_NAME + ".", ".tmp");
+        outputDir.deleteOnExit();
+        final SAMRecordSetBuilder builder = new SAMRecordSetBuilder(true, SAMFileHeader.SortOrder.unsorted);
+        builder.getHeader().setGroupOrder(SAMFileHeader.GroupOrder.query);
+        final List<SAMRecord> a = builder.addPair("a", 0, 100, 300, false, false, "36M", "36M", false, true, 30);
+        final List<SAMRecord> b = builder.addPair("b", 0, 500, 700, false, false, "36M", "36M", false, true, 30);
+        final File input = writeAsText(builder.getHeader(), Arrays.asList(a.get(0), b.get(0), a.get(1), b.get(1)),
+                new File(outputDir, "split.sam"));
+        runMarkDuplicates(input, new File(outputDir, "split.marked.bam"), new File(outputDir, "split.duplicate_metrics"),
+                outputDir, true, false);
+    }
+
+    private static File writeAsText(final SAMFileHeader header, final List<SAMRecord> records, final File file) throws FileNotFoundException {
+        try (final PrintWriter writer = new PrintWriter(file)) {
+            new SAMTextHeaderCodec().encode(writer, header);
+            records.forEach(rec -> writer.print(rec.getSAMString()));
+        }
+        return file;
+    }
+
+    private static File writeInOrder(final SAMFileHeader header, final SAMFileHeader.SortOrder sortOrder, final List<SAMRecord> records, final File file) {
+        final SAMFileHeader fileHeader = header.clone();
+        fileHeader.setSortOrder(sortOrder);
+        try (final SAMFileWriter writer = new SAMFileWriterFactory().makeBAMWriter(fileHeader, true, file)) {
+            records.forEach(writer::addAlignment);
+        }
+        return file;
+    }
+
+    private static Set<String> duplicateNames(final File bam) throws IOException {
+        final Set<String> names = new HashSet<>();
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(bam)) {
+            for (final SAMRecord rec : reader) {
+                if (rec.getDuplicateReadFlag()) {
+                    names.add(rec.getReadName());
+                }
+            }
+        }
+        return names;
+    }
+
+    private static File runMarkDuplicates(final File input, final File output, final File metrics, final File tmpDir,
+                                          final boolean querynameGrouped, final boolean packedReadEnds) {
+        return runMarkDuplicates(input, output, metrics, tmpDir, querynameGrouped, packedReadEnds, false);
+    }
+
+    private static File runMarkDuplicates(final File input, final File output, final File metrics, final File tmpDir,
+                                          final boolean querynameGrouped, final boolean packedReadEnds, final boolean assumeSorted) {
+        return runMarkDuplicates(input, output, metrics, tmpDir, querynameGrouped, packedReadEnds, assumeSorted, null);
+    }
+
+    private static File runMarkDuplicates(final File input, final File output, final File metrics, final File tmpDir,
+                                          final boolean querynameGrouped, final boolean packedReadEnds, final boolean assumeSorted,
+                                          final Integer maxRecordsInRam) {
+        final MarkDuplicates markDuplicates = new MarkDuplicates();
+        if (maxRecordsInRam != null) {
+            markDuplicates.MAX_RECORDS_IN_RAM = maxRecordsInRam;
+        }
+        markDuplicates.ASSUME_SORTED = assumeSorted;
+        markDuplicates.setupOpticalDuplicateFinder();
+        markDuplicates.INPUT = CollectionUtil.makeList(input);
+        markDuplicates.OUTPUT = output;
+        markDuplicates.METRICS_FILE = metrics;
+        markDuplicates.TMP_DIR = CollectionUtil.makeList(tmpDir);
+        markDuplicates.QUERYNAME_GROUPED_INPUT = querynameGrouped;
+        markDuplicates.PACKED_READ_ENDS = packedReadEnds;
+        // Needed to suppress calling CommandLineProgram.getVersion(), which doesn't work for code not in a jar
+        markDuplicates.PROGRAM_RECORD_ID = null;
+        Assert.assertEquals(markDuplicates.doWork(), null);
+        return output;
+    }
+
+    private static long countDuplicates(final File bam) throws IOException {
+        long duplicates = 0;
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(bam)) {
+            for (final SAMRecord rec : reader) {
+                if (rec.getDuplicateReadFlag()) {
+                    duplicates++;
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    // the metrics, without the header lines that record the command line and the date
+    private static List<String> readMetrics(final File metrics) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final String line : Files.readAllLines(metrics.toPath())) {
+            if (!line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
 
 }
@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.tools.picard.sam.markduplicates;
+
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesTester;
+import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
+import org.broadinstitute.hellbender.utils.test.testers.AbstractMarkDuplicatesCommandLineProgramTest;
+import org.broadinstitute.hellbender.utils.test.testers.AbstractMarkDuplicatesTester;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the MarkDuplicates test cases with the read ends packed into arrays (--PACKED_READ_ENDS).
+ */
+public final class PackedMarkDuplicatesIntegrationTest extends AbstractMarkDuplicatesCommandLineProgramTest {
+
+    @Override
+    public String getTestedClassName() {
+        return MarkDuplicates.class.getSimpleName();
+    }
+
+    @Override
+    protected AbstractMarkDuplicatesTester getTester() {
+        final MarkDuplicatesTester tester = new MarkDuplicatesTester();
+        tester.addArg("--PACKED_READ_ENDS", "true");
+        return tester;
+    }
+
+    @Override
+    protected CommandLineProgram getCommandLineProgramInstance() {
+        return new MarkDuplicates();
+    }
+
+    @DataProvider(name = "bams")
+    public Object[][] bams() {
+        return new Object[][] {
+                { new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam") },
+                { new File(TEST_DATA_DIR, "inputSingleLibrarySolexa16404.bam") },
+        };
+    }
+
+    @Test(dataProvider = "bams")
+    public void testSameDuplicatesAsObjectReadEnds(final File input) throws IOException {
+        final File expectedBam = createTempFile("markDuplicates", ".bam");
+        final File expectedMetrics = createTempFile("markDuplicates", ".metrics");
+        runMarkDuplicates(input, expectedBam, expectedMetrics, false);
+
+        // a tiny sorting collection ratio makes the packed read ends spill to disk every few records
+        final File packedBam = createTempFile("markDuplicates.packed", ".bam");
+        final File packedMetrics = createTempFile("markDuplicates.packed", ".metrics");
+        runMarkDuplicates(input, packedBam, packedMetrics, true);
+
+        final List<SAMRecord> expected = readRecords(expectedBam);
+        final List<SAMRecord> actual = readRecords(packedBam);
+        Assert.assertEquals(actual.size(), expected.size());
+        Assert.assertTrue(expected.stream().anyMatch(SAMRecord::getDuplicateReadFlag));
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(actual.get(i).getSAMString(), expected.get(i).getSAMString());
+        }
+        Assert.assertEquals(readMetricsLines(packedMetrics), readMetricsLines(expectedMetrics));
+    }
+
+    private void runMarkDuplicates(final File input, final File output, final File metrics, final boolean packed) {
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add("--input");
+        args.add(input.getAbsolutePath());
+        args.add("--output");
+        args.add(output.getAbsolutePath());
+        args.add("--METRICS_FILE");
+        args.add(metrics.getAbsolutePath());
+        args.add("--PROGRAM_RECORD_ID");
+        args.add("null");
+        if (packed) {
+            args.add("--PACKED_READ_ENDS");
+            args.add("true");
+            args.add("--SORTING_COLLECTION_SIZE_RATIO");
+            args.add(String.valueOf(200.0 / Runtime.getRuntime().maxMemory()));
+        }
+        runCommandLine(args.getArgsArray());
+    }
+
+    private static List<SAMRecord> readRecords(final File bam) throws IOException {
+        final List<SAMRecord> records = new ArrayList<>();
+        try (final SamReader reader = SamReaderFactory.makeDefault().open(bam)) {
+            reader.forEach(records::add);
+        }
+        return records;
+    }
+
+    // the metrics, without the header lines that record the command line and the date
+    private static List<String> readMetricsLines(final File metrics) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final String line : Files.readAllLines(metrics.toPath())) {
+            if (!line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -56,6 +56,19 @@ public final class SortVcfTest extends AbstractVcfMergingClpTester {
         validateSortingResults(output, numberOfVariantContexts);
     }
 
+    @Test
+    public void testTwoScrambledSnpFilesInParallel() throws IOException {
+        final File inputFile1 = new File(TEST_DATA_PATH, "CEUTrio-snps-scrambled.1.vcf");
+        final File inputFile2 = new File(TEST_DATA_PATH, "CEUTrio-snps-scrambled.2.vcf");
+        final File output = BaseTest.createTempFile("sort-multiple-scrambled-parallel-test-output.", ".vcf");
+        final List<String> arguments = Arrays.asList("--CREATE_INDEX", "false", "--SORTING_THREADS", "4", "--MAX_RECORDS_IN_RAM", "100");
+
+        final int numberOfVariantContexts = loadContigPositions(inputFile1).size() + loadContigPositions(inputFile2).size();
+
+        runClp(Arrays.asList(inputFile1, inputFile2), output, arguments);
+        validateSortingResults(output, numberOfVariantContexts);
+    }
+
     @Test
     public void testScrambledSnpsAndOrderedIndels() throws IOException {
         final File indelInputFile = new File(TEST_DATA_PATH, "CEUTrio-indels.vcf");
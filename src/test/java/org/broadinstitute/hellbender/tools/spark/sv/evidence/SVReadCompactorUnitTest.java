@@ -0,0 +1,76 @@
+package org.broadinstitute.hellbender.tools.spark.sv.evidence;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.tools.spark.sv.StructuralVariationDiscoveryArgumentCollection;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class SVReadCompactorUnitTest extends BaseTest {
+    private static final SAMFileHeader artificialSamHeader =
+            ArtificialReadUtils.createArtificialSamHeaderWithGroups(2, 1, 1000000, 1);
+    private static final SVReadFilter filter =
+            new SVReadFilter(new StructuralVariationDiscoveryArgumentCollection.FindBreakpointEvidenceSparkArgumentCollection());
+
+    @Test(groups = "sv")
+    public void testCompactRetainsEvidenceFields() {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(artificialSamHeader, "read1", 0, 1000,
+                ArtificialReadUtils.createRandomReadBases(151, false),
+                ArtificialReadUtils.createRandomReadQuals(151),
+                "100M51S");
+        read.setReadGroup("Pond-Testing");
+        read.setAttribute(SVReadCompactor.SA_TAG_NAME, "1,5000,+,51S100M,60,0;");
+        read.setAttribute("XA", "1,+2000,100M51S,3");
+        read.setAttribute("NM", 2);
+
+        final GATKRead compactRead = new SVReadCompactor(filter).compact(read);
+        Assert.assertEquals(compactRead.getName(), read.getName());
+        Assert.assertEquals(compactRead.getContig(), read.getContig());
+        Assert.assertEquals(compactRead.getStart(), read.getStart());
+        Assert.assertEquals(compactRead.getCigar(), read.getCigar());
+        Assert.assertEquals(compactRead.getBases(), read.getBases());
+        Assert.assertEquals(compactRead.getBaseQualities(), read.getBaseQualities());
+        Assert.assertEquals(compactRead.getReadGroup(), "Pond-Testing");
+        Assert.assertEquals(compactRead.getAttributeAsString(SVReadCompactor.SA_TAG_NAME), "1,5000,+,51S100M,60,0;");
+        Assert.assertFalse(compactRead.hasAttribute("XA"));
+        Assert.assertFalse(compactRead.hasAttribute("NM"));
+
+        // the original is untouched
+        Assert.assertTrue(read.hasAttribute("XA"));
+        Assert.assertTrue(read.hasAttribute("NM"));
+    }
+
+    @Test(groups = "sv")
+    public void testUnusableReadsAreDropped() {
+        final GATKRead primary = ArtificialReadUtils.createArtificialRead(artificialSamHeader, "primary", 0, 1000, 151);
+        final GATKRead unmappedPrimary = ArtificialReadUtils.createArtificialUnmappedRead(artificialSamHeader,
+                ArtificialReadUtils.createRandomReadBases(151, false), ArtificialReadUtils.createRandomReadQuals(151));
+        final GATKRead supplementary = ArtificialReadUtils.createArtificialRead(artificialSamHeader, "supp", 0, 2000, 151);
+        supplementary.setIsSupplementaryAlignment(true);
+        final GATKRead duplicateSupplementary = ArtificialReadUtils.createArtificialRead(artificialSamHeader, "dupSupp", 0, 3000, 151);
+        duplicateSupplementary.setIsSupplementaryAlignment(true);
+        duplicateSupplementary.setIsDuplicate(true);
+        final GATKRead unmappedSecondary = ArtificialReadUtils.createArtificialUnmappedRead(artificialSamHeader,
+                ArtificialReadUtils.createRandomReadBases(151, false), ArtificialReadUtils.createRandomReadQuals(151));
+        unmappedSecondary.setIsSecondaryAlignment(true);
+
+        final List<GATKRead> reads =
+                Arrays.asList(primary, unmappedPrimary, supplementary, duplicateSupplementary, unmappedSecondary);
+        final List<GATKRead> compactReads = new ArrayList<>();
+        final Iterator<GATKRead> itr = new SVReadCompactor(filter).apply(reads.iterator());
+        while ( itr.hasNext() ) {
+            compactReads.add(itr.next());
+        }
+        Assert.assertEquals(compactReads.size(), 3);
+        Assert.assertEquals(compactReads.get(0).getName(), primary.getName());
+        Assert.assertTrue(compactReads.get(1).isUnmapped());
+        Assert.assertEquals(compactReads.get(2).getName(), supplementary.getName());
+    }
+}
@@ -38,6 +38,18 @@ public class MarkDuplicatesSparkUtilsUnitTest extends BaseTest {
                 ImmutableList.of(pairIterable(1, "a"), pairIterable(2, "b"), pairIterable(1, "c")));
     }
 
+    @Test
+    public void testIsGroupedByName() {
+        final SAMFileHeader header = new SAMFileHeader();
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        Assert.assertFalse(MarkDuplicatesSparkUtils.isGroupedByName(header));
+        header.setSortOrder(SAMFileHeader.SortOrder.queryname);
+        Assert.assertTrue(MarkDuplicatesSparkUtils.isGroupedByName(header));
+        header.setSortOrder(SAMFileHeader.SortOrder.unsorted);
+        header.setGroupOrder(SAMFileHeader.GroupOrder.query);
+        Assert.assertTrue(MarkDuplicatesSparkUtils.isGroupedByName(header));
+    }
+
     @Test(groups = "spark")
     public void testSpanReadsByKeyWithAlternatingGroups() {
         SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(1, 1, 1000, 2);
@@ -1,10 +1,14 @@
 package org.broadinstitute.hellbender.tools.walkers.contamination;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
 import java.util.List;
 
 import static org.testng.Assert.*;
@@ -61,4 +65,52 @@ public class GetPileupSummariesIntegrationTest extends CommandLineProgramTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testSparseSiteTraversalMatchesPileups() throws FileNotFoundException {
+        final File bam = new File(publicTestDir, "org/broadinstitute/hellbender/tools/copynumber/allelic/collect-allelic-counts-normal.bam");
+
+        // a SNP every 7 bases over the covered part of the first two contigs
+        final File sites = createTempFile("sites", ".vcf");
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(new File(hg19MiniReference));
+              final PrintWriter writer = new PrintWriter(sites) ) {
+            writer.println("##fileformat=VCFv4.2");
+            writer.println("##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele Frequency\">");
+            writer.println("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO");
+            for ( final String contig : new String[] {"1", "2"} ) {
+                final byte[] bases = reference.queryAndPrefetch(contig, 10000, 16000).getBases();
+                for ( int position = 10000; position <= 16000; position += 7 ) {
+                    final char ref = Character.toUpperCase((char)bases[position - 10000]);
+                    if ( "ACGT".indexOf(ref) != -1 ) {
+                        final char alt = ref == 'A' ? 'G' : 'A';
+                        writer.println(contig + "\t" + position + "\t.\t" + ref + "\t" + alt + "\t.\t.\tAF=0.1");
+                    }
+                }
+            }
+        }
+
+        final List<PileupSummary> expected = runGetPileupSummaries(bam, sites, false);
+        final List<PileupSummary> actual = runGetPileupSummaries(bam, sites, true);
+        Assert.assertEquals(actual.size(), expected.size());
+        Assert.assertTrue(expected.stream().anyMatch(ps -> ps.getTotalCount() > 0));
+        for ( int i = 0; i < expected.size(); i++ ) {
+            Assert.assertEquals(actual.get(i).getContig(), expected.get(i).getContig());
+            Assert.assertEquals(actual.get(i).getStart(), expected.get(i).getStart());
+            Assert.assertEquals(actual.get(i).getRefCount(), expected.get(i).getRefCount());
+            Assert.assertEquals(actual.get(i).getAltCount(), expected.get(i).getAltCount());
+            Assert.assertEquals(actual.get(i).getOtherAltCount(), expected.get(i).getOtherAltCount());
+            Assert.assertEquals(actual.get(i).getAlleleFrequency(), expected.get(i).getAlleleFrequency());
+        }
+    }
+
+    private List<PileupSummary> runGetPileupSummaries(final File bam, final File sites, final boolean sparseSiteTraversal) {
+        final File output = createTempFile("output", ".table");
+        final String[] args = {
+                "-I", bam.getAbsolutePath(),
+                "-V", sites.getAbsolutePath(),
+                "-O", output.getAbsolutePath(),
+                "--" + StandardArgumentDefinitions.SPARSE_SITE_TRAVERSAL_LONG_NAME, Boolean.toString(sparseSiteTraversal)
+        };
+        runCommandLine(args);
+        return PileupSummary.readPileupSummaries(output);
+    }
+}
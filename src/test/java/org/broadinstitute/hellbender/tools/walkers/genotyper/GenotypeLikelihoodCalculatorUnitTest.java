@@ -78,6 +78,26 @@ public final class GenotypeLikelihoodCalculatorUnitTest {
         }
     }
 
+    @Test(dataProvider = "ploidyAndMaximumAlleleAndReadCountsData")
+    public void testLikelihoodCalculationInReadBlocks(final int ploidy, final int alleleCount, final int[] readCount) {
+        final ReadLikelihoods<Allele> readLikelihoods = ReadLikelihoodsUnitTester.readLikelihoods(alleleCount, readCount);
+        final GenotypeLikelihoodCalculator calculator = new GenotypeLikelihoodCalculators().getInstance(ploidy, alleleCount);
+        for (int s = 0; s < readCount.length; s++) {
+            final LikelihoodMatrix<Allele> sampleLikelihoods = readLikelihoods.sampleMatrix(s);
+            final double[] expected = calculator.genotypeLikelihoods(sampleLikelihoods).getAsVector();
+            for (final int readBlockSize : new int[] { 1, 7, 1000 }) {
+                final double[] actual = calculator.genotypeLikelihoodsInReadBlocks(sampleLikelihoods, readBlockSize).getAsVector();
+                Assert.assertEquals(actual, expected, "ploidy = " + ploidy + " alleleCount = " + alleleCount + " readBlockSize = " + readBlockSize);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLikelihoodCalculationInReadBlocksBadBlockSize() {
+        final ReadLikelihoods<Allele> readLikelihoods = ReadLikelihoodsUnitTester.readLikelihoods(2, new int[] { 10 });
+        new GenotypeLikelihoodCalculators().getInstance(2, 2).genotypeLikelihoodsInReadBlocks(readLikelihoods.sampleMatrix(0), 0);
+    }
+
     @Test(dataProvider = "ploidyAndMaximumAlleleAndNewMaximumAlleleData")
     public void testGenotypeIndexMap(final int ploidy, final int oldAlleleCount, final int newAlleleCount) {
         final Random rnd = Utils.getRandomGenerator();
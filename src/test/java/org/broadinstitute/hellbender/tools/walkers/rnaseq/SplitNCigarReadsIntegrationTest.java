@@ -56,6 +56,15 @@ public final class SplitNCigarReadsIntegrationTest extends CommandLineProgramTes
         spec.executeTest("test fix NDN", this);
     }
 
+    @Test
+    public void testSplitsFixNDNWithReadCache() throws Exception {
+        IntegrationTestSpec spec = new IntegrationTestSpec(
+                "-R " + b37_reference_20_21 + " -I " + getTestDataDir() +"/" + "splitNCigarReadsSnippet.bam -O %s -fixNDN --processSecondaryAlignments" +
+                        " --cacheReadsForSecondPass --readCacheMaxMemory 0",
+                Arrays.asList(getTestDataDir() +"/" + "expected.splitNCigarReadsSnippet.splitNcigarReads.fixNDN.bam"));
+        spec.executeTest("test fix NDN with the second pass replayed from a read cache", this);
+    }
+
     @Test //regression test for https://github.com/broadinstitute/gatk/pull/1853
     public void testSplitsOfUnpairedAndUnmappedReads() throws Exception {
         IntegrationTestSpec spec = new IntegrationTestSpec(
@@ -80,6 +80,20 @@ public class SelectVariantsIntegrationTest extends CommandLineProgramTest {
         spec.executeTest("testComplexSelection--" + testFile, this);
     }
 
+    @Test
+    public void testComplexSelectionDecodedInParallel()  throws IOException {
+        final String testFile = getToolTestDataDir() + "vcfexample2.vcf";
+        final String samplesFile = getToolTestDataDir() + "samples.list";
+
+        final IntegrationTestSpec spec = new IntegrationTestSpec(
+                baseTestString(" -sn NA11894 -se 'NA069*' -sn " + samplesFile + " -select 'RMSMAPQ < 170.0'" +
+                        " -L 1:10020400-10020615 --variantDecodeThreads 3 --variantDecodeShardSize 10", testFile),
+                Collections.singletonList(getToolTestDataDir() + "expected/" + "testSelectVariants_ComplexSelection.vcf")
+        );
+
+        spec.executeTest("testComplexSelectionDecodedInParallel--" + testFile, this);
+    }
+
     @Test
     public void testComplexSelectionWithNonExistingSamples()  throws IOException {
         final String testFile = getToolTestDataDir() + "vcfexample2.vcf";
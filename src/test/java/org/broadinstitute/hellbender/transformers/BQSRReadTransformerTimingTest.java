@@ -0,0 +1,61 @@
+package org.broadinstitute.hellbender.transformers;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timing tests for BQSRReadTransformer: compares the reads per second of recalibration that consults the
+ * recalibration tables base by base with recalibration that uses the precomputed lookup table.
+ * Optional arguments are a BAM and a matching recalibration report.
+ */
+public final class BQSRReadTransformerTimingTest {
+
+    private static final int N_TRIALS = 5;
+    private static final int N_PASSES_PER_TRIAL = 20;
+
+    public static void main( final String[] args ) {
+        final String bqsrDir = BaseTest.toolsTestDir + "BQSR/";
+        final String bam = args.length > 0 ? args[0] : bqsrDir + "HiSeq.1mb.1RG.2k_lines.alternate.bam";
+        final File recalFile = new File(args.length > 1 ? args[1] : bqsrDir + "HiSeq.20mb.1RG.table.gz");
+
+        final List<GATKRead> reads = new ArrayList<>();
+        final SAMFileHeader header;
+        try ( final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(bam)) ) {
+            header = readsSource.getHeader();
+            readsSource.forEach(reads::add);
+        }
+
+        final BQSRReadTransformer tablesTransformer = new BQSRReadTransformer(header, recalFile,
+                BQSRReadTransformerUnitTest.makeApplyBQSRArgs(0, -1.0, Collections.emptyList(), false));
+        final BQSRReadTransformer lookupTransformer = new BQSRReadTransformer(header, recalFile,
+                BQSRReadTransformerUnitTest.makeApplyBQSRArgs(0, -1.0, Collections.emptyList(), true));
+
+        for ( int trial = 0; trial != N_TRIALS; ++trial ) {
+            System.out.println("Tables: " + readsPerSecond(tablesTransformer, reads) + " reads/sec");
+            System.out.println("Lookup table: " + readsPerSecond(lookupTransformer, reads) + " reads/sec");
+        }
+    }
+
+    private static long readsPerSecond( final BQSRReadTransformer transformer, final List<GATKRead> reads ) {
+        final List<GATKRead> copies = new ArrayList<>(reads.size() * N_PASSES_PER_TRIAL);
+        for ( int pass = 0; pass != N_PASSES_PER_TRIAL; ++pass ) {
+            for ( final GATKRead read : reads ) {
+                copies.add(read.deepCopy());
+            }
+        }
+        final long nanosecs = System.nanoTime();
+        for ( final GATKRead read : copies ) {
+            transformer.apply(read);
+        }
+        final double seconds = (System.nanoTime() - nanosecs)/1.E9;
+        return Math.round(copies.size() / seconds);
+    }
+}
@@ -1,11 +1,18 @@
 package org.broadinstitute.hellbender.transformers;
 
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.recalibration.RecalDatum;
 import org.broadinstitute.hellbender.utils.test.BaseTest;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,6 +43,47 @@ public final class BQSRReadTransformerUnitTest extends BaseTest{
         }
     }
 
+    @DataProvider(name = "lookupTableArgs")
+    public Object[][] lookupTableArgs() {
+        return new Object[][] {
+                { 0, -1.0, Arrays.asList() },
+                { 6, -1.0, Arrays.asList() },
+                { 0, 30.0, Arrays.asList() },
+                { 0, -1.0, Arrays.asList(10, 20, 30) }
+        };
+    }
+
+    @Test(dataProvider = "lookupTableArgs")
+    public void testLookupTableMatchesTables( final int quantizationLevels, final double globalQScorePrior, final List<Integer> staticQuantizedQuals ) {
+        final String bqsrDir = toolsTestDir + "BQSR/";
+        final File recalFile = new File(bqsrDir + "HiSeq.20mb.1RG.table.gz");
+        try ( final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(bqsrDir + "HiSeq.1mb.1RG.2k_lines.alternate.bam")) ) {
+            final SAMFileHeader header = readsSource.getHeader();
+            final BQSRReadTransformer tablesTransformer = new BQSRReadTransformer(header, recalFile,
+                    makeApplyBQSRArgs(quantizationLevels, globalQScorePrior, staticQuantizedQuals, false));
+            final BQSRReadTransformer lookupTransformer = new BQSRReadTransformer(header, recalFile,
+                    makeApplyBQSRArgs(quantizationLevels, globalQScorePrior, staticQuantizedQuals, true));
+            int nReads = 0;
+            for ( final GATKRead read : readsSource ) {
+                final GATKRead expected = tablesTransformer.apply(read.copy());
+                final GATKRead actual = lookupTransformer.apply(read.copy());
+                Assert.assertEquals(actual.getBaseQualities(), expected.getBaseQualities(), read.getName());
+                nReads++;
+            }
+            Assert.assertTrue(nReads > 0);
+        }
+    }
+
+    static ApplyBQSRArgumentCollection makeApplyBQSRArgs( final int quantizationLevels, final double globalQScorePrior,
+                                                          final List<Integer> staticQuantizedQuals, final boolean useLookupTable ) {
+        final ApplyBQSRArgumentCollection args = new ApplyBQSRArgumentCollection();
+        args.quantizationLevels = quantizationLevels;
+        args.globalQScorePrior = globalQScorePrior;
+        args.staticQuantizationQuals = staticQuantizedQuals;
+        args.useRecalibrationLookupTable = useLookupTable;
+        return args;
+    }
+
     private static  RecalDatum makeRecalDatum(final long count, final double qual){
         return new RecalDatum(count, count * 1.0 / (Math.pow(10.0, qual / 10.0)), (byte)qual);
     }
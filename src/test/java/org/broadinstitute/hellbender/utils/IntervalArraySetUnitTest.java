@@ -0,0 +1,194 @@
+package org.broadinstitute.hellbender.utils;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.Interval;
+import htsjdk.samtools.util.IntervalList;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public final class IntervalArraySetUnitTest extends BaseTest {
+
+    private static final int CONTIG_LENGTH = 5000;
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader(3, 1, CONTIG_LENGTH);
+    private static final SAMSequenceDictionary DICTIONARY = HEADER.getSequenceDictionary();
+    private static final GenomeLocParser PARSER = new GenomeLocParser(DICTIONARY);
+
+    @DataProvider(name = "randomIntervals")
+    public Object[][] randomIntervals() {
+        final List<Object[]> tests = new ArrayList<>();
+        for (final IntervalMergingRule rule : IntervalMergingRule.values()) {
+            for (final int numIntervals : Arrays.asList(0, 1, 10, 200, 2000)) {
+                for (final int maxLength : Arrays.asList(1, 20, 400)) {
+                    tests.add(new Object[]{numIntervals, maxLength, rule});
+                }
+            }
+        }
+        return tests.toArray(new Object[tests.size()][]);
+    }
+
+    @Test(dataProvider = "randomIntervals")
+    public void testSortAndMergeLikeGenomeLocs(final int numIntervals, final int maxLength, final IntervalMergingRule rule) {
+        final List<GenomeLoc> locs = randomLocs(new Random(numIntervals * 31 + maxLength), numIntervals, maxLength);
+        Assert.assertEquals(build(locs, rule).toGenomeLocs(), IntervalUtils.sortAndMergeIntervals(PARSER, locs, rule).toList());
+    }
+
+    @Test(dataProvider = "randomIntervals")
+    public void testSetOperationsLikeGenomeLocs(final int numIntervals, final int maxLength, final IntervalMergingRule rule) {
+        final Random random = new Random(numIntervals * 17 + maxLength);
+        final List<GenomeLoc> mergedOne = IntervalUtils.sortAndMergeIntervals(PARSER, randomLocs(random, numIntervals, maxLength), rule).toList();
+        final List<GenomeLoc> mergedTwo = IntervalUtils.sortAndMergeIntervals(PARSER, randomLocs(random, numIntervals / 2 + 1, maxLength), rule).toList();
+        final IntervalArraySet one = build(mergedOne, rule);
+        final IntervalArraySet two = build(mergedTwo, rule);
+
+        final List<GenomeLoc> union = new ArrayList<>(mergedOne);
+        union.addAll(mergedTwo);
+        Assert.assertEquals(one.union(two, rule).toGenomeLocs(), IntervalUtils.sortAndMergeIntervals(PARSER, union, rule).toList());
+
+        if (!mergedOne.isEmpty()) {
+            List<GenomeLoc> intersection;
+            try {
+                intersection = IntervalUtils.sortAndMergeIntervals(PARSER,
+                        IntervalUtils.mergeListsBySetOperator(mergedOne, mergedTwo, IntervalSetRule.INTERSECTION), rule).toList();
+            } catch (final UserException.EmptyIntersection e) {
+                intersection = Collections.emptyList();
+            }
+            Assert.assertEquals(one.intersect(two, rule).toGenomeLocs(), intersection);
+        }
+
+        final GenomeLocSortedSet difference = GenomeLocSortedSet.createSetFromList(PARSER, mergedOne)
+                .subtractRegions(GenomeLocSortedSet.createSetFromList(PARSER, mergedTwo));
+        Assert.assertEquals(one.subtract(two).toGenomeLocs(), difference.toList());
+        Assert.assertEquals(one.subtract(two).coveredSize(), difference.coveredSize());
+
+        for (final int padding : Arrays.asList(1, 7, 3 * CONTIG_LENGTH)) {
+            Assert.assertEquals(one.pad(padding).toGenomeLocs(), IntervalUtils.getIntervalsWithFlanks(PARSER, mergedOne, padding));
+        }
+    }
+
+    @Test(dataProvider = "randomIntervals")
+    public void testOverlaps(final int numIntervals, final int maxLength, final IntervalMergingRule rule) {
+        final Random random = new Random(numIntervals * 7 + maxLength);
+        final List<GenomeLoc> merged = IntervalUtils.sortAndMergeIntervals(PARSER, randomLocs(random, numIntervals, maxLength), rule).toList();
+        final IntervalArraySet set = build(merged, rule);
+        for (final GenomeLoc query : randomLocs(random, 200, 50)) {
+            final boolean expected = merged.stream().anyMatch(query::overlapsP);
+            Assert.assertEquals(set.overlaps(new SimpleInterval(query)), expected, query.toString());
+        }
+    }
+
+    @Test
+    public void testUnmappedAndWholeDictionary() {
+        final IntervalArraySet all = IntervalArraySet.fromSequenceDictionary(DICTIONARY);
+        Assert.assertEquals(all.size(), DICTIONARY.size());
+        Assert.assertEquals(all.coveredSize(), DICTIONARY.getReferenceLength());
+        Assert.assertFalse(all.includesUnmapped());
+
+        final IntervalArraySet unmapped = new IntervalArraySet.Builder(DICTIONARY).add(GenomeLoc.UNMAPPED).build(IntervalMergingRule.ALL);
+        Assert.assertFalse(unmapped.isEmpty());
+        Assert.assertEquals(unmapped.size(), 0);
+        Assert.assertTrue(all.union(unmapped, IntervalMergingRule.ALL).includesUnmapped());
+        Assert.assertEquals(all.union(unmapped, IntervalMergingRule.ALL).toGenomeLocs().get(DICTIONARY.size()), GenomeLoc.UNMAPPED);
+        Assert.assertTrue(IntervalArraySet.empty(DICTIONARY).isEmpty());
+    }
+
+    @DataProvider(name = "loadedIntervals")
+    public Object[][] loadedIntervals() {
+        return new Object[][] {
+                // padding, set rule, merging rule
+                {0, IntervalSetRule.UNION, IntervalMergingRule.ALL},
+                {0, IntervalSetRule.UNION, IntervalMergingRule.OVERLAPPING_ONLY},
+                {10, IntervalSetRule.UNION, IntervalMergingRule.OVERLAPPING_ONLY},
+                {0, IntervalSetRule.INTERSECTION, IntervalMergingRule.ALL},
+                {25, IntervalSetRule.INTERSECTION, IntervalMergingRule.ALL},
+        };
+    }
+
+    @Test(dataProvider = "loadedIntervals")
+    public void testLoadLikeGenomeLocs(final int padding, final IntervalSetRule setRule, final IntervalMergingRule mergingRule) throws IOException {
+        // the files are sorted, as the GenomeLoc intersection requires
+        final Random random = new Random(padding);
+        final File bed = writeBed(sortedRandomLocs(random, 500, 100), "\t");
+        final File spacedBed = writeBed(sortedRandomLocs(random, 500, 100), "  ");
+        final File intervalList = writeIntervalList(sortedRandomLocs(random, 500, 100));
+        final List<String> arguments = Arrays.asList(bed.getAbsolutePath(), spacedBed.getAbsolutePath(),
+                intervalList.getAbsolutePath(), DICTIONARY.getSequence(1).getSequenceName(), "unmapped");
+        final List<String> intervalStrings = setRule == IntervalSetRule.UNION ? arguments : arguments.subList(0, 3);
+
+        final IntervalArraySet loaded = IntervalUtils.loadIntervalArraySet(intervalStrings, setRule, mergingRule, padding, PARSER);
+        final GenomeLocSortedSet expected = IntervalUtils.loadIntervals(intervalStrings, setRule, mergingRule, padding, PARSER);
+        Assert.assertEquals(loaded.toGenomeLocs(), expected.toList());
+        Assert.assertEquals(loaded.includesUnmapped(), setRule == IntervalSetRule.UNION);
+    }
+
+    @Test(expectedExceptions = UserException.MalformedGenomeLoc.class)
+    public void testBedWithUnknownContigFailsLikeGenomeLocs() throws IOException {
+        final File bed = createTempFile("intervals", ".bed");
+        Files.write(bed.toPath(), Arrays.asList(DICTIONARY.getSequence(0).getSequenceName() + "\t0\t10", "unknownContig\t5\t10"));
+        IntervalUtils.loadIntervalArraySet(Collections.singletonList(bed.getAbsolutePath()), IntervalSetRule.UNION, IntervalMergingRule.ALL, 0, PARSER);
+    }
+
+    @Test(expectedExceptions = UserException.EmptyIntersection.class)
+    public void testEmptyIntersection() {
+        final String contig = DICTIONARY.getSequence(0).getSequenceName();
+        IntervalUtils.loadIntervalArraySet(Arrays.asList(contig + ":1-100", contig + ":200-300"),
+                IntervalSetRule.INTERSECTION, IntervalMergingRule.ALL, 0, PARSER);
+    }
+
+    private static IntervalArraySet build(final List<GenomeLoc> locs, final IntervalMergingRule rule) {
+        final IntervalArraySet.Builder builder = new IntervalArraySet.Builder(DICTIONARY);
+        locs.forEach(builder::add);
+        return builder.build(rule);
+    }
+
+    private static List<GenomeLoc> randomLocs(final Random random, final int numIntervals, final int maxLength) {
+        final List<GenomeLoc> locs = new ArrayList<>(numIntervals);
+        for (int i = 0; i < numIntervals; i++) {
+            final int contig = random.nextInt(DICTIONARY.size());
+            final int start = 1 + random.nextInt(CONTIG_LENGTH);
+            final int end = Math.min(CONTIG_LENGTH, start + random.nextInt(maxLength));
+            locs.add(PARSER.createGenomeLoc(DICTIONARY.getSequence(contig).getSequenceName(), contig, start, end));
+        }
+        return locs;
+    }
+
+    private static List<GenomeLoc> sortedRandomLocs(final Random random, final int numIntervals, final int maxLength) {
+        final List<GenomeLoc> locs = randomLocs(random, numIntervals, maxLength);
+        Collections.sort(locs);
+        return locs;
+    }
+
+    private static File writeBed(final List<GenomeLoc> locs, final String separator) throws IOException {
+        final File bed = createTempFile("intervals", ".bed");
+        final List<String> lines = new ArrayList<>();
+        lines.add("track name=test");
+        for (final GenomeLoc loc : locs) {
+            lines.add(loc.getContig() + separator + (loc.getStart() - 1) + separator + loc.getStop() + separator + "name");
+        }
+        Files.write(bed.toPath(), lines);
+        return bed;
+    }
+
+    private static File writeIntervalList(final List<GenomeLoc> locs) {
+        final File file = createTempFile("intervals", ".interval_list");
+        final IntervalList intervalList = new IntervalList(HEADER);
+        for (final GenomeLoc loc : locs) {
+            intervalList.add(new Interval(loc.getContig(), loc.getStart(), loc.getStop()));
+        }
+        intervalList.write(file);
+        return file;
+    }
+}
@@ -0,0 +1,78 @@
+package org.broadinstitute.hellbender.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Timing tests for {@link MannWhitneyU#test}, compared with the previous implementation based on rank objects.
+ */
+public final class MannWhitneyUTimingTest {
+
+    @FunctionalInterface
+    public interface Action {
+        void execute();
+    }
+    private static double time( final Action action ) {
+        final long nanosecs = System.nanoTime();
+        action.execute();
+        return (System.nanoTime() - nanosecs)/1.E9;
+    }
+
+    private static final int N_SITES = 200000;
+    private static final int N_REPEATS = 3;
+
+    public static void main( final String[] args ) {
+        final Random rng = new Random(0xdeadbeef);
+
+        // site-sized series of mapping-quality-like values (few distinct integers, many ties), base-quality-like
+        // values, and continuous values; a few alt reads against many ref reads
+        final List<double[][]> mappingQualities = new ArrayList<>(N_SITES);
+        final List<double[][]> baseQualities = new ArrayList<>(N_SITES);
+        final List<double[][]> continuous = new ArrayList<>(N_SITES);
+        for ( int site = 0; site != N_SITES; ++site ) {
+            final int nAlt = 5 + rng.nextInt(20);
+            final int nRef = 20 + rng.nextInt(60);
+            mappingQualities.add(new double[][]{ values(rng, nAlt, 60, true), values(rng, nRef, 60, true) });
+            baseQualities.add(new double[][]{ values(rng, nAlt, 40, false), values(rng, nRef, 40, false) });
+            continuous.add(new double[][]{ continuousValues(rng, nAlt), continuousValues(rng, nRef) });
+        }
+
+        final MannWhitneyU mannWhitneyU = new MannWhitneyU();
+        for ( int repeat = 0; repeat != N_REPEATS; ++repeat ) {
+            System.out.println("Repeat " + repeat);
+            report("mapping qualities", mannWhitneyU, mappingQualities);
+            report("base qualities", mannWhitneyU, baseQualities);
+            report("continuous values", mannWhitneyU, continuous);
+        }
+    }
+
+    private static void report( final String name, final MannWhitneyU mannWhitneyU, final List<double[][]> sites ) {
+        System.out.println("  rank objects, " + name + ": " + time(() -> {
+            for ( final double[][] site : sites ) {
+                mannWhitneyU.testWithRankObjects(site[0].clone(), site[1].clone(), MannWhitneyU.TestType.FIRST_DOMINATES);
+            }
+        }));
+        System.out.println("  primitive,    " + name + ": " + time(() -> {
+            for ( final double[][] site : sites ) {
+                mannWhitneyU.test(site[0].clone(), site[1].clone(), MannWhitneyU.TestType.FIRST_DOMINATES);
+            }
+        }));
+    }
+
+    private static double[] values( final Random rng, final int n, final int maxValue, final boolean mostlyMax ) {
+        final double[] result = new double[n];
+        for ( int i = 0; i != n; ++i ) {
+            result[i] = mostlyMax && rng.nextInt(10) != 0 ? maxValue : rng.nextInt(maxValue + 1);
+        }
+        return result;
+    }
+
+    private static double[] continuousValues( final Random rng, final int n ) {
+        final double[] result = new double[n];
+        for ( int i = 0; i != n; ++i ) {
+            result[i] = rng.nextGaussian();
+        }
+        return result;
+    }
+}
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 public class MannWhitneyUUnitTest extends BaseTest {
     private static double DELTA_PRECISION = 0.00001;
@@ -97,6 +98,60 @@ public class MannWhitneyUUnitTest extends BaseTest {
         Assert.assertEquals(rst.transformTies(64890, listOfNumberOfTies), 8.41378729572e+12);
     }
 
+    @DataProvider(name = "sameAsRankObjectsData")
+    public Object[][] sameAsRankObjectsData() {
+        final List<Object[]> tests = new ArrayList<>();
+        final Random rnd = new Random(17);
+        // small series use the permutation test, larger ones the normal approximation and, when they are
+        // integer valued like qualities, the counting sort
+        for ( final int n1 : new int[]{1, 3, 9, 40, 200} ) {
+            for ( final int n2 : new int[]{2, 8, 35, 500} ) {
+                for ( final int maxValue : new int[]{1, 5, 60, 1000} ) {
+                    final double[] integral1 = new double[n1];
+                    final double[] integral2 = new double[n2];
+                    final double[] continuous1 = new double[n1];
+                    final double[] continuous2 = new double[n2];
+                    for ( int i = 0; i < n1; i++ ) {
+                        integral1[i] = rnd.nextInt(maxValue + 1);
+                        continuous1[i] = rnd.nextDouble() * maxValue;
+                    }
+                    for ( int i = 0; i < n2; i++ ) {
+                        integral2[i] = rnd.nextInt(maxValue + 1);
+                        continuous2[i] = rnd.nextDouble() * maxValue;
+                    }
+                    tests.add(new Object[]{integral1, integral2});
+                    tests.add(new Object[]{continuous1, continuous2});
+                }
+            }
+        }
+        for ( final Object[] test : oneSidedDataProvider() ) {
+            tests.add(new Object[]{test[1], test[2]});
+        }
+        tests.add(new Object[]{new double[]{-0.0, 0.0, -1.0, 3.5}, new double[]{0.0, -0.0, 2.0}});
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "sameAsRankObjectsData")
+    public void testSameAsRankObjects(final double[] series1, final double[] series2) {
+        // the exact test is only implemented for FIRST_DOMINATES; the rank object version can fail on the others
+        final boolean exact = series1.length < 10 && series2.length < 10;
+        for ( final MannWhitneyU.TestType testType : exact ? new MannWhitneyU.TestType[]{MannWhitneyU.TestType.FIRST_DOMINATES} : MannWhitneyU.TestType.values() ) {
+            final double[] copy1 = series1.clone();
+            final double[] copy2 = series2.clone();
+            final MannWhitneyU.Result expected = rst.testWithRankObjects(series1.clone(), series2.clone(), testType);
+            final MannWhitneyU.Result actual = rst.test(copy1, copy2, testType);
+            Assert.assertEquals(actual.getU(), expected.getU(), testType.name());
+            Assert.assertEquals(actual.getZ(), expected.getZ(), testType.name());
+            Assert.assertEquals(actual.getP(), expected.getP(), testType.name());
+            Assert.assertEquals(actual.getMedianShift(), expected.getMedianShift(), testType.name());
+
+            // the series are sorted in place, as before
+            final double[] sorted1 = series1.clone();
+            Arrays.sort(sorted1);
+            Assert.assertEquals(copy1, sorted1);
+        }
+    }
+
     @DataProvider(name = "DistributionData")
     public Object[][] makeDistributionData() {
         List<Object[]> tests = new ArrayList<>();
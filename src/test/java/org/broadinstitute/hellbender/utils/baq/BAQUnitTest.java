@@ -21,7 +21,9 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 public final class BAQUnitTest extends BaseTest {
 
@@ -192,6 +194,100 @@ public final class BAQUnitTest extends BaseTest {
         Assert.assertFalse(read.hasAttribute("BQ"));
     }
 
+    @Test
+    public void testReusedMatricesGiveIdenticalResults() {
+        final List<BAQTest> tests = new ArrayList<>();
+        for ( final Object[] params : createData1() ) {
+            tests.add((BAQTest)params[0]);
+        }
+
+        // run the tests largest first, then smallest first, so that the matrices are reused at both larger and smaller sizes
+        final BAQ reusedBAQ = new BAQ(1.0e-3, 0.1, 7, (byte) 4);
+        for ( int pass = 0; pass < 2; pass++ ) {
+            for ( final BAQTest test : tests ) {
+                final GATKRead read = test.createRead();
+                final BAQ.BAQCalculationResult expected = new BAQ(1.0e-3, 0.1, 7, (byte) 4).calcBAQFromHMM(read, test.refBases.getBytes(), test.refOffset);
+                final BAQ.BAQCalculationResult actual = reusedBAQ.calcBAQFromHMM(read, test.refBases.getBytes(), test.refOffset);
+                Assert.assertEquals(actual.bq, expected.bq);
+                Assert.assertEquals(actual.state, expected.state);
+            }
+            Collections.reverse(tests);
+        }
+    }
+
+    @Test
+    public void testSinglePrecision() {
+        final BAQ doubleBAQ = new BAQ(1.0e-3, 0.1, 7, (byte) 4);
+        final BAQ floatBAQ = new BAQ(1.0e-3, 0.1, 7, (byte) 4, true);
+        Assert.assertTrue(floatBAQ.usesSinglePrecision());
+        Assert.assertFalse(doubleBAQ.usesSinglePrecision());
+
+        // the same single precision object is reused for every test, as the double precision one is
+        for ( final Object[] params : createData1() ) {
+            final BAQTest test = (BAQTest)params[0];
+            final GATKRead read = test.createRead();
+            final BAQ.BAQCalculationResult expected = doubleBAQ.calcBAQFromHMM(read, test.refBases.getBytes(), test.refOffset);
+            final BAQ.BAQCalculationResult actual = floatBAQ.calcBAQFromHMM(read, test.refBases.getBytes(), test.refOffset);
+            for ( int i = 0; i < expected.bq.length; i++ ) {
+                Assert.assertTrue(Math.abs(actual.bq[i] - expected.bq[i]) <= 1, "Single precision BAQ too different at " + i);
+            }
+        }
+    }
+
+    private static List<GATKRead> makeBatchReads(final SAMFileHeader header, final ReferenceDataSource rds) {
+        final Random random = new Random(13);
+        final String[] cigars = { "50M", "20M2I28M", "25M3D25M", "5S45M", "10M1I10M2D29M" };
+        final int contigLength = rds.getSequenceDictionary().getSequence("1").getSequenceLength();
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 40; i++ ) {
+            final int start = i < 39 ? 10000 + 23 * i : contigLength - 49; // the last read's window runs off the contig
+            final byte[] bases = rds.queryAndPrefetch("1", start, start + 49).getBases();
+            bases[random.nextInt(bases.length)] = (byte) 'A';
+            final byte[] quals = new byte[bases.length];
+            for ( int j = 0; j < quals.length; j++ ) {
+                quals[j] = (byte) (10 + random.nextInt(30));
+            }
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, start, bases, quals, cigars[i % cigars.length]));
+        }
+        return reads;
+    }
+
+    @Test
+    public void testBatchMatchesSingleReads() {
+        final ReferenceDataSource rds = new ReferenceFileSource(new File(hg19_chr1_1M_Reference));
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(rds.getSequenceDictionary());
+        final List<GATKRead> reads = makeBatchReads(header, rds);
+
+        final BAQ baq = new BAQ(1.0e-3, 0.1, 7, (byte) 4);
+        final List<BAQ.BAQCalculationResult> batchResults = baq.calcBAQFromHMM(reads, rds);
+        Assert.assertEquals(batchResults.size(), reads.size());
+        for ( int i = 0; i < reads.size(); i++ ) {
+            final BAQ.BAQCalculationResult expected = baq.calcBAQFromHMM(reads.get(i), rds);
+            if ( expected == null ) {
+                Assert.assertNull(batchResults.get(i));
+            } else {
+                Assert.assertEquals(batchResults.get(i).bq, expected.bq);
+                Assert.assertEquals(batchResults.get(i).state, expected.state);
+                Assert.assertEquals(batchResults.get(i).refBases, expected.refBases);
+            }
+        }
+        Assert.assertNull(batchResults.get(reads.size() - 1));
+
+        final List<byte[]> batchQuals = baq.baqReads(reads, rds, BAQ.CalculationMode.RECALCULATE, BAQ.QualityMode.DONT_MODIFY);
+        for ( int i = 0; i < reads.size(); i++ ) {
+            Assert.assertEquals(batchQuals.get(i), baq.baqRead(reads.get(i), rds, BAQ.CalculationMode.RECALCULATE, BAQ.QualityMode.DONT_MODIFY));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBatchWithReferenceNotCoveringReads() {
+        final ReferenceDataSource rds = new ReferenceFileSource(new File(hg19_chr1_1M_Reference));
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(rds.getSequenceDictionary());
+        final List<GATKRead> reads = makeBatchReads(header, rds).subList(0, 5);
+        final SimpleInterval window = new SimpleInterval("1", 10000, 10050);
+        new BAQ().calcBAQFromHMM(reads, new ReferenceBases(rds.queryAndPrefetch(window).getBases(), window));
+    }
+
     private void testBAQ(BAQTest test, boolean lookupWithFasta, ReferenceDataSource rds) {
         final int bandWidth = 7;
         final BAQ baqHMM = new BAQ(1.0e-3, 0.1, bandWidth, (byte) 4);         // matches current samtools parameters
@@ -0,0 +1,159 @@
+package org.broadinstitute.hellbender.utils.collections;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link ParallelSortingCollection}
+ */
+public final class ParallelSortingCollectionUnitTest extends BaseTest {
+
+    @DataProvider(name = "sorts")
+    public Object[][] sorts() {
+        return new Object[][] {
+                // number of records, number of distinct keys, max records in RAM, threads
+                { 0, 10, 100, 4 },
+                { 1, 10, 100, 1 },
+                { 99, 10, 100, 1 },
+                { 99, 1000, 100, 4 },
+                { 1000, 50, 100, 1 },
+                { 1000, 50, 100, 3 },
+                { 10000, 100000, 1000, 8 },
+                { 10000, 7, 10, 2 },
+                { 500, 1000, 1, 2 },
+        };
+    }
+
+    @Test(dataProvider = "sorts")
+    public void testSameAsStableSort(final int numRecords, final int numKeys, final int maxRecordsInRam, final int numThreads) {
+        final Random random = new Random(numRecords + numThreads);
+        final List<Record> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(new Record(random.nextInt(numKeys), i));
+        }
+        final File tmpDir = createTempDir("parallelSort");
+        final List<Record> sorted = new ArrayList<>(numRecords);
+        try (final ParallelSortingCollection<Record> sorter = new ParallelSortingCollection<>(
+                new RecordCodec(), Record.BY_KEY, maxRecordsInRam, Collections.singletonList(tmpDir), numThreads)) {
+            records.forEach(sorter::add);
+            Assert.assertEquals(sorter.getRecordsAdded(), numRecords);
+            try (final CloseableIterator<Record> iterator = sorter.iterator()) {
+                iterator.forEachRemaining(sorted::add);
+            }
+            // the records fit in memory unless there are more than the buffer for the records being added can hold
+            Assert.assertEquals(sorter.getNumRuns() > 0, numRecords >= Math.max(1, maxRecordsInRam / (numThreads + 1)));
+            Assert.assertEquals(sorter.getSpillBytes() > 0, sorter.getNumRuns() > 0);
+        }
+
+        // Collections.sort is stable, so records with equal keys stay in the order in which they were added
+        final List<Record> expected = new ArrayList<>(records);
+        Collections.sort(expected, Record.BY_KEY);
+        Assert.assertEquals(sorted.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(sorted.get(i).key, expected.get(i).key);
+            Assert.assertEquals(sorted.get(i).sequence, expected.get(i).sequence);
+        }
+        // the spill files are deleted
+        Assert.assertEquals(tmpDir.listFiles().length, 0);
+    }
+
+    @Test
+    public void testCloseWithoutIterating() {
+        final File tmpDir = createTempDir("parallelSort");
+        try (final ParallelSortingCollection<Record> sorter = new ParallelSortingCollection<>(
+                new RecordCodec(), Record.BY_KEY, 10, Collections.singletonList(tmpDir), 2)) {
+            for (int i = 0; i < 100; i++) {
+                sorter.add(new Record(100 - i, i));
+            }
+        }
+        Assert.assertEquals(tmpDir.listFiles().length, 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAddAfterIterating() {
+        try (final ParallelSortingCollection<Record> sorter = new ParallelSortingCollection<>(
+                new RecordCodec(), Record.BY_KEY, 10, Collections.emptyList(), 2)) {
+            sorter.add(new Record(1, 0));
+            sorter.iterator().close();
+            sorter.add(new Record(2, 1));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoThreads() {
+        new ParallelSortingCollection<>(new RecordCodec(), Record.BY_KEY, 10, Collections.emptyList(), 0);
+    }
+
+    private static final class Record {
+        static final Comparator<Record> BY_KEY = Comparator.comparingInt(r -> r.key);
+
+        final int key;
+        // the order in which the record was added, which the comparator ignores
+        final int sequence;
+
+        Record(final int key, final int sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class RecordCodec implements SortingCollection.Codec<Record> {
+        private DataOutputStream out;
+        private DataInputStream in;
+
+        @Override
+        public void setOutputStream(final OutputStream os) {
+            out = new DataOutputStream(os);
+        }
+
+        @Override
+        public void setInputStream(final InputStream is) {
+            in = new DataInputStream(is);
+        }
+
+        @Override
+        public void encode(final Record record) {
+            try {
+                out.writeInt(record.key);
+                out.writeInt(record.sequence);
+            } catch (final IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        @Override
+        public Record decode() {
+            try {
+                final int key = in.readInt();
+                return new Record(key, in.readInt());
+            } catch (final EOFException e) {
+                return null;
+            } catch (final IOException e) {
+                throw new RuntimeIOException(e);
+            }
+        }
+
+        @Override
+        public RecordCodec clone() {
+            return new RecordCodec();
+        }
+    }
+}
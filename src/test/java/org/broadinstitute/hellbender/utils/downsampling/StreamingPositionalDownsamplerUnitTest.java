@@ -0,0 +1,176 @@
+package org.broadinstitute.hellbender.utils.downsampling;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class StreamingPositionalDownsamplerUnitTest extends BaseTest {
+
+    private static final int NUM_READ_GROUPS = 4;
+
+    private final SAMFileHeader header = createHeader();
+
+    // read groups 0 and 2 are sample0, 1 and 3 are sample1
+    private static SAMFileHeader createHeader() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(2, 1, 1000000, NUM_READ_GROUPS);
+        for ( final SAMReadGroupRecord readGroup : header.getReadGroups() ) {
+            readGroup.setSample("sample" + (header.getReadGroups().indexOf(readGroup) % 2));
+        }
+        return header;
+    }
+
+    @DataProvider(name = "stacks")
+    public Object[][] stacks() {
+        return new Object[][] {
+                // reads, target coverage
+                { Collections.emptyList(), 1 },
+                { createStack(10, "1", 1), 5 },
+                { createStack(10, "1", 1), 15 },
+                { concat(createStack(10, "1", 1), createStack(3, "1", 2), createStack(20, "2", 1)), 5 },
+                { concat(createStack(10, "1", 1), createUnmappedWithPosition(10, "1", 1), createStack(5, "2", 1)), 5 },
+                { concat(createStack(10, "1", 1), createStack(10, "2", 7), createUnmapped(30)), 1 },
+                { concat(createUnmapped(10)), 1 },
+        };
+    }
+
+    @Test(dataProvider = "stacks")
+    public void testSameAsPositionalDownsampler( final List<GATKRead> reads, final int targetCoverage ) {
+        Utils.resetRandomGenerator();
+        final List<GATKRead> expected = downsample(new PositionalDownsampler(targetCoverage, header), reads);
+
+        Utils.resetRandomGenerator();
+        final StreamingPositionalDownsampler downsampler = new StreamingPositionalDownsampler(targetCoverage, header);
+        Assert.assertTrue(downsampler.requiresCoordinateSortOrder());
+        Assert.assertEquals(downsample(downsampler, reads), expected);
+        Assert.assertEquals(downsampler.getNumberOfDiscardedItems(), reads.size() - expected.size());
+
+        // and wrapped in an iterator
+        Utils.resetRandomGenerator();
+        final List<GATKRead> fromIterator = new ArrayList<>();
+        new ReadsDownsamplingIterator(reads.iterator(), new StreamingPositionalDownsampler(targetCoverage, header)).forEach(fromIterator::add);
+        Assert.assertEquals(fromIterator, expected);
+    }
+
+    @Test
+    public void testPerSample() {
+        final List<GATKRead> reads = concat(createStack(100, "1", 1), createStack(3, "1", 5), createStack(50, "2", 1));
+        final GATKRead noReadGroup = ArtificialReadUtils.createArtificialRead(header, "noReadGroup", "2", 1, new byte[]{'A'}, new byte[]{30});
+        reads.add(noReadGroup);
+
+        final Map<SimpleInterval, Integer> discarded = new LinkedHashMap<>();
+        final StreamingPositionalDownsampler downsampler = new StreamingPositionalDownsampler(10, header, true, discarded::put);
+        final List<GATKRead> downsampled = downsample(downsampler, reads);
+
+        // at most 10 reads of each sample at each position; all 3 reads at 1:5 survive, as does the read without a read group
+        Assert.assertEquals(countSamples(downsampled, "1", 1), Arrays.asList(10, 10));
+        Assert.assertEquals(countSamples(downsampled, "1", 5), Arrays.asList(2, 1));
+        Assert.assertEquals(countSamples(downsampled, "2", 1), Arrays.asList(10, 10));
+        Assert.assertTrue(downsampled.contains(noReadGroup));
+        Assert.assertEquals(downsampled.size(), 44);
+
+        final Map<SimpleInterval, Integer> expectedDiscarded = new LinkedHashMap<>();
+        expectedDiscarded.put(new SimpleInterval("1", 1, 1), 80);
+        expectedDiscarded.put(new SimpleInterval("2", 1, 1), 30);
+        Assert.assertEquals(discarded, expectedDiscarded);
+        Assert.assertEquals(downsampler.getNumberOfDiscardedItems(), 110);
+    }
+
+    @Test
+    public void testHoldsAtMostTargetCoverage() {
+        final StreamingPositionalDownsampler downsampler = new StreamingPositionalDownsampler(7, header, true, null);
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "deep", "1", 1, new byte[]{'A'}, new byte[]{30});
+        read.setReadGroup(header.getReadGroups().get(0).getId());
+        for ( int i = 0; i < 100000; i++ ) {
+            downsampler.submit(read);
+            Assert.assertTrue(downsampler.size() <= 7);
+        }
+        Assert.assertTrue(downsampler.hasPendingItems());
+        Assert.assertFalse(downsampler.hasFinalizedItems());
+        Assert.assertSame(downsampler.peekPending(), read);
+
+        downsampler.signalNoMoreReadsBefore(ArtificialReadUtils.createArtificialRead(header, "next", "1", 2, new byte[]{'A'}, new byte[]{30}));
+        Assert.assertFalse(downsampler.hasPendingItems());
+        Assert.assertEquals(downsampler.consumeFinalizedItems().size(), 7);
+
+        downsampler.submit(read);
+        downsampler.clearItems();
+        Assert.assertEquals(downsampler.size(), 0);
+        Assert.assertNull(downsampler.peekPending());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testZeroTargetCoverage() {
+        new StreamingPositionalDownsampler(0, header);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullHeader() {
+        new StreamingPositionalDownsampler(1, null);
+    }
+
+    private static List<GATKRead> downsample( final ReadsDownsampler downsampler, final List<GATKRead> reads ) {
+        downsampler.submit(reads);
+        downsampler.signalEndOfInput();
+        Assert.assertFalse(downsampler.hasPendingItems());
+        return downsampler.consumeFinalizedItems();
+    }
+
+    private List<Integer> countSamples( final List<GATKRead> reads, final String contig, final int start ) {
+        final int[] counts = new int[2];
+        for ( final GATKRead read : reads ) {
+            if ( read.getReadGroup() != null && read.getContig().equals(contig) && read.getStart() == start ) {
+                counts[Integer.parseInt(header.getReadGroup(read.getReadGroup()).getSample().substring("sample".length()))]++;
+            }
+        }
+        return Arrays.asList(counts[0], counts[1]);
+    }
+
+    @SafeVarargs
+    private static List<GATKRead> concat( final List<GATKRead>... stacks ) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( final List<GATKRead> stack : stacks ) {
+            reads.addAll(stack);
+        }
+        return reads;
+    }
+
+    private List<GATKRead> createStack( final int numReads, final String contig, final int start ) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < numReads; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, contig, start, new byte[]{'A'}, new byte[]{30});
+            read.setReadGroup(header.getReadGroups().get(i % NUM_READ_GROUPS).getId());
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    private List<GATKRead> createUnmappedWithPosition( final int numReads, final String contig, final int start ) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < numReads; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialUnmappedReadWithAssignedPosition(header, contig, start, new byte[]{'A'}, new byte[]{30}));
+        }
+        return reads;
+    }
+
+    private List<GATKRead> createUnmapped( final int numReads ) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < numReads; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialUnmappedRead(header, new byte[]{'A'}, new byte[]{30}));
+        }
+        return reads;
+    }
+}
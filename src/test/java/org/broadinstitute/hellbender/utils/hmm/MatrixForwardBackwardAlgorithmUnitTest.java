@@ -0,0 +1,212 @@
+package org.broadinstitute.hellbender.utils.hmm;
+
+import org.apache.commons.math3.util.Pair;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit tests for {@link MatrixHMM}, {@link MatrixForwardBackwardAlgorithm} and {@link MatrixViterbiAlgorithm},
+ * comparing them to {@link ForwardBackwardAlgorithm} and {@link ViterbiAlgorithm}.
+ */
+public final class MatrixForwardBackwardAlgorithmUnitTest extends BaseTest {
+
+    private static final double EPSILON = 1e-8;
+
+    private static final List<TestHMM> TEST_MODELS = Arrays.asList(
+            TestHMM.fromPhredProbabilities(
+                    20, 0, 20, // priors
+                    0, 20, 20, // transition
+                    20, 0, 20,
+                    20, 20, 0,
+                    0, 20, 20, // emission
+                    20, 0, 20,
+                    20, 20, 0),
+            TestHMM.fromPhredProbabilities(
+                    0, 0, 0, // priors
+                    0, 0, 0, // transition
+                    0, 0, 0,
+                    0, 0, 0,
+                    0, 0, 0, // emission
+                    0, 0, 0,
+                    0, 0, 0),
+            TestHMM.fromPhredProbabilities(
+                    30.1, 0.6, 10.2, // priors
+                    0.7, 30.3, 10.4, // transition
+                    10.5, 0.4, 30.6,
+                    30.7, 10.8, 0.5,
+                    0.3, 10.9, 20.1, // emission
+                    40.2, 0.2, 10.3,
+                    5.5, 5.4, 0.1));
+
+    @DataProvider(name = "testModels")
+    public Object[][] testModels() {
+        final List<Object[]> result = new ArrayList<>();
+        for (int i = 0; i < TEST_MODELS.size(); i++) {
+            for (final int length : Arrays.asList(1, 2, 17, 1000)) {
+                result.add(new Object[]{TEST_MODELS.get(i), length, new Random(i * 31 + length)});
+            }
+        }
+        return result.toArray(new Object[result.size()][]);
+    }
+
+    @Test(dataProvider = "testModels")
+    public void testSameAsGenericAlgorithms(final TestHMM model, final int length, final Random random) {
+        final List<Integer> positions = IntStream.range(0, length).boxed().collect(Collectors.toList());
+        final List<TestHMM.Datum> data = model.generate(positions, random).getSecond();
+        // all transitions are the same in this model.
+        final MatrixHMM matrixModel = MatrixHMM.fromModel(model, data, positions, (from, to) -> 0);
+        Assert.assertEquals(matrixModel.length(), length);
+        Assert.assertEquals(matrixModel.numDistinctTransitions(), length > 1 ? 1 : 0);
+        assertSameAsGenericAlgorithms(model, data, positions, matrixModel);
+    }
+
+    @Test
+    public void testDistanceDependentTransitions() {
+        final DistanceTestHMM model = new DistanceTestHMM(4, 50);
+        final Random random = new Random(13);
+        final List<Integer> positions = new ArrayList<>();
+        final List<Integer> data = new ArrayList<>();
+        int position = 0;
+        for (int i = 0; i < 500; i++) {
+            position += 1 + random.nextInt(5) * 20;
+            positions.add(position);
+            data.add(random.nextInt(4));
+        }
+        final MatrixHMM cached = MatrixHMM.fromModel(model, data, positions, (from, to) -> to - from);
+        Assert.assertEquals(cached.numDistinctTransitions(), 5);
+        assertSameAsGenericAlgorithms(model, data, positions, cached);
+
+        final MatrixHMM uncached = MatrixHMM.fromModel(model, data, positions, null);
+        Assert.assertEquals(uncached.numDistinctTransitions(), positions.size() - 1);
+        assertSameAsGenericAlgorithms(model, data, positions, uncached);
+    }
+
+    private static <D, S> void assertSameAsGenericAlgorithms(final HMM<D, Integer, S> model, final List<D> data,
+                                                             final List<Integer> positions, final MatrixHMM matrixModel) {
+        final List<S> states = model.hiddenStates();
+        final ForwardBackwardAlgorithm.Result<D, Integer, S> expected = ForwardBackwardAlgorithm.apply(data, positions, model);
+        final MatrixForwardBackwardAlgorithm.Result actual = MatrixForwardBackwardAlgorithm.apply(matrixModel);
+        Assert.assertEquals(actual.logDataLikelihood(), expected.logDataLikelihood(), EPSILON * Math.max(1, Math.abs(expected.logDataLikelihood())));
+        for (int i = 0; i < positions.size(); i++) {
+            for (int s = 0; s < states.size(); s++) {
+                Assert.assertEquals(Math.exp(actual.logProbability(i, s)), Math.exp(expected.logProbability(i, states.get(s))), EPSILON);
+            }
+        }
+        Assert.assertEquals(actual.logChainPosteriorProbability(), expected.logChainPosteriorProbability(),
+                EPSILON * Math.max(1, Math.abs(expected.logDataLikelihood())));
+
+        final List<S> expectedPath = ViterbiAlgorithm.apply(data, positions, model);
+        final List<S> actualPath = Arrays.stream(MatrixViterbiAlgorithm.apply(matrixModel)).mapToObj(states::get).collect(Collectors.toList());
+        Assert.assertEquals(actualPath, expectedPath);
+    }
+
+    @Test
+    public void testBlockLengthDoesNotChangeResult() {
+        final TestHMM model = TEST_MODELS.get(2);
+        final List<Integer> positions = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        final Pair<List<TestHMM.State>, List<TestHMM.Datum>> sequence = model.generate(positions, new Random(7));
+        final MatrixHMM matrixModel = MatrixHMM.fromModel(model, sequence.getSecond(), positions, null);
+        final MatrixForwardBackwardAlgorithm.Result expected = MatrixForwardBackwardAlgorithm.apply(matrixModel);
+
+        for (final int blockLength : Arrays.asList(1, 3, 10, 99, 100, 1000)) {
+            final List<Integer> visited = new ArrayList<>();
+            final double logDataLikelihood = MatrixForwardBackwardAlgorithm.apply(matrixModel, (position, posteriors) -> {
+                visited.add(position);
+                Assert.assertEquals(Arrays.stream(posteriors).sum(), 1.0, EPSILON);
+                for (int s = 0; s < posteriors.length; s++) {
+                    Assert.assertEquals(posteriors[s], Math.exp(expected.logProbability(position, s)), EPSILON);
+                }
+            }, blockLength);
+            Assert.assertEquals(logDataLikelihood, expected.logDataLikelihood(), EPSILON);
+            // posteriors arrive from the last position to the first.
+            final List<Integer> expectedVisited = new ArrayList<>(positions);
+            Collections.reverse(expectedVisited);
+            Assert.assertEquals(visited, expectedVisited);
+        }
+    }
+
+    @Test
+    public void testEmptySequence() {
+        final MatrixHMM empty = MatrixHMM.fromModel(TEST_MODELS.get(0), Collections.emptyList(), Collections.emptyList(), null);
+        Assert.assertEquals(MatrixForwardBackwardAlgorithm.apply(empty).logDataLikelihood(), 0.0);
+        Assert.assertEquals(MatrixForwardBackwardAlgorithm.apply(empty).logChainPosteriorProbability(), 0.0);
+        Assert.assertEquals(MatrixViterbiAlgorithm.apply(empty).length, 0);
+    }
+
+    @Test
+    public void testLongSequenceDoesNotUnderflow() {
+        final TestHMM model = TEST_MODELS.get(0);
+        final List<Integer> positions = IntStream.range(0, 100000).boxed().collect(Collectors.toList());
+        final List<TestHMM.Datum> data = model.generate(positions, new Random(3)).getSecond();
+        final MatrixHMM matrixModel = MatrixHMM.fromModel(model, data, positions, (from, to) -> 0);
+        final double[] total = new double[1];
+        final double logDataLikelihood = MatrixForwardBackwardAlgorithm.apply(matrixModel, (position, posteriors) -> total[0] += posteriors[0]);
+        Assert.assertTrue(logDataLikelihood < -1000 && !Double.isInfinite(logDataLikelihood));
+        Assert.assertFalse(Double.isNaN(total[0]));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testImpossibleData() {
+        final double[][] logTransitions = {{0, Double.NEGATIVE_INFINITY}, {Double.NEGATIVE_INFINITY, 0}};
+        final MatrixHMM model = new MatrixHMM(new double[]{0, Double.NEGATIVE_INFINITY},
+                new double[][]{{0, 0}, {Double.NEGATIVE_INFINITY, 0}}, new double[][][]{logTransitions});
+        MatrixForwardBackwardAlgorithm.apply(model);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooFewTransitions() {
+        new MatrixHMM(new double[]{0}, new double[][]{{0}, {0}}, new double[0][][]);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongNumberOfEmissions() {
+        new MatrixHMM(new double[]{0, 0}, new double[][]{{0}}, new double[0][][]);
+    }
+
+    /**
+     * Model whose states are remembered with a probability that decays with the distance between positions,
+     * as in {@link org.broadinstitute.hellbender.tools.exome.segmentation.ClusteringGenomicHMM}.
+     */
+    private static final class DistanceTestHMM implements HMM<Integer, Integer, Integer> {
+
+        private final int numStates;
+        private final double memoryLength;
+
+        private DistanceTestHMM(final int numStates, final double memoryLength) {
+            this.numStates = numStates;
+            this.memoryLength = memoryLength;
+        }
+
+        @Override
+        public List<Integer> hiddenStates() {
+            return IntStream.range(0, numStates).boxed().collect(Collectors.toList());
+        }
+
+        @Override
+        public double logPriorProbability(final Integer state, final Integer position) {
+            return -Math.log(numStates);
+        }
+
+        @Override
+        public double logTransitionProbability(final Integer currentState, final Integer currentPosition,
+                                               final Integer nextState, final Integer nextPosition) {
+            final double pRemember = Math.exp(-(nextPosition - currentPosition) / memoryLength);
+            return Math.log((nextState.equals(currentState) ? pRemember : 0) + (1 - pRemember) / numStates);
+        }
+
+        @Override
+        public double logEmissionProbability(final Integer datum, final Integer state, final Integer position) {
+            return datum.equals(state) ? Math.log(0.7) : Math.log(0.3 / (numStates - 1));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public final class ShardedOutputMergerUnitTest extends BaseTest {
+
+    private static final class IntegerCodec implements SortingCollection.Codec<Integer> {
+        private final boolean flushEachRecord;
+        private DataOutputStream os;
+        private DataInputStream is;
+
+        IntegerCodec() {
+            this(true);
+        }
+
+        // without flushing, records only reach the file when the merger flushes or closes its stream
+        IntegerCodec( final boolean flushEachRecord ) {
+            this.flushEachRecord = flushEachRecord;
+        }
+
+        @Override
+        public void setOutputStream( final OutputStream os ) {
+            this.os = new DataOutputStream(os);
+        }
+
+        @Override
+        public void setInputStream( final InputStream is ) {
+            this.is = new DataInputStream(is);
+        }
+
+        @Override
+        public void encode( final Integer val ) {
+            try {
+                os.writeInt(val);
+                if ( flushEachRecord ) {
+                    os.flush();
+                }
+            } catch ( final IOException e ) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Integer decode() {
+            try {
+                return is.readInt();
+            } catch ( final IOException e ) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public IntegerCodec clone() {
+            return new IntegerCodec(flushEachRecord);
+        }
+    }
+
+    private static List<Integer> range( final int from, final int to ) {
+        final List<Integer> result = new ArrayList<>(to - from);
+        for ( int i = from; i < to; i++ ) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testOutOfOrderShards() {
+        final List<Integer> output = new ArrayList<>();
+        try ( final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(3, output::add, new IntegerCodec(), 100, null) ) {
+            merger.add(2, 20);
+            merger.add(1, 10);
+            merger.add(0, 0);
+            Assert.assertEquals(output, Collections.singletonList(0));
+            merger.add(2, 21);
+            merger.completeShard(2);
+            Assert.assertEquals(output, Collections.singletonList(0));
+            merger.add(0, 1);
+            merger.completeShard(0);
+            // shard 1 is now the lowest incomplete shard, so what it has produced so far is written
+            Assert.assertEquals(output, Arrays.asList(0, 1, 10));
+            output.clear();
+            merger.add(1, 11);
+            merger.completeShard(1);
+            Assert.assertTrue(merger.isComplete());
+        }
+        Assert.assertEquals(output, Arrays.asList(11, 20, 21));
+    }
+
+    @Test
+    public void testSpilling() {
+        final List<Integer> output = new ArrayList<>();
+        try ( final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(4, output::add, new IntegerCodec(), 5, createTempDir("spill")) ) {
+            // interleave the adds so that each shard is spilled more than once, with records left in memory as well
+            for ( int i = 0; i < 100; i++ ) {
+                for ( int shard = 3; shard >= 0; shard-- ) {
+                    merger.add(shard, shard * 100 + i);
+                }
+            }
+            for ( int shard = 3; shard >= 0; shard-- ) {
+                merger.completeShard(shard);
+            }
+        }
+        Assert.assertEquals(output, range(0, 400));
+    }
+
+    @Test
+    public void testSpillsAreClosedBetweenWrites() {
+        final File tmpDir = createTempDir("spill");
+        final List<Integer> output = new ArrayList<>();
+        try ( final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(11, output::add, new IntegerCodec(false), 5, tmpDir) ) {
+            for ( int shard = 10; shard > 0; shard-- ) {
+                for ( int i = 0; i < 10; i++ ) {
+                    merger.add(shard, shard * 100 + i);
+                }
+            }
+            // all records but those held in memory are in the files, so no spill stream is left open with records in
+            // its buffer
+            final File[] spills = tmpDir.listFiles();
+            Assert.assertEquals(spills.length, 10);
+            final long spilledBytes = Arrays.stream(spills).mapToLong(File::length).sum();
+            Assert.assertTrue(spilledBytes >= Integer.BYTES * (100 - 5L), "only " + spilledBytes + " bytes spilled");
+
+            for ( int shard = 0; shard <= 10; shard++ ) {
+                merger.completeShard(shard);
+            }
+        }
+        final List<Integer> expected = new ArrayList<>();
+        for ( int shard = 1; shard <= 10; shard++ ) {
+            expected.addAll(range(shard * 100, shard * 100 + 10));
+        }
+        Assert.assertEquals(output, expected);
+        Assert.assertEquals(tmpDir.listFiles().length, 0);
+    }
+
+    @DataProvider(name = "concurrentProducers")
+    public Object[][] concurrentProducers() {
+        return new Object[][] {
+                { 1, 1000, 10 },
+                { 8, 1000, 10 },
+                { 8, 1000, 100000 },
+                { 32, 100, 1 },
+        };
+    }
+
+    @Test(dataProvider = "concurrentProducers")
+    public void testConcurrentProducers( final int numShards, final int recordsPerShard, final int maxRecordsInRam ) throws Exception {
+        final List<Integer> output = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try ( final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(numShards, output::add, new IntegerCodec(), maxRecordsInRam, null) ) {
+            final List<Integer> shards = range(0, numShards);
+            Collections.shuffle(shards, new Random(numShards));
+            final List<Future<?>> futures = new ArrayList<>();
+            for ( final int shard : shards ) {
+                futures.add(executor.submit(() -> {
+                    for ( int i = 0; i < recordsPerShard; i++ ) {
+                        merger.add(shard, shard * recordsPerShard + i);
+                    }
+                    merger.completeShard(shard);
+                }));
+            }
+            for ( final Future<?> future : futures ) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        Assert.assertEquals(output, range(0, numShards * recordsPerShard));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCloseWithIncompleteShard() {
+        final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(2, i -> {}, new IntegerCodec(), 10, null);
+        merger.completeShard(1);
+        merger.close();
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAddToCompletedShard() {
+        final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(2, i -> {}, new IntegerCodec(), 10, null);
+        merger.completeShard(1);
+        merger.add(1, 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidShard() {
+        final ShardedOutputMerger<Integer> merger = new ShardedOutputMerger<>(2, i -> {}, new IntegerCodec(), 10, null);
+        merger.add(2, 0);
+    }
+}
@@ -0,0 +1,84 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class ReadAheadIteratorUnitTest extends BaseTest {
+
+    @DataProvider(name = "readAheadParameters")
+    public Object[][] readAheadParameters() {
+        return new Object[][] {
+                // number of records, batch size, max queued batches
+                { 0, 1, 1 },
+                { 1, 1, 1 },
+                { 10, 3, 1 },
+                { 10, 10, 2 },
+                { 10, 100, 2 },
+                { 10000, 7, 4 },
+        };
+    }
+
+    @Test(dataProvider = "readAheadParameters")
+    public void testAllRecordsReturnedInOrder( final int numRecords, final int batchSize, final int maxQueuedBatches ) {
+        final List<Integer> expected = IntStream.range(0, numRecords).boxed().collect(Collectors.toList());
+        final Set<String> prepareThreads = ConcurrentHashMap.newKeySet();
+        final List<Integer> actual = new ArrayList<>();
+        try ( final ReadAheadIterator<Integer> iter = new ReadAheadIterator<>(expected.iterator(), batchSize, maxQueuedBatches,
+                i -> prepareThreads.add(Thread.currentThread().getName())) ) {
+            iter.forEachRemaining(actual::add);
+            Assert.assertFalse(iter.hasNext());
+            Assert.assertEquals(iter.getBatchesConsumed(), (numRecords + batchSize - 1) / batchSize);
+            Assert.assertTrue(iter.getMeanQueueDepth() <= maxQueuedBatches);
+        }
+        Assert.assertEquals(actual, expected);
+        Assert.assertFalse(prepareThreads.contains(Thread.currentThread().getName()), "records should be prepared on the read-ahead thread");
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void testNextPastEnd() {
+        try ( final ReadAheadIterator<Integer> iter = new ReadAheadIterator<>(IntStream.range(0, 2).iterator(), 1, 1, i -> {}) ) {
+            iter.next();
+            iter.next();
+            iter.next();
+        }
+    }
+
+    @Test
+    public void testCloseBeforeExhaustion() {
+        final Iterator<Integer> source = IntStream.range(0, 100000).iterator();
+        final ReadAheadIterator<Integer> iter = new ReadAheadIterator<>(source, 10, 2, i -> {});
+        Assert.assertEquals(iter.next().intValue(), 0);
+        iter.close();
+        // the read-ahead thread has stopped, having read no more than the batch it was working on when we closed
+        Assert.assertTrue(source.hasNext());
+        final int nextFromSource = source.next();
+        Assert.assertTrue(nextFromSource <= 10 * 5, "read too far ahead: " + nextFromSource);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "boom")
+    public void testSourceExceptionIsPropagated() {
+        final Iterator<Integer> source = IntStream.range(0, 100).map(i -> {
+            if ( i == 50 ) {
+                throw new IllegalStateException("boom");
+            }
+            return i;
+        }).iterator();
+        try ( final ReadAheadIterator<Integer> iter = new ReadAheadIterator<>(source, 7, 2, i -> {}) ) {
+            int count = 0;
+            while ( iter.hasNext() ) {
+                Assert.assertEquals(iter.next().intValue(), count++);
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsampleType;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.PrimitivePileup;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
@@ -445,6 +446,91 @@ public final class LocusIteratorByStateUnitTest extends LocusIteratorByStateBase
         Assert.assertEquals(bpVisited, expectedBpToVisit, "Didn't visit the expected number of bp");
     }
 
+    @Test(enabled = true, dataProvider = "MyLIBSTest")
+    public void testPrimitivePileupsMatchReadPileups(final LIBSTest params) {
+        final GATKRead read = params.makeRead();
+        final GATKRead other = ArtificialReadUtils.createArtificialRead(header, "other", 0, 1, read.getLength());
+        final List<GATKRead> reads = new ArrayList<>(Arrays.asList(read, other));
+        final LocusIteratorByState expected = makeLIBS(reads, null, false, header);
+        final LocusIteratorByState actual = new LocusIteratorByState(
+                new FakeCloseableIterator<>(reads.iterator()),
+                LocusIteratorByState.NO_DOWNSAMPLING,
+                false,
+                sampleListForSAMWithoutReadGroups(),
+                header,
+                true,
+                false,
+                true
+        );
+
+        while ( expected.hasNext() ) {
+            Assert.assertTrue(actual.hasNext());
+            final AlignmentContext expectedContext = expected.next();
+            final AlignmentContext actualContext = actual.next();
+            Assert.assertEquals(actualContext.getLocation(), expectedContext.getLocation());
+            Assert.assertEquals(actualContext.size(), expectedContext.size());
+
+            final ReadPileup expectedPileup = expectedContext.getBasePileup();
+            Assert.assertEquals(actualContext.getPrimitivePileup().getBases(), expectedPileup.getBases());
+            Assert.assertEquals(actualContext.getPrimitivePileup().getBaseQuals(), expectedPileup.getBaseQuals());
+
+            final List<PileupElement> expectedElements = new ArrayList<>();
+            expectedPileup.forEach(expectedElements::add);
+            final List<PileupElement> actualElements = new ArrayList<>();
+            actualContext.getBasePileup().forEach(actualElements::add);
+            Assert.assertEquals(actualElements.size(), expectedElements.size());
+            for ( int i = 0; i < expectedElements.size(); i++ ) {
+                Assert.assertSame(actualElements.get(i).getRead(), expectedElements.get(i).getRead());
+                Assert.assertEquals(actualElements.get(i).getOffset(), expectedElements.get(i).getOffset());
+                Assert.assertEquals(actualElements.get(i).getCurrentCigarElement(), expectedElements.get(i).getCurrentCigarElement());
+                Assert.assertEquals(actualElements.get(i).getCurrentCigarOffset(), expectedElements.get(i).getCurrentCigarOffset());
+                Assert.assertEquals(actualElements.get(i).getOffsetInCurrentCigar(), expectedElements.get(i).getOffsetInCurrentCigar());
+                Assert.assertEquals(actualElements.get(i).isDeletion(), expectedElements.get(i).isDeletion());
+            }
+            // lets the next locus reuse the primitive pileup
+            actualContext.release();
+        }
+        Assert.assertFalse(actual.hasNext());
+    }
+
+    @Test
+    public void testReleasedPrimitivePileupsAreReused() {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 1 + i, 10));
+        }
+        final LocusIteratorByState libs = new LocusIteratorByState(
+                new FakeCloseableIterator<>(reads.iterator()),
+                LocusIteratorByState.NO_DOWNSAMPLING,
+                false,
+                sampleListForSAMWithoutReadGroups(),
+                header,
+                true,
+                false,
+                true
+        );
+
+        // an unreleased context keeps its pileup
+        final AlignmentContext first = libs.next();
+        final PrimitivePileup firstPileup = first.getPrimitivePileup();
+        final AlignmentContext second = libs.next();
+        Assert.assertNotSame(second.getPrimitivePileup(), firstPileup);
+        Assert.assertEquals(first.getStart(), 1);
+        Assert.assertEquals(firstPileup.size(), 1);
+
+        // a released one is refilled for a later locus, keeping a base pileup obtained before its release
+        final ReadPileup firstBasePileup = first.getBasePileup();
+        first.release();
+        final AlignmentContext third = libs.next();
+        Assert.assertSame(third.getPrimitivePileup(), firstPileup);
+        Assert.assertEquals(third.getStart(), 3);
+        Assert.assertEquals(third.size(), 3);
+        Assert.assertEquals(firstBasePileup.size(), 1);
+        Assert.assertEquals(firstBasePileup.getLocation().getStart(), 1);
+        Assert.assertEquals(second.getStart(), 2);
+        Assert.assertEquals(second.size(), 2);
+    }
+
     // ------------------------------------------------------------
     //
     // Tests for keeping reads
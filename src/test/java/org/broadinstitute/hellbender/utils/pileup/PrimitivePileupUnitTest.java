@@ -0,0 +1,133 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class PrimitivePileupUnitTest extends BaseTest {
+    private static final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+    private static final SimpleInterval loc = new SimpleInterval("1", 3, 3);
+
+    private static GATKRead makeRead( final String name, final String bases, final String cigar ) {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, name, 0, 1, bases.length());
+        read.setBases(bases.getBytes());
+        final byte[] quals = new byte[bases.length()];
+        for ( int i = 0; i < quals.length; i++ ) {
+            quals[i] = (byte)(10 + i);
+        }
+        read.setBaseQualities(quals);
+        read.setCigar(cigar);
+        return read;
+    }
+
+    // position 3 is the third base of read1, a deletion in read2 and a reference skip in read3
+    private static ReadPileup makeReadPileup() {
+        final GATKRead read1 = makeRead("read1", "ACGTA", "5M");
+        final GATKRead read2 = makeRead("read2", "ACGT", "2M1D2M");
+        final GATKRead read3 = makeRead("read3", "ACGT", "2M1N2M");
+        final List<PileupElement> elements = Arrays.asList(
+                new PileupElement(read1, 2, read1.getCigar().getCigarElement(0), 0, 2),
+                new PileupElement(read2, 1, read2.getCigar().getCigarElement(1), 1, 0),
+                new PileupElement(read3, 1, read3.getCigar().getCigarElement(1), 1, 0));
+        return new ReadPileup(loc, elements);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        final ReadPileup readPileup = makeReadPileup();
+        final PrimitivePileup pileup = PrimitivePileup.of(readPileup);
+
+        Assert.assertEquals(pileup.getLocation(), loc);
+        Assert.assertEquals(pileup.size(), 3);
+        Assert.assertFalse(pileup.isEmpty());
+        Assert.assertEquals(pileup.getBases(), readPileup.getBases());
+        Assert.assertEquals(pileup.getBaseQuals(), readPileup.getBaseQuals());
+
+        final ReadPileup result = pileup.toReadPileup();
+        Assert.assertEquals(result.getLocation(), loc);
+        final List<PileupElement> expected = new ArrayList<>();
+        readPileup.forEach(expected::add);
+        final List<PileupElement> actual = new ArrayList<>();
+        result.forEach(actual::add);
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < expected.size(); i++ ) {
+            Assert.assertSame(actual.get(i).getRead(), expected.get(i).getRead());
+            Assert.assertEquals(actual.get(i).getOffset(), expected.get(i).getOffset());
+            Assert.assertEquals(actual.get(i).getCurrentCigarElement(), expected.get(i).getCurrentCigarElement());
+            Assert.assertEquals(actual.get(i).getCurrentCigarOffset(), expected.get(i).getCurrentCigarOffset());
+            Assert.assertEquals(actual.get(i).getOffsetInCurrentCigar(), expected.get(i).getOffsetInCurrentCigar());
+        }
+    }
+
+    @Test
+    public void testElementAccessors() {
+        final ReadPileup readPileup = makeReadPileup();
+        final PrimitivePileup pileup = PrimitivePileup.of(readPileup);
+
+        int i = 0;
+        for ( final PileupElement pe : readPileup ) {
+            Assert.assertSame(pileup.getRead(i), pe.getRead());
+            Assert.assertEquals(pileup.getOffset(i), pe.getOffset());
+            Assert.assertEquals(pileup.getBase(i), pe.getBase());
+            Assert.assertEquals(pileup.getQual(i), pe.getQual());
+            Assert.assertEquals(pileup.isDeletion(i), pe.isDeletion());
+            Assert.assertEquals(pileup.isRefSkip(i), pe.getCurrentCigarElement().getOperator() == CigarOperator.N);
+            i++;
+        }
+        Assert.assertEquals(pileup.getBase(1), PileupElement.DELETION_BASE);
+        Assert.assertEquals(pileup.getQual(1), PileupElement.DELETION_QUAL);
+        Assert.assertEquals(pileup.getFlags(0), 0);
+        Assert.assertEquals(pileup.getFlags(1), PrimitivePileup.DELETION_FLAG);
+        Assert.assertEquals(pileup.getFlags(2), PrimitivePileup.REF_SKIP_FLAG);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAccessBeyondSize() {
+        final PrimitivePileup pileup = PrimitivePileup.of(makeReadPileup());
+        pileup.getBase(3);
+    }
+
+    @Test
+    public void testClearAndReuse() {
+        final PrimitivePileup pileup = new PrimitivePileup(loc, 1);
+        final GATKRead read = makeRead("read", "ACGTA", "5M");
+        final CigarElement element = read.getCigar().getCigarElement(0);
+        for ( int i = 0; i < 5; i++ ) {
+            pileup.add(read, i, element, 0, i);
+        }
+        Assert.assertEquals(pileup.getBases(), "ACGTA".getBytes());
+
+        final SimpleInterval next = new SimpleInterval("1", 4, 4);
+        pileup.clear(next);
+        Assert.assertTrue(pileup.isEmpty());
+        Assert.assertEquals(pileup.getLocation(), next);
+        Assert.assertEquals(pileup.toReadPileup().size(), 0);
+
+        pileup.add(read, 3, element, 0, 3);
+        Assert.assertEquals(pileup.size(), 1);
+        Assert.assertEquals(pileup.getBase(0), (byte)'T');
+        Assert.assertEquals(pileup.getQual(0), 13);
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        final PrimitivePileup pileup = PrimitivePileup.of(makeReadPileup());
+        final PrimitivePileup copy = pileup.copy();
+        pileup.clear(null);
+
+        Assert.assertEquals(copy.size(), 3);
+        Assert.assertEquals(copy.getLocation(), loc);
+        Assert.assertEquals(copy.getBases(), makeReadPileup().getBases());
+        Assert.assertEquals(copy.getRead(0).getName(), "read1");
+    }
+}
@@ -0,0 +1,114 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.locusiterator.AlignmentStateMachine;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public final class SparseSiteBaseCounterUnitTest extends BaseTest {
+    private static final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(2, 1, 1000);
+
+    private static GATKRead makeRead( final String name, final int contig, final int start, final String bases, final String cigar ) {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, name, contig, start, bases.length());
+        read.setBases(bases.getBytes());
+        final byte[] quals = new byte[bases.length()];
+        for ( int i = 0; i < quals.length; i++ ) {
+            quals[i] = (byte)(10 + 5 * i);
+        }
+        read.setBaseQualities(quals);
+        read.setCigar(cigar);
+        return read;
+    }
+
+    // the counts of the bases of a read at each position it is aligned to, found by stepping along the genome
+    private static int[][] expectedCounts( final List<GATKRead> reads, final List<SimpleInterval> intervals, final int minBaseQuality ) {
+        final List<SimpleInterval> sites = new ArrayList<>();
+        for ( final SimpleInterval interval : intervals ) {
+            for ( int position = interval.getStart(); position <= interval.getEnd(); position++ ) {
+                sites.add(new SimpleInterval(interval.getContig(), position, position));
+            }
+        }
+        final int[][] counts = new int[sites.size()][BaseUtils.BASES.length];
+        for ( final GATKRead read : reads ) {
+            final AlignmentStateMachine state = new AlignmentStateMachine(read);
+            while ( state.stepForwardOnGenome() != null ) {
+                final int site = sites.indexOf(state.getLocation());
+                if ( site != -1 && state.getCigarOperator().isAlignment() && read.getBaseQuality(state.getReadOffset()) >= minBaseQuality ) {
+                    final int baseIndex = BaseUtils.simpleBaseToBaseIndex(read.getBase(state.getReadOffset()));
+                    if ( baseIndex != -1 ) {
+                        counts[site][baseIndex]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    @DataProvider(name = "reads")
+    public Object[][] reads() {
+        final List<GATKRead> reads = Arrays.asList(
+                makeRead("match", 0, 1, "ACGTACGTAC", "10M"),
+                makeRead("clipped", 0, 3, "TTACGTAC", "2S5M1S"),
+                makeRead("insertion", 0, 2, "CGTTTACG", "3M2I3M"),
+                makeRead("deletion", 0, 4, "TACGT", "2M3D3M"),
+                makeRead("refSkip", 0, 5, "ACGTAC", "2M4N4M"),
+                makeRead("withN", 0, 6, "CNTAC", "2=1X2="),
+                makeRead("otherContig", 1, 1, "ACGTACGT", "8M"));
+        final List<SimpleInterval> singleSites = Arrays.asList(
+                new SimpleInterval("1", 3, 3), new SimpleInterval("1", 5, 5), new SimpleInterval("1", 6, 6),
+                new SimpleInterval("1", 7, 7), new SimpleInterval("1", 11, 11), new SimpleInterval("1", 100, 100),
+                new SimpleInterval("2", 4, 4));
+        final List<SimpleInterval> longIntervals = Arrays.asList(
+                new SimpleInterval("2", 2, 3), new SimpleInterval("1", 1, 8), new SimpleInterval("1", 10, 20));
+        return new Object[][] {
+                { reads, singleSites, 0 }, { reads, singleSites, 25 }, { reads, longIntervals, 0 }, { reads, longIntervals, 30 }
+        };
+    }
+
+    @Test(dataProvider = "reads")
+    public void testCountsMatchAlignment( final List<GATKRead> reads, final List<SimpleInterval> intervals, final int minBaseQuality ) {
+        final int[][] expected = expectedCounts(reads, intervals, minBaseQuality);
+        // the reads can come in any order
+        final List<GATKRead> shuffled = new ArrayList<>(reads);
+        Collections.shuffle(shuffled, new Random(17));
+        final SparseSiteBaseCounter counter = new SparseSiteBaseCounter(intervals, minBaseQuality);
+        shuffled.forEach(counter::add);
+
+        Assert.assertEquals(counter.getNumSites(), expected.length);
+        for ( int site = 0; site < expected.length; site++ ) {
+            Assert.assertEquals(counter.getBaseCounts(site), expected[site], "site " + site);
+            for ( int base = 0; base < BaseUtils.BASES.length; base++ ) {
+                Assert.assertEquals(counter.getCount(site, base), expected[site][base]);
+            }
+        }
+    }
+
+    @Test
+    public void testSpecificCounts() {
+        final SparseSiteBaseCounter counter = new SparseSiteBaseCounter(Arrays.asList(new SimpleInterval("1", 5, 6)), 0);
+        // position 5 is aligned in the first read, deleted in the second and skipped in the third
+        counter.add(makeRead("read1", 0, 1, "ACGTACGT", "8M"));
+        counter.add(makeRead("read2", 0, 3, "GTGT", "2M2D2M"));
+        counter.add(makeRead("read3", 0, 4, "TCG", "1M1N2M"));
+        counter.add(ArtificialReadUtils.createArtificialUnmappedRead(header, new byte[] {'A'}, new byte[] {30}));
+        Assert.assertEquals(counter.getBaseCounts(0), new int[] {1, 0, 0, 0});
+        Assert.assertEquals(counter.getBaseCounts(1), new int[] {0, 2, 0, 0});
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsortedIntervals() {
+        new SparseSiteBaseCounter(Arrays.asList(new SimpleInterval("1", 5, 6), new SimpleInterval("1", 6, 7)), 0);
+    }
+}
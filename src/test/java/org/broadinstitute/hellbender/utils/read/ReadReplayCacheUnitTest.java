@@ -0,0 +1,96 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ReadReplayCacheUnitTest extends BaseTest {
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeader(2, 1, 100000);
+
+    private static List<GATKRead> makeReads( final int numReads ) {
+        final List<GATKRead> reads = new ArrayList<>(numReads);
+        for ( int i = 0; i < numReads; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(HEADER, "read" + i, i % 2, i * 10 + 1, 50);
+            read.setAttribute("NM", i);
+            if ( i % 7 == 0 ) {
+                read.setIsUnmapped();
+            }
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    @DataProvider(name = "memoryLimits")
+    public Object[][] memoryLimits() {
+        // everything in memory, spilled part way through, and spilled from the first read
+        return new Object[][] { { 1L << 20, false }, { 1000L, true }, { 0L, true } };
+    }
+
+    @Test(dataProvider = "memoryLimits")
+    public void testReplay( final long maxBytesInMemory, final boolean expectSpill ) {
+        final List<GATKRead> reads = makeReads(100);
+        final File tmpDir = createTempDir("readReplayCache");
+        try ( final ReadReplayCache cache = new ReadReplayCache(HEADER, maxBytesInMemory, tmpDir) ) {
+            reads.forEach(cache::add);
+            Assert.assertEquals(cache.getNumReads(), reads.size());
+            Assert.assertEquals(cache.isSpilled(), expectSpill);
+            Assert.assertEquals(tmpDir.listFiles().length, expectSpill ? 1 : 0);
+
+            // the cache can be replayed more than once
+            assertReplays(cache, reads);
+            assertReplays(cache, reads);
+            Assert.assertTrue(cache.getNumBytes() > 0);
+            Assert.assertTrue(cache.getStatistics().contains("100 reads"));
+        }
+        Assert.assertEquals(tmpDir.listFiles().length, 0);
+    }
+
+    private static void assertReplays( final ReadReplayCache cache, final List<GATKRead> expected ) {
+        final List<GATKRead> actual = new ArrayList<>();
+        try ( final CloseableIterator<GATKRead> replay = cache.replay() ) {
+            replay.forEachRemaining(actual::add);
+        }
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < actual.size(); i++ ) {
+            Assert.assertEquals(actual.get(i).convertToSAMRecord(HEADER).getSAMString(), expected.get(i).convertToSAMRecord(HEADER).getSAMString());
+        }
+    }
+
+    @Test
+    public void testReadsAreRecordedWhenAdded() {
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(HEADER, "read", 0, 1, 50);
+        try ( final ReadReplayCache cache = new ReadReplayCache(HEADER, 1L << 20, null) ) {
+            cache.add(read);
+            read.setName("changed");
+            try ( final CloseableIterator<GATKRead> replay = cache.replay() ) {
+                Assert.assertEquals(replay.next().getName(), "read");
+                Assert.assertFalse(replay.hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyCache() {
+        try ( final ReadReplayCache cache = new ReadReplayCache(HEADER, 0L, null) ) {
+            try ( final CloseableIterator<GATKRead> replay = cache.replay() ) {
+                Assert.assertFalse(replay.hasNext());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAddAfterReplay() {
+        try ( final ReadReplayCache cache = new ReadReplayCache(HEADER, 1L << 20, null) ) {
+            cache.replay().close();
+            cache.add(ArtificialReadUtils.createArtificialRead(HEADER, "read", 0, 1, 50));
+        }
+    }
+}
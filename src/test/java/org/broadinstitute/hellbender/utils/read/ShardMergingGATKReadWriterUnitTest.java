@@ -0,0 +1,57 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ShardMergingGATKReadWriterUnitTest extends BaseTest {
+
+    @Test
+    public void testOutOfOrderShardsWithSpilling() throws IOException {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 100000);
+        final int numShards = 4;
+        final int readsPerShard = 25;
+        final List<GATKRead> expected = new ArrayList<>();
+        for ( int i = 0; i < numShards * readsPerShard; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, i * 10 + 1, 50);
+            read.setAttribute("NM", i);
+            expected.add(read);
+        }
+
+        final List<GATKRead> output = new ArrayList<>();
+        final GATKReadWriter mockWriter = new GATKReadWriter() {
+            @Override
+            public void addRead( final GATKRead read ) {
+                output.add(read);
+            }
+
+            @Override
+            public void close() { }
+        };
+        try ( final ShardMergingGATKReadWriter writer = new ShardMergingGATKReadWriter(mockWriter, header, numShards, 10, createTempDir("spill")) ) {
+            // write the shards in reverse order, so that everything but the first shard is held and most of it is spilled
+            for ( int shard = numShards - 1; shard >= 0; shard-- ) {
+                try ( final GATKReadWriter shardWriter = writer.getShardWriter(shard) ) {
+                    for ( int i = 0; i < readsPerShard; i++ ) {
+                        shardWriter.addRead(expected.get(shard * readsPerShard + i));
+                    }
+                }
+            }
+        }
+
+        Assert.assertEquals(output.size(), expected.size());
+        for ( int i = 0; i < output.size(); i++ ) {
+            Assert.assertEquals(output.get(i).getName(), expected.get(i).getName());
+            Assert.assertEquals(output.get(i).getStart(), expected.get(i).getStart());
+            Assert.assertEquals(output.get(i).getCigar(), expected.get(i).getCigar());
+            Assert.assertEquals(output.get(i).getBases(), expected.get(i).getBases());
+            Assert.assertEquals(output.get(i).getBaseQualities(), expected.get(i).getBaseQualities());
+            Assert.assertEquals(output.get(i).getAttributeAsInteger("NM"), expected.get(i).getAttributeAsInteger("NM"));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class PackedReadEndsForMarkDuplicatesMapUnitTest extends BaseTest {
+
+    @DataProvider(name = "hashMasks")
+    public Object[][] hashMasks() {
+        return new Object[][] {
+                { -1L },
+                // few distinct hashes, so that most keys collide
+                { 0x7L },
+                // all keys collide
+                { 0L },
+        };
+    }
+
+    @Test(dataProvider = "hashMasks")
+    public void testSameAsHashMap(final long hashMask) {
+        final PackedReadEndsForMarkDuplicatesMap map = new PackedReadEndsForMarkDuplicatesMap(new DiskBasedReadEndsForMarkDuplicatesMap(10), hashMask);
+        // sequence 0 becomes the current one, so everything is kept in the packed table
+        Assert.assertNull(map.remove(0, "none"));
+        final Map<String, ReadEndsForMarkDuplicates> expected = new HashMap<>();
+        final List<String> keys = new ArrayList<>();
+        final Random random = new Random(hashMask);
+        final int numOperations = hashMask == 0L ? 2000 : 20000;
+        for (int i = 0; i < numOperations; i++) {
+            if (keys.isEmpty() || random.nextInt(3) > 0) {
+                final String key = "rg" + random.nextInt(3) + ":read" + i + (i % 7 == 0 ? "é" : "");
+                final ReadEndsForMarkDuplicates ends = new ReadEndsForMarkDuplicates();
+                ends.read1IndexInFile = i;
+                ends.read1Coordinate = random.nextInt();
+                ends.score = (short) random.nextInt(Short.MAX_VALUE);
+                map.put(0, key, ends);
+                expected.put(key, ends);
+                keys.add(key);
+            } else {
+                final String key = keys.remove(random.nextInt(keys.size()));
+                PackedReadEndsUnitTest.assertSameReadEnds(map.remove(0, key), expected.remove(key));
+                // the key is gone, as is a key that was never added
+                Assert.assertNull(map.remove(0, key));
+                Assert.assertNull(map.remove(0, key + "x"));
+            }
+            Assert.assertEquals(map.size(), expected.size());
+        }
+        for (final String key : keys) {
+            PackedReadEndsUnitTest.assertSameReadEnds(map.remove(0, key), expected.get(key));
+        }
+        Assert.assertEquals(map.size(), 0);
+        Assert.assertEquals(map.sizeInRam(), 0);
+        Assert.assertTrue(map.getMaxSize() > 0);
+    }
+
+    @Test
+    public void testMatesOnOtherSequencesAreSpilled() {
+        final PackedReadEndsForMarkDuplicatesMap map = new PackedReadEndsForMarkDuplicatesMap(new DiskBasedReadEndsForMarkDuplicatesMap(10));
+        // as MarkDuplicates does for coordinate sorted input, reads are visited in sequence order; each one removes
+        // its name on its own sequence and, if its mate was not found, puts its ends on its mate's sequence
+        final int numSequences = 4;
+        final int readsPerSequence = 5000;
+        final List<List<String>> matesBySequence = new ArrayList<>();
+        for (int sequence = 0; sequence < numSequences; sequence++) {
+            matesBySequence.add(new ArrayList<>());
+        }
+        final Map<String, ReadEndsForMarkDuplicates> expected = new HashMap<>();
+        final Random random = new Random(11);
+        for (int sequence = 0; sequence < numSequences; sequence++) {
+            // the mates of reads on earlier sequences
+            for (final String key : matesBySequence.get(sequence)) {
+                PackedReadEndsUnitTest.assertSameReadEnds(map.remove(sequence, key), expected.remove(key));
+            }
+            // pairs with both ends on this sequence, and pairs with the other end on a later one
+            for (int i = 0; i < readsPerSequence; i++) {
+                final String key = "read" + sequence + ":" + i;
+                Assert.assertNull(map.remove(sequence, key));
+                final ReadEndsForMarkDuplicates ends = new ReadEndsForMarkDuplicates();
+                ends.read1IndexInFile = sequence * readsPerSequence + i;
+                final int mateSequence = sequence + 1 < numSequences && random.nextBoolean() ? sequence + 1 + random.nextInt(numSequences - sequence - 1) : sequence;
+                map.put(mateSequence, key, ends);
+                expected.put(key, ends);
+                if (mateSequence == sequence) {
+                    PackedReadEndsUnitTest.assertSameReadEnds(map.remove(sequence, key), expected.remove(key));
+                } else {
+                    matesBySequence.get(mateSequence).add(key);
+                }
+            }
+            Assert.assertEquals(map.size(), expected.size());
+        }
+        Assert.assertEquals(map.size(), 0);
+        // only the pairs on the same sequence were held in the packed table
+        Assert.assertEquals(map.getMaxSize(), 1);
+    }
+
+    @Test
+    public void testSameNameInDifferentReadGroups() {
+        final PackedReadEndsForMarkDuplicatesMap map = new PackedReadEndsForMarkDuplicatesMap(new DiskBasedReadEndsForMarkDuplicatesMap(10), 0L);
+        Assert.assertNull(map.remove(0, "none"));
+        final ReadEndsForMarkDuplicates first = new ReadEndsForMarkDuplicates();
+        first.read1IndexInFile = 1;
+        final ReadEndsForMarkDuplicates second = new ReadEndsForMarkDuplicates();
+        second.read1IndexInFile = 2;
+        map.put(0, "A:read", first);
+        map.put(0, "B:read", second);
+        Assert.assertEquals(map.remove(0, "B:read").read1IndexInFile, 2);
+        Assert.assertNull(map.remove(0, "B:read"));
+        Assert.assertEquals(map.remove(0, "A:read").read1IndexInFile, 1);
+    }
+}
@@ -0,0 +1,137 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import htsjdk.samtools.util.CloseableIterator;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public final class PackedReadEndsUnitTest extends BaseTest {
+
+    // the order of MarkDuplicates' comparator
+    private static final Comparator<ReadEndsForMarkDuplicates> EXPECTED_ORDER =
+            Comparator.<ReadEndsForMarkDuplicates>comparingInt(e -> e.libraryId)
+                    .thenComparingInt(e -> e.read1ReferenceIndex)
+                    .thenComparingInt(e -> e.read1Coordinate)
+                    .thenComparingInt(e -> e.orientation)
+                    .thenComparingInt(e -> e.read2ReferenceIndex)
+                    .thenComparingInt(e -> e.read2Coordinate)
+                    .thenComparingLong(e -> e.read1IndexInFile)
+                    .thenComparingLong(e -> e.read2IndexInFile);
+
+    @DataProvider(name = "sorts")
+    public Object[][] sorts() {
+        return new Object[][] {
+                // number of read ends, number of distinct positions, max records in RAM
+                { 0, 10, 100 },
+                { 1, 10, 100 },
+                { 17, 3, 100 },
+                { 1000, 20, 100000 },
+                { 1000, 1000000, 100000 },
+                { 5000, 50, 300 },
+                { 500, 5, 1 },
+        };
+    }
+
+    @Test(dataProvider = "sorts")
+    public void testSortsLikeMarkDuplicates(final int numEnds, final int numPositions, final int maxRecordsInRam) {
+        final Random random = new Random(numEnds + maxRecordsInRam);
+        final List<ReadEndsForMarkDuplicates> ends = new ArrayList<>(numEnds);
+        for (int i = 0; i < numEnds; i++) {
+            ends.add(randomReadEnds(random, numPositions, i));
+        }
+        final File tmpDir = createTempDir("packedReadEnds");
+        final PackedReadEnds packed = new PackedReadEnds(maxRecordsInRam, Collections.singletonList(tmpDir));
+        ends.forEach(packed::add);
+        Assert.assertEquals(packed.size(), numEnds);
+        Assert.assertEquals(packed.getNumRuns(), numEnds > maxRecordsInRam ? (numEnds - 1) / maxRecordsInRam : 0);
+
+        final List<ReadEndsForMarkDuplicates> sorted = new ArrayList<>(numEnds);
+        try (final CloseableIterator<ReadEndsForMarkDuplicates> iterator = packed.iterator()) {
+            iterator.forEachRemaining(sorted::add);
+        }
+        packed.cleanup();
+        Assert.assertEquals(tmpDir.listFiles().length, 0);
+
+        final List<ReadEndsForMarkDuplicates> expected = new ArrayList<>(ends);
+        Collections.sort(expected, EXPECTED_ORDER);
+        Assert.assertEquals(sorted.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameReadEnds(sorted.get(i), expected.get(i));
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeExtremes() {
+        final ReadEndsForMarkDuplicates ends = new ReadEndsForMarkDuplicates();
+        ends.libraryId = Short.MIN_VALUE;
+        ends.orientation = ReadEnds.RR;
+        ends.orientationForOpticalDuplicates = Byte.MIN_VALUE;
+        ends.score = Short.MAX_VALUE;
+        ends.readGroup = -1;
+        ends.read1ReferenceIndex = Integer.MAX_VALUE;
+        ends.read1Coordinate = Integer.MIN_VALUE;
+        ends.read1IndexInFile = Long.MAX_VALUE;
+        ends.tile = Short.MIN_VALUE;
+        ends.x = -1;
+        ends.y = Short.MAX_VALUE;
+        final long[] data = new long[PackedReadEnds.LONGS_PER_RECORD + 1];
+        PackedReadEnds.encode(ends, data, 1);
+        assertSameReadEnds(PackedReadEnds.decode(data, 1), ends);
+        // unpaired ends keep their unset read 2 fields
+        Assert.assertFalse(PackedReadEnds.decode(data, 1).isPaired());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAddAfterIterating() {
+        final PackedReadEnds packed = new PackedReadEnds(10, Collections.emptyList());
+        packed.add(new ReadEndsForMarkDuplicates());
+        packed.iterator().close();
+        packed.add(new ReadEndsForMarkDuplicates());
+    }
+
+    private static ReadEndsForMarkDuplicates randomReadEnds(final Random random, final int numPositions, final long index) {
+        final ReadEndsForMarkDuplicates ends = new ReadEndsForMarkDuplicates();
+        ends.libraryId = (short) random.nextInt(2);
+        ends.read1ReferenceIndex = random.nextInt(3);
+        ends.read1Coordinate = random.nextInt(numPositions) - 5;
+        ends.orientation = (byte) random.nextInt(6);
+        ends.score = (short) random.nextInt(Short.MAX_VALUE);
+        ends.read1IndexInFile = index;
+        if (random.nextBoolean()) {
+            ends.read2ReferenceIndex = random.nextInt(3);
+            ends.read2Coordinate = random.nextInt(numPositions);
+            ends.read2IndexInFile = index + 1 + random.nextInt(1000);
+            ends.orientationForOpticalDuplicates = (byte) random.nextInt(6);
+        }
+        ends.readGroup = (short) random.nextInt(4);
+        ends.tile = (short) random.nextInt(1200);
+        ends.x = (short) random.nextInt(Short.MAX_VALUE);
+        ends.y = (short) random.nextInt(Short.MAX_VALUE);
+        return ends;
+    }
+
+    static void assertSameReadEnds(final ReadEndsForMarkDuplicates actual, final ReadEndsForMarkDuplicates expected) {
+        Assert.assertEquals(actual.libraryId, expected.libraryId);
+        Assert.assertEquals(actual.orientation, expected.orientation);
+        Assert.assertEquals(actual.orientationForOpticalDuplicates, expected.orientationForOpticalDuplicates);
+        Assert.assertEquals(actual.score, expected.score);
+        Assert.assertEquals(actual.readGroup, expected.readGroup);
+        Assert.assertEquals(actual.read1ReferenceIndex, expected.read1ReferenceIndex);
+        Assert.assertEquals(actual.read1Coordinate, expected.read1Coordinate);
+        Assert.assertEquals(actual.read2ReferenceIndex, expected.read2ReferenceIndex);
+        Assert.assertEquals(actual.read2Coordinate, expected.read2Coordinate);
+        Assert.assertEquals(actual.read1IndexInFile, expected.read1IndexInFile);
+        Assert.assertEquals(actual.read2IndexInFile, expected.read2IndexInFile);
+        Assert.assertEquals(actual.tile, expected.tile);
+        Assert.assertEquals(actual.x, expected.x);
+        Assert.assertEquals(actual.y, expected.y);
+    }
+}
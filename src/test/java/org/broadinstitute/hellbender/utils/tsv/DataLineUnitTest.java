@@ -6,6 +6,9 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.Random;
+import java.util.function.Supplier;
+
 /**
  * Unit tests for {@link DataLine}.
  *
@@ -474,6 +477,86 @@ public class DataLineUnitTest extends BaseTest {
         subject.setAll(values);
     }
 
+    @DataProvider(name = "numericTextData")
+    public Object[][] numericTextData() {
+        return new Object[][]{
+                {"0"}, {"-0"}, {"+12"}, {"007"}, {"123456789"}, {"-2147483648"}, {"2147483647"}, {"2147483648"},
+                {"9223372036854775807"}, {"-9223372036854775809"}, {"123456789012345678"}, {"1.5"}, {"-0.0"}, {".5"},
+                {"5."}, {"1e5"}, {"1.25E-7"}, {"-3.0e+22"}, {"4e23"}, {"1e-22"}, {"1e-23"}, {"0e99999"},
+                {"0.1234567890123456789"}, {"123456789012345"}, {"1234567890123456"}, {"2.2250738585072014E-308"},
+                {"NaN"}, {"-Infinity"}, {"1.5d"}, {" 1.5"}, {"1.5 "}, {"0x1p3"}, {""}, {"-"}, {"."}, {"1e"}, {"1.2.3"},
+                {"e5"}, {"1,5"}, {"abc"}
+        };
+    }
+
+    @Test(dataProvider = "numericTextData")
+    public void testNumbersFromText(final String value) {
+        final TableColumnCollection columns = new TableColumnCollection("col1", "col2", "col3");
+        final char[] line = ("x\t" + value + "\ty").toCharArray();
+        final int[] bounds = {0, 1, 2, 2 + value.length(), 3 + value.length(), line.length};
+        final DataLine fromStrings = new DataLine(new String[] {"x", value, "y"}, columns, IllegalArgumentException::new);
+        final Supplier<DataLine> fromText = () -> new DataLine(1, line, bounds, columns, IllegalArgumentException::new);
+        assertSameResult(() -> fromText.get().getInt(1), () -> fromStrings.getInt(1));
+        assertSameResult(() -> fromText.get().getLong(1), () -> fromStrings.getLong(1));
+        assertSameResult(() -> fromText.get().getDouble(1), () -> fromStrings.getDouble(1));
+        Assert.assertEquals(fromText.get().get("col2"), value);
+        Assert.assertEquals(fromText.get().toArray(), new String[] {"x", value, "y"});
+    }
+
+    /**
+     * Checks that two computations return the same value, or fail with the same message.
+     */
+    private static void assertSameResult(final Supplier<Object> actual, final Supplier<Object> expected) {
+        Object expectedResult;
+        try {
+            expectedResult = expected.get();
+        } catch (final IllegalArgumentException ex) {
+            expectedResult = ex.getMessage();
+        }
+        Object actualResult;
+        try {
+            actualResult = actual.get();
+        } catch (final IllegalArgumentException ex) {
+            actualResult = ex.getMessage();
+        }
+        if (expectedResult instanceof Double && actualResult instanceof Double) {
+            // compares the bits, so that -0.0 and 0.0 are told apart
+            Assert.assertEquals(Double.doubleToLongBits((Double) actualResult), Double.doubleToLongBits((Double) expectedResult), "" + expectedResult);
+        } else {
+            Assert.assertEquals(actualResult, expectedResult);
+        }
+    }
+
+    @Test
+    public void testRandomDoublesFromText() {
+        final Random random = new Random(11);
+        final TableColumnCollection columns = new TableColumnCollection("col1");
+        for (int i = 0; i < 100000; i++) {
+            final String value;
+            switch (i % 4) {
+                case 0: value = Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(30) - 15)); break;
+                case 1: value = String.format("%.6f", random.nextGaussian() * 1000); break;
+                case 2: value = String.format("%." + random.nextInt(10) + "e", (random.nextDouble() - 0.5) * 1e10); break;
+                default: value = Long.toString(random.nextLong() >> random.nextInt(64));
+            }
+            final DataLine fromText = new DataLine(1, value.toCharArray(), new int[] {0, value.length()}, columns, IllegalArgumentException::new);
+            Assert.assertEquals(Double.doubleToLongBits(fromText.getDouble(0)), Double.doubleToLongBits(Double.parseDouble(value)), value);
+        }
+    }
+
+    @Test
+    public void testModifyTextLine() {
+        final TableColumnCollection columns = new TableColumnCollection("col1", "col2");
+        final String line = "1\t2";
+        final DataLine subject = new DataLine(1, line.toCharArray(), new int[] {0, 1, 2, 3}, columns, IllegalArgumentException::new);
+        subject.set(0, "x");
+        Assert.assertEquals(subject.get(1), "2");
+        Assert.assertEquals(subject.getInt(1), 2);
+        Assert.assertEquals(subject.toArray(), new String[] {"x", "2"});
+        subject.seek(1).append((String) null);
+        Assert.assertEquals(subject.toArray(), new String[] {"x", null});
+    }
+
     @DataProvider(name = "tableColumnsData")
     public Object[][] tableColumnsData() {
         return new Object[][]{
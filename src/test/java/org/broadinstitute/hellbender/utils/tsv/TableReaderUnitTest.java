@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.utils.tsv;
 
+import com.opencsv.CSVReader;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.broadinstitute.hellbender.exceptions.UserException;
@@ -13,6 +14,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -86,6 +88,10 @@ public class TableReaderUnitTest extends BaseTest {
             super(sourceName, reader);
         }
 
+        public TestTupleReader(final String sourceName, final String text) throws IOException {
+            super(sourceName, new StringReader(text));
+        }
+
         @Override
         protected void processColumns(final TableColumnCollection columns) {
             if (columns.columnCount() != 3)
@@ -625,6 +631,124 @@ public class TableReaderUnitTest extends BaseTest {
         Assert.assertEquals(actual, expected);
     }
 
+    @DataProvider(name = "chunkingData")
+    public Object[][] chunkingData() {
+        return new Object[][]{
+                {1, 0}, {7, 0}, {7, 3}, {64, 2},
+                {TableChunkReader.DEFAULT_CHUNK_SIZE, TableChunkReader.DEFAULT_MAX_CHUNKS_AHEAD}
+        };
+    }
+
+    @Test(dataProvider = "chunkingData")
+    public void testChunkedParsingMatchesCSVParsing(final int chunkSize, final int maxChunksAhead) throws IOException {
+        for (final boolean endsWithLineEnd : new boolean[]{true, false}) {
+            for (final boolean defaultLineClassification : new boolean[]{true, false}) {
+                final String text = randomTable(new Random(chunkSize), 3000, endsWithLineEnd);
+                final List<String> expected = parseWithCSVReader(text);
+                final List<String> actual = new ArrayList<>();
+                try (final TableReader<String> reader = new TableReader<String>(new StringReader(text)) {
+                    @Override
+                    protected String createRecord(final DataLine dataLine) {
+                        return dataLine.getLineNumber() + ":" + String.join("|", dataLine.toArray());
+                    }
+
+                    @Override
+                    protected void processCommentLine(final String comment, final long lineNumber) {
+                        actual.add(lineNumber + "#" + comment);
+                    }
+
+                    @Override
+                    protected boolean usesDefaultLineClassification() {
+                        return defaultLineClassification;
+                    }
+                }) {
+                    reader.setChunking(chunkSize, maxChunksAhead);
+                    reader.forEach(actual::add);
+                }
+                Assert.assertEquals(actual, expected);
+            }
+        }
+    }
+
+    @Test(dataProvider = "chunkingData")
+    public void testChunkedParsingWithCustomCommentLines(final int chunkSize, final int maxChunksAhead) throws IOException {
+        final String text = String.join("\n", "col1.str\tcol2.int\tcol3.dbl", "str1\t1\t1.5", "//comment\t2\t2.5", "str3\t3\t3.5");
+        try (final TestTupleReader reader = new TestTupleReader(null, text) {
+            @Override
+            protected boolean isCommentLine(final String[] line) {
+                return super.isCommentLine(line) || line[0].startsWith("//");
+            }
+        }) {
+            reader.setChunking(chunkSize, maxChunksAhead);
+            Assert.assertEquals(reader.toList(), Arrays.asList(new TestTuple("str1", 1, 1.5), new TestTuple("str3", 3, 3.5)));
+        }
+    }
+
+    @Test(dataProvider = "chunkingData")
+    public void testChunkedParsingErrorLineNumber(final int chunkSize, final int maxChunksAhead) throws IOException {
+        final String text = String.join("\r\n", "#comment", "col1.str\tcol2.int\tcol3.dbl", "str1\t1\t1.5", "\"str\n2\"\t2\t2.5", "str3\t3");
+        try (final TestTupleReader reader = new TestTupleReader("source", text)) {
+            reader.setChunking(chunkSize, maxChunksAhead);
+            reader.toList();
+            Assert.fail("the missing value was not reported");
+        } catch (final UserException.BadInput ex) {
+            Assert.assertTrue(ex.getMessage().contains("format error in 'source' at line 6"), ex.getMessage());
+        }
+    }
+
+    /**
+     * Generates a table of three columns with comments, repeated headers, quoted and escaped values, values that span
+     * lines, and all kinds of line ends.
+     */
+    private static String randomTable(final Random random, final int numLines, final boolean endsWithLineEnd) {
+        final String[] lineEnds = {"\n", "\r\n", "\r"};
+        final String[] values = {"", "0", "-12", "3.25", "1e-7", "abc", "NaN", "x y", "#", "\"quoted\ttab\"",
+                "\"escaped \\\" quote\"", "\"two\nlines\"", "\"three\r\nshort\rlines\"", "back\\slash", "\"\""};
+        final StringBuilder builder = new StringBuilder("#first comment\ncol1\tcol2\tcol3");
+        for (int i = 0; i < numLines; i++) {
+            builder.append(lineEnds[random.nextInt(lineEnds.length)]);
+            final int kind = random.nextInt(20);
+            if (kind == 0) {
+                builder.append("#comment\twith tab ").append(i);
+            } else if (kind == 1) {
+                builder.append("col1\tcol2\tcol3");
+            } else {
+                for (int j = 0; j < 3; j++) {
+                    // the first value must not start a comment
+                    final String value = values[random.nextInt(values.length)];
+                    builder.append(j > 0 ? "\t" : "").append(j == 0 && value.equals("#") ? "a#" : value);
+                }
+            }
+        }
+        if (endsWithLineEnd) {
+            builder.append("\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Parses a table as the reader did before reading in chunks, describing records and comments as the test readers do.
+     */
+    private static List<String> parseWithCSVReader(final String text) throws IOException {
+        final List<String> result = new ArrayList<>();
+        // the buffer holds the whole text, as the CSVReader's end of input check can fail when a CR LF line end is
+        // split between buffer fills, and end reading early
+        final LineNumberReader lineReader = new LineNumberReader(new StringReader(text), text.length() + 1);
+        final CSVReader csvReader = new CSVReader(lineReader, TableUtils.COLUMN_SEPARATOR, TableUtils.QUOTE_CHARACTER, TableUtils.ESCAPE_CHARACTER);
+        String[] header = null;
+        String[] line;
+        while ((line = csvReader.readNext()) != null) {
+            if (line[0].startsWith(TableUtils.COMMENT_PREFIX)) {
+                result.add(lineReader.getLineNumber() + "#" + String.join(TableUtils.COLUMN_SEPARATOR_STRING, line).substring(TableUtils.COMMENT_PREFIX.length()));
+            } else if (header == null) {
+                header = line;
+            } else if (!Arrays.equals(line, header)) {
+                result.add(lineReader.getLineNumber() + ":" + String.join("|", line));
+            }
+        }
+        return result;
+    }
+
     private File createTestInput(final String... lines) throws IOException {
         final File testFile = createTempFile("test", ".tab");
         final PrintWriter testWriter = new PrintWriter(new FileWriter(testFile));
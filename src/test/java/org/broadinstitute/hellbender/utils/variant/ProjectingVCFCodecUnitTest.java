@@ -0,0 +1,172 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import htsjdk.variant.variantcontext.Genotype;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public final class ProjectingVCFCodecUnitTest extends BaseTest {
+
+    // 60 samples, with some genotypes having fewer fields than the FORMAT column
+    private static final File MULTI_SAMPLE_VCF = new File(publicTestDir + "org/broadinstitute/hellbender/tools/walkers/variantutils/SelectVariants/vcfexample2.vcf");
+    // a sites-only file with END keys
+    private static final File GVCF = new File(publicTestDir + "org/broadinstitute/hellbender/engine/feature_data_source_test_gvcf.vcf");
+    private static final File BCF = new File(publicTestDir + "org/broadinstitute/hellbender/engine/minimal_bcf_file.bcf");
+
+    private static final Set<String> SAMPLES = ImmutableSet.of("NA11894", "NA12761", "NA12873", "NA07346", "notInTheFile");
+
+    private static List<VariantContext> read(final File file, final VariantProjection projection) {
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(file) ) {
+            Assert.assertTrue(source.setVariantProjection(projection));
+            final List<VariantContext> variants = new ArrayList<>();
+            for ( final VariantContext vc : source ) {
+                // decode the genotypes before the data source is closed
+                vc.getGenotypes();
+                variants.add(vc);
+            }
+            return variants;
+        }
+    }
+
+    private static void assertSameSite(final VariantContext actual, final VariantContext expected) {
+        Assert.assertEquals(actual.getContig(), expected.getContig());
+        Assert.assertEquals(actual.getStart(), expected.getStart());
+        Assert.assertEquals(actual.getEnd(), expected.getEnd());
+        Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+        Assert.assertEquals(actual.getPhredScaledQual(), expected.getPhredScaledQual());
+        Assert.assertEquals(actual.getFilters(), expected.getFilters());
+    }
+
+    private static void assertSameGenotype(final Genotype actual, final Genotype expected) {
+        Assert.assertEquals(actual.getSampleName(), expected.getSampleName());
+        Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+        Assert.assertEquals(actual.isPhased(), expected.isPhased());
+        Assert.assertEquals(actual.getGQ(), expected.getGQ());
+        Assert.assertEquals(actual.getExtendedAttributes(), expected.getExtendedAttributes());
+    }
+
+    @Test
+    public void testSampleProjection() {
+        final List<VariantContext> expected = read(MULTI_SAMPLE_VCF, VariantProjection.ALL);
+        final List<VariantContext> actual = read(MULTI_SAMPLE_VCF, VariantProjection.ALL.withSamples(SAMPLES));
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < actual.size(); i++ ) {
+            final VariantContext vc = actual.get(i);
+            assertSameSite(vc, expected.get(i));
+            Assert.assertEquals(vc.getAttributes(), expected.get(i).getAttributes());
+            Assert.assertEquals(vc.getSampleNamesOrderedByName(), Lists.newArrayList("NA07346", "NA11894", "NA12761", "NA12873"));
+            for ( final Genotype g : vc.getGenotypes() ) {
+                assertSameGenotype(g, expected.get(i).getGenotype(g.getSampleName()));
+            }
+        }
+    }
+
+    @Test
+    public void testSitesOnlyProjection() {
+        final List<VariantContext> expected = read(MULTI_SAMPLE_VCF, VariantProjection.ALL);
+        final List<VariantContext> actual = read(MULTI_SAMPLE_VCF, VariantProjection.ALL.withoutGenotypes());
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < actual.size(); i++ ) {
+            assertSameSite(actual.get(i), expected.get(i));
+            Assert.assertEquals(actual.get(i).getAttributes(), expected.get(i).getAttributes());
+            Assert.assertFalse(actual.get(i).hasGenotypes());
+        }
+    }
+
+    @Test
+    public void testInfoProjection() {
+        final Set<String> infoKeys = ImmutableSet.of("AF", "NS", "notInTheFile");
+        final List<VariantContext> expected = read(MULTI_SAMPLE_VCF, VariantProjection.ALL);
+        final List<VariantContext> actual = read(MULTI_SAMPLE_VCF, VariantProjection.ALL.withInfoKeys(infoKeys));
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < actual.size(); i++ ) {
+            final VariantContext vc = actual.get(i);
+            assertSameSite(vc, expected.get(i));
+            Assert.assertEquals(vc.getAttributes().keySet(), ImmutableSet.of("AF", "NS"));
+            for ( final String key : vc.getAttributes().keySet() ) {
+                Assert.assertEquals(vc.getAttribute(key), expected.get(i).getAttribute(key));
+            }
+            Assert.assertEquals(vc.getNSamples(), expected.get(i).getNSamples());
+        }
+    }
+
+    @Test
+    public void testInfoProjectionKeepsEnd() {
+        final List<VariantContext> expected = read(GVCF, VariantProjection.ALL);
+        final List<VariantContext> actual = read(GVCF, VariantProjection.ALL.withInfoKeys(Collections.emptySet()));
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < actual.size(); i++ ) {
+            assertSameSite(actual.get(i), expected.get(i));
+        }
+    }
+
+    @Test
+    public void testFormatProjection() {
+        final List<VariantContext> expected = read(MULTI_SAMPLE_VCF, VariantProjection.ALL);
+        final List<VariantContext> actual = read(MULTI_SAMPLE_VCF, VariantProjection.ALL.withSamples(SAMPLES).withFormatKeys(Collections.singleton("GQ")));
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < actual.size(); i++ ) {
+            final VariantContext vc = actual.get(i);
+            assertSameSite(vc, expected.get(i));
+            Assert.assertEquals(vc.getNSamples(), 4);
+            for ( final Genotype g : vc.getGenotypes() ) {
+                final Genotype full = expected.get(i).getGenotype(g.getSampleName());
+                Assert.assertEquals(g.getAlleles(), full.getAlleles());
+                Assert.assertEquals(g.getGQ(), full.getGQ());
+                Assert.assertFalse(g.hasExtendedAttribute("RD"));
+            }
+        }
+    }
+
+    @Test
+    public void testHeaderIsNotProjected() {
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(MULTI_SAMPLE_VCF) ) {
+            source.setVariantProjection(VariantProjection.ALL.withoutGenotypes());
+            Assert.assertEquals(((VCFHeader)source.getHeader()).getNGenotypeSamples(), 60);
+        }
+    }
+
+    @Test
+    public void testChangeProjection() {
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(MULTI_SAMPLE_VCF) ) {
+            final SimpleInterval interval = new SimpleInterval("1", 10020400, 10020400);
+            source.setVariantProjection(VariantProjection.ALL.withSamples(SAMPLES));
+            Assert.assertEquals(source.queryAndPrefetch(interval).get(0).getNSamples(), 4);
+            // the query cache must not return records decoded with the previous projection
+            source.setVariantProjection(VariantProjection.ALL);
+            Assert.assertEquals(source.queryAndPrefetch(interval).get(0).getNSamples(), 60);
+        }
+    }
+
+    @Test
+    public void testProjectionNotSupportedForBCF() {
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(BCF) ) {
+            Assert.assertFalse(source.setVariantProjection(VariantProjection.ALL.withoutGenotypes()));
+        }
+    }
+
+    @Test
+    public void testProjectionAccessors() {
+        final VariantProjection projection = VariantProjection.ALL.withSamples(SAMPLES).withFormatKeys(Collections.singleton("GQ"));
+        Assert.assertEquals(projection.getSamples(), SAMPLES);
+        Assert.assertEquals(projection.getFormatKeys(), ImmutableSet.of("GT", "GQ"));
+        Assert.assertNull(projection.getInfoKeys());
+        Assert.assertFalse(projection.keepsAll());
+        Assert.assertTrue(VariantProjection.ALL.keepsAll());
+        Assert.assertTrue(VariantProjection.ALL.withoutGenotypes().isSitesOnly());
+        Assert.assertEquals(read(MULTI_SAMPLE_VCF, projection).stream().map(VariantContext::getNSamples).collect(Collectors.toSet()), Collections.singleton(4));
+    }
+}
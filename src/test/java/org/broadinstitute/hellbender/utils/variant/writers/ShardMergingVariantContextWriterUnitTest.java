@@ -0,0 +1,102 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.utils.test.BaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public final class ShardMergingVariantContextWriterUnitTest extends BaseTest {
+    private static final List<Allele> ALLELES = Arrays.asList(Allele.create("A", true), Allele.create("C"));
+
+    private static final class MockWriter implements VariantContextWriter {
+        final List<VariantContext> emitted = new ArrayList<>();
+        boolean headerWritten = false;
+        boolean closed = false;
+
+        @Override
+        public void writeHeader( final VCFHeader header ) {
+            headerWritten = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public boolean checkError() {
+            return false;
+        }
+
+        @Override
+        public void add( final VariantContext vc ) {
+            emitted.add(vc);
+        }
+    }
+
+    private static VariantContext makeVariant( final int start ) {
+        return new VariantContextBuilder("test", "1", start, start, ALLELES).make();
+    }
+
+    @Test
+    public void testConcurrentShardWriters() throws Exception {
+        final int numShards = 10;
+        final int variantsPerShard = 200;
+        final MockWriter mockWriter = new MockWriter();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try ( final ShardMergingVariantContextWriter writer =
+                      new ShardMergingVariantContextWriter(mockWriter, new VCFHeader(), numShards, 50, createTempDir("spill")) ) {
+            Assert.assertTrue(mockWriter.headerWritten);
+            final List<Integer> shards = new ArrayList<>();
+            for ( int shard = 0; shard < numShards; shard++ ) {
+                shards.add(shard);
+            }
+            Collections.shuffle(shards, new Random(1));
+            final List<Future<?>> futures = new ArrayList<>();
+            for ( final int shard : shards ) {
+                futures.add(executor.submit(() -> {
+                    try ( final VariantContextWriter shardWriter = writer.getShardWriter(shard) ) {
+                        for ( int i = 0; i < variantsPerShard; i++ ) {
+                            shardWriter.add(makeVariant(shard * variantsPerShard + i + 1));
+                        }
+                    }
+                }));
+            }
+            for ( final Future<?> future : futures ) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        Assert.assertTrue(mockWriter.closed);
+        Assert.assertEquals(mockWriter.emitted.size(), numShards * variantsPerShard);
+        for ( int i = 0; i < mockWriter.emitted.size(); i++ ) {
+            final VariantContext vc = mockWriter.emitted.get(i);
+            Assert.assertEquals(vc.getContig(), "1");
+            Assert.assertEquals(vc.getStart(), i + 1);
+            Assert.assertEquals(vc.getAlleles(), ALLELES);
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testShardWriterRejectsHeader() {
+        final ShardMergingVariantContextWriter writer = new ShardMergingVariantContextWriter(new MockWriter(), new VCFHeader(), 1, 10, null);
+        writer.getShardWriter(0).writeHeader(new VCFHeader());
+    }
+}